@@ -35,6 +35,7 @@ import org.kohsuke.args4j.spi.StringArrayOptionHandler;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.AppType;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.DatabaseProvider;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.UiInterface;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenMitServerDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.frontend.RundenLaufMitHerausschlagenAppUi;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.RundenLaufMitHerausschlagenService;
@@ -139,7 +140,7 @@ public class RundenLaufMitHerausschlagenClient {
         @Option(
         		name = "-server-host",
         		aliases = "--game-server-host",
-                usage = "Host of the game server to connect to",
+                usage = "Host of the game server to connect to, or unix:<PATH> for its unix domain socket on the same host",
                 metaVar = "<HOST>"
         )
         public String gameServerHost = "localhost";
@@ -150,7 +151,7 @@ public class RundenLaufMitHerausschlagenClient {
                 usage = "Port of the game server to connect to",
                 metaVar = "<PORT>"
         )
-        public int gameServerPort = 4666;
+        public int gameServerPort = ServerEinstellungen.STANDARD_SERVER_PORT;
         
         @Option(
         		required = true,
@@ -230,8 +231,9 @@ public class RundenLaufMitHerausschlagenClient {
 					《》
 					《	-server-host (--game-server-host) <HOST>  						(default: localhost)》
 					《		Host of the game server to connect to》
+					《		(unix:<PATH> connects to the unix domain socket of a game server on the same host)》
 					《》
-					《	-server-port (--game-server-port) <PORT>							(default: 4666)》
+					《	-server-port (--game-server-port) <PORT>							(default: 5678)》
 					《		Port of the game server to connect to》
 					《》
 					《	-player-key (--game-player-key) <PLAYER_KEY>》
@@ -23,10 +23,16 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf;
 
+import java.nio.file.Path;
 import java.util.List;
 
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.VerbindungsAusfuehrung.VerbindungsModus;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitSqlDatenbank;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenLeseDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenMitServerDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.frontend.RundenLaufMitHerausschlagenAppUi;
@@ -62,7 +68,7 @@ public class RundenLaufMitHerausschlagenFactory {
 	 * </pre>
 	 */
 	@SuppressWarnings("unchecked")
-	public static <T extends RundenLaufMitHerausschlagenDao> T createRundenMitHerausschlagenDao(
+	public static <T extends RundenLaufMitHerausschlagenLeseDao> T createRundenMitHerausschlagenDao(
 			AppType appType,
 			DatabaseProvider databaseProvider,
 			String databaseHost,
@@ -86,7 +92,7 @@ public class RundenLaufMitHerausschlagenFactory {
 		case SQLITE_FILE, SQLITE, FILE -> (T)sqLiteFileDao(databaseName);
 		case SQLITE_MEMORY, MEMORY -> (T)sqLiteMemoryDao();
 		case MYSQL -> (T)mySqlDao(databaseHost, databasePort, databaseName, (String)user, (String)credentials);
-		case GAME_SERVER -> (T)new RundenLaufMitHerausschlagenDaoMitServer((long)user, (long)credentials);
+		case GAME_SERVER -> (T)new RundenLaufMitHerausschlagenDaoMitServer(databaseHost, databasePort, (long)user, (long)credentials);
 		default -> (T)sqLiteFileDao(databaseName);
 		};
 	}
@@ -137,15 +143,63 @@ public class RundenLaufMitHerausschlagenFactory {
 	 */
 	public static RundenLaufMitHerausschlagenService createRundenLaufMitHerausschlagenService(
 			AppType client,
-			RundenLaufMitHerausschlagenDao james
+			RundenLaufMitHerausschlagenLeseDao james
 	) {
 		return switch(client) {
 		case CLIENT -> new RundenLaufMitHerausschlagenClientService((RundenLaufMitHerausschlagenMitServerDao)james);
-		case SERVER -> new RundenLaufMitHerausschlagenServerService(james, null);
+		case SERVER -> new RundenLaufMitHerausschlagenServerService((RundenLaufMitHerausschlagenDao)james, null);
 		default -> throw new UnsupportedOperationException("Unknown app type");
 		};
 	}
 	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den Spiel-Server, der die Clients über das Netzwerk bedient.
+	 * @param serverEngine der Transport für die Client-Verbindungen
+	 * @param serverPort der Port, an dem auf Verbindungen gehorcht wird
+	 * @param serverThreads wie der blockierende Transport die Verbindungen auf Threads verteilt
+	 * @param eventLoops die Anzahl der Event-Loop Threads des NIO Transports
+	 * @param unixSocketPfad der Pfad, an dem der NIO Transport zusätzlich einen Unix Domain Socket bindet, oder null
+	 * @param verwaltungsGeheimnis das Geheimnis für VerwaltungsAufträge eines SitzungsRouters, oder null
+	 * @param checkpointVerzeichnis das Verzeichnis für die Checkpoints der Sitzungen beim Abschalten, oder null
+	 * @param mitBeispielSitzung ob der Server mit einer Beispiel-Sitzung startet
+	 * @param james die Datenhaltung des Servers
+	 * @return der noch nicht gestartete Server
+	 * 
+	 * </pre>
+	 */
+	public static RundenLaufMitHerausschlagenServer createRundenLaufMitHerausschlagenServer(
+			ServerEngine serverEngine,
+			int serverPort,
+			ServerThreads serverThreads,
+			int eventLoops,
+			String unixSocketPfad,
+			Long verwaltungsGeheimnis,
+			String checkpointVerzeichnis,
+			boolean mitBeispielSitzung,
+			RundenLaufMitHerausschlagenDao james
+	) {
+		ServerEinstellungen einstellungen = ServerEinstellungen.erstellenStandardEinstellungen()
+				.setServerPort(serverPort)
+				.setTransportArt(switch(serverEngine) {
+				case BLOCKING -> TransportArt.BLOCKIEREND;
+				case NIO -> TransportArt.NIO;
+				})
+				.setVerbindungsModus(switch(serverThreads) {
+				case VIRTUAL -> VerbindungsModus.VIRTUELLE_THREADS;
+				case PLATFORM -> VerbindungsModus.PLATTFORM_THREADS;
+				})
+				.setVerwaltungsGeheimnis(verwaltungsGeheimnis)
+				.setMitBeispielSitzung(mitBeispielSitzung)
+				.setUnixSocketPfad(unixSocketPfad != null ? Path.of(unixSocketPfad) : null)
+				.setCheckpointVerzeichnis(checkpointVerzeichnis != null ? Path.of(checkpointVerzeichnis) : null);
+		if(eventLoops > 0) {
+			einstellungen.setAnzahlEventLoops(eventLoops);
+		}
+		return new RundenLaufMitHerausschlagenServer(einstellungen, james);
+	}
+	
 	private static RundenLaufMitHerausschlagenDao mySqlDao(
 			String host,
 			int port,
@@ -202,6 +256,32 @@ public class RundenLaufMitHerausschlagenFactory {
 		GAME_SERVER
 	}
 	
+	/**
+	 * <pre>
+	 * 
+	 * Optionen für den Transport des Spiel-Servers.
+	 * @author Christian Alexander Wiesenäcker
+	 * 
+	 * </pre>
+	 */
+	public enum ServerEngine {
+		BLOCKING,
+		NIO
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Optionen für die Threads des blockierenden Transports.
+	 * @author Christian Alexander Wiesenäcker
+	 * 
+	 * </pre>
+	 */
+	public enum ServerThreads {
+		VIRTUAL,
+		PLATFORM
+	}
+	
 	/**
 	 * <pre>
 	 * 
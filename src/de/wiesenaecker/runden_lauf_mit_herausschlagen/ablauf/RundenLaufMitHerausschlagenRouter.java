@@ -0,0 +1,159 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.StringArrayOptionHandler;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.SitzungsRouter;
+
+/**
+ * <pre>
+ * 
+ * Der Start des Sitzungs-Routers, der die Clients auf mehrere Spiel-Server verteilt.
+ * 
+ * Die Spiel-Server werden mit demselben -server-admin-secret gestartet, damit der Router
+ * ihre Sitzungen umziehen lassen kann, wenn ein Server dazu kommt oder geht.
+ * Das geschieht über Befehle auf der Konsole des Routers:
+ * 
+ * - join host:port		nimmt einen Spiel-Server in den Ring auf
+ * - leave host:port		nimmt einen Spiel-Server aus dem Ring
+ * - ring					zeigt den Ring
+ * - quit					beendet den Router
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class RundenLaufMitHerausschlagenRouter {
+    static class Options {
+        @Option(
+        		name = "-router-port",
+        		aliases = "--session-router-port",
+                usage = "The port, on which the router accepts client connections",
+                metaVar = "<PORT>"
+        )
+        public int routerPort = ServerEinstellungen.STANDARD_SERVER_PORT;
+
+        @Option(
+        		required = true,
+        		name = "-nodes",
+        		aliases = "--game-server-nodes",
+                usage = "The game servers, on which the sessions are distributed",
+                metaVar = "<HOST:PORT> ...",
+                handler = StringArrayOptionHandler.class
+        )
+        public List<String> nodes;
+
+        @Option(
+        		required = true,
+        		name = "-admin-secret",
+        		aliases = "--game-server-admin-secret",
+                usage = "The admin secret of the game servers",
+                metaVar = "<SECRET>"
+        )
+        public long adminSecret;
+    }
+    
+	/**
+	 * <pre>
+	 * 
+	 * @param args
+	 * 
+	 * </pre>
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		CmdLineParser parser = new CmdLineParser(options);
+		SitzungsRouter router;
+		try {
+			parser.parseArgument(args);
+			router = new SitzungsRouter(options.routerPort, options.nodes, options.adminSecret);
+		} catch(CmdLineException | IllegalArgumentException ausnahme) {
+			System.out.println("""
+					《Command line options:》
+					《》
+					《	-router-port (--session-router-port) <PORT>》
+					《		The port, on which the router accepts client connections》
+					《》
+					《		Default: 5678》
+					《》
+					《	-nodes (--game-server-nodes) <HOST:PORT> ...》
+					《		The game servers, on which the sessions are distributed》
+					《》
+					《	-admin-secret (--game-server-admin-secret) <SECRET>》
+					《		The admin secret, with which the game servers were started》
+					《》
+					《Console commands:》
+					《》
+					《	join <HOST:PORT>		adds a game server and moves its sessions to it》
+					《	leave <HOST:PORT>		moves the sessions of a game server away and removes it》
+					《	ring					shows the game servers》
+					《	quit					stops the router》
+			""".replaceAll("(^|》)\\s*(《|$)", "\n").trim());
+			return;
+		}
+		try {
+			router.starten();
+		} catch(IOException ausnahme) {
+			System.out.println("The session router cannot listen on port " + options.routerPort + ": " + ausnahme.getMessage());
+			return;
+		}
+		System.out.println("Session router listens on port " + router.getLokalerPort() + ": " + router.getRing().getKnoten());
+		
+		try(BufferedReader konsole = new BufferedReader(new InputStreamReader(System.in))) {
+			String zeile;
+			while((zeile = konsole.readLine()) != null) {
+				String[] befehl = zeile.trim().split("\\s+");
+				try {
+					switch(befehl[0]) {
+					case "join" -> System.out.println("moved sessions: " + router.hinzufuegenKnoten(befehl[1]));
+					case "leave" -> System.out.println("moved sessions: " + router.entfernenKnoten(befehl[1]));
+					case "ring" -> System.out.println(router.getRing().getKnoten());
+					case "quit" -> {
+						return;
+					}
+					case "" -> {
+					}
+					default -> System.out.println("unknown command: " + zeile);
+					}
+				} catch(IOException | RuntimeException ausnahme) {
+					System.out.println(befehl[0] + " failed: " + ausnahme.getMessage());
+				}
+			}
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+		} finally {
+			router.beenden();
+		}
+	}
+}
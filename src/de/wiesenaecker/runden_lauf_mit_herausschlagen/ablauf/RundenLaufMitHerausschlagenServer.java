@@ -23,6 +23,7 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -34,7 +35,10 @@ import org.kohsuke.args4j.spi.StringArrayOptionHandler;
 
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.AppType;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.DatabaseProvider;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.ServerEngine;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.ServerThreads;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.ablauf.RundenLaufMitHerausschlagenFactory.UiInterface;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.frontend.RundenLaufMitHerausschlagenAppUi;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.RundenLaufMitHerausschlagenService;
@@ -183,6 +187,69 @@ public class RundenLaufMitHerausschlagenServer {
                 metaVar = "<DATABASE_PASSWORD>"
         )
         public String databasePassword = "";
+
+        @Option(
+        		name = "-server-port",
+        		aliases = "--game-server-port",
+                usage = "The port, on which the game server accepts client connections",
+                metaVar = "<PORT>"
+        )
+        public int serverPort = ServerEinstellungen.STANDARD_SERVER_PORT;
+
+        @Option(
+        		name = "-server-engine",
+        		aliases = "--game-server-engine",
+                usage = "The transport engine, which serves the client connections",
+                metaVar = "blocking / nio"
+        )
+        public ServerEngine serverEngine = ServerEngine.BLOCKING;
+
+        @Option(
+        		name = "-server-threads",
+        		aliases = "--game-server-connection-threads",
+                usage = "The threads, on which the blocking engine serves the client connections",
+                metaVar = "virtual / platform"
+        )
+        public ServerThreads serverThreads = ServerThreads.VIRTUAL;
+
+        @Option(
+        		name = "-server-event-loops",
+        		aliases = "--game-server-event-loops",
+                usage = "The number of event loop threads of the nio engine (0: half of the processor cores)",
+                metaVar = "<COUNT>"
+        )
+        public int serverEventLoops = 0;
+
+        @Option(
+        		name = "-server-unix-socket",
+        		aliases = "--game-server-unix-socket",
+                usage = "A unix domain socket path, on which the nio engine additionally accepts clients on the same host",
+                metaVar = "<PATH>"
+        )
+        public String serverUnixSocket = null;
+
+        @Option(
+        		name = "-server-admin-secret",
+        		aliases = "--game-server-admin-secret",
+                usage = "The secret, with which a session router may move sessions between game servers",
+                metaVar = "<SECRET>"
+        )
+        public Long serverAdminSecret = null;
+
+        @Option(
+        		name = "-server-checkpoint-dir",
+        		aliases = "--game-server-checkpoint-directory",
+                usage = "A directory, into which the game server checkpoints its sessions on shutdown and from which it resumes them on start",
+                metaVar = "<PATH>"
+        )
+        public String serverCheckpointDirectory = null;
+
+        @Option(
+        		name = "-server-without-example-game",
+        		aliases = "--game-server-without-example-game",
+                usage = "Starts the game server without its example game, e.g. behind a session router"
+        )
+        public boolean serverWithoutExampleGame = false;
     }
     
     
@@ -198,6 +265,7 @@ public class RundenLaufMitHerausschlagenServer {
 		RundenLaufMitHerausschlagenDao james;
 		RundenLaufMitHerausschlagenService jeanie;
 		RundenLaufMitHerausschlagenAppUi interaktion;
+		de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer spielServer;
 		CmdLineParser parser = new CmdLineParser(options);
 		try {
 			parser.parseArgument(args);
@@ -222,6 +290,17 @@ public class RundenLaufMitHerausschlagenServer {
 					options.brandBoardSloganWords,
 					jeanie
 			);
+			spielServer = RundenLaufMitHerausschlagenFactory.createRundenLaufMitHerausschlagenServer(
+					options.serverEngine,
+					options.serverPort,
+					options.serverThreads,
+					options.serverEventLoops,
+					options.serverUnixSocket,
+					options.serverAdminSecret,
+					options.serverCheckpointDirectory,
+					!options.serverWithoutExampleGame,
+					james
+			);
 		} catch(CmdLineException | IllegalArgumentException ausnahme) {
 			System.out.println("""
 					《Command line options:》
@@ -279,9 +358,70 @@ public class RundenLaufMitHerausschlagenServer {
 					《		The database password to authenticate at the database (mysql only)》
 					《》
 					《		Default: ""》
+					《》
+					《	-server-port (--game-server-port) <PORT>》
+					《		The port, on which the game server accepts client connections》
+					《》
+					《		Default: 5678》
+					《》
+					《	-server-engine (--game-server-engine) <ENGINE>》
+					《		The transport engine, which serves the client connections》
+					《》
+					《		o For one thread per connection:				blocking》
+					《		o For a few selector event loop threads:		nio》
+					《》
+					《		Default: "blocking"》
+					《》
+					《	-server-threads (--game-server-connection-threads) <THREADS>》
+					《		The threads, on which the blocking engine serves the client connections》
+					《		(virtual threads fall back to a bounded platform thread pool before Java 21)》
+					《》
+					《		o For one virtual thread per connection:		virtual》
+					《		o For a bounded platform thread pool:			platform》
+					《》
+					《		Default: "virtual"》
+					《》
+					《	-server-event-loops (--game-server-event-loops) <COUNT>》
+					《		The number of event loop threads of the nio engine》
+					《》
+					《		Default: 0 (half of the processor cores)》
+					《》
+					《	-server-unix-socket (--game-server-unix-socket) <PATH>》
+					《		A unix domain socket path, on which the nio engine additionally accepts》
+					《		clients on the same host (e.g. bots), which then skip the TCP stack》
+					《》
+					《		Default: none (only the TCP port)》
+					《》
+					《	-server-admin-secret (--game-server-admin-secret) <SECRET>》
+					《		The secret, with which a session router may move sessions between game servers》
+					《》
+					《		Default: none (no session router may move sessions)》
+					《》
+					《	-server-checkpoint-dir (--game-server-checkpoint-directory) <PATH>》
+					《		A directory, into which the game server checkpoints its sessions on shutdown,》
+					《		and from which a restarted game server resumes them (needs the same database)》
+					《》
+					《		Default: none (sessions are lost on shutdown)》
+					《》
+					《	-server-without-example-game (--game-server-without-example-game)》
+					《		Starts the game server without its example game, e.g. behind a session router》
 			""".replaceAll("(^|》)\\s*(《|$)", "\n").trim());
 			return;
 		}
+		try {
+			spielServer.starten();
+		} catch(IOException ausnahme) {
+			System.out.println("The game server cannot listen on port " + options.serverPort + ": " + ausnahme.getMessage());
+			return;
+		}
+		// beim Beenden des Prozesses laufende Requests fertig machen und die Sitzungen sichern
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				spielServer.abschalten(de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer.STANDARD_ABSCHALT_WARTEZEIT_MILLIS);
+			} catch(IOException | InterruptedException ausnahme) {
+				System.out.println("The game server could not checkpoint all sessions: " + ausnahme.getMessage());
+			}
+		}, "server-abschalten"));
 		interaktion.launch();
 	}
 }
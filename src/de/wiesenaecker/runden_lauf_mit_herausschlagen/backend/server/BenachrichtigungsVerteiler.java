@@ -0,0 +1,408 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert.AenderungsArt;
+
+/**
+ * <pre>
+ * 
+ * Schickt den registrierten Clients einer Sitzung eine {@link SpielZustandGeaendert} Benachrichtigung,
+ * sobald sich der SpielZustand der Sitzung ändert.
+ * Die Benachrichtigung geht an clientNotifyHost/clientNotifyPort der ClientRegistrierung.
+ * 
+ * - Änderungen einer Sitzung innerhalb des Fensters werden zu einer Benachrichtigung gebündelt
+ * - {@link #melden(ServerSpielSitzung, AenderungsArt)} blockiert nie, der Thread der Sitzung
+ *   zählt nur die Änderung und plant die Auslieferung ein
+ * - geschickt wird auf einem Pool mit fester Obergrenze an Threads und begrenzter Warteschlange
+ * - je Client ist höchstens ein Sende-Auftrag unterwegs. Kommt eine neue Benachrichtigung,
+ *   während die alte noch geschrieben wird, ersetzt sie alle noch nicht geschriebenen.
+ *   Ein langsamer Client bekommt also weniger Benachrichtigungen, er staut aber nichts an
+ * - die Verbindung zu einem Client bleibt offen, nach einem Fehler wird sie
+ *   bei der nächsten Benachrichtigung neu aufgebaut
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class BenachrichtigungsVerteiler {
+	/**
+	 * das Standard-Fenster, in dem Änderungen gebündelt werden
+	 */
+	public static final long STANDARD_FENSTER_MILLIS = 20;
+	
+	/**
+	 * die Standard-Anzahl der Sende-Threads
+	 */
+	public static final int STANDARD_ANZAHL_THREADS = 4;
+	
+	/**
+	 * so viele Sende-Aufträge dürfen auf einen freien Thread warten, weitere werden verworfen
+	 */
+	public static final int MAX_WARTESCHLANGE = 4096;
+	
+	/**
+	 * so lange wird auf den Aufbau einer Verbindung zu einem Client gewartet
+	 */
+	public static final int VERBINDUNGS_TIMEOUT_MILLIS = 1_000;
+	
+	/**
+	 * die Anfrage-Id im Rahmen einer Benachrichtigung, auf sie gibt es keine Antwort
+	 */
+	public static final long BENACHRICHTIGUNGS_ID = NachrichtenRahmen.BENACHRICHTIGUNGS_ID;
+	
+	private final long fensterMillis;
+	
+	private final ThreadPoolExecutor sendePool;
+	
+	private final ScheduledThreadPoolExecutor zeitgeber;
+	
+	/**
+	 * die Verteilung je Sitzung, nach dem Schlüssel des SpielZustands
+	 */
+	private final Map<Long, SitzungsVerteilung> verteilungen = new ConcurrentHashMap<>();
+	
+	private final AtomicLong anzahlGesendet = new AtomicLong();
+	
+	private final AtomicLong anzahlFehlgeschlagen = new AtomicLong();
+	
+	private final AtomicLong anzahlVerworfen = new AtomicLong();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param fensterMillis so lange werden Änderungen gesammelt (0 für sofort)
+	 * @param anzahlThreads die Obergrenze der Sende-Threads
+	 * 
+	 * </pre>
+	 */
+	public BenachrichtigungsVerteiler(long fensterMillis, int anzahlThreads) {
+		if(fensterMillis < 0) {
+			throw new IllegalArgumentException("das Fenster darf nicht negativ sein: " + fensterMillis);
+		}
+		if(anzahlThreads < 1) {
+			throw new IllegalArgumentException("mindestens ein Benachrichtigungs-Thread wird benötigt: " + anzahlThreads);
+		}
+		this.fensterMillis = fensterMillis;
+		
+		AtomicInteger threadNummer = new AtomicInteger();
+		this.sendePool = new ThreadPoolExecutor(
+				anzahlThreads,
+				anzahlThreads,
+				60,
+				TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(MAX_WARTESCHLANGE),
+				auftrag -> {
+					Thread thread = new Thread(auftrag, "benachrichtigung-" + threadNummer.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+		);
+		this.sendePool.allowCoreThreadTimeOut(true);
+		
+		this.zeitgeber = new ScheduledThreadPoolExecutor(1, auftrag -> {
+			Thread thread = new Thread(auftrag, "benachrichtigung-zeitgeber");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Meldet eine Änderung des SpielZustands einer Sitzung.
+	 * Blockiert nie und darf deshalb auf dem Thread der Sitzung aufgerufen werden.
+	 * 
+	 * @param sitzung die geänderte Sitzung
+	 * @param aenderungsArt die Art der Änderung
+	 * 
+	 * </pre>
+	 */
+	public void melden(ServerSpielSitzung sitzung, AenderungsArt aenderungsArt) {
+		SitzungsVerteilung verteilung = verteilungen.computeIfAbsent(sitzung.getSchluessel(), schluessel -> new SitzungsVerteilung(sitzung));
+		verteilung.letzteAenderung = aenderungsArt;
+		// die Änderungs-Nummer ist die Version des SpielZustands, mit ihr holt der Client die Änderungen ab
+		verteilung.aenderungsNummer.accumulateAndGet(sitzung.getSpiel().getZustandsVersion(), Math::max);
+		if(!verteilung.eingeplant.compareAndSet(false, true)) {
+			// die Änderung fährt mit der schon eingeplanten Benachrichtigung mit
+			return;
+		}
+		if(fensterMillis == 0) {
+			ausliefern(verteilung);
+		} else {
+			try {
+				zeitgeber.schedule(() -> ausliefern(verteilung), fensterMillis, TimeUnit.MILLISECONDS);
+			} catch(RejectedExecutionException ausnahme) {
+				// der Verteiler ist beendet
+				verteilung.eingeplant.set(false);
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergisst die Sitzung und schließt die Verbindungen zu ihren Clients.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * 
+	 * </pre>
+	 */
+	public void entfernen(long schluessel) {
+		SitzungsVerteilung verteilung = verteilungen.remove(schluessel);
+		if(verteilung != null) {
+			verteilung.empfaenger.forEach(Empfaenger::schliessen);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Beendet die Threads des Verteilers und schließt alle Verbindungen zu den Clients.
+	 * 
+	 * </pre>
+	 */
+	public void beenden() {
+		zeitgeber.shutdownNow();
+		sendePool.shutdownNow();
+		verteilungen.keySet().forEach(this::entfernen);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der geschriebenen Benachrichtigungen
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlGesendet() {
+		return anzahlGesendet.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Benachrichtigungen, die nicht geschrieben werden konnten
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlFehlgeschlagen() {
+		return anzahlFehlgeschlagen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Benachrichtigungen, die wegen einer vollen Warteschlange verworfen wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlVerworfen() {
+		return anzahlVerworfen.get();
+	}
+	
+	private void ausliefern(SitzungsVerteilung verteilung) {
+		// ab hier plant die nächste Änderung eine neue Benachrichtigung ein
+		verteilung.eingeplant.set(false);
+		SpielZustandGeaendert benachrichtigung = new SpielZustandGeaendert(
+				verteilung.sitzung.getSchluessel(),
+				verteilung.aenderungsNummer.get(),
+				verteilung.letzteAenderung
+		);
+		// einmal kodiert, alle Empfänger schreiben dieselben Bytes
+		byte[] nutzdaten;
+		try {
+			nutzdaten = NachrichtenRahmen.kodieren(benachrichtigung, NachrichtenFormat.BINAER);
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+			return;
+		}
+		for(ClientRegistrierung registrierung : verteilung.sitzung.getRegistrierungen()) {
+			verteilung.empfaengerFuer(registrierung).einreihen(nutzdaten);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Der Zustand der Benachrichtigungen einer Sitzung.
+	 * 
+	 * </pre>
+	 */
+	private class SitzungsVerteilung {
+		private final ServerSpielSitzung sitzung;
+		
+		private final AtomicLong aenderungsNummer = new AtomicLong();
+		
+		private volatile AenderungsArt letzteAenderung;
+		
+		/**
+		 * ob eine Auslieferung eingeplant, aber noch nicht begonnen ist
+		 */
+		private final AtomicBoolean eingeplant = new AtomicBoolean();
+		
+		/**
+		 * <pre>
+		 * 
+		 * Die Empfänger der Sitzung.
+		 * Keine Map nach der ClientRegistrierung, weil sich deren hashCode
+		 * mit den Figuren-Positionen ihres Spielers ändert.
+		 * 
+		 * </pre>
+		 */
+		private final List<Empfaenger> empfaenger = new CopyOnWriteArrayList<>();
+		
+		private SitzungsVerteilung(ServerSpielSitzung sitzung) {
+			this.sitzung = sitzung;
+		}
+		
+		private Empfaenger empfaengerFuer(ClientRegistrierung registrierung) {
+			for(Empfaenger vergleich : empfaenger) {
+				if(vergleich.registrierung == registrierung) {
+					return vergleich;
+				}
+			}
+			Empfaenger neuerEmpfaenger = new Empfaenger(registrierung);
+			empfaenger.add(neuerEmpfaenger);
+			return neuerEmpfaenger;
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein Client, der Benachrichtigungen bekommt, mit seiner offenen Verbindung.
+	 * 
+	 * </pre>
+	 */
+	private class Empfaenger {
+		private final ClientRegistrierung registrierung;
+		
+		/**
+		 * die kodierte neueste noch nicht geschriebene Benachrichtigung
+		 */
+		private final AtomicReference<byte[]> ausstehend = new AtomicReference<>();
+		
+		/**
+		 * ob gerade ein Sende-Auftrag für diesen Client läuft oder wartet
+		 */
+		private final AtomicBoolean laeuft = new AtomicBoolean();
+		
+		private volatile Socket verbindung;
+		
+		private DataOutputStream ausgabe;
+		
+		private Empfaenger(ClientRegistrierung registrierung) {
+			this.registrierung = registrierung;
+		}
+		
+		private void einreihen(byte[] benachrichtigung) {
+			ausstehend.set(benachrichtigung);
+			if(laeuft.compareAndSet(false, true)) {
+				try {
+					sendePool.execute(this::senden);
+				} catch(RejectedExecutionException ausnahme) {
+					laeuft.set(false);
+					anzahlVerworfen.incrementAndGet();
+				}
+			}
+		}
+		
+		private void senden() {
+			while(true) {
+				byte[] benachrichtigung = ausstehend.getAndSet(null);
+				if(benachrichtigung != null) {
+					schreiben(benachrichtigung);
+					continue;
+				}
+				laeuft.set(false);
+				// zwischen dem leeren getAndSet und dem Zurücksetzen kann eine neue Benachrichtigung gekommen sein
+				if(ausstehend.get() == null || !laeuft.compareAndSet(false, true)) {
+					return;
+				}
+			}
+		}
+		
+		private void schreiben(byte[] benachrichtigung) {
+			try {
+				if(verbindung == null || verbindung.isClosed()) {
+					Socket neueVerbindung = new Socket();
+					neueVerbindung.setTcpNoDelay(true);
+					neueVerbindung.connect(
+							new InetSocketAddress(registrierung.getClientNotifyHost(), registrierung.getClientNotifyPort()),
+							VERBINDUNGS_TIMEOUT_MILLIS
+					);
+					ausgabe = new DataOutputStream(new BufferedOutputStream(neueVerbindung.getOutputStream()));
+					verbindung = neueVerbindung;
+				}
+				NachrichtenRahmen.schreiben(
+						ausgabe,
+						BENACHRICHTIGUNGS_ID,
+						benachrichtigung
+				);
+				ausgabe.flush();
+				anzahlGesendet.incrementAndGet();
+			} catch(IOException ausnahme) {
+				anzahlFehlgeschlagen.incrementAndGet();
+				schliessen();
+			}
+		}
+		
+		private void schliessen() {
+			Socket alteVerbindung = verbindung;
+			verbindung = null;
+			if(alteVerbindung != null) {
+				try {
+					alteVerbindung.close();
+				} catch(IOException ausnahme) {
+					ausnahme.printStackTrace();
+				}
+			}
+		}
+	}
+}
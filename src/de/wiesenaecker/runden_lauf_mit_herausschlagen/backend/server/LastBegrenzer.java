@@ -0,0 +1,258 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+
+/**
+ * <pre>
+ * 
+ * Begrenzt die Anzahl der Requests, die der Server gleichzeitig in Arbeit hat,
+ * und zählt, wie viele Requests angenommen und aus welchem Grund abgewiesen wurden.
+ * 
+ * Ein Request ist in Arbeit, sobald er an seine Sitzung weitergegeben wurde,
+ * bis die Sitzung ihn ausgeführt hat. Ein wartender WARTE_AUF_ZUG Request zählt danach nicht mehr,
+ * er belegt keinen Thread und wird schon über die Grenze je Verbindung begrenzt.
+ * 
+ * Ist eine Grenze erreicht, bekommt der Client sofort eine Antwort mit dem Status UEBERLASTET,
+ * statt dass sich Aufträge und Speicher im Server anhäufen. Der Request wurde dann nicht ausgeführt.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class LastBegrenzer {
+	/**
+	 * die Standard-Obergrenze der Requests, die der ganze Server gleichzeitig in Arbeit hat
+	 */
+	public static final int STANDARD_MAX_GLEICHZEITIGE_REQUESTS = 4096;
+	
+	/**
+	 * die Standard-Obergrenze der wartenden Aufträge einer Sitzung
+	 */
+	public static final int STANDARD_MAX_WARTENDE_AUFTRAEGE_JE_SITZUNG = 256;
+	
+	/**
+	 * die Standard-Obergrenze der noch nicht geschriebenen Antworten einer Verbindung
+	 */
+	public static final int STANDARD_MAX_AUSSTEHENDE_ANTWORTEN_JE_VERBINDUNG = 128;
+	
+	/**
+	 * nach so vielen Millisekunden soll ein Client einen abgewiesenen Request standardmäßig wiederholen
+	 */
+	public static final long STANDARD_WIEDERHOLEN_NACH_MILLIS = 50;
+	
+	/**
+	 * die Obergrenze der Requests, die gleichzeitig in Arbeit sind
+	 */
+	private final int maxGleichzeitigeRequests;
+	
+	/**
+	 * nach so vielen Millisekunden soll ein Client einen abgewiesenen Request wiederholen
+	 */
+	private final long wiederholenNachMillis;
+	
+	/**
+	 * die Anzahl der Requests, die gerade in Arbeit sind
+	 */
+	private final AtomicInteger anzahlInArbeit = new AtomicInteger();
+	
+	/**
+	 * die Anzahl der angenommenen Requests
+	 */
+	private final AtomicLong anzahlAngenommen = new AtomicLong();
+	
+	/**
+	 * die Anzahl der abgewiesenen Requests je {@link Grenze}
+	 */
+	private final AtomicLong[] anzahlAbgewiesen = new AtomicLong[Grenze.values().length];
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param maxGleichzeitigeRequests die Obergrenze der Requests, die gleichzeitig in Arbeit sind
+	 * @param wiederholenNachMillis nach so vielen Millisekunden soll ein Client einen abgewiesenen Request wiederholen
+	 * 
+	 * </pre>
+	 */
+	public LastBegrenzer(int maxGleichzeitigeRequests, long wiederholenNachMillis) {
+		if(maxGleichzeitigeRequests < 1) {
+			throw new IllegalArgumentException("mindestens ein Request muss erlaubt sein: " + maxGleichzeitigeRequests);
+		}
+		if(wiederholenNachMillis < 0) {
+			throw new IllegalArgumentException("die Wartezeit darf nicht negativ sein: " + wiederholenNachMillis);
+		}
+		this.maxGleichzeitigeRequests = maxGleichzeitigeRequests;
+		this.wiederholenNachMillis = wiederholenNachMillis;
+		for(int i = 0; i < anzahlAbgewiesen.length; i++) {
+			anzahlAbgewiesen[i] = new AtomicLong();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt einen Request an, wenn die Obergrenze des Servers noch nicht erreicht ist.
+	 * Ein angenommener Request muss mit {@link #freigeben()} wieder freigegeben werden.
+	 * 
+	 * @return true, wenn der Request angenommen wurde
+	 * 
+	 * </pre>
+	 */
+	public boolean versuchenAnnehmen() {
+		if(anzahlInArbeit.incrementAndGet() > maxGleichzeitigeRequests) {
+			anzahlInArbeit.decrementAndGet();
+			anzahlAbgewiesen[Grenze.SERVER.ordinal()].incrementAndGet();
+			return false;
+		}
+		anzahlAngenommen.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Gibt einen angenommenen Request wieder frei.
+	 * 
+	 * </pre>
+	 */
+	public void freigeben() {
+		anzahlInArbeit.decrementAndGet();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Zählt einen abgewiesenen Request und erstellt die Antwort für den Client.
+	 * 
+	 * @param grenze die erreichte Grenze
+	 * @return die Antwort mit dem Status UEBERLASTET
+	 * 
+	 * </pre>
+	 */
+	public ServerAntwort abweisen(Grenze grenze) {
+		if(grenze != Grenze.SERVER) {
+			// die Obergrenze des Servers zählt schon versuchenAnnehmen()
+			anzahlAbgewiesen[grenze.ordinal()].incrementAndGet();
+		}
+		return ServerAntwort.erstellenUeberlastetServerAntwort(grenze.getBeschreibung(), wiederholenNachMillis);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Requests, die gerade in Arbeit sind
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlInArbeit() {
+		return anzahlInArbeit.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Obergrenze der Requests, die gleichzeitig in Arbeit sind
+	 * 
+	 * </pre>
+	 */
+	public int getMaxGleichzeitigeRequests() {
+		return maxGleichzeitigeRequests;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der angenommenen Requests
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAngenommen() {
+		return anzahlAngenommen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param grenze die erreichte Grenze
+	 * @return die Anzahl der Requests, die wegen dieser Grenze abgewiesen wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAbgewiesen(Grenze grenze) {
+		return anzahlAbgewiesen[grenze.ordinal()].get();
+	}
+	
+	@Override
+	public String toString() {
+		return "LastBegrenzer [inArbeit=" + anzahlInArbeit.get() + "/" + maxGleichzeitigeRequests
+				+ ", angenommen=" + anzahlAngenommen.get()
+				+ ", abgewiesen(server/sitzung/verbindung)=" + anzahlAbgewiesen[Grenze.SERVER.ordinal()].get()
+				+ "/" + anzahlAbgewiesen[Grenze.SITZUNG.ordinal()].get()
+				+ "/" + anzahlAbgewiesen[Grenze.VERBINDUNG.ordinal()].get() + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Grenzen, an denen ein Request abgewiesen werden kann.
+	 * @author Christian Alexander Wiesenäcker
+	 * 
+	 * </pre>
+	 */
+	public enum Grenze {
+		/**
+		 * der ganze Server hat zu viele Requests in Arbeit
+		 */
+		SERVER("der Server ist ausgelastet"),
+		/**
+		 * in der Sitzung warten zu viele Aufträge
+		 */
+		SITZUNG("die Sitzung ist ausgelastet"),
+		/**
+		 * die Verbindung hat zu viele ausstehende Antworten
+		 */
+		VERBINDUNG("zu viele ausstehende Requests auf dieser Verbindung");
+		
+		private final String beschreibung;
+		
+		private Grenze(String beschreibung) {
+			this.beschreibung = beschreibung;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @return die Beschreibung für die Antwort an den Client
+		 * 
+		 * </pre>
+		 */
+		public String getBeschreibung() {
+			return beschreibung;
+		}
+	}
+}
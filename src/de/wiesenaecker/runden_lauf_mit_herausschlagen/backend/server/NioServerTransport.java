@@ -0,0 +1,897 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Ein nicht blockierender Transport auf Basis von ServerSocketChannel und Selector.
+ * 
+ * Wenige Event-Loop Threads bedienen alle Verbindungen:
+ * - der erste Event-Loop nimmt zusätzlich die neuen Verbindungen an
+ *   und verteilt sie reihum auf alle Event-Loops
+ * - jeder Event-Loop liest mit einem einzigen Lese-Puffer aus dem PufferPool
+ *   und setzt daraus die Rahmen (siehe {@link NachrichtenRahmen}) zusammen
+ * - vollständige Rahmen werden an den Server gegeben, die Event-Loops warten nie auf eine Sitzung
+ * - jede Antwort wird mit der Anfrage-Id ihres Requests geschrieben, sobald sie fertig ist,
+ *   auch wenn ein früherer Request derselben Verbindung noch in Arbeit ist
+ * - beim Schreiben wird ein Puffer nur solange ausgeliehen, bis alles geschrieben ist
+ * - jede Verbindung ist auch ein {@link PushKanal}: eine Push-Nachricht wird nach den fertigen Antworten
+ *   geschrieben, und bis dahin ersetzt eine neuere Push-Nachricht die ältere
+ * 
+ * Eine Verbindung, die nichts sendet, belegt deshalb nur ihren Kanal und ein paar Bytes,
+ * aber keinen Thread und keinen Puffer.
+ * 
+ * Hat eine Verbindung schon zu viele Requests in Arbeit, wird ein weiterer Request
+ * nicht mehr an den Server gegeben, sondern sofort mit der Überlast-Antwort beantwortet.
+ * 
+ * Mit einem {@link ZeitRad} schließt der Transport Verbindungen, von denen zu lange nichts kam
+ * und für die keine Antwort in Arbeit ist. Jede Verbindung hat dafür höchstens eine Frist im Rad:
+ * ein Request merkt sich nur seine Zeit, erst wenn die Frist abläuft, wird nachgesehen
+ * und bei Bedarf eine neue Frist für die restliche Zeit geplant.
+ * 
+ * Mit einem Pfad für einen Unix Domain Socket nimmt der Transport zusätzlich zum TCP Port
+ * Verbindungen von Clients auf demselben Rechner an, z.B. von Bots. Diese Verbindungen
+ * gehen nicht durch den TCP Stack, werden aber genauso bedient.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class NioServerTransport implements ServerTransport {
+	/**
+	 * die Größe der gepoolten Puffer in Bytes
+	 */
+	private static final int PUFFER_GROESSE = 16 * 1024;
+	
+	/**
+	 * die maximale Anzahl freier Puffer, die aufbewahrt werden
+	 */
+	private static final int MAX_ANZAHL_FREIER_PUFFER = 256;
+	
+	/**
+	 * die Länge der Warteschlange für noch nicht angenommene Verbindungen
+	 */
+	private static final int VERBINDUNGS_RUECKSTAU = 4096;
+	
+	/**
+	 * der Port, an dem auf Verbindungen gehorcht wird
+	 */
+	private final int serverPort;
+	
+	/**
+	 * bearbeitet eine empfangene Nachricht mit dem PushKanal ihrer Verbindung und liefert die Antwort
+	 */
+	private final BiFunction<Object, PushKanal, CompletableFuture<ServerAntwort>> bearbeiter;
+	
+	/**
+	 * die Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit hat
+	 */
+	private final int maxAusstehendeAntwortenJeVerbindung;
+	
+	/**
+	 * liefert die Antwort für einen Request, der wegen dieser Obergrenze abgewiesen wird
+	 */
+	private final Supplier<ServerAntwort> ueberlastAntwort;
+	
+	/**
+	 * die Puffer aller Event-Loops
+	 */
+	private final PufferPool pufferPool = new PufferPool(PUFFER_GROESSE, MAX_ANZAHL_FREIER_PUFFER);
+	
+	/**
+	 * die Event-Loops
+	 */
+	private final EventLoop[] eventLoops;
+	
+	private final AtomicLong anzahlAngenommenerVerbindungen = new AtomicLong();
+	
+	private final AtomicInteger anzahlOffenerVerbindungen = new AtomicInteger();
+	
+	private final AtomicLong anzahlLeerlaufGeschlossen = new AtomicLong();
+	
+	/**
+	 * das Rad für die Leerlauf-Fristen der Verbindungen, oder null
+	 */
+	private final ZeitRad zeitRad;
+	
+	/**
+	 * nach so vielen Nanosekunden ohne Daten wird eine Verbindung geschlossen, 0 für nie
+	 */
+	private final long leerlaufNanos;
+	
+	/**
+	 * der Pfad des Unix Domain Sockets, oder null
+	 */
+	private final Path unixSocketPfad;
+	
+	/**
+	 * der gebundene Kanal, solange der Transport läuft
+	 */
+	private ServerSocketChannel lauscher;
+	
+	/**
+	 * der an den Unix Domain Socket gebundene Kanal, solange der Transport läuft, oder null
+	 */
+	private ServerSocketChannel unixLauscher;
+	
+	/**
+	 * der Index des Event-Loops für die nächste angenommene Verbindung
+	 */
+	private int naechsterEventLoop;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param serverPort der Port, an dem auf Verbindungen gehorcht wird (0 für einen freien Port)
+	 * @param anzahlEventLoops die Anzahl der Event-Loop Threads
+	 * @param maxAusstehendeAntwortenJeVerbindung die Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit hat
+	 * @param ueberlastAntwort liefert die Antwort für einen Request, der wegen dieser Obergrenze abgewiesen wird
+	 * @param bearbeiter bearbeitet eine empfangene Nachricht mit dem PushKanal ihrer Verbindung und liefert die Antwort
+	 * 
+	 * </pre>
+	 */
+	public NioServerTransport(
+			int serverPort,
+			int anzahlEventLoops,
+			int maxAusstehendeAntwortenJeVerbindung,
+			Supplier<ServerAntwort> ueberlastAntwort,
+			BiFunction<Object, PushKanal, CompletableFuture<ServerAntwort>> bearbeiter
+	) {
+		this(serverPort, anzahlEventLoops, maxAusstehendeAntwortenJeVerbindung, ueberlastAntwort, bearbeiter, null, 0);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param serverPort der Port, an dem auf Verbindungen gehorcht wird (0 für einen freien Port)
+	 * @param anzahlEventLoops die Anzahl der Event-Loop Threads
+	 * @param maxAusstehendeAntwortenJeVerbindung die Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit hat
+	 * @param ueberlastAntwort liefert die Antwort für einen Request, der wegen dieser Obergrenze abgewiesen wird
+	 * @param bearbeiter bearbeitet eine empfangene Nachricht mit dem PushKanal ihrer Verbindung und liefert die Antwort
+	 * @param zeitRad das Rad für die Leerlauf-Fristen, nur bei leerlaufMillis 0 darf es null sein
+	 * @param leerlaufMillis nach so vielen Millisekunden ohne Daten wird eine Verbindung geschlossen (0 für nie)
+	 * 
+	 * </pre>
+	 */
+	public NioServerTransport(
+			int serverPort,
+			int anzahlEventLoops,
+			int maxAusstehendeAntwortenJeVerbindung,
+			Supplier<ServerAntwort> ueberlastAntwort,
+			BiFunction<Object, PushKanal, CompletableFuture<ServerAntwort>> bearbeiter,
+			ZeitRad zeitRad,
+			long leerlaufMillis
+	) {
+		this(serverPort, anzahlEventLoops, maxAusstehendeAntwortenJeVerbindung, ueberlastAntwort, bearbeiter, zeitRad, leerlaufMillis, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param serverPort der Port, an dem auf Verbindungen gehorcht wird (0 für einen freien Port)
+	 * @param anzahlEventLoops die Anzahl der Event-Loop Threads
+	 * @param maxAusstehendeAntwortenJeVerbindung die Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit hat
+	 * @param ueberlastAntwort liefert die Antwort für einen Request, der wegen dieser Obergrenze abgewiesen wird
+	 * @param bearbeiter bearbeitet eine empfangene Nachricht mit dem PushKanal ihrer Verbindung und liefert die Antwort
+	 * @param zeitRad das Rad für die Leerlauf-Fristen, nur bei leerlaufMillis 0 darf es null sein
+	 * @param leerlaufMillis nach so vielen Millisekunden ohne Daten wird eine Verbindung geschlossen (0 für nie)
+	 * @param unixSocketPfad der Pfad, an dem zusätzlich ein Unix Domain Socket horcht, oder null
+	 * 
+	 * </pre>
+	 */
+	public NioServerTransport(
+			int serverPort,
+			int anzahlEventLoops,
+			int maxAusstehendeAntwortenJeVerbindung,
+			Supplier<ServerAntwort> ueberlastAntwort,
+			BiFunction<Object, PushKanal, CompletableFuture<ServerAntwort>> bearbeiter,
+			ZeitRad zeitRad,
+			long leerlaufMillis,
+			Path unixSocketPfad
+	) {
+		if(leerlaufMillis < 0 || (leerlaufMillis > 0 && zeitRad == null)) {
+			throw new IllegalArgumentException("eine Leerlauf-Zeit braucht ein Zeit-Rad: " + leerlaufMillis);
+		}
+		if(anzahlEventLoops < 1) {
+			throw new IllegalArgumentException("mindestens ein Event-Loop wird benötigt: " + anzahlEventLoops);
+		}
+		if(maxAusstehendeAntwortenJeVerbindung < 1) {
+			throw new IllegalArgumentException("mindestens eine ausstehende Antwort muss erlaubt sein: " + maxAusstehendeAntwortenJeVerbindung);
+		}
+		this.serverPort = serverPort;
+		this.maxAusstehendeAntwortenJeVerbindung = maxAusstehendeAntwortenJeVerbindung;
+		this.ueberlastAntwort = ueberlastAntwort;
+		this.bearbeiter = bearbeiter;
+		this.eventLoops = new EventLoop[anzahlEventLoops];
+		this.zeitRad = zeitRad;
+		this.leerlaufNanos = leerlaufMillis * 1_000_000;
+		this.unixSocketPfad = unixSocketPfad;
+	}
+
+	@Override
+	public synchronized void starten() throws IOException {
+		if(lauscher != null) {
+			throw new IllegalStateException("der Transport ist schon gestartet");
+		}
+		lauscher = ServerSocketChannel.open();
+		lauscher.bind(new InetSocketAddress(serverPort), VERBINDUNGS_RUECKSTAU);
+		lauscher.configureBlocking(false);
+		
+		for(int i = 0; i < eventLoops.length; i++) {
+			eventLoops[i] = new EventLoop(Selector.open());
+		}
+		lauscher.register(eventLoops[0].selector, SelectionKey.OP_ACCEPT);
+		if(unixSocketPfad != null) {
+			// die Datei eines nicht sauber beendeten Servers blockiert sonst das Binden
+			Files.deleteIfExists(unixSocketPfad);
+			unixLauscher = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			unixLauscher.bind(UnixDomainSocketAddress.of(unixSocketPfad), VERBINDUNGS_RUECKSTAU);
+			unixLauscher.configureBlocking(false);
+			unixLauscher.register(eventLoops[0].selector, SelectionKey.OP_ACCEPT);
+		}
+		
+		for(int i = 0; i < eventLoops.length; i++) {
+			Thread thread = new Thread(eventLoops[i], "nio-event-loop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	@Override
+	public synchronized void beenden() {
+		if(lauscher == null) {
+			return;
+		}
+		try {
+			lauscher.close();
+			if(unixLauscher != null) {
+				unixLauscher.close();
+				Files.deleteIfExists(unixSocketPfad);
+			}
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+		}
+		for(EventLoop eventLoop : eventLoops) {
+			eventLoop.beenden();
+		}
+	}
+
+	@Override
+	public synchronized int getLokalerPort() {
+		try {
+			return lauscher != null ? ((InetSocketAddress)lauscher.getLocalAddress()).getPort() : -1;
+		} catch(IOException ausnahme) {
+			return -1;
+		}
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return der Pfad des Unix Domain Sockets, oder null
+	 * 
+	 * </pre>
+	 */
+	public Path getUnixSocketPfad() {
+		return unixSocketPfad;
+	}
+
+	@Override
+	public long getAnzahlAngenommenerVerbindungen() {
+		return anzahlAngenommenerVerbindungen.get();
+	}
+
+	@Override
+	public int getAnzahlOffenerVerbindungen() {
+		return anzahlOffenerVerbindungen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Verbindungen, die wegen Leerlaufs geschlossen wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlLeerlaufGeschlossen() {
+		return anzahlLeerlaufGeschlossen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der gerade ausgeliehenen Puffer
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlAusgeliehenerPuffer() {
+		return pufferPool.getAnzahlAusgeliehenerPuffer();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein Event-Loop Thread mit einem eigenen Selector.
+	 * 
+	 * Andere Threads geben neue Kanäle und Schreib-Aufträge über Warteschlangen ab
+	 * und wecken den Selector, nur der Event-Loop selbst fasst die SelectionKeys an.
+	 * 
+	 * </pre>
+	 */
+	private class EventLoop implements Runnable {
+		private final Selector selector;
+		
+		private final Queue<SocketChannel> neueKanaele = new ConcurrentLinkedQueue<>();
+		
+		private final Queue<NioVerbindung> schreibAuftraege = new ConcurrentLinkedQueue<>();
+		
+		/**
+		 * die Verbindungen, deren Leerlauf-Frist abgelaufen ist
+		 */
+		private final Queue<NioVerbindung> leerlaufAuftraege = new ConcurrentLinkedQueue<>();
+		
+		private volatile boolean beendet;
+		
+		public EventLoop(Selector selector) {
+			this.selector = selector;
+		}
+		
+		@Override
+		public void run() {
+			ByteBuffer lesePuffer = pufferPool.ausleihen();
+			try {
+				while(!beendet) {
+					selector.select();
+					registrierenNeueKanaele();
+					abarbeitenSchreibAuftraege();
+					abarbeitenLeerlaufAuftraege();
+					
+					Iterator<SelectionKey> schluessel = selector.selectedKeys().iterator();
+					while(schluessel.hasNext()) {
+						SelectionKey key = schluessel.next();
+						schluessel.remove();
+						bearbeiten(key, lesePuffer);
+					}
+				}
+			} catch(IOException | ClosedSelectorException ausnahme) {
+				if(!beendet) {
+					ausnahme.printStackTrace();
+				}
+			} finally {
+				pufferPool.zurueckgeben(lesePuffer);
+				schliessenAlle();
+			}
+		}
+		
+		public void hinzufuegen(SocketChannel kanal) {
+			neueKanaele.add(kanal);
+			selector.wakeup();
+		}
+		
+		public void einplanenSchreiben(NioVerbindung verbindung) {
+			schreibAuftraege.add(verbindung);
+			selector.wakeup();
+		}
+		
+		public void einplanenLeerlaufPruefung(NioVerbindung verbindung) {
+			leerlaufAuftraege.add(verbindung);
+			selector.wakeup();
+		}
+		
+		public void beenden() {
+			beendet = true;
+			selector.wakeup();
+		}
+		
+		private void bearbeiten(SelectionKey key, ByteBuffer lesePuffer) {
+			try {
+				if(!key.isValid()) {
+					return;
+				}
+				if(key.isAcceptable()) {
+					annehmen((ServerSocketChannel)key.channel());
+					return;
+				}
+				NioVerbindung verbindung = (NioVerbindung)key.attachment();
+				if(key.isReadable()) {
+					verbindung.lesen(lesePuffer);
+				}
+				if(key.isValid() && key.isWritable()) {
+					verbindung.schreiben();
+				}
+			} catch(CancelledKeyException ausnahme) {
+				// die Verbindung wurde in der Zwischenzeit geschlossen
+			}
+		}
+		
+		private void annehmen(ServerSocketChannel kanalLauscher) {
+			SocketChannel kanal;
+			try {
+				while((kanal = kanalLauscher.accept()) != null) {
+					anzahlAngenommenerVerbindungen.incrementAndGet();
+					kanal.configureBlocking(false);
+					if(kanalLauscher == lauscher) {
+						// ein Unix Domain Socket hat kein TCP_NODELAY
+						kanal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+					}
+					EventLoop eventLoop = eventLoops[naechsterEventLoop];
+					naechsterEventLoop = (naechsterEventLoop + 1) % eventLoops.length;
+					if(eventLoop == this) {
+						registrieren(kanal);
+					} else {
+						eventLoop.hinzufuegen(kanal);
+					}
+				}
+			} catch(IOException ausnahme) {
+				if(kanalLauscher.isOpen()) {
+					ausnahme.printStackTrace();
+				}
+			}
+		}
+		
+		private void registrierenNeueKanaele() {
+			SocketChannel kanal;
+			while((kanal = neueKanaele.poll()) != null) {
+				registrieren(kanal);
+			}
+		}
+		
+		private void registrieren(SocketChannel kanal) {
+			try {
+				SelectionKey key = kanal.register(selector, SelectionKey.OP_READ);
+				NioVerbindung verbindung = new NioVerbindung(this, kanal, key);
+				key.attach(verbindung);
+				anzahlOffenerVerbindungen.incrementAndGet();
+				if(leerlaufNanos > 0) {
+					verbindung.planenLeerlaufFrist(leerlaufNanos);
+				}
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
+				try {
+					kanal.close();
+				} catch(IOException schliessAusnahme) {
+					schliessAusnahme.printStackTrace();
+				}
+			}
+		}
+		
+		private void abarbeitenSchreibAuftraege() {
+			NioVerbindung verbindung;
+			while((verbindung = schreibAuftraege.poll()) != null) {
+				verbindung.schreiben();
+			}
+		}
+		
+		private void abarbeitenLeerlaufAuftraege() {
+			NioVerbindung verbindung;
+			while((verbindung = leerlaufAuftraege.poll()) != null) {
+				verbindung.pruefenLeerlauf(true);
+			}
+		}
+		
+		private void schliessenAlle() {
+			try {
+				for(SelectionKey key : selector.keys()) {
+					if(key.attachment() instanceof NioVerbindung verbindung) {
+						verbindung.schliessen();
+					}
+				}
+				selector.close();
+			} catch(IOException | ClosedSelectorException ausnahme) {
+				ausnahme.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Der Zustand einer Verbindung: der halb gelesene Rahmen und die noch zu schreibenden Antworten.
+	 * 
+	 * </pre>
+	 */
+	private class NioVerbindung implements PushKanal {
+		private final EventLoop eventLoop;
+		
+		private final SocketChannel kanal;
+		
+		private final SelectionKey key;
+		
+		/**
+		 * der Kopf des gerade gelesenen Rahmens
+		 */
+		private final ByteBuffer kopf = ByteBuffer.allocate(NachrichtenRahmen.KOPF_LAENGE);
+		
+		/**
+		 * die Nutzdaten des gerade gelesenen Rahmens, oder null solange der Kopf gelesen wird
+		 */
+		private byte[] nutzdaten;
+		
+		private int nutzdatenPosition;
+		
+		/**
+		 * die Anfrage-Id des gerade gelesenen Rahmens
+		 */
+		private long anfrageId;
+		
+		/**
+		 * die fertigen, noch nicht geschriebenen Rahmen, jeder als Kopf und Nutzdaten
+		 */
+		private final Queue<byte[][]> ausstehendeRahmen = new ConcurrentLinkedQueue<>();
+		
+		/**
+		 * die kodierte neueste noch nicht geschriebene Push-Nachricht
+		 */
+		private final AtomicReference<byte[]> ausstehenderPush = new AtomicReference<>();
+		
+		/**
+		 * das Format des letzten Requests, in ihm werden die Push-Nachrichten kodiert
+		 */
+		private volatile NachrichtenFormat pushFormat = NachrichtenFormat.BINAER;
+		
+		/**
+		 * die Anzahl der Requests dieser Verbindung, deren Antwort noch nicht fertig ist
+		 */
+		private final AtomicInteger ausstehendeAntworten = new AtomicInteger();
+		
+		/**
+		 * gibt an, ob der Event-Loop gerade für diese Verbindung schreibt oder dafür eingeplant ist
+		 */
+		private final AtomicBoolean schreibenEingeplant = new AtomicBoolean();
+		
+		/**
+		 * der gerade geschriebene Rahmen, welcher Teil davon und wie weit er schon im Schreib-Puffer ist
+		 */
+		private byte[][] aktuellerRahmen;
+		
+		private int aktuellerTeil;
+		
+		private int aktuellerRahmenPosition;
+		
+		/**
+		 * der ausgeliehene Schreib-Puffer, nur solange etwas zu schreiben ist
+		 */
+		private ByteBuffer schreibPuffer;
+		
+		private volatile boolean offen = true;
+		
+		/**
+		 * wann zuletzt Daten vom Client kamen, in System.nanoTime()
+		 */
+		private volatile long letzteDatenNanos = System.nanoTime();
+		
+		/**
+		 * die laufende Leerlauf-Frist, oder null
+		 */
+		private volatile ZeitRad.Frist leerlaufFrist;
+		
+		public NioVerbindung(EventLoop eventLoop, SocketChannel kanal, SelectionKey key) {
+			this.eventLoop = eventLoop;
+			this.kanal = kanal;
+			this.key = key;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Liest, was gerade im Kanal ist, und bearbeitet alle vollständigen Rahmen.
+		 * 
+		 * </pre>
+		 */
+		public void lesen(ByteBuffer lesePuffer) {
+			try {
+				lesePuffer.clear();
+				int anzahl = kanal.read(lesePuffer);
+				if(anzahl < 0) {
+					schliessen();
+					return;
+				}
+				letzteDatenNanos = System.nanoTime();
+				lesePuffer.flip();
+				while(lesePuffer.hasRemaining()) {
+					if(nutzdaten == null) {
+						while(kopf.hasRemaining() && lesePuffer.hasRemaining()) {
+							kopf.put(lesePuffer.get());
+						}
+						if(kopf.hasRemaining()) {
+							return;
+						}
+						int laenge = kopf.flip().getInt();
+						anfrageId = kopf.getLong();
+						kopf.clear();
+						NachrichtenRahmen.pruefenLaenge(laenge);
+						nutzdaten = new byte[laenge];
+						nutzdatenPosition = 0;
+					}
+					int anzahlKopieren = Math.min(lesePuffer.remaining(), nutzdaten.length - nutzdatenPosition);
+					lesePuffer.get(nutzdaten, nutzdatenPosition, anzahlKopieren);
+					nutzdatenPosition += anzahlKopieren;
+					if(nutzdatenPosition == nutzdaten.length) {
+						byte[] vollstaendig = nutzdaten;
+						nutzdaten = null;
+						verarbeiten(anfrageId, vollstaendig);
+					}
+				}
+			} catch(StreamCorruptedException ausnahme) {
+				// ein fehlerhafter Rahmen: der Rest des Stroms kann nicht mehr gelesen werden
+				schliessen();
+			} catch(IOException ausnahme) {
+				schliessen();
+			}
+		}
+		
+		private void verarbeiten(long anfrageId, byte[] rahmen) {
+			CompletableFuture<ServerAntwort> antwort;
+			// geantwortet wird im Format des Requests, unbekannte Formate bekommen die Java-Serialisierung
+			NachrichtenFormat format = NachrichtenFormat.JAVA_SERIALISIERUNG;
+			try {
+				format = NachrichtenFormat.erkennen(rahmen);
+				pushFormat = format;
+				if(ausstehendeAntworten.get() >= maxAusstehendeAntwortenJeVerbindung) {
+					antwort = CompletableFuture.completedFuture(ueberlastAntwort.get());
+				} else {
+					Object nachricht = format.getCodec().dekodieren(rahmen);
+					ausstehendeAntworten.incrementAndGet();
+					antwort = bearbeiter.apply(nachricht, this)
+							.whenComplete((fertig, ausnahme) -> ausstehendeAntworten.decrementAndGet());
+				}
+			} catch(IOException | ClassNotFoundException ausnahme) {
+				antwort = CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+						ServerAntwortStatus.FEHLER,
+						"die Nachricht kann nicht gelesen werden: " + ausnahme.getMessage()
+				));
+			}
+			NachrichtenFormat antwortFormat = format;
+			antwort.exceptionally(ausnahme -> ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.FEHLER,
+					String.valueOf(ausnahme)
+			)).thenAccept(fertig -> senden(anfrageId, antwortFormat, fertig));
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Kodiert die Antwort auf dem aufrufenden Thread und plant das Schreiben im Event-Loop ein.
+		 * 
+		 * </pre>
+		 */
+		private void senden(long anfrageId, NachrichtenFormat format, ServerAntwort antwort) {
+			if(!offen) {
+				return;
+			}
+			try {
+				byte[] nutzdaten = NachrichtenRahmen.kodieren(antwort, format);
+				// Kopf und Nutzdaten als ein Element, sonst könnten sich die Rahmen zweier Threads mischen
+				ausstehendeRahmen.add(new byte[][] {NachrichtenRahmen.erstellenKopf(anfrageId, nutzdaten.length), nutzdaten});
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
+				return;
+			}
+			if(schreibenEingeplant.compareAndSet(false, true)) {
+				eventLoop.einplanenSchreiben(this);
+			}
+		}
+		
+		@Override
+		public boolean pushen(ServerAntwort nachricht) {
+			if(!offen) {
+				return false;
+			}
+			byte[] nutzdaten;
+			try {
+				nutzdaten = NachrichtenRahmen.kodieren(nachricht, pushFormat);
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
+				return false;
+			}
+			boolean ersetzt = ausstehenderPush.getAndSet(nutzdaten) != null;
+			if(schreibenEingeplant.compareAndSet(false, true)) {
+				eventLoop.einplanenSchreiben(this);
+			}
+			return ersetzt;
+		}
+		
+		@Override
+		public boolean isOffen() {
+			return offen;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Schreibt im Event-Loop so viel wie der Kanal gerade annimmt.
+		 * Ist der Kanal voll, wird auf OP_WRITE gewartet.
+		 * 
+		 * </pre>
+		 */
+		public void schreiben() {
+			if(!offen) {
+				return;
+			}
+			try {
+				while(true) {
+					if(!schreibenSoVielWieMoeglich()) {
+						key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+						return;
+					}
+					pufferPool.zurueckgeben(schreibPuffer);
+					schreibPuffer = null;
+					key.interestOps(SelectionKey.OP_READ);
+					
+					schreibenEingeplant.set(false);
+					if(!hatAusstehendes() || !schreibenEingeplant.compareAndSet(false, true)) {
+						return;
+					}
+				}
+			} catch(IOException | CancelledKeyException ausnahme) {
+				schliessen();
+			}
+		}
+		
+		/**
+		 * @return true, wenn alles geschrieben wurde, false, wenn der Kanal voll ist
+		 */
+		private boolean schreibenSoVielWieMoeglich() throws IOException {
+			if(schreibPuffer == null) {
+				schreibPuffer = pufferPool.ausleihen();
+			}
+			while(true) {
+				while(schreibPuffer.hasRemaining() && (aktuellerRahmen != null || (aktuellerRahmen = naechsterRahmen()) != null)) {
+					byte[] teil = aktuellerRahmen[aktuellerTeil];
+					int anzahl = Math.min(schreibPuffer.remaining(), teil.length - aktuellerRahmenPosition);
+					schreibPuffer.put(teil, aktuellerRahmenPosition, anzahl);
+					aktuellerRahmenPosition += anzahl;
+					if(aktuellerRahmenPosition == teil.length) {
+						aktuellerRahmenPosition = 0;
+						if(++aktuellerTeil == aktuellerRahmen.length) {
+							aktuellerRahmen = null;
+							aktuellerTeil = 0;
+						}
+					}
+				}
+				schreibPuffer.flip();
+				kanal.write(schreibPuffer);
+				if(schreibPuffer.hasRemaining()) {
+					schreibPuffer.compact();
+					return false;
+				}
+				schreibPuffer.clear();
+				if(aktuellerRahmen == null && !hatAusstehendes()) {
+					return true;
+				}
+			}
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Erst die Antworten, dann die Push-Nachricht: erst beim Schreiben wird sie aus ihrem Platz genommen,
+		 * bis dahin kann eine neuere sie noch ersetzen.
+		 * 
+		 * </pre>
+		 */
+		private byte[][] naechsterRahmen() {
+			byte[][] rahmen = ausstehendeRahmen.poll();
+			if(rahmen != null) {
+				return rahmen;
+			}
+			byte[] push = ausstehenderPush.getAndSet(null);
+			return push != null ? new byte[][] {NachrichtenRahmen.erstellenKopf(NachrichtenRahmen.BENACHRICHTIGUNGS_ID, push.length), push} : null;
+		}
+		
+		private boolean hatAusstehendes() {
+			return !ausstehendeRahmen.isEmpty() || ausstehenderPush.get() != null;
+		}
+		
+		private void planenLeerlaufFrist(long nanos) {
+			leerlaufFrist = zeitRad.planen((nanos + 999_999) / 1_000_000, () -> pruefenLeerlauf(false));
+			if(!offen) {
+				leerlaufFrist.abbrechen();
+			}
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Schließt die Verbindung, wenn zu lange nichts vom Client kam und keine Antwort für ihn in Arbeit ist,
+		 * sonst wird die Frist für die restliche Zeit neu geplant.
+		 * 
+		 * Auf dem Thread des Zeit-Rads wird nur nachgesehen, geschlossen wird im Event-Loop.
+		 * 
+		 * @param imEventLoop ob der Event-Loop der Verbindung aufruft
+		 * 
+		 * </pre>
+		 */
+		private void pruefenLeerlauf(boolean imEventLoop) {
+			if(!offen) {
+				return;
+			}
+			long rest = leerlaufNanos - (System.nanoTime() - letzteDatenNanos);
+			if(ausstehendeAntworten.get() > 0) {
+				planenLeerlaufFrist(leerlaufNanos);
+			} else if(rest > 0) {
+				planenLeerlaufFrist(rest);
+			} else if(!imEventLoop) {
+				eventLoop.einplanenLeerlaufPruefung(this);
+			} else {
+				anzahlLeerlaufGeschlossen.incrementAndGet();
+				schliessen();
+			}
+		}
+		
+		public void schliessen() {
+			if(!offen) {
+				return;
+			}
+			offen = false;
+			anzahlOffenerVerbindungen.decrementAndGet();
+			ZeitRad.Frist frist = leerlaufFrist;
+			if(frist != null) {
+				frist.abbrechen();
+			}
+			key.cancel();
+			try {
+				kanal.close();
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
+			}
+			if(schreibPuffer != null) {
+				pufferPool.zurueckgeben(schreibPuffer);
+				schreibPuffer = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 
+ * Ein Pool von direkten ByteBuffern gleicher Größe.
+ * 
+ * Direkte Puffer sind teuer anzulegen und werden vom Garbage Collector spät freigegeben.
+ * Deshalb leiht sich der NIO Transport einen Puffer nur solange er ihn braucht
+ * und gibt ihn danach zurück. Eine Verbindung, die gerade nichts zu schreiben hat,
+ * belegt so keinen Puffer.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class PufferPool {
+	/**
+	 * die Größe jedes Puffers in Bytes
+	 */
+	private final int pufferGroesse;
+	
+	/**
+	 * die maximale Anzahl freier Puffer, die der Pool aufbewahrt
+	 */
+	private final int maxAnzahlFreierPuffer;
+	
+	/**
+	 * die freien Puffer
+	 */
+	private final Queue<ByteBuffer> freiePuffer = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * die Anzahl der freien Puffer, da ConcurrentLinkedQueue.size() nicht in konstanter Zeit läuft
+	 */
+	private final AtomicInteger anzahlFreierPuffer = new AtomicInteger();
+	
+	/**
+	 * die Anzahl der gerade ausgeliehenen Puffer
+	 */
+	private final AtomicInteger anzahlAusgeliehenerPuffer = new AtomicInteger();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param pufferGroesse die Größe jedes Puffers in Bytes
+	 * @param maxAnzahlFreierPuffer die maximale Anzahl freier Puffer, die der Pool aufbewahrt
+	 * 
+	 * </pre>
+	 */
+	public PufferPool(int pufferGroesse, int maxAnzahlFreierPuffer) {
+		if(pufferGroesse < 1 || maxAnzahlFreierPuffer < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.pufferGroesse = pufferGroesse;
+		this.maxAnzahlFreierPuffer = maxAnzahlFreierPuffer;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ein leerer Puffer im Schreib-Modus
+	 * 
+	 * </pre>
+	 */
+	public ByteBuffer ausleihen() {
+		anzahlAusgeliehenerPuffer.incrementAndGet();
+		ByteBuffer puffer = freiePuffer.poll();
+		if(puffer == null) {
+			return ByteBuffer.allocateDirect(pufferGroesse);
+		}
+		anzahlFreierPuffer.decrementAndGet();
+		return puffer.clear();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Gibt einen ausgeliehenen Puffer zurück. Danach darf er nicht mehr verwendet werden.
+	 * 
+	 * </pre>
+	 */
+	public void zurueckgeben(ByteBuffer puffer) {
+		anzahlAusgeliehenerPuffer.decrementAndGet();
+		if(anzahlFreierPuffer.incrementAndGet() <= maxAnzahlFreierPuffer) {
+			freiePuffer.offer(puffer.clear());
+		} else {
+			anzahlFreierPuffer.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Größe jedes Puffers in Bytes
+	 * 
+	 * </pre>
+	 */
+	public int getPufferGroesse() {
+		return pufferGroesse;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der gerade ausgeliehenen Puffer
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlAusgeliehenerPuffer() {
+		return anzahlAusgeliehenerPuffer.get();
+	}
+}
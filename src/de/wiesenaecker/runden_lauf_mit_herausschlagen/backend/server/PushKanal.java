@@ -0,0 +1,66 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+
+/**
+ * <pre>
+ * 
+ * Der Weg, auf dem der Server einem Client über dessen Verbindung Nachrichten schickt,
+ * ohne dass der Client danach gefragt hat.
+ * Jeder ServerTransport gibt dem Server zu jedem Request den Push-Kanal seiner Verbindung mit.
+ * 
+ * Ein Push-Kanal hält höchstens eine noch nicht geschriebene Nachricht:
+ * kommt eine neue, bevor die alte geschrieben ist, ersetzt sie die alte.
+ * Ein langsamer Client bekommt so nur den neuesten Stand, und niemand wartet auf ihn.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public interface PushKanal {
+	/**
+	 * <pre>
+	 * 
+	 * Kodiert die Nachricht im Format des letzten Requests der Verbindung und plant das Schreiben
+	 * mit der Anfrage-Id {@link NachrichtenRahmen#BENACHRICHTIGUNGS_ID} ein. Blockiert nie.
+	 * 
+	 * @param nachricht die Nachricht an den Client
+	 * @return true, wenn dabei eine ältere, noch nicht geschriebene Nachricht verworfen wurde
+	 * 
+	 * </pre>
+	 */
+	boolean pushen(ServerAntwort nachricht);
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return false, sobald die Verbindung geschlossen ist
+	 * 
+	 * </pre>
+	 */
+	boolean isOffen();
+}
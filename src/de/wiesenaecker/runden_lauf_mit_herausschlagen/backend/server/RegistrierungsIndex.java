@@ -0,0 +1,303 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.concurrent.locks.StampedLock;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+
+/**
+ * <pre>
+ * 
+ * Findet die ClientRegistrierung zum Spieler-Schlüssel eines ClientRequests in konstanter Zeit.
+ * 
+ * Der Index ist eine Hash-Tabelle mit offener Adressierung direkt über long-Schlüssel:
+ * - kein Boxing der Schlüssel und keine Einträge-Objekte, nur ein long[] und ein Array der Registrierungen
+ * - gelöschte Einträge werden zurückgeschoben statt markiert, die Suche bleibt also kurz
+ * - der hashCode einer ClientRegistrierung wird nie benutzt, er ändert sich mit den Schlüsseln
+ * 
+ * Lesen und Schreiben dürfen von beliebigen Threads gleichzeitig passieren:
+ * Änderungen halten die Schreib-Sperre eines StampedLock, die Suche liest optimistisch ohne Sperre
+ * und wiederholt sich nur mit der Lese-Sperre, wenn währenddessen geschrieben wurde.
+ * 
+ * Ein Spieler-Schlüssel gehört zu genau einer Registrierung, eine neue Registrierung
+ * für denselben Spieler ersetzt die alte.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class RegistrierungsIndex {
+	/**
+	 * die kleinste Größe der Tabelle, immer eine Zweierpotenz
+	 */
+	private static final int MIN_KAPAZITAET = 16;
+	
+	/**
+	 * verteilt aufeinander folgende Datenbank-Schlüssel über die ganze Tabelle
+	 */
+	private static final long STREU_FAKTOR = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * mit diesem Wert wird das Geheimnis verglichen, wenn es keine Registrierung oder kein Geheimnis gibt
+	 */
+	private static final long KEIN_GEHEIMNIS = 0L;
+	
+	private final StampedLock sperre = new StampedLock();
+	
+	/**
+	 * die Spieler-Schlüssel, gültig nur wo {@link #registrierungen} nicht null ist
+	 */
+	private long[] spielerSchluessel = new long[MIN_KAPAZITAET];
+	
+	/**
+	 * die Registrierungen, null für einen freien Platz
+	 */
+	private ClientRegistrierung[] registrierungen = new ClientRegistrierung[MIN_KAPAZITAET];
+	
+	/**
+	 * die Anzahl der Registrierungen
+	 */
+	private int anzahl;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt eine Registrierung in den Index auf.
+	 * 
+	 * @param registrierung die Registrierung, ihr Spieler muss schon einen Schlüssel haben
+	 * @return die ersetzte Registrierung mit demselben Spieler-Schlüssel oder null
+	 * @throws IllegalArgumentException wenn der Spieler noch keinen Schlüssel hat
+	 * 
+	 * </pre>
+	 */
+	public ClientRegistrierung hinzufuegen(ClientRegistrierung registrierung) {
+		Long schluessel = registrierung.getSpieler().getSchluessel();
+		if(schluessel == null) {
+			throw new IllegalArgumentException("der Spieler der Registrierung hat noch keinen Schlüssel");
+		}
+		long stempel = sperre.writeLock();
+		try {
+			int platz = suchenPlatz(spielerSchluessel, registrierungen, schluessel);
+			ClientRegistrierung alt = registrierungen[platz];
+			spielerSchluessel[platz] = schluessel;
+			registrierungen[platz] = registrierung;
+			if(alt == null && ++anzahl * 2 > registrierungen.length) {
+				vergroessern();
+			}
+			return alt;
+		} finally {
+			sperre.unlockWrite(stempel);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt eine Registrierung aus dem Index.
+	 * Eine andere Registrierung mit demselben Spieler-Schlüssel bleibt im Index.
+	 * 
+	 * @param registrierung die Registrierung
+	 * @return true, wenn die Registrierung im Index war
+	 * 
+	 * </pre>
+	 */
+	public boolean entfernen(ClientRegistrierung registrierung) {
+		Long schluessel = registrierung.getSpieler().getSchluessel();
+		if(schluessel == null) {
+			return false;
+		}
+		long stempel = sperre.writeLock();
+		try {
+			int platz = suchenPlatz(spielerSchluessel, registrierungen, schluessel);
+			if(registrierungen[platz] != registrierung) {
+				return false;
+			}
+			zurueckschieben(platz);
+			anzahl--;
+			return true;
+		} finally {
+			sperre.unlockWrite(stempel);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Sucht die Registrierung zum Spieler-Schlüssel und prüft das Geheimnis.
+	 * 
+	 * @param schluessel der Spieler-Schlüssel aus dem ClientRequest
+	 * @param geheimnis das Geheimnis aus dem ClientRequest
+	 * @return die Registrierung, oder null wenn es keine gibt oder das Geheimnis nicht passt
+	 * 
+	 * </pre>
+	 */
+	public ClientRegistrierung authentifizieren(long schluessel, long geheimnis) {
+		ClientRegistrierung registrierung;
+		long stempel = sperre.tryOptimisticRead();
+		registrierung = suchen(schluessel);
+		if(!sperre.validate(stempel)) {
+			stempel = sperre.readLock();
+			try {
+				registrierung = suchen(schluessel);
+			} finally {
+				sperre.unlockRead(stempel);
+			}
+		}
+		Long erwartet = registrierung != null ? registrierung.getGeheimnis() : null;
+		// auch ohne Registrierung wird verglichen, Treffer und Fehlschlag gehen denselben Weg
+		boolean gleich = gleicheGeheimnisse(erwartet != null ? erwartet : KEIN_GEHEIMNIS, geheimnis);
+		return erwartet != null && gleich ? registrierung : null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Registrierungen im Index
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahl() {
+		long stempel = sperre.readLock();
+		try {
+			return anzahl;
+		} finally {
+			sperre.unlockRead(stempel);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergleicht zwei Geheimnisse als Ganzes, ohne Verzweigung je Byte.
+	 * 
+	 * Das ist kein Schutz gegen Messungen der Antwortzeit: die JIT darf den Vergleich beliebig übersetzen,
+	 * und die Suche nach der Registrierung dauert je nach Schlüssel verschieden lang.
+	 * 
+	 * </pre>
+	 */
+	static boolean gleicheGeheimnisse(long erwartet, long erhalten) {
+		return (erwartet ^ erhalten) == 0L;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Sucht ohne Sperre. Läuft währenddessen eine Änderung, kann das Ergebnis falsch sein,
+	 * der Aufrufer erkennt das über den Stempel und sucht dann noch einmal mit Sperre.
+	 * 
+	 * </pre>
+	 */
+	private ClientRegistrierung suchen(long schluessel) {
+		long[] schluesselTabelle = spielerSchluessel;
+		ClientRegistrierung[] tabelle = registrierungen;
+		if(schluesselTabelle.length != tabelle.length) {
+			// mitten in vergroessern() gelesen
+			return null;
+		}
+		int maske = tabelle.length - 1;
+		int platz = position(schluessel, maske);
+		// höchstens einmal rundherum, auch wenn die Tabelle gerade umgebaut wird
+		for(int i = 0; i < tabelle.length; i++) {
+			ClientRegistrierung registrierung = tabelle[platz];
+			if(registrierung == null) {
+				return null;
+			}
+			if(schluesselTabelle[platz] == schluessel) {
+				return registrierung;
+			}
+			platz = (platz + 1) & maske;
+		}
+		return null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Platz mit dem Schlüssel, oder der freie Platz, an den er gehört
+	 * 
+	 * </pre>
+	 */
+	private static int suchenPlatz(long[] schluesselTabelle, ClientRegistrierung[] tabelle, long schluessel) {
+		int maske = tabelle.length - 1;
+		int platz = position(schluessel, maske);
+		while(tabelle[platz] != null && schluesselTabelle[platz] != schluessel) {
+			platz = (platz + 1) & maske;
+		}
+		return platz;
+	}
+	
+	private static int position(long schluessel, int maske) {
+		long streuung = schluessel * STREU_FAKTOR;
+		return (int)(streuung ^ (streuung >>> 32)) & maske;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Leert den Platz und schiebt die folgenden Einträge derselben Kette nach,
+	 * damit die Suche nie an einer Lücke vor ihrem Schlüssel aufhört.
+	 * 
+	 * </pre>
+	 */
+	private void zurueckschieben(int luecke) {
+		int maske = registrierungen.length - 1;
+		int platz = luecke;
+		while(true) {
+			platz = (platz + 1) & maske;
+			if(registrierungen[platz] == null) {
+				break;
+			}
+			int ziel = position(spielerSchluessel[platz], maske);
+			// der Eintrag darf nur nach vorne rücken, wenn sein Ziel-Platz nicht zwischen Lücke und Platz liegt
+			boolean zwischen = luecke <= platz
+					? luecke < ziel && ziel <= platz
+					: luecke < ziel || ziel <= platz;
+			if(zwischen) {
+				continue;
+			}
+			spielerSchluessel[luecke] = spielerSchluessel[platz];
+			registrierungen[luecke] = registrierungen[platz];
+			luecke = platz;
+		}
+		spielerSchluessel[luecke] = 0;
+		registrierungen[luecke] = null;
+	}
+	
+	private void vergroessern() {
+		long[] alteSchluessel = spielerSchluessel;
+		ClientRegistrierung[] alteRegistrierungen = registrierungen;
+		long[] neueSchluessel = new long[alteRegistrierungen.length * 2];
+		ClientRegistrierung[] neueRegistrierungen = new ClientRegistrierung[alteRegistrierungen.length * 2];
+		for(int i = 0; i < alteRegistrierungen.length; i++) {
+			if(alteRegistrierungen[i] != null) {
+				int platz = suchenPlatz(neueSchluessel, neueRegistrierungen, alteSchluessel[i]);
+				neueSchluessel[platz] = alteSchluessel[i];
+				neueRegistrierungen[platz] = alteRegistrierungen[i];
+			}
+		}
+		spielerSchluessel = neueSchluessel;
+		registrierungen = neueRegistrierungen;
+	}
+}
@@ -25,35 +25,85 @@ package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.LastBegrenzer.Grenze;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.VerbindungsAusfuehrung.VerbindungsModus;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.IllegaleSpielerAktionException;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.AntwortGedaechtnis;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert.AenderungsArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SitzungsCheckpoint;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis.SchrittErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ZuschauerRegistrierung;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server.RundenLaufMitHerausschlagenServerService;
 import javafx.scene.paint.Color;
 
@@ -81,68 +131,1509 @@ import javafx.scene.paint.Color;
 @SuppressWarnings("unused")
 public class RundenLaufMitHerausschlagenServer {
 	/**
-	 * Der Server-Port, an dem auf Verbindungen von Clients gehorcht wird.
+	 * <pre>
+	 * 
+	 * Die Länge der Warteschlange für noch nicht angenommene Verbindungen.
+	 * Der Standard von 50 reicht nicht, wenn sich tausende Clients gleichzeitig verbinden.
+	 * 
+	 * </pre>
+	 */
+	private static final int VERBINDUNGS_RUECKSTAU = 4096;
+	
+	/**
+	 * <pre>
+	 * 
+	 * So lange wartet der Lausch-Thread höchstens, bevor er nach einem Fehler von accept() wieder annimmt.
+	 * Sind zum Beispiel die Datei-Deskriptoren erschöpft, schlägt accept() sofort wieder fehl,
+	 * ohne Wartezeit würde der Lausch-Thread einen Kern voll auslasten.
+	 * 
+	 * </pre>
+	 */
+	private static final long MAX_ANNAHME_PAUSE_MILLIS = 1_000;
+	
+	/**
+	 * <pre>
+	 * 
+	 * So lange wartet ein WARTE_AUF_ZUG Request höchstens.
+	 * Kürzer als {@link ServerEinstellungen#STANDARD_LEERLAUF_MILLIS}, sonst schließt der blockierende Transport
+	 * die Verbindung, während der Client noch auf die Antwort wartet.
+	 * 
+	 * </pre>
+	 */
+	public static final long MAX_WARTEZEIT_MILLIS = 25_000;
+	
+	/**
+	 * <pre>
+	 * 
+	 * So lange wartet {@link #abschalten(long)} beim Abschalten des Prozesses höchstens
+	 * auf die Requests in Arbeit und die Checkpoints.
+	 * 
+	 * </pre>
+	 */
+	public static final long STANDARD_ABSCHALT_WARTEZEIT_MILLIS = 10_000;
+	
+	/**
+	 * Die Endung der Checkpoint-Dateien im Checkpoint-Verzeichnis, davor steht der Schlüssel des SpielZustands
+	 */
+	public static final String CHECKPOINT_ENDUNG = ".checkpoint";
+	
+	/**
+	 * Die Antwort auf jeden HERZSCHLAG Request
+	 */
+	private static final ServerAntwort HERZSCHLAG_ANTWORT = ServerAntwort.erstellenServerAntwort(null);
+	
+	/**
+	 * Die Einstellungen des Servers
+	 */
+	private final ServerEinstellungen einstellungen;
+	
+	/**
+	 * Der Transport, solange der Server gestartet ist, sonst null
+	 */
+	private ServerTransport transport;
+	
+	/**
+	 * Die Registrierungen der Spiel-Clients aller Sitzungen nach dem Schlüssel ihres Spielers
+	 */
+	private final RegistrierungsIndex registrierungen = new RegistrierungsIndex();
+	
+	/**
+	 * Die verwendete Datenbank-Anbindung
+	 */
+	private final RundenLaufMitHerausschlagenDao james;
+
+	/**
+	 * Die laufenden Spiel-Sitzungen nach dem Schlüssel ihres SpielZustands
+	 */
+	private final SpielSitzungsRegister sitzungen;
+	
+	/**
+	 * Begrenzt die Requests, die der Server gleichzeitig in Arbeit hat
+	 */
+	private final LastBegrenzer lastBegrenzer;
+	
+	/**
+	 * Benachrichtigt die Clients einer Sitzung über Änderungen ihres SpielZustands
+	 */
+	private final BenachrichtigungsVerteiler benachrichtigungsVerteiler;
+	
+	/**
+	 * Schickt den Zuschauern einer Sitzung den neuesten SpielZustand
+	 */
+	private final ZuschauerVerteiler zuschauerVerteiler;
+	
+	/**
+	 * Die Antworten mit dem Status UMGELEITET für die Sitzungen, die auf einen anderen Server umgezogen sind
+	 */
+	private final Map<Long, ServerAntwort> umleitungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * Das Rad für alle Fristen des Servers: Leerlauf der Verbindungen, WARTE_AUF_ZUG Requests und Zug-Fristen
+	 */
+	private final ZeitRad zeitRad = new ZeitRad("server-zeit-rad");
+	
+	/**
+	 * Die laufende Zug-Frist jeder Sitzung nach dem Schlüssel ihres SpielZustands, nur mit einer Zug-Frist in den Einstellungen
+	 */
+	private final Map<Long, ZeitRad.Frist> zugFristen = new ConcurrentHashMap<>();
+	
+	/**
+	 * true, sobald der Server mit {@link #abschalten(long)} abschaltet: dann nimmt er keine neuen Sitzungen mehr an
+	 */
+	private volatile boolean abschaltend;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den Server mit einer ersten Spiel-Sitzung und den Standard-Einstellungen.
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenServer(
+			int serverPort,
+			RundenLaufMitHerausschlagenDao james
+	) {
+		this(ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(serverPort), james);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den Server, mit einer ersten Spiel-Sitzung, wenn die Einstellungen es vorsehen.
+	 * 
+	 * @param einstellungen die Einstellungen des Servers
+	 * @param james die Datenbank-Anbindung
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenServer(
+			ServerEinstellungen einstellungen,
+			RundenLaufMitHerausschlagenDao james
+	) {
+		this.einstellungen = einstellungen;
+		this.james = james;
+		this.sitzungen = new SpielSitzungsRegister(
+				einstellungen.getAnzahlSitzungsThreads(),
+				einstellungen.getMaxWartendeAuftraegeJeSitzung()
+		);
+		this.lastBegrenzer = new LastBegrenzer(
+				einstellungen.getMaxGleichzeitigeRequests(),
+				einstellungen.getWiederholenNachMillis()
+		);
+		this.benachrichtigungsVerteiler = new BenachrichtigungsVerteiler(
+				einstellungen.getBenachrichtigungsFensterMillis(),
+				einstellungen.getAnzahlBenachrichtigungsThreads()
+		);
+		this.zuschauerVerteiler = new ZuschauerVerteiler(
+				einstellungen.getBenachrichtigungsFensterMillis(),
+				sitzung -> sitzung.ausfuehren(() -> erstelleVollstaendigeAntwort(sitzung))
+		);
+		
+		if(einstellungen.isMitBeispielSitzung()) {
+			initialisiereServerSpielSitzung();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Startet den in den Einstellungen gewählten Transport,
+	 * der auf eigenen Threads Verbindungen annimmt.
+	 * 
+	 * Ist ein Checkpoint-Verzeichnis eingestellt, werden vorher die Sitzungen aus seinen Checkpoints fortgesetzt,
+	 * siehe {@link #ladenCheckpoints()}.
+	 * 
+	 * @throws IOException wenn der Port oder der Unix Domain Socket nicht gebunden
+	 * 		oder das Checkpoint-Verzeichnis nicht gelesen werden kann
+	 * @throws IllegalStateException wenn der Server schon gestartet oder abgeschaltet ist
+	 * 		oder ein Unix Domain Socket ohne den Transport NIO eingestellt ist
+	 * 
+	 * </pre>
+	 */
+	public synchronized void starten() throws IOException {
+		if(transport != null) {
+			throw new IllegalStateException("der Server ist schon gestartet");
+		}
+		if(abschaltend) {
+			throw new IllegalStateException("der Server ist abgeschaltet");
+		}
+		if(einstellungen.getUnixSocketPfad() != null && einstellungen.getTransportArt() != TransportArt.NIO) {
+			throw new IllegalStateException("ein Unix Domain Socket braucht den Transport NIO");
+		}
+		ladenCheckpoints();
+		ServerTransport neuerTransport = switch(einstellungen.getTransportArt()) {
+		case BLOCKIEREND -> new VerbindungsLauscher();
+		case NIO -> new NioServerTransport(
+				einstellungen.getServerPort(),
+				einstellungen.getAnzahlEventLoops(),
+				einstellungen.getMaxAusstehendeAntwortenJeVerbindung(),
+				() -> lastBegrenzer.abweisen(Grenze.VERBINDUNG),
+				this::verarbeiteClientObjekt,
+				zeitRad,
+				einstellungen.getLeerlaufMillis(),
+				einstellungen.getUnixSocketPfad()
+		);
+		};
+		neuerTransport.starten();
+		transport = neuerTransport;
+		serverLog(
+				"lausche auf neue Verbindungen: server port = " + transport.getLokalerPort()
+				+ ", transport = " + einstellungen.getTransportArt()
+				+ (einstellungen.getUnixSocketPfad() != null ? ", unix socket = " + einstellungen.getUnixSocketPfad() : "")
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt keine Verbindungen mehr an und bricht die laufenden Verbindungen ab.
+	 * 
+	 * </pre>
+	 */
+	public synchronized void beenden() {
+		if(transport != null) {
+			transport.beenden();
+			transport = null;
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schaltet den Server ab, ohne ein Spiel zu verlieren, z.B. für ein Update:
+	 * 
+	 * - der Server nimmt keine neuen Sitzungen mehr an
+	 * - jede Sitzung wird eingefroren, nachdem ihre schon eingereihten Requests gelaufen sind.
+	 *   Die Spiel-Logik schreibt jede Änderung sofort in die Datenhaltung, danach steht dort also nichts mehr aus.
+	 * - wartende WARTE_AUF_ZUG Requests und alle neuen Requests werden mit dem Status UEBERLASTET beantwortet,
+	 *   die Clients wiederholen sie also, bis der Server wieder läuft
+	 * - ist ein Checkpoint-Verzeichnis eingestellt, wird jede Sitzung dort als SitzungsCheckpoint gespeichert,
+	 *   die Sitzungen schreiben ihre Checkpoints parallel
+	 * - der Transport wird beendet, sobald alle angenommenen Requests beantwortet sind
+	 * 
+	 * Ein neu gestarteter Server mit demselben Checkpoint-Verzeichnis setzt die Sitzungen fort.
+	 * Der Server kann danach nicht mehr gestartet werden.
+	 * 
+	 * @param wartezeitMillis so lange wird höchstens auf die Sitzungen und die Requests in Arbeit gewartet
+	 * @return die Anzahl der geschriebenen Checkpoints
+	 * @throws IOException wenn nicht jede Sitzung rechtzeitig eingefroren und gespeichert werden konnte,
+	 * 		der Transport ist dann trotzdem beendet
+	 * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird
+	 * 
+	 * </pre>
+	 */
+	public int abschalten(long wartezeitMillis) throws IOException, InterruptedException {
+		abschaltend = true;
+		long frist = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wartezeitMillis);
+		Path verzeichnis = einstellungen.getCheckpointVerzeichnis();
+		try {
+			if(verzeichnis != null) {
+				Files.createDirectories(verzeichnis);
+			}
+			List<CompletableFuture<Boolean>> gesichert = new ArrayList<>();
+			for(ServerSpielSitzung sitzung : sitzungen.getSitzungen()) {
+				gesichert.add(sichernSpielSitzung(sitzung, verzeichnis, frist));
+			}
+			try {
+				CompletableFuture.allOf(gesichert.toArray(CompletableFuture[]::new))
+						.get(Math.max(0, frist - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch(ExecutionException ausnahme) {
+				Throwable ursache = ausnahme.getCause() instanceof CompletionException ? ausnahme.getCause().getCause() : ausnahme.getCause();
+				throw ursache instanceof UncheckedIOException ioAusnahme
+						? ioAusnahme.getCause()
+						: new IOException("eine Sitzung konnte nicht gesichert werden", ursache);
+			} catch(TimeoutException ausnahme) {
+				throw new IOException("nicht jede Sitzung wurde in " + wartezeitMillis + " ms gesichert");
+			}
+			// die Antworten der zuletzt gelaufenen Requests sollen noch geschrieben werden
+			while(lastBegrenzer.getAnzahlInArbeit() > 0 && System.nanoTime() < frist) {
+				Thread.sleep(1);
+			}
+			int anzahl = (int)gesichert.stream().filter(CompletableFuture::join).count();
+			serverLog("abgeschaltet: " + anzahl + " Checkpoints" + (verzeichnis != null ? " in " + verzeichnis : ""));
+			return anzahl;
+		} finally {
+			beenden();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return true, sobald {@link #abschalten(long)} aufgerufen wurde
+	 * 
+	 * </pre>
+	 */
+	public boolean isAbschaltend() {
+		return abschaltend;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Friert die Sitzung nach ihren eingereihten Requests ein und schreibt ihren Checkpoint.
+	 * Ist die Warteschlange der Sitzung voll, wird es bis zur Frist wiederholt.
+	 * 
+	 * @param verzeichnis das Checkpoint-Verzeichnis oder null
+	 * @return true, sobald der Checkpoint geschrieben ist, false ohne Checkpoint-Verzeichnis
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<Boolean> sichernSpielSitzung(
+			ServerSpielSitzung sitzung,
+			Path verzeichnis,
+			long frist
+	) throws InterruptedException {
+		ServerAntwort abschaltAntwort = ServerAntwort.erstellenUeberlastetServerAntwort(
+				"der Server schaltet ab",
+				einstellungen.getWiederholenNachMillis()
+		);
+		while(true) {
+			try {
+				return sitzung.ausfuehren(() -> {
+					sitzung.setEingefroren(true);
+					sitzung.weckenWartende(spieler -> abschaltAntwort);
+					if(verzeichnis == null) {
+						return false;
+					}
+					try {
+						schreibenCheckpoint(verzeichnis, sitzung.getSchluessel(), kodierenCheckpoint(sitzung));
+					} catch(IOException ausnahme) {
+						throw new UncheckedIOException(ausnahme);
+					}
+					return true;
+				});
+			} catch(RejectedExecutionException ausnahme) {
+				if(System.nanoTime() >= frist) {
+					return CompletableFuture.failedFuture(ausnahme);
+				}
+				Thread.sleep(Math.max(1, einstellungen.getWiederholenNachMillis()));
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schreibt den Checkpoint erst in eine temporäre Datei und benennt sie dann um:
+	 * ein Absturz beim Schreiben lässt keinen halben Checkpoint zurück.
+	 * 
+	 * </pre>
+	 */
+	private static void schreibenCheckpoint(Path verzeichnis, long schluessel, byte[] checkpoint) throws IOException {
+		Path datei = verzeichnis.resolve(schluessel + CHECKPOINT_ENDUNG);
+		Path temporaer = verzeichnis.resolve(schluessel + CHECKPOINT_ENDUNG + ".tmp");
+		Files.write(temporaer, checkpoint);
+		Files.move(temporaer, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Setzt die Sitzungen aus den Checkpoints im Checkpoint-Verzeichnis fort,
+	 * die ein mit {@link #abschalten(long)} abgeschalteter Server geschrieben hat.
+	 * 
+	 * Die Checkpoints werden parallel gelesen und dekodiert, danach wird jede Sitzung aufgenommen
+	 * und fortgesetzt, der laufende Zug bekommt dabei die ganze Zug-Frist. Der Checkpoint einer
+	 * fortgesetzten Sitzung wird gelöscht. Ein Checkpoint, der nicht gelesen werden kann oder dessen
+	 * Sitzung es schon gibt, bleibt liegen und wird im Log gemeldet.
+	 * 
+	 * Die SpielZustände behalten ihre Schlüssel, die Datenhaltung muss also dieselbe sein wie vor dem Abschalten.
+	 * Wird von {@link #starten()} aufgerufen, bevor Verbindungen angenommen werden.
+	 * 
+	 * @return die Anzahl der fortgesetzten Sitzungen, 0 ohne Checkpoint-Verzeichnis
+	 * @throws IOException wenn das Checkpoint-Verzeichnis nicht gelesen werden kann
+	 * 
+	 * </pre>
+	 */
+	public int ladenCheckpoints() throws IOException {
+		Path verzeichnis = einstellungen.getCheckpointVerzeichnis();
+		if(verzeichnis == null || !Files.isDirectory(verzeichnis)) {
+			return 0;
+		}
+		List<Path> dateien;
+		try(Stream<Path> inhalt = Files.list(verzeichnis)) {
+			dateien = inhalt
+					.filter(datei -> datei.getFileName().toString().endsWith(CHECKPOINT_ENDUNG))
+					.sorted()
+					.toList();
+		}
+		List<CompletableFuture<SitzungsCheckpoint>> gelesen = new ArrayList<>();
+		for(Path datei : dateien) {
+			gelesen.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return SitzungsCheckpoint.dekodieren(Files.readAllBytes(datei));
+				} catch(IOException ausnahme) {
+					throw new UncheckedIOException(ausnahme);
+				}
+			}));
+		}
+		
+		List<CompletableFuture<Void>> fortgesetzt = new ArrayList<>();
+		List<Path> fortgesetzteDateien = new ArrayList<>();
+		for(int i = 0; i < dateien.size(); i++) {
+			try {
+				ServerSpielSitzung sitzung = aufnehmenCheckpoint(gelesen.get(i).join());
+				fortgesetzt.add(fortsetzenSpielSitzung(sitzung.getSchluessel()));
+				fortgesetzteDateien.add(dateien.get(i));
+			} catch(CompletionException | IllegalStateException ausnahme) {
+				Throwable ursache = ausnahme instanceof CompletionException ? ausnahme.getCause() : ausnahme;
+				if(ursache instanceof UncheckedIOException ioAusnahme) {
+					ursache = ioAusnahme.getCause();
+				}
+				serverLog("der Checkpoint " + dateien.get(i) + " kann nicht fortgesetzt werden: " + ursache);
+			}
+		}
+		CompletableFuture.allOf(fortgesetzt.toArray(CompletableFuture[]::new)).join();
+		for(Path datei : fortgesetzteDateien) {
+			Files.deleteIfExists(datei);
+		}
+		if(!dateien.isEmpty()) {
+			serverLog(fortgesetzteDateien.size() + " von " + dateien.size() + " Checkpoints aus " + verzeichnis + " fortgesetzt");
+		}
+		return fortgesetzteDateien.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der gebundene Port, oder -1 wenn der Server nicht gestartet ist
+	 * 
+	 * </pre>
+	 */
+	public synchronized int getLokalerPort() {
+		return transport != null ? transport.getLokalerPort() : -1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der seit dem Start angenommenen Verbindungen
+	 * 
+	 * </pre>
+	 */
+	public synchronized long getAnzahlAngenommenerVerbindungen() {
+		return transport != null ? transport.getAnzahlAngenommenerVerbindungen() : 0;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der gerade offenen Verbindungen
+	 * 
+	 * </pre>
+	 */
+	public synchronized int getAnzahlOffenerVerbindungen() {
+		return transport != null ? transport.getAnzahlOffenerVerbindungen() : 0;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Modus, in dem der blockierende Transport die Verbindungen tatsächlich bedient
+	 * 
+	 * </pre>
+	 */
+	public VerbindungsModus getVerbindungsModus() {
+		return VerbindungsAusfuehrung.bestimmeModus(einstellungen.getVerbindungsModus());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt ein Spiel als neue Sitzung auf den Server.
+	 * 
+	 * Ist der SpielZustand noch nicht in der Datenhaltung, wird er dort hinzugefügt.
+	 * Nach jeder Änderung des SpielZustands werden die registrierten Clients benachrichtigt.
+	 * 
+	 * @param spielZustand das Spiel
+	 * @param neueRegistrierungen die Registrierungen der Clients, die das Spiel spielen
+	 * @return die neue Sitzung
+	 * @throws IllegalStateException wenn es schon eine Sitzung für den SpielZustand gibt oder der Server abschaltet
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung hinzufuegenSpielSitzung(
+			SpielZustand spielZustand,
+			Collection<ClientRegistrierung> neueRegistrierungen
+	) {
+		pruefenNichtAbschaltend();
+		if(spielZustand.getSchluessel() == null) {
+			james.hinzufuegenSpielZustand(spielZustand);
+		}
+		
+		return aufnehmenSpielSitzung(
+				new RundenLaufMitHerausschlagenServerService(james, spielZustand),
+				neueRegistrierungen,
+				false
+		);
+	}
+	
+	private void pruefenNichtAbschaltend() {
+		if(abschaltend) {
+			throw new IllegalStateException("der Server schaltet ab und nimmt keine neuen Sitzungen an");
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt das Spiel als neue Sitzung ins Register, mit den Registrierungen seiner Clients.
+	 * 
+	 * </pre>
+	 */
+	private ServerSpielSitzung aufnehmenSpielSitzung(
+			RundenLaufMitHerausschlagenServerService dasSpiel,
+			Collection<ClientRegistrierung> neueRegistrierungen,
+			boolean eingefroren
+	) {
+		ServerSpielSitzung sitzung = sitzungen.erstellenSitzung(
+				dasSpiel.getSpielZustand().getSchluessel(),
+				dasSpiel,
+				eingefroren
+		);
+		for(ClientRegistrierung registrierung : neueRegistrierungen) {
+			sitzung.hinzufuegenRegistrierung(registrierung);
+		}
+		sitzung.getSpiel().setAenderungsBeobachter(aenderungsArt -> {
+			benachrichtigungsVerteiler.melden(sitzung, aenderungsArt);
+			zuschauerVerteiler.melden(sitzung);
+			sitzung.weckenWartende(spieler -> bestimmeWarteAntwort(sitzung.getSpiel(), spieler));
+			if(aenderungsArt == AenderungsArt.NAECHSTER_SPIELER) {
+				planenZugFrist(sitzung);
+			}
+		});
+		for(ClientRegistrierung registrierung : neueRegistrierungen) {
+			// ohne Spieler-Schlüssel kann sich ein Client nicht ausweisen
+			if(registrierung.getSpieler().getSchluessel() != null) {
+				registrierungen.hinzufuegen(registrierung);
+			}
+		}
+		if(!eingefroren) {
+			planenZugFrist(sitzung);
+		}
+		return sitzung;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Plant die Zug-Frist für den Zug, der gerade läuft, und bricht die Frist des vorigen Zugs ab.
+	 * Ohne Zug-Frist in den Einstellungen oder wenn das Spiel fertig ist, passiert nichts.
+	 * 
+	 * Wird auf dem Thread der Sitzung aufgerufen, oder bevor die Sitzung Requests ausführt.
+	 * 
+	 * </pre>
+	 */
+	private void planenZugFrist(ServerSpielSitzung sitzung) {
+		long zugFristMillis = einstellungen.getZugFristMillis();
+		if(zugFristMillis == 0) {
+			return;
+		}
+		RundenLaufMitHerausschlagenServerService dasSpiel = sitzung.getSpiel();
+		long zugNummer = dasSpiel.getZugNummer();
+		ZeitRad.Frist neu = dasSpiel.isSpielFertig() ? null : zeitRad.planen(zugFristMillis, () -> ablaufenZugFrist(sitzung, zugNummer));
+		ZeitRad.Frist alt = neu != null ? zugFristen.put(sitzung.getSchluessel(), neu) : zugFristen.remove(sitzung.getSchluessel());
+		if(alt != null) {
+			alt.abbrechen();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Läuft auf dem Thread des Zeit-Rads, wenn die Zug-Frist abgelaufen ist,
+	 * und beendet den Zug auf dem Thread der Sitzung. Ist die Warteschlange der Sitzung voll,
+	 * wird es nach der Wartezeit für abgewiesene Requests noch einmal versucht.
+	 * 
+	 * Ist der Zug inzwischen vorbei, die Sitzung eingefroren oder nicht mehr auf dem Server, passiert nichts.
+	 * Beim Fortsetzen einer eingefrorenen Sitzung beginnt die Frist neu.
+	 * 
+	 * </pre>
+	 */
+	private void ablaufenZugFrist(ServerSpielSitzung sitzung, long zugNummer) {
+		try {
+			sitzung.ausfuehren(() -> {
+				if(!sitzung.isEingefroren() && sitzungen.getSitzung(sitzung.getSchluessel()) == sitzung) {
+					Spieler saeumiger = sitzung.getSpiel().getAktiverSpieler();
+					if(sitzung.getSpiel().beendenZugNachFrist(zugNummer)) {
+						serverLog("die Zug-Frist ist abgelaufen, der nächste Spieler ist dran: sitzung = " + sitzung.getSchluessel() + ", spieler = " + saeumiger.getFarbe().toPrettyString());
+					}
+				}
+				return null;
+			});
+		} catch(RejectedExecutionException ausnahme) {
+			if(zugFristen.get(sitzung.getSchluessel()) != null) {
+				zugFristen.put(sitzung.getSchluessel(), zeitRad.planen(einstellungen.getWiederholenNachMillis(), () -> ablaufenZugFrist(sitzung, zugNummer)));
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt die Sitzung vom Server, zusammen mit den Registrierungen ihrer Clients und ihren Zuschauern.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return die entfernte Sitzung oder null
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung entfernenSpielSitzung(long schluessel) {
+		return entfernenSpielSitzung(schluessel, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param abschied wird den angemeldeten Zuschauern noch geschickt, oder null
+	 * 
+	 * </pre>
+	 */
+	private ServerSpielSitzung entfernenSpielSitzung(long schluessel, ServerAntwort abschied) {
+		ServerSpielSitzung sitzung = sitzungen.entfernenSitzung(schluessel);
+		if(sitzung != null) {
+			ZeitRad.Frist zugFrist = zugFristen.remove(schluessel);
+			if(zugFrist != null) {
+				zugFrist.abbrechen();
+			}
+			benachrichtigungsVerteiler.entfernen(schluessel);
+			zuschauerVerteiler.entfernen(schluessel, abschied);
+			for(ClientRegistrierung registrierung : sitzung.getRegistrierungen()) {
+				registrierungen.entfernen(registrierung);
+			}
+		}
+		return sitzung;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Friert die Sitzung für einen Umzug auf einen anderen Server ein.
+	 * 
+	 * Danach ändert sich das Spiel nicht mehr: jeder neue Request wird mit dem Status UEBERLASTET beantwortet,
+	 * der Client wiederholt ihn also, bis die Sitzung weitergeleitet oder fortgesetzt wurde.
+	 * Schon eingereihte Requests laufen vorher noch.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return fertig, sobald alle vorher eingereihten Requests gelaufen sind
+	 * @throws IllegalStateException wenn es keine Sitzung für den Schlüssel gibt
+	 * @throws RejectedExecutionException wenn die Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<Void> einfrierenSpielSitzung(long schluessel) {
+		ServerSpielSitzung sitzung = getSpielSitzungOderFehler(schluessel);
+		return sitzung.ausfuehren(() -> {
+			sitzung.setEingefroren(true);
+			return null;
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Lässt eine eingefrorene Sitzung weiterlaufen, z.B. nach ihrem Import oder wenn der Umzug abgebrochen wird.
+	 * Der laufende Zug bekommt dabei die ganze Zug-Frist.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return fertig, sobald die Sitzung wieder Requests ausführt
+	 * @throws IllegalStateException wenn es keine Sitzung für den Schlüssel gibt
+	 * @throws RejectedExecutionException wenn die Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<Void> fortsetzenSpielSitzung(long schluessel) {
+		ServerSpielSitzung sitzung = getSpielSitzungOderFehler(schluessel);
+		return sitzung.ausfuehren(() -> {
+			sitzung.setEingefroren(false);
+			planenZugFrist(sitzung);
+			return null;
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Exportiert eine eingefrorene Sitzung als SitzungsCheckpoint.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return der kodierte Checkpoint, schlägt mit einer IllegalStateException fehl, wenn die Sitzung nicht eingefroren ist
+	 * @throws IllegalStateException wenn es keine Sitzung für den Schlüssel gibt
+	 * @throws RejectedExecutionException wenn die Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<byte[]> exportierenSpielSitzung(long schluessel) {
+		ServerSpielSitzung sitzung = getSpielSitzungOderFehler(schluessel);
+		return sitzung.ausfuehren(() -> {
+			if(!sitzung.isEingefroren()) {
+				throw new IllegalStateException("die Sitzung " + schluessel + " muss vor dem Export eingefroren werden");
+			}
+			try {
+				return kodierenCheckpoint(sitzung);
+			} catch(IOException ausnahme) {
+				throw new UncheckedIOException(ausnahme);
+			}
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Darf nur auf dem Thread der eingefrorenen Sitzung aufgerufen werden.
+	 * 
+	 * </pre>
+	 */
+	private static byte[] kodierenCheckpoint(ServerSpielSitzung sitzung) throws IOException {
+		RundenLaufMitHerausschlagenServerService dasSpiel = sitzung.getSpiel();
+		return SitzungsCheckpoint.kodieren(
+				dasSpiel.getSpielZustand(),
+				dasSpiel.getZustandsVersion(),
+				dasSpiel.getWuerfel().getZustand(),
+				sitzung.getRegistrierungen(),
+				sitzung.getZuschauerRegistrierungen()
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt eine auf einem anderen Server exportierte Sitzung auf.
+	 * 
+	 * Die Sitzung bleibt eingefroren, bis sie mit {@link #fortsetzenSpielSitzung(long)} fortgesetzt wird.
+	 * Der SpielZustand wird nicht in die Datenhaltung eingefügt, er behält seinen Schlüssel.
+	 * 
+	 * @param checkpoint der mit {@link #exportierenSpielSitzung(long)} erstellte Checkpoint
+	 * @return die neue, eingefrorene Sitzung
+	 * @throws IOException wenn der Checkpoint nicht gelesen werden kann
+	 * @throws IllegalStateException wenn es schon eine Sitzung für den SpielZustand gibt oder der Server abschaltet
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung importierenSpielSitzung(byte[] checkpoint) throws IOException {
+		pruefenNichtAbschaltend();
+		return aufnehmenCheckpoint(SitzungsCheckpoint.dekodieren(checkpoint));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt die Sitzung eines Checkpoints eingefroren auf.
+	 * 
+	 * </pre>
+	 */
+	private ServerSpielSitzung aufnehmenCheckpoint(SitzungsCheckpoint stand) {
+		ServerSpielSitzung sitzung = aufnehmenSpielSitzung(
+				new RundenLaufMitHerausschlagenServerService(
+						james,
+						stand.getSpielZustand(),
+						Wuerfel.erstellenWuerfel(stand.getWuerfelZustand()),
+						stand.getZustandsVersion()
+				),
+				stand.getRegistrierungen(),
+				true
+		);
+		for(ZuschauerRegistrierung zuschauer : stand.getZuschauer()) {
+			sitzung.hinzufuegenZuschauer(zuschauer);
+		}
+		// die Sitzung ist zurück, z.B. nach einem abgebrochenen Umzug
+		umleitungen.remove(sitzung.getSchluessel());
+		return sitzung;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schließt den Umzug einer eingefrorenen Sitzung ab, nachdem sie auf dem Ziel-Server importiert wurde.
+	 * 
+	 * Die Sitzung wird entfernt, jeder spätere Request für sie wird mit dem Status UMGELEITET
+	 * und der Adresse des Ziel-Servers beantwortet. Wartende Clients bekommen dieselbe Antwort,
+	 * angemeldete Zuschauer bekommen sie geschickt.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param zielHost der Host des Servers, auf dem die Sitzung jetzt läuft
+	 * @param zielPort der Port des Servers, auf dem die Sitzung jetzt läuft
+	 * @return fertig, sobald die Sitzung entfernt ist,
+	 *         schlägt mit einer IllegalStateException fehl, wenn die Sitzung nicht eingefroren ist
+	 * @throws IllegalStateException wenn es keine Sitzung für den Schlüssel gibt
+	 * @throws RejectedExecutionException wenn die Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<Void> weiterleitenSpielSitzung(long schluessel, String zielHost, int zielPort) {
+		ServerSpielSitzung sitzung = getSpielSitzungOderFehler(schluessel);
+		ServerAntwort umleitung = ServerAntwort.erstellenUmgeleitetServerAntwort(
+				"die Sitzung " + schluessel + " ist umgezogen",
+				zielHost,
+				zielPort
+		);
+		return sitzung.ausfuehren(() -> {
+			if(!sitzung.isEingefroren()) {
+				throw new IllegalStateException("die Sitzung " + schluessel + " muss vor dem Weiterleiten eingefroren werden");
+			}
+			// erst die Umleitung, dann entfernen: ein Request findet immer die eingefrorene Sitzung oder die Umleitung
+			umleitungen.put(schluessel, umleitung);
+			sitzung.weckenWartende(spieler -> umleitung);
+			entfernenSpielSitzung(schluessel, umleitung);
+			return null;
+		});
+	}
+	
+	private ServerSpielSitzung getSpielSitzungOderFehler(long schluessel) {
+		ServerSpielSitzung sitzung = sitzungen.getSitzung(schluessel);
+		if(sitzung == null) {
+			throw new IllegalStateException("keine Sitzung mit dem Schlüssel " + schluessel);
+		}
+		return sitzung;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Registriert einen Zuschauer für eine Sitzung. Mit einem ZUSCHAUEN Request über eine dauerhafte Verbindung
+	 * bekommt er danach jede neue Version des SpielZustands geschickt, kann aber nichts im Spiel tun.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param registrierung die Registrierung des Zuschauers
+	 * @throws IllegalStateException wenn es keine Sitzung für den Schlüssel gibt
+	 * 
+	 * </pre>
+	 */
+	public void hinzufuegenZuschauer(long schluessel, ZuschauerRegistrierung registrierung) {
+		getSpielSitzungOderFehler(schluessel).hinzufuegenZuschauer(registrierung);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Entfernt die Registrierung eines Zuschauers, er bekommt danach keine Versionen mehr geschickt.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param zuschauerSchluessel der Schlüssel der ZuschauerRegistrierung
+	 * @return die entfernte Registrierung oder null
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerRegistrierung entfernenZuschauer(long schluessel, long zuschauerSchluessel) {
+		ServerSpielSitzung sitzung = sitzungen.getSitzung(schluessel);
+		if(sitzung == null) {
+			return null;
+		}
+		zuschauerVerteiler.abmelden(schluessel, zuschauerSchluessel);
+		return sitzung.entfernenZuschauer(zuschauerSchluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return die Sitzung oder null
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung getSpielSitzung(long schluessel) {
+		return sitzungen.getSitzung(schluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Verteiler der Benachrichtigungen an die Clients
+	 * 
+	 * </pre>
+	 */
+	public BenachrichtigungsVerteiler getBenachrichtigungsVerteiler() {
+		return benachrichtigungsVerteiler;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Verteiler des SpielZustands an die Zuschauer
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerVerteiler getZuschauerVerteiler() {
+		return zuschauerVerteiler;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return das Rad für die Fristen des Servers
+	 * 
+	 * </pre>
+	 */
+	public ZeitRad getZeitRad() {
+		return zeitRad;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der laufenden Sitzungen
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlSpielSitzungen() {
+		return sitzungen.getAnzahlSitzungen();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Begrenzer mit den Zählern der angenommenen und abgewiesenen Requests
+	 * 
+	 * </pre>
+	 */
+	public LastBegrenzer getLastBegrenzer() {
+		return lastBegrenzer;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Einstellungen des Servers
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen getEinstellungen() {
+		return einstellungen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der wartenden Aufträge je Sitzung, nur Sitzungen mit wartenden Aufträgen
+	 * 
+	 * </pre>
+	 */
+	public Map<Long, Integer> getWarteschlangenTiefen() {
+		return sitzungen.getWarteschlangenTiefen();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Leitet den ClientRequest an die Sitzung seines SpielZustands weiter.
+	 * 
+	 * Die Antwort wird auf dem Thread der Sitzung erstellt,
+	 * der aufrufende Thread wird nicht blockiert.
+	 * 
+	 * Hat der Server zu viele Requests in Arbeit oder ist die Warteschlange der Sitzung voll,
+	 * wird der Request nicht ausgeführt und sofort mit dem Status UEBERLASTET beantwortet.
+	 * 
+	 * Ohne PushKanal kann sich kein Zuschauer anmelden.
+	 * 
+	 * Ist die Sitzung auf einen anderen Server umgezogen, wird mit dem Status UMGELEITET geantwortet.
+	 * 
+	 * Ein HERZSCHLAG Request wird ohne Sitzung sofort beantwortet, ein SITZUNG_INFO Request
+	 * mit dem Schlüssel des SpielZustands, für den der Client registriert ist.
+	 * 
+	 * Eine Spiel-Aktion mit Idempotenz-Schlüssel wird nur einmal ausgeführt,
+	 * eine Wiederholung bekommt die Antwort der ersten Ausführung.
+	 * 
+	 * Die Requests des Spielers, der gerade dran ist, überholen alle wartenden Requests der anderen Clients,
+	 * z.B. viele SPIEL_INFO Requests von Spielern, die nur auf ihren Zug warten. Vorrang haben alle seine Requests,
+	 * nicht nur seine Spiel-Aktionen, damit seine eigenen Requests in ihrer Reihenfolge bleiben.
+	 * 
+	 * @param anfrage der ClientRequest
+	 * @return die Antwort des Servers, sobald die Sitzung den Request bearbeitet hat
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> verarbeiteClientRequest(ClientRequest anfrage) {
+		return verarbeiteClientRequest(anfrage, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Leitet den ClientRequest an die Sitzung seines SpielZustands weiter, siehe {@link #verarbeiteClientRequest(ClientRequest)}.
+	 * 
+	 * Ein ZUSCHAUEN Request wird mit einer ZuschauerRegistrierung der Sitzung ausgewiesen,
+	 * alle anderen mit einer ClientRegistrierung. Ein Zuschauer kann deshalb nichts im Spiel tun.
+	 * 
+	 * @param anfrage der ClientRequest
+	 * @param kanal der PushKanal der Verbindung, über die der Request kam, oder null
+	 * @return die Antwort des Servers, sobald die Sitzung den Request bearbeitet hat
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> verarbeiteClientRequest(ClientRequest anfrage, PushKanal kanal) {
+		if(anfrage.getInfo() == ClientRequestInfo.HERZSCHLAG) {
+			return CompletableFuture.completedFuture(HERZSCHLAG_ANTWORT);
+		}
+		if(anfrage.getInfo() == ClientRequestInfo.SITZUNG_INFO) {
+			return CompletableFuture.completedFuture(suchenSitzung(anfrage));
+		}
+		ServerSpielSitzung sitzung = sitzungen.getSitzung(anfrage.getSpielZustandSchluessel());
+		if(sitzung == null) {
+			ServerAntwort umleitung = umleitungen.get(anfrage.getSpielZustandSchluessel());
+			if(umleitung != null) {
+				return CompletableFuture.completedFuture(umleitung);
+			}
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.UNBEKANNTE_SITZUNG,
+					"keine Sitzung mit dem Schlüssel " + anfrage.getSpielZustandSchluessel()
+			));
+		}
+		
+		if(anfrage.getInfo() == ClientRequestInfo.ZUSCHAUEN) {
+			return zuschauen(sitzung, anfrage, kanal);
+		}
+		
+		ClientRegistrierung registrierung = authentifizieren(anfrage);
+		if(registrierung == null || !sitzung.isRegistriert(registrierung)) {
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.NICHT_AUTORISIERT,
+					"der Client ist für diese Sitzung nicht registriert"
+			));
+		}
+		
+		if(anfrage.getInfo() == ClientRequestInfo.WARTE_AUF_ZUG) {
+			return wartenAufZug(sitzung, registrierung.getSpieler(), anfrage.getWartezeitMillis());
+		}
+		boolean vorrang = sitzung.isAktiverSpieler(registrierung.getSpieler());
+		return einreihen(sitzung, vorrang, () -> CompletableFuture.completedFuture(
+				ausfuehrenWiederholbar(sitzung, registrierung.getSpieler(), anfrage)
+		));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Sucht die Sitzung, für die der Client registriert ist. Meist steht ihr Schlüssel
+	 * als Fremdschlüssel am Spieler, sonst werden die Sitzungen durchsucht.
+	 * 
+	 * @return die Antwort mit dem Schlüssel des SpielZustands der Sitzung
+	 * 
+	 * </pre>
+	 */
+	private ServerAntwort suchenSitzung(ClientRequest anfrage) {
+		ClientRegistrierung registrierung = authentifizieren(anfrage);
+		if(registrierung == null) {
+			return ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.NICHT_AUTORISIERT,
+					"der Client ist auf diesem Server nicht registriert"
+			);
+		}
+		Long schluessel = registrierung.getSpieler().getFremdSchluesselSpielZustand();
+		ServerSpielSitzung sitzung = schluessel != null ? sitzungen.getSitzung(schluessel) : null;
+		if(sitzung == null || !sitzung.isRegistriert(registrierung)) {
+			sitzung = sitzungen.getSitzungen()
+					.stream()
+					.filter(kandidat -> kandidat.isRegistriert(registrierung))
+					.findFirst()
+					.orElse(null);
+		}
+		if(sitzung == null) {
+			return ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.UNBEKANNTE_SITZUNG,
+					"der Client ist für keine laufende Sitzung registriert"
+			);
+		}
+		return ServerAntwort.erstellenServerAntwort(sitzung.getSchluessel());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Reiht einen Auftrag an die Sitzung ein, wenn weder der Server noch die Sitzung ausgelastet ist.
+	 * 
+	 * Der Request zählt beim LastBegrenzer, bis der Auftrag auf dem Thread der Sitzung gelaufen ist.
+	 * Die Antwort, die der Auftrag liefert, darf danach fertig werden, z.B. erst nach einem Zug eines anderen Spielers.
+	 * 
+	 * Ist die Sitzung eingefroren, läuft der Auftrag nicht, die Antwort hat dann den Status UEBERLASTET.
+	 * 
+	 * Ein Auftrag mit Vorrang läuft vor allen wartenden Aufträgen ohne Vorrang,
+	 * siehe {@link ServerSpielSitzung#ausfuehrenMitVorrang(Supplier)}.
+	 * 
+	 * @param vorrang true, wenn der Auftrag vor den wartenden Aufträgen ohne Vorrang laufen soll
+	 * @param auftrag wird auf dem Thread der Sitzung ausgeführt und liefert die Antwort
+	 * @return die Antwort, oder sofort eine Antwort mit dem Status UEBERLASTET
+	 * 
+	 * </pre>
 	 */
-	private final int serverPort;
+	private CompletableFuture<ServerAntwort> einreihen(
+			ServerSpielSitzung sitzung,
+			boolean vorrang,
+			Supplier<CompletableFuture<ServerAntwort>> auftrag
+	) {
+		if(!lastBegrenzer.versuchenAnnehmen()) {
+			return CompletableFuture.completedFuture(lastBegrenzer.abweisen(Grenze.SERVER));
+		}
+		Supplier<CompletableFuture<ServerAntwort>> auftragWennNichtEingefroren = () -> sitzung.isEingefroren()
+				? CompletableFuture.completedFuture(ServerAntwort.erstellenUeberlastetServerAntwort(
+						"die Sitzung zieht auf einen anderen Server um",
+						einstellungen.getWiederholenNachMillis()
+				))
+				: auftrag.get();
+		CompletableFuture<CompletableFuture<ServerAntwort>> ausgefuehrt;
+		try {
+			ausgefuehrt = vorrang
+					? sitzung.ausfuehrenMitVorrang(auftragWennNichtEingefroren)
+					: sitzung.ausfuehren(auftragWennNichtEingefroren);
+		} catch(RejectedExecutionException ausnahme) {
+			lastBegrenzer.freigeben();
+			return CompletableFuture.completedFuture(lastBegrenzer.abweisen(Grenze.SITZUNG));
+		}
+		// erst freigeben, dann antworten: wer die Antwort hat, sieht den Request nicht mehr in Arbeit
+		return ausgefuehrt
+				.whenComplete((antwort, ausnahme) -> lastBegrenzer.freigeben())
+				.thenCompose(antwort -> antwort);
+	}
 	
 	/**
-	 * Die Registrierungen der Spiel-Clients
+	 * <pre>
+	 * 
+	 * Meldet einen Zuschauer beim ZuschauerVerteiler an und antwortet mit dem vollständigen SpielZustand.
+	 * 
+	 * Angemeldet wird auf dem Thread der Sitzung, jede spätere Änderung wird also geschickt.
+	 * Eine geschickte Version kann vor dieser Antwort ankommen, der Zuschauer behält die höchste Version.
+	 * 
+	 * </pre>
 	 */
-	private final HashSet<ClientRegistrierung> registrierungen = new HashSet<>();
+	private CompletableFuture<ServerAntwort> zuschauen(ServerSpielSitzung sitzung, ClientRequest anfrage, PushKanal kanal) {
+		ZuschauerRegistrierung zuschauer = sitzung.getZuschauer(anfrage.getSpielerSchluessel());
+		if(zuschauer == null || !RegistrierungsIndex.gleicheGeheimnisse(zuschauer.getGeheimnis(), anfrage.getGeheimnis())) {
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.NICHT_AUTORISIERT,
+					"der Zuschauer ist für diese Sitzung nicht registriert"
+			));
+		}
+		if(kanal == null) {
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.FEHLER,
+					"ZUSCHAUEN braucht eine Verbindung, über die der Server Nachrichten schicken kann"
+			));
+		}
+		return einreihen(sitzung, false, () -> {
+			zuschauerVerteiler.anmelden(sitzung, zuschauer.getSchluessel(), kanal);
+			return CompletableFuture.completedFuture(erstelleVollstaendigeAntwort(sitzung));
+		});
+	}
 	
 	/**
-	 * Die verwendete Datenbank-Anbindung
+	 * <pre>
+	 * 
+	 * Wird nur auf dem Thread der Sitzung aufgerufen.
+	 * 
+	 * @return die geteilte Antwort mit dem vollständigen SpielZustandDelta der aktuellen Version
+	 * 
+	 * </pre>
 	 */
-	private final RundenLaufMitHerausschlagenDao james;
-
+	private ServerAntwort erstelleVollstaendigeAntwort(ServerSpielSitzung sitzung) {
+		RundenLaufMitHerausschlagenServerService dasSpiel = sitzung.getSpiel();
+		return sitzung.getSchnappschussCache().getVollstaendigeAntwort(
+				dasSpiel.getZustandsVersion(),
+				() -> erstelleSchnappschuss(dasSpiel.getSpielZustand())
+		);
+	}
+	
 	/**
-	 * Die aktuelle Spiel-Siztung
+	 * <pre>
+	 * 
+	 * Beantwortet einen WARTE_AUF_ZUG Request, sobald der Spieler dran ist,
+	 * das Spiel fertig ist oder die Wartezeit abgelaufen ist.
+	 * 
+	 * Ein wartender Client belegt keinen Thread: die Sitzung merkt sich nur seine offene Antwort
+	 * und stellt sie nach der Änderung fertig, die ihn dran bringt. Die Wartezeit ist eine Frist im Zeit-Rad,
+	 * die abgebrochen wird, sobald die Antwort vorher fertig ist.
+	 * 
+	 * </pre>
 	 */
-	private RundenLaufMitHerausschlagenServerService dasSpiel;
+	private CompletableFuture<ServerAntwort> wartenAufZug(ServerSpielSitzung sitzung, KonkreterSpieler spieler, long wartezeitMillis) {
+		long wartezeit = Math.min(wartezeitMillis, MAX_WARTEZEIT_MILLIS);
+		return einreihen(sitzung, false, () -> {
+			ServerAntwort sofort = bestimmeWarteAntwort(sitzung.getSpiel(), spieler);
+			if(sofort != null || wartezeit == 0) {
+				return CompletableFuture.completedFuture(
+						sofort != null ? sofort : ServerAntwort.erstellenServerAntwort(WarteErgebnis.ZEIT_ABGELAUFEN)
+				);
+			}
+			CompletableFuture<ServerAntwort> antwort = new CompletableFuture<>();
+			sitzung.hinzufuegenWartenden(spieler, antwort);
+			ZeitRad.Frist frist = zeitRad.planen(wartezeit, () -> ablaufenWartezeit(sitzung, antwort));
+			// ist die Warteschlange beim Aufräumen voll, entfernt weckenWartende die fertige Antwort später
+			antwort.whenComplete((fertig, ausnahme) -> frist.abbrechen())
+					.thenRun(() -> sitzung.ausfuehren(() -> sitzung.entfernenWartenden(antwort)));
+			return antwort;
+		});
+	}
 	
-	private void ausfuehren() {
-		// Spiel Info
-		boolean isSpielFertig = dasSpiel.isSpielFertig();
-		List<Spieler> alleSpieler = dasSpiel.getAlleSpieler();
-		List<Spieler> konkreteSpieler = dasSpiel.getKonkreteSpieler();
-		List<Spieler> gewinnerSpieler = dasSpiel.getGewinnerSpieler();
-		List<Figur> alleFiguren = dasSpiel.getAlleFiguren();
-		List<SpielFeld> startStreckenFelder = dasSpiel.getStartStreckenFelder();
-		List<SpielFeld> endStreckenFelder = dasSpiel.getEndStreckenFelder();		
-		AktiverSpielerTodoAktion todoAktion = dasSpiel.getAktiverSpielerTodoAktion();
-		WuerfelErgebnis wuerfelErgebnis1 = dasSpiel.getWuerfelErgebnis();
-		Spieler spieler = dasSpiel.getAktiverSpieler();
-		
-		
-		// wuerfeln
+	/**
+	 * <pre>
+	 * 
+	 * Läuft auf dem Thread des Zeit-Rads. Der Client erfährt erst vom Ablauf der Wartezeit,
+	 * nachdem die Sitzung ihn vergessen hat.
+	 * 
+	 * </pre>
+	 */
+	private static void ablaufenWartezeit(ServerSpielSitzung sitzung, CompletableFuture<ServerAntwort> antwort) {
+		ServerAntwort abgelaufen = ServerAntwort.erstellenServerAntwort(WarteErgebnis.ZEIT_ABGELAUFEN);
+		try {
+			sitzung.ausfuehren(() -> sitzung.entfernenWartenden(antwort))
+					.whenComplete((entfernt, ausnahme) -> antwort.complete(abgelaufen));
+		} catch(RejectedExecutionException ausnahme) {
+			antwort.complete(abgelaufen);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Wird nur auf dem Thread der Sitzung aufgerufen.
+	 * 
+	 * @return die Antwort für einen wartenden Spieler oder null, wenn er weiter warten muss
+	 * 
+	 * </pre>
+	 */
+	private static ServerAntwort bestimmeWarteAntwort(RundenLaufMitHerausschlagenServerService dasSpiel, KonkreterSpieler spieler) {
+		if(dasSpiel.isSpielFertig()) {
+			return ServerAntwort.erstellenServerAntwort(WarteErgebnis.SPIEL_FERTIG);
+		}
+		if(dasSpiel.getAktiverSpieler() == spieler) {
+			return ServerAntwort.erstellenServerAntwort(WarteErgebnis.DRAN);
+		}
+		return null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt eine von einem Transport empfangene Nachricht entgegen.
+	 * 
+	 * @param clientObjekt die Nachricht, sollte ein ClientRequest sein
+	 * @param kanal der PushKanal der Verbindung, über die die Nachricht kam
+	 * @return die Antwort des Servers
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<ServerAntwort> verarbeiteClientObjekt(Object clientObjekt, PushKanal kanal) {
+		if(clientObjekt instanceof VerwaltungsAuftrag auftrag) {
+			return verarbeiteVerwaltungsAuftrag(auftrag);
+		}
+		if(!(clientObjekt instanceof ClientRequest anfrage)) {
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.FEHLER,
+					"unbekannte Anfrage: " + (clientObjekt != null ? clientObjekt.getClass().getName() : null)
+			));
+		}
+		return verarbeiteClientRequest(anfrage, kanal);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt einen VerwaltungsAuftrag aus, z.B. von einem SitzungsRouter, der eine Sitzung umziehen lässt.
+	 * 
+	 * Ohne Verwaltungs-Geheimnis in den Einstellungen oder mit einem anderen Geheimnis
+	 * wird der Auftrag mit dem Status NICHT_AUTORISIERT beantwortet.
+	 * Schlägt der Auftrag fehl, hat die Antwort den Status FEHLER und den Grund als Nachricht.
+	 * 
+	 * @param auftrag der Auftrag
+	 * @return die Antwort, bei SITZUNGEN mit einer Liste der Schlüssel, bei EXPORTIEREN mit dem kodierten Checkpoint
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> verarbeiteVerwaltungsAuftrag(VerwaltungsAuftrag auftrag) {
+		Long geheimnis = einstellungen.getVerwaltungsGeheimnis();
+		if(geheimnis == null || !RegistrierungsIndex.gleicheGeheimnisse(geheimnis, auftrag.getGeheimnis())) {
+			return CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.NICHT_AUTORISIERT,
+					"der Server nimmt diesen VerwaltungsAuftrag nicht an"
+			));
+		}
+		long schluessel = auftrag.getSpielZustandSchluessel();
+		CompletableFuture<? extends Serializable> ergebnis;
+		try {
+			ergebnis = switch(auftrag.getArt()) {
+			case SITZUNGEN -> CompletableFuture.completedFuture(new ArrayList<>(sitzungen.getSitzungsSchluessel()));
+			case EINFRIEREN -> einfrierenSpielSitzung(schluessel).thenApply(fertig -> null);
+			case EXPORTIEREN -> exportierenSpielSitzung(schluessel);
+			case IMPORTIEREN -> {
+				importierenSpielSitzung(auftrag.getCheckpoint());
+				yield CompletableFuture.completedFuture(null);
+			}
+			case FORTSETZEN -> fortsetzenSpielSitzung(schluessel).thenApply(fertig -> null);
+			case WEITERLEITEN -> weiterleitenSpielSitzung(schluessel, auftrag.getZielHost(), auftrag.getZielPort()).thenApply(fertig -> null);
+			};
+		} catch(IOException | RuntimeException ausnahme) {
+			ergebnis = CompletableFuture.failedFuture(ausnahme);
+		}
+		return ergebnis.handle((inhalt, ausnahme) -> {
+			if(ausnahme == null) {
+				return ServerAntwort.erstellenServerAntwort(inhalt);
+			}
+			Throwable grund = ausnahme instanceof CompletionException && ausnahme.getCause() != null ? ausnahme.getCause() : ausnahme;
+			serverLog(auftrag + " ist fehlgeschlagen: " + grund);
+			return ServerAntwort.erstellenFehlerServerAntwort(ServerAntwortStatus.FEHLER, String.valueOf(grund.getMessage()));
+		});
+	}
+	
+	private ClientRegistrierung authentifizieren(ClientRequest anfrage) {
+		return registrierungen.authentifizieren(anfrage.getSpielerSchluessel(), anfrage.getGeheimnis());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt den ClientRequest aus. Wird nur auf dem Thread der Sitzung aufgerufen.
+	 * 
+	 * </pre>
+	 */
+	private ServerAntwort ausfuehrenClientRequest(
+			ServerSpielSitzung sitzung,
+			KonkreterSpieler spieler,
+			ClientRequest anfrage
+	) {
+		RundenLaufMitHerausschlagenServerService dasSpiel = sitzung.getSpiel();
+		try {
+			return switch(anfrage.getInfo()) {
+			// je Version wird der SpielZustand nur einmal kopiert und je Format nur einmal kodiert
+			case SPIEL_INFO -> sitzung.getSchnappschussCache().getSpielInfoAntwort(
+					dasSpiel.getZustandsVersion(),
+					() -> erstelleSchnappschuss(dasSpiel.getSpielZustand())
+			);
+			case MOEGLICHE_ZUEGE_INFO -> {
+				ArrayList<SpielZug> moeglicheZuege = new ArrayList<>();
+				if(dasSpiel.getAktiverSpieler() == spieler && dasSpiel.getAktiverSpielerTodoAktion() == AktiverSpielerTodoAktion.MUSS_ZIEHEN) {
+					moeglicheZuege.addAll(dasSpiel.bestimmeMoeglicheSpielZuege(spieler, dasSpiel.getWuerfelErgebnis()));
+				}
+				yield ServerAntwort.erstellenServerAntwort(erstelleSchnappschuss(moeglicheZuege));
+			}
+			case WUERFELN -> ServerAntwort.erstellenServerAntwort(wuerfeln(dasSpiel, spieler));
+			case ZIEHEN -> {
+				ziehen(dasSpiel, spieler, anfrage.getFigurSchluessel());
+				yield ServerAntwort.erstellenServerAntwort(null);
+			}
+			case GEHE_ZUM_NAECHSTER_SPIELER -> {
+				naechsterSpieler(dasSpiel, spieler);
+				yield ServerAntwort.erstellenServerAntwort(null);
+			}
+			case STAPEL -> ServerAntwort.erstellenServerAntwort(ausfuehrenStapel(dasSpiel, spieler, anfrage.getSchritte()));
+			case AENDERUNGEN_INFO -> {
+				// die SpielFelder im Delta werden nie verändert, eine Figur bekommt beim Ziehen ein neues
+				SpielZustandDelta delta = dasSpiel.erstellenDelta(anfrage.getBekannteVersion());
+				if(delta == null) {
+					yield erstelleVollstaendigeAntwort(sitzung);
+				}
+				yield ServerAntwort.erstellenServerAntwort(delta);
+			}
+			case WARTE_AUF_ZUG, ZUSCHAUEN, HERZSCHLAG, SITZUNG_INFO -> throw new IllegalStateException(anfrage.getInfo() + " wird von verarbeiteClientRequest beantwortet");
+			};
+		} catch(IllegaleSpielerAktionException | IllegalArgumentException ausnahme) {
+			return ServerAntwort.erstellenFehlerServerAntwort(ServerAntwortStatus.FEHLER, ausnahme.getMessage());
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt eine Spiel-Aktion mit Idempotenz-Schlüssel nur einmal aus: eine Wiederholung bekommt
+	 * die gemerkte Antwort der ersten Ausführung, ohne dass die Spiel-Logik noch einmal läuft.
+	 * Eine Wiederholung, die noch vor der ersten Ausführung eingereiht wurde, kommt auf dem Thread
+	 * der Sitzung erst danach dran und findet die Antwort deshalb auch.
+	 * 
+	 * Wird nur auf dem Thread der Sitzung aufgerufen.
+	 * 
+	 * </pre>
+	 */
+	private ServerAntwort ausfuehrenWiederholbar(
+			ServerSpielSitzung sitzung,
+			KonkreterSpieler spieler,
+			ClientRequest anfrage
+	) {
+		if(anfrage.getIdempotenzSchluessel() == null) {
+			return ausfuehrenClientRequest(sitzung, spieler, anfrage);
+		}
+		AntwortGedaechtnis gedaechtnis = sitzung.getAntwortGedaechtnis();
+		ServerAntwort gemerkt;
+		try {
+			gemerkt = gedaechtnis.suchen(anfrage.getSpielerSchluessel(), anfrage);
+		} catch(IllegalArgumentException ausnahme) {
+			return ServerAntwort.erstellenFehlerServerAntwort(ServerAntwortStatus.FEHLER, ausnahme.getMessage());
+		}
+		if(gemerkt != null) {
+			return gemerkt;
+		}
+		ServerAntwort antwort = ausfuehrenClientRequest(sitzung, spieler, anfrage);
+		gedaechtnis.merken(anfrage.getSpielerSchluessel(), anfrage, antwort);
+		return antwort;
+	}
+	
+	private static WuerfelErgebnis wuerfeln(RundenLaufMitHerausschlagenServerService dasSpiel, KonkreterSpieler spieler) {
 		dasSpiel.wuerfeln(spieler);
-		WuerfelErgebnis wuerfelErgebnis2 = dasSpiel.getWuerfelErgebnis();
-		
-		// ziehen
-		List<SpielZug> moeglicheZuege = dasSpiel.bestimmeMoeglicheSpielZuege(spieler, wuerfelErgebnis2);
-		
+		return dasSpiel.getWuerfelErgebnis();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param figurSchluessel die zu ziehende Figur, null für den ersten möglichen Zug
+	 * @return der Schlüssel der gezogenen Figur
+	 * 
+	 * </pre>
+	 */
+	private static Long ziehen(RundenLaufMitHerausschlagenServerService dasSpiel, KonkreterSpieler spieler, Long figurSchluessel) {
+		if(dasSpiel.getAktiverSpieler() != spieler) {
+			throw new IllegaleSpielerAktionException("der Spieler mit der Farbe " + spieler.getFarbe().toPrettyString() + " ist nicht dran");
+		}
+		if(dasSpiel.getAktiverSpielerTodoAktion() != AktiverSpielerTodoAktion.MUSS_ZIEHEN) {
+			throw new IllegaleSpielerAktionException("der Spieler mit der Farbe " + spieler.getFarbe().toPrettyString() + " darf jetzt nicht ziehen");
+		}
+		SpielZug spielZug = dasSpiel.bestimmeMoeglicheSpielZuege(spieler, dasSpiel.getWuerfelErgebnis())
+				.stream()
+				.filter(zug -> figurSchluessel == null || figurSchluessel.equals(zug.getZugFigur().getSchluessel()))
+				.findFirst()
+				.orElseThrow(() -> new IllegaleSpielerAktionException("die Figur mit dem Schlüssel " + figurSchluessel + " kann nicht ziehen"));
+		dasSpiel.ausfuehrenSpielZug(spielZug);
+		return spielZug.getZugFigur().getSchluessel();
+	}
+	
+	private static void naechsterSpieler(RundenLaufMitHerausschlagenServerService dasSpiel, KonkreterSpieler spieler) {
+		if(dasSpiel.getAktiverSpieler() != spieler) {
+			throw new IllegaleSpielerAktionException("der Spieler mit der Farbe " + spieler.getFarbe().toPrettyString() + " ist nicht dran");
+		}
 		dasSpiel.naechsterAktiverSpieler();
-		
 	}
 	
 	/**
 	 * <pre>
 	 * 
+	 * Führt die Schritte eines STAPEL Requests nacheinander aus. Wird nur auf dem Thread der Sitzung aufgerufen,
+	 * kein anderer Request kann also zwischen zwei Schritten den SpielZustand ändern.
 	 * 
+	 * Ein Schritt, dessen Bedingung nicht erfüllt ist, wird übersprungen.
+	 * Beim ersten fehlgeschlagenen Schritt hört der Stapel auf. Die Aktionen des Service prüfen alles,
+	 * bevor sie etwas ändern: ein fehlgeschlagener Schritt hat also nichts geändert,
+	 * die Schritte davor bleiben aber ausgeführt.
 	 * 
 	 * </pre>
 	 */
-	public RundenLaufMitHerausschlagenServer(
-			int serverPort,
-			RundenLaufMitHerausschlagenDao james
+	private static StapelErgebnis ausfuehrenStapel(
+			RundenLaufMitHerausschlagenServerService dasSpiel,
+			KonkreterSpieler spieler,
+			List<StapelSchritt> schritte
 	) {
-		this.serverPort = serverPort;
-		this.james = james;
-		
-		this.dasSpiel = initialisiereServerSpielSitzung();
+		List<SchrittErgebnis> ergebnisse = new ArrayList<>(schritte.size());
+		for(StapelSchritt schritt : schritte) {
+			boolean dran = dasSpiel.getAktiverSpieler() == spieler;
+			if(
+					schritt.getBedingung() != Bedingung.IMMER
+					&& !(dran && schritt.getBedingung().isErfuellt(dasSpiel.getAktiverSpielerTodoAktion()))
+			) {
+				ergebnisse.add(SchrittErgebnis.erstellenUebersprungen());
+				continue;
+			}
+			try {
+				ergebnisse.add(switch(schritt.getAktion()) {
+				case WUERFELN -> SchrittErgebnis.erstellenAusgefuehrt(wuerfeln(dasSpiel, spieler), null);
+				case ZIEHEN -> SchrittErgebnis.erstellenAusgefuehrt(null, ziehen(dasSpiel, spieler, schritt.getFigurSchluessel()));
+				case GEHE_ZUM_NAECHSTER_SPIELER -> {
+					naechsterSpieler(dasSpiel, spieler);
+					yield SchrittErgebnis.erstellenAusgefuehrt(null, null);
+				}
+				default -> throw new IllegalArgumentException(schritt.getAktion() + " ist kein Schritt eines Stapels");
+				});
+			} catch(IllegaleSpielerAktionException | IllegalArgumentException ausnahme) {
+				ergebnisse.add(SchrittErgebnis.erstellenFehlgeschlagen(ausnahme.getMessage()));
+				break;
+			}
+		}
+		return new StapelErgebnis(ergebnisse, dasSpiel.getAktiverSpielerTodoAktion());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt eine tiefe Kopie des übergebenen Objekts.
+	 * 
+	 * Die Antwort wird erst nach dem Auftrag der Sitzung an den Client geschickt,
+	 * deshalb darf sie keine Objekte enthalten, die die Sitzung weiter verändert.
+	 * 
+	 * </pre>
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Serializable> T erstelleSchnappschuss(T original) {
+		try {
+			ByteArrayOutputStream puffer = new ByteArrayOutputStream();
+			try(ObjectOutputStream objektSchreiber = new ObjectOutputStream(puffer)) {
+				objektSchreiber.writeObject(original);
+			}
+			try(ObjectInputStream objektLeser = new ObjectInputStream(new ByteArrayInputStream(puffer.toByteArray()))) {
+				return (T)objektLeser.readObject();
+			}
+		} catch(IOException ausnahme) {
+			throw new UncheckedIOException(ausnahme);
+		} catch(ClassNotFoundException ausnahme) {
+			throw new IllegalStateException(ausnahme);
+		}
 	}
 	
-	private RundenLaufMitHerausschlagenServerService initialisiereServerSpielSitzung() {
+	private ServerSpielSitzung initialisiereServerSpielSitzung() {
 		Farbe rot = Farbe.from(Color.RED, "red");
 		Farbe gruen = Farbe.from(Color.GREEN, "green");
 		Farbe blau = Farbe.from(Color.BLUE, "blau");
@@ -257,30 +1748,19 @@ public class RundenLaufMitHerausschlagenServer {
 		int anzahlSpielerPositionen = alleSpieler.size();
 		int anzahlKonkreterSpieler = (int)alleSpieler.stream().filter(s -> s instanceof KonkreterSpieler).count();
 		
-		registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+		List<ClientRegistrierung> neueRegistrierungen = new ArrayList<>();
+		neueRegistrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
 				1L,
 				spielerRot,
 				"localhost",
 				20_001
 		));
-		registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+		neueRegistrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
 				2L,
 				spielerGruen,
 				"localhost",
 				20_001
 		));
-		registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
-				2L,
-				spielerGruen,
-				"localhost",
-				20_001
-		));;
-		registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
-				2L,
-				spielerGruen,
-				"localhost",
-				20_001
-		));;
 
 		SpielZustand dasSpiel = new SpielZustand(
 				aktiverSpieler,
@@ -291,9 +1771,7 @@ public class RundenLaufMitHerausschlagenServer {
 				spielerOffset
 		);
 		
-		james.hinzufuegenSpielZustand(dasSpiel);
-		
-		return new RundenLaufMitHerausschlagenServerService(james, dasSpiel);
+		return hinzufuegenSpielSitzung(dasSpiel, neueRegistrierungen);
 	}
 	
 	
@@ -306,49 +1784,321 @@ public class RundenLaufMitHerausschlagenServer {
 		);
 	}
 	
-	private class VerbindungsLauscher {
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt auf dem Server-Port Verbindungen an und gibt jede Verbindung
+	 * als eigenen Auftrag an den Verbindungs-Executor ab.
+	 * 
+	 * Der Lausch-Thread bearbeitet selbst keine Requests,
+	 * ein langsamer oder hängender Client hält deshalb keine anderen Clients auf.
+	 * 
+	 * </pre>
+	 */
+	private class VerbindungsLauscher implements ServerTransport, Runnable {
+		private final AtomicLong anzahlAngenommenerVerbindungen = new AtomicLong();
+		
+		private final AtomicInteger anzahlOffenerVerbindungen = new AtomicInteger();
+		
+		private ServerSocket lauscher;
+		
+		private ExecutorService verbindungsAusfuehrer;
+		
+		/**
+		 * schreibt die Push-Nachrichten, getrennt von den Verbindungen, damit ein Push nie auf eine Verbindung wartet
+		 */
+		private ExecutorService pushAusfuehrer;
+		
+		@Override
+		public void starten() throws IOException {
+			lauscher = new ServerSocket(einstellungen.getServerPort(), VERBINDUNGS_RUECKSTAU);
+			verbindungsAusfuehrer = VerbindungsAusfuehrung.erstellenAusfuehrer(
+					einstellungen.getVerbindungsModus(),
+					einstellungen.getMaxPlattformThreads()
+			);
+			pushAusfuehrer = VerbindungsAusfuehrung.erstellenSchreibAusfuehrer(
+					einstellungen.getVerbindungsModus(),
+					einstellungen.getMaxPlattformThreads()
+			);
+			
+			Thread lauschThread = new Thread(this, "verbindungs-lauscher-" + lauscher.getLocalPort());
+			lauschThread.setDaemon(true);
+			lauschThread.start();
+		}
+		
+		@Override
+		public void run() {
+			lausche();
+		}
+		
 		public void lausche() {
-		    try (
-		    		ServerSocket lauscher = new ServerSocket(5678);
-		    ) {
-		    	serverLog("lausche auf neue Verbindungen: server port = " + serverPort);
-
-				while(true) {
-					try(
-						Socket verbindung = lauscher.accept();
-					) {
-						bedieneClient(verbindung);
-					} catch(IOException | ClassNotFoundException ausnahme) {
-						ausnahme.printStackTrace();
+			long pauseMillis = 0;
+			while(!lauscher.isClosed()) {
+				Socket verbindung;
+				try {
+					verbindung = lauscher.accept();
+				} catch(IOException ausnahme) {
+					if(lauscher.isClosed()) {
+						continue;
+					}
+					ausnahme.printStackTrace();
+					pauseMillis = Math.min(Math.max(2 * pauseMillis, 10), MAX_ANNAHME_PAUSE_MILLIS);
+					try {
+						Thread.sleep(pauseMillis);
+					} catch(InterruptedException unterbrochen) {
+						Thread.currentThread().interrupt();
+						return;
 					}
+					continue;
 				}
-		    } catch(IOException ausnahme) {
+				pauseMillis = 0;
+				anzahlAngenommenerVerbindungen.incrementAndGet();
+				
+				try {
+					verbindungsAusfuehrer.execute(() -> bedieneVerbindung(verbindung));
+				} catch(RejectedExecutionException ausnahme) {
+					abweisen(verbindung);
+				}
+			}
+		}
+		
+		@Override
+		public void beenden() {
+			try {
+				lauscher.close();
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
+			}
+			verbindungsAusfuehrer.shutdownNow();
+			pushAusfuehrer.shutdownNow();
+		}
+		
+		@Override
+		public int getLokalerPort() {
+			return lauscher.getLocalPort();
+		}
+		
+		@Override
+		public long getAnzahlAngenommenerVerbindungen() {
+			return anzahlAngenommenerVerbindungen.get();
+		}
+		
+		@Override
+		public int getAnzahlOffenerVerbindungen() {
+			return anzahlOffenerVerbindungen.get();
+		}
+		
+		private void bedieneVerbindung(Socket verbindung) {
+			anzahlOffenerVerbindungen.incrementAndGet();
+			try(verbindung) {
+				verbindung.setSoTimeout((int)einstellungen.getLeerlaufMillis());
+				verbindung.setTcpNoDelay(true);
+				bedieneClient(verbindung);
+			} catch(SocketTimeoutException ausnahme) {
+				serverLog("ein Client hat zu lange nichts gesendet: client IP/port = " + verbindung.getRemoteSocketAddress());
+			} catch(EOFException | SocketException ausnahme) {
+				// der Client hat die Verbindung mitten in einem Rahmen geschlossen oder abgebrochen
+			} catch(IOException ausnahme) {
 				ausnahme.printStackTrace();
+			} finally {
+				anzahlOffenerVerbindungen.decrementAndGet();
 			}
 		}
 		
-		private void bedieneClient(Socket verbindung) throws IOException, ClassNotFoundException {
+		/**
+		 * <pre>
+		 * 
+		 * Liest Rahmen, bis der Client die Verbindung schließt.
+		 * 
+		 * Jeder Request wird sofort an seine Sitzung weitergegeben, ohne auf die Antwort zu warten,
+		 * so kann ein Client mehrere Requests hintereinander schicken.
+		 * Die Antworten schreibt der Thread, der sie fertigstellt, mit der Anfrage-Id des Requests.
+		 * 
+		 * Hat die Verbindung schon zu viele ausstehende Antworten, wird ein weiterer Request
+		 * nicht mehr weitergegeben, sondern sofort mit dem Status UEBERLASTET beantwortet.
+		 * 
+		 * </pre>
+		 */
+		private void bedieneClient(Socket verbindung) throws IOException {
 			InetAddress clientAddress = verbindung.getInetAddress();
 			serverLog("ein Client hat sich verbunden: client IP/port = " + clientAddress);
 			
-			Object clientObjekt = null;
-			try (ObjectInputStream objectLeser = new ObjectInputStream(new BufferedInputStream(verbindung.getInputStream()));) {
-				clientObjekt = objectLeser.readObject();
+			DataInputStream eingabe = new DataInputStream(new BufferedInputStream(verbindung.getInputStream()));
+			DataOutputStream ausgabe = new DataOutputStream(new BufferedOutputStream(verbindung.getOutputStream()));
+			Set<CompletableFuture<Void>> ausstehendeAntworten = ConcurrentHashMap.newKeySet();
+			BlockierenderPushKanal kanal = new BlockierenderPushKanal(verbindung, ausgabe);
+			
+			while(true) {
+				NachrichtenRahmen rahmen;
+				try {
+					rahmen = NachrichtenRahmen.lesen(eingabe);
+				} catch(EOFException ausnahme) {
+					break;
+				}
+				
+				CompletableFuture<ServerAntwort> antwort;
+				// geantwortet wird im Format des Requests, unbekannte Formate bekommen die Java-Serialisierung
+				NachrichtenFormat format = NachrichtenFormat.JAVA_SERIALISIERUNG;
+				try {
+					format = NachrichtenFormat.erkennen(rahmen.getNutzdaten());
+					kanal.format = format;
+					if(ausstehendeAntworten.size() >= einstellungen.getMaxAusstehendeAntwortenJeVerbindung()) {
+						antwort = CompletableFuture.completedFuture(lastBegrenzer.abweisen(Grenze.VERBINDUNG));
+					} else {
+						antwort = verarbeiteClientObjekt(format.getCodec().dekodieren(rahmen.getNutzdaten()), kanal);
+					}
+				} catch(IOException | ClassNotFoundException ausnahme) {
+					antwort = CompletableFuture.completedFuture(ServerAntwort.erstellenFehlerServerAntwort(
+							ServerAntwortStatus.FEHLER,
+							"die Nachricht kann nicht gelesen werden: " + ausnahme.getMessage()
+					));
+				}
+				
+				NachrichtenFormat antwortFormat = format;
+				CompletableFuture<Void> geschrieben = antwort.exceptionally(ausnahme -> ServerAntwort.erstellenFehlerServerAntwort(
+						ServerAntwortStatus.FEHLER,
+						String.valueOf(ausnahme)
+				)).thenAccept(fertig -> schreiben(verbindung, ausgabe, rahmen.getAnfrageId(), antwortFormat, fertig));
+				ausstehendeAntworten.add(geschrieben);
+				geschrieben.thenRun(() -> ausstehendeAntworten.remove(geschrieben));
+			}
+			
+			// der Client hat nur seine Schreib-Richtung geschlossen: die ausstehenden Antworten noch schreiben
+			CompletableFuture.allOf(ausstehendeAntworten.toArray(CompletableFuture[]::new)).join();
+		}
+		
+		private void schreiben(Socket verbindung, DataOutputStream ausgabe, long anfrageId, NachrichtenFormat format, ServerAntwort antwort) {
+			try {
+				byte[] nutzdaten = NachrichtenRahmen.kodieren(antwort, format);
+				synchronized(ausgabe) {
+					NachrichtenRahmen.schreiben(ausgabe, anfrageId, nutzdaten);
+					ausgabe.flush();
+				}
+			} catch(IOException ausnahme) {
+				schliessen(verbindung);
 			}
-
-			Object serverObjekt = verarbeiteClientObjekt(clientObjekt);
-			if(serverObjekt == null) {
-				return;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Weist eine Verbindung ab, für die kein Thread frei ist:
+		 * schickt eine Push-Nachricht mit dem Status UEBERLASTET und schließt die Verbindung.
+		 * 
+		 * Die Nachricht ist klein genug für den Sende-Puffer einer neuen Verbindung,
+		 * der Lausch-Thread wartet also nicht auf den Client.
+		 * 
+		 * </pre>
+		 */
+		private void abweisen(Socket verbindung) {
+			serverLog("kein Thread frei, die Verbindung wird abgewiesen: client IP/port = " + verbindung.getRemoteSocketAddress());
+			try(verbindung) {
+				DataOutputStream ausgabe = new DataOutputStream(verbindung.getOutputStream());
+				NachrichtenRahmen.schreiben(
+						ausgabe,
+						NachrichtenRahmen.BENACHRICHTIGUNGS_ID,
+						NachrichtenRahmen.kodieren(lastBegrenzer.abweisen(Grenze.SERVER), NachrichtenFormat.BINAER)
+				);
+				ausgabe.flush();
+			} catch(IOException ausnahme) {
+				// der Client ist schon weg
 			}
-
-			try (ObjectOutputStream objektSchreiber = new ObjectOutputStream(new BufferedOutputStream(verbindung.getOutputStream()));) {
-				objektSchreiber.writeObject(serverObjekt);
+		}
+		
+		private void schliessen(Socket verbindung) {
+			try {
+				verbindung.close();
+			} catch(IOException ausnahme) {
+				ausnahme.printStackTrace();
 			}
 		}
 		
-		private Object verarbeiteClientObjekt(Object clientObjekt) {
+		/**
+		 * <pre>
+		 * 
+		 * Der PushKanal einer blockierenden Verbindung.
+		 * 
+		 * Je Verbindung ist höchstens ein Schreib-Auftrag auf dem Push-Executor unterwegs.
+		 * Kommt eine neue Push-Nachricht, während die alte noch geschrieben wird,
+		 * ersetzt sie die noch nicht geschriebene.
+		 * 
+		 * </pre>
+		 */
+		private class BlockierenderPushKanal implements PushKanal {
+			private final Socket verbindung;
 			
-			return null;
+			private final DataOutputStream ausgabe;
+			
+			/**
+			 * die kodierte neueste noch nicht geschriebene Push-Nachricht
+			 */
+			private final AtomicReference<byte[]> ausstehend = new AtomicReference<>();
+			
+			/**
+			 * ob gerade ein Schreib-Auftrag unterwegs ist
+			 */
+			private final AtomicBoolean schreibend = new AtomicBoolean();
+			
+			/**
+			 * das Format des letzten Requests, in ihm werden die Push-Nachrichten kodiert
+			 */
+			private volatile NachrichtenFormat format = NachrichtenFormat.BINAER;
+			
+			private BlockierenderPushKanal(Socket verbindung, DataOutputStream ausgabe) {
+				this.verbindung = verbindung;
+				this.ausgabe = ausgabe;
+			}
+			
+			@Override
+			public boolean pushen(ServerAntwort nachricht) {
+				if(!isOffen()) {
+					return false;
+				}
+				byte[] nutzdaten;
+				try {
+					nutzdaten = NachrichtenRahmen.kodieren(nachricht, format);
+				} catch(IOException ausnahme) {
+					ausnahme.printStackTrace();
+					return false;
+				}
+				boolean ersetzt = ausstehend.getAndSet(nutzdaten) != null;
+				if(schreibend.compareAndSet(false, true)) {
+					try {
+						pushAusfuehrer.execute(this::schreibenAusstehende);
+					} catch(RejectedExecutionException ausnahme) {
+						// der Transport ist beendet
+						schreibend.set(false);
+					}
+				}
+				return ersetzt;
+			}
+			
+			@Override
+			public boolean isOffen() {
+				return !verbindung.isClosed();
+			}
+			
+			private void schreibenAusstehende() {
+				while(true) {
+					byte[] nutzdaten = ausstehend.getAndSet(null);
+					if(nutzdaten == null) {
+						schreibend.set(false);
+						// eine Push-Nachricht, die zwischen getAndSet und set kam, hat keinen Auftrag eingeplant
+						if(ausstehend.get() == null || !schreibend.compareAndSet(false, true)) {
+							return;
+						}
+						continue;
+					}
+					try {
+						synchronized(ausgabe) {
+							NachrichtenRahmen.schreiben(ausgabe, NachrichtenRahmen.BENACHRICHTIGUNGS_ID, nutzdaten);
+							ausgabe.flush();
+						}
+					} catch(IOException ausnahme) {
+						schliessen(verbindung);
+					}
+				}
+			}
 		}
 	}
 }
@@ -0,0 +1,299 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 
+ * Ein Executor, der seine Aufträge nacheinander in Eingangsreihenfolge
+ * auf einem gemeinsam genutzten Thread-Pool ausführt.
+ * 
+ * Jede ServerSpielSitzung hat eine eigene SerielleAusfuehrung:
+ * - die Aufträge einer Sitzung laufen nie parallel, daher braucht die Spiel-Logik keine Locks
+ * - die Sitzungen teilen sich die Threads des Pools, daher braucht keine Sitzung einen eigenen Thread
+ * - die Warteschlange ist begrenzt: ist sie voll, wird ein neuer Auftrag mit einer
+ *   RejectedExecutionException abgelehnt, statt Speicher für einen flutenden Client anzuhäufen
+ * 
+ * Neben der normalen Warteschlange gibt es eine Vorrang-Warteschlange ({@link #executeMitVorrang(Runnable)}),
+ * z.B. für die Requests des Spielers, der gerade dran ist. Ein Auftrag mit Vorrang läuft vor allen
+ * wartenden normalen Aufträgen, innerhalb jeder Warteschlange bleibt die Eingangsreihenfolge erhalten.
+ * Jede der beiden Warteschlangen ist für sich begrenzt, volle normale Aufträge lehnen also
+ * keinen Auftrag mit Vorrang ab.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SerielleAusfuehrung implements Executor {
+	/**
+	 * <pre>
+	 * 
+	 * Maximale Anzahl Aufträge, die am Stück abgearbeitet werden,
+	 * bevor der Pool-Thread für andere Sitzungen freigegeben wird.
+	 * 
+	 * </pre>
+	 */
+	private static final int MAX_AUFTRAEGE_AM_STUECK = 64;
+	
+	/**
+	 * der gemeinsam genutzte Thread-Pool
+	 */
+	private final Executor pool;
+	
+	/**
+	 * die wartenden Aufträge
+	 */
+	private final Queue<Runnable> auftraege = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * die Anzahl der wartenden Aufträge, ConcurrentLinkedQueue.size() zählt jedes Mal alle Knoten
+	 */
+	private final AtomicInteger anzahlWartenderAuftraege = new AtomicInteger();
+	
+	/**
+	 * die wartenden Aufträge mit Vorrang
+	 */
+	private final Queue<Runnable> vorrangAuftraege = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * die Anzahl der wartenden Aufträge mit Vorrang
+	 */
+	private final AtomicInteger anzahlWartenderVorrangAuftraege = new AtomicInteger();
+	
+	/**
+	 * reiht Aufträge mit Vorrang ein
+	 */
+	private final Executor vorrangAusfuehrer = this::executeMitVorrang;
+	
+	/**
+	 * die maximale Anzahl wartender Aufträge
+	 */
+	private final int maxWartendeAuftraege;
+	
+	/**
+	 * die Anzahl der abgelehnten Aufträge
+	 */
+	private final AtomicInteger anzahlAbgelehnterAuftraege = new AtomicInteger();
+	
+	/**
+	 * gibt an, ob gerade ein Pool-Thread die Aufträge abarbeitet oder dafür eingeplant ist
+	 */
+	private final AtomicBoolean eingeplant = new AtomicBoolean();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param pool der gemeinsam genutzte Thread-Pool
+	 * 
+	 * </pre>
+	 */
+	public SerielleAusfuehrung(Executor pool) {
+		this(pool, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param pool der gemeinsam genutzte Thread-Pool
+	 * @param maxWartendeAuftraege die maximale Anzahl wartender Aufträge
+	 * 
+	 * </pre>
+	 */
+	public SerielleAusfuehrung(Executor pool, int maxWartendeAuftraege) {
+		if(maxWartendeAuftraege < 1) {
+			throw new IllegalArgumentException("mindestens ein wartender Auftrag muss erlaubt sein: " + maxWartendeAuftraege);
+		}
+		this.pool = pool;
+		this.maxWartendeAuftraege = maxWartendeAuftraege;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @throws RejectedExecutionException wenn schon die maximale Anzahl Aufträge wartet
+	 * 
+	 * </pre>
+	 */
+	@Override
+	public void execute(Runnable auftrag) {
+		einreihen(auftraege, anzahlWartenderAuftraege, auftrag);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt den Auftrag vor allen wartenden Aufträgen ohne Vorrang aus.
+	 * 
+	 * @throws RejectedExecutionException wenn schon die maximale Anzahl Aufträge mit Vorrang wartet
+	 * 
+	 * </pre>
+	 */
+	public void executeMitVorrang(Runnable auftrag) {
+		einreihen(vorrangAuftraege, anzahlWartenderVorrangAuftraege, auftrag);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ein Executor, der seine Aufträge mit {@link #executeMitVorrang(Runnable)} einreiht
+	 * 
+	 * </pre>
+	 */
+	public Executor getVorrangAusfuehrer() {
+		return vorrangAusfuehrer;
+	}
+	
+	private void einreihen(Queue<Runnable> warteschlange, AtomicInteger anzahlWartende, Runnable auftrag) {
+		if(auftrag == null) {
+			throw new NullPointerException();
+		}
+		if(anzahlWartende.incrementAndGet() > maxWartendeAuftraege) {
+			anzahlWartende.decrementAndGet();
+			anzahlAbgelehnterAuftraege.incrementAndGet();
+			throw new RejectedExecutionException("die Warteschlange ist voll: " + maxWartendeAuftraege + " Aufträge");
+		}
+		warteschlange.add(auftrag);
+		try {
+			einplanen();
+		} catch(RejectedExecutionException ausnahme) {
+			// hat ein laufender Pool-Thread den Auftrag schon genommen, wird er ausgeführt
+			if(warteschlange.remove(auftrag)) {
+				anzahlWartende.decrementAndGet();
+				throw ausnahme;
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der wartenden Aufträge, mit und ohne Vorrang
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlWartenderAuftraege() {
+		return anzahlWartenderAuftraege.get() + anzahlWartenderVorrangAuftraege.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der wartenden Aufträge mit Vorrang
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlWartenderVorrangAuftraege() {
+		return anzahlWartenderVorrangAuftraege.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die maximale Anzahl wartender Aufträge je Warteschlange
+	 * 
+	 * </pre>
+	 */
+	public int getMaxWartendeAuftraege() {
+		return maxWartendeAuftraege;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Aufträge, die wegen einer vollen Warteschlange abgelehnt wurden
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlAbgelehnterAuftraege() {
+		return anzahlAbgelehnterAuftraege.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Lehnt der Pool ab, z.B. weil er beendet ist, bleibt nichts eingeplant,
+	 * damit der nächste Auftrag es wieder versuchen kann, statt für immer zu warten.
+	 * 
+	 * @throws RejectedExecutionException wenn der Pool den Auftrag ablehnt
+	 * 
+	 * </pre>
+	 */
+	private void einplanen() {
+		if(eingeplant.compareAndSet(false, true)) {
+			try {
+				pool.execute(this::abarbeiten);
+			} catch(RejectedExecutionException ausnahme) {
+				eingeplant.set(false);
+				throw ausnahme;
+			}
+		}
+	}
+	
+	private void abarbeiten() {
+		try {
+			Runnable auftrag;
+			int anzahl = 0;
+			while(anzahl < MAX_AUFTRAEGE_AM_STUECK && (auftrag = naechsterAuftrag()) != null) {
+				try {
+					auftrag.run();
+				} catch(RuntimeException ausnahme) {
+					ausnahme.printStackTrace();
+				}
+				anzahl++;
+			}
+		} finally {
+			eingeplant.set(false);
+			if(!vorrangAuftraege.isEmpty() || !auftraege.isEmpty()) {
+				einplanen();
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der älteste Auftrag mit Vorrang, sonst der älteste ohne, oder null
+	 * 
+	 * </pre>
+	 */
+	private Runnable naechsterAuftrag() {
+		Runnable auftrag = vorrangAuftraege.poll();
+		if(auftrag != null) {
+			anzahlWartenderVorrangAuftraege.decrementAndGet();
+			return auftrag;
+		}
+		auftrag = auftraege.poll();
+		if(auftrag != null) {
+			anzahlWartenderAuftraege.decrementAndGet();
+		}
+		return auftrag;
+	}
+}
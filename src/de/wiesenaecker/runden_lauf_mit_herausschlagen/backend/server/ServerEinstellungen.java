@@ -0,0 +1,655 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.nio.file.Path;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.VerbindungsAusfuehrung.VerbindungsModus;
+
+/**
+ * <pre>
+ * 
+ * Die Einstellungen, mit denen ein RundenLaufMitHerausschlagenServer läuft.
+ * 
+ * Alle Werte haben sinnvolle Standards,
+ * es müssen nur die abweichenden Werte gesetzt werden.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ServerEinstellungen {
+	/**
+	 * der Standard-Port des Servers
+	 */
+	public static final int STANDARD_SERVER_PORT = 5678;
+	
+	/**
+	 * nach so vielen Millisekunden ohne Daten vom Client wird eine Verbindung standardmäßig geschlossen
+	 */
+	public static final long STANDARD_LEERLAUF_MILLIS = 30_000;
+	
+	/**
+	 * der Port, an dem auf Verbindungen gehorcht wird (0 für einen freien Port)
+	 */
+	private int serverPort = STANDARD_SERVER_PORT;
+	
+	/**
+	 * die Art des Transports
+	 */
+	private TransportArt transportArt = TransportArt.BLOCKIEREND;
+	
+	/**
+	 * wie der blockierende Transport die Verbindungen auf Threads verteilt
+	 */
+	private VerbindungsModus verbindungsModus = VerbindungsModus.VIRTUELLE_THREADS;
+	
+	/**
+	 * die Obergrenze der Threads für Verbindungen im Modus PLATTFORM_THREADS
+	 */
+	private int maxPlattformThreads = VerbindungsAusfuehrung.STANDARD_MAX_PLATTFORM_THREADS;
+	
+	/**
+	 * die Anzahl der Event-Loop Threads des NIO Transports
+	 */
+	private int anzahlEventLoops = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	
+	/**
+	 * <pre>
+	 * 
+	 * so lange werden Änderungen einer Sitzung gesammelt,
+	 * bevor die Clients eine gemeinsame Benachrichtigung bekommen (0 für sofort)
+	 * 
+	 * </pre>
+	 */
+	private long benachrichtigungsFensterMillis = BenachrichtigungsVerteiler.STANDARD_FENSTER_MILLIS;
+	
+	/**
+	 * die Anzahl der Threads, die Benachrichtigungen an die Clients schicken
+	 */
+	private int anzahlBenachrichtigungsThreads = BenachrichtigungsVerteiler.STANDARD_ANZAHL_THREADS;
+	
+	/**
+	 * die Anzahl der Threads, die sich alle Sitzungen teilen
+	 */
+	private int anzahlSitzungsThreads = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * die Obergrenze der Requests, die der ganze Server gleichzeitig in Arbeit hat
+	 */
+	private int maxGleichzeitigeRequests = LastBegrenzer.STANDARD_MAX_GLEICHZEITIGE_REQUESTS;
+	
+	/**
+	 * die Obergrenze der wartenden Aufträge je Sitzung
+	 */
+	private int maxWartendeAuftraegeJeSitzung = LastBegrenzer.STANDARD_MAX_WARTENDE_AUFTRAEGE_JE_SITZUNG;
+	
+	/**
+	 * die Obergrenze der noch nicht geschriebenen Antworten je Verbindung
+	 */
+	private int maxAusstehendeAntwortenJeVerbindung = LastBegrenzer.STANDARD_MAX_AUSSTEHENDE_ANTWORTEN_JE_VERBINDUNG;
+	
+	/**
+	 * nach so vielen Millisekunden soll ein Client einen wegen Überlast abgewiesenen Request wiederholen
+	 */
+	private long wiederholenNachMillis = LastBegrenzer.STANDARD_WIEDERHOLEN_NACH_MILLIS;
+	
+	/**
+	 * das Geheimnis, mit dem sich ein VerwaltungsAuftrag ausweist, oder null, wenn der Server keine annimmt
+	 */
+	private Long verwaltungsGeheimnis;
+	
+	/**
+	 * ob der Server mit einer Beispiel-Sitzung startet, mehrere Server hinter einem SitzungsRouter brauchen keine
+	 */
+	private boolean mitBeispielSitzung = true;
+	
+	/**
+	 * <pre>
+	 * 
+	 * nach so vielen Millisekunden ohne Daten vom Client wird eine Verbindung geschlossen (0 für nie),
+	 * solange der Server keine Antwort für sie in Arbeit hat
+	 * 
+	 * </pre>
+	 */
+	private long leerlaufMillis = STANDARD_LEERLAUF_MILLIS;
+	
+	/**
+	 * <pre>
+	 * 
+	 * so lange hat ein Spieler für seinen Zug Zeit (0 für unbegrenzt),
+	 * danach ist der nächste Spieler dran
+	 * 
+	 * </pre>
+	 */
+	private long zugFristMillis;
+	
+	/**
+	 * der Pfad, an dem der NIO Transport zusätzlich einen Unix Domain Socket bindet, oder null
+	 */
+	private Path unixSocketPfad;
+	
+	/**
+	 * das Verzeichnis für die Checkpoints der Sitzungen beim Abschalten, oder null
+	 */
+	private Path checkpointVerzeichnis;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return Einstellungen mit allen Standard-Werten
+	 * 
+	 * </pre>
+	 */
+	public static ServerEinstellungen erstellenStandardEinstellungen() {
+		return new ServerEinstellungen();
+	}
+	
+	private ServerEinstellungen() {
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the serverPort
+	 * 
+	 * </pre>
+	 */
+	public int getServerPort() {
+		return serverPort;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param serverPort the serverPort to set (0 für einen freien Port)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setServerPort(int serverPort) {
+		if(serverPort < 0 || serverPort > 65535) {
+			throw new IllegalArgumentException("Invalid port");
+		}
+		this.serverPort = serverPort;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the transportArt
+	 * 
+	 * </pre>
+	 */
+	public TransportArt getTransportArt() {
+		return transportArt;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param transportArt the transportArt to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setTransportArt(TransportArt transportArt) {
+		if(transportArt == null) {
+			throw new IllegalArgumentException();
+		}
+		this.transportArt = transportArt;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the verbindungsModus
+	 * 
+	 * </pre>
+	 */
+	public VerbindungsModus getVerbindungsModus() {
+		return verbindungsModus;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param verbindungsModus the verbindungsModus to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setVerbindungsModus(VerbindungsModus verbindungsModus) {
+		if(verbindungsModus == null) {
+			throw new IllegalArgumentException();
+		}
+		this.verbindungsModus = verbindungsModus;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the maxPlattformThreads
+	 * 
+	 * </pre>
+	 */
+	public int getMaxPlattformThreads() {
+		return maxPlattformThreads;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param maxPlattformThreads the maxPlattformThreads to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setMaxPlattformThreads(int maxPlattformThreads) {
+		if(maxPlattformThreads < 1) {
+			throw new IllegalArgumentException("mindestens ein Plattform-Thread wird benötigt: " + maxPlattformThreads);
+		}
+		this.maxPlattformThreads = maxPlattformThreads;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the anzahlEventLoops
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlEventLoops() {
+		return anzahlEventLoops;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlEventLoops the anzahlEventLoops to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setAnzahlEventLoops(int anzahlEventLoops) {
+		if(anzahlEventLoops < 1) {
+			throw new IllegalArgumentException("mindestens ein Event-Loop wird benötigt: " + anzahlEventLoops);
+		}
+		this.anzahlEventLoops = anzahlEventLoops;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the benachrichtigungsFensterMillis
+	 * 
+	 * </pre>
+	 */
+	public long getBenachrichtigungsFensterMillis() {
+		return benachrichtigungsFensterMillis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param benachrichtigungsFensterMillis the benachrichtigungsFensterMillis to set (0 für sofort)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setBenachrichtigungsFensterMillis(long benachrichtigungsFensterMillis) {
+		if(benachrichtigungsFensterMillis < 0) {
+			throw new IllegalArgumentException("das Fenster darf nicht negativ sein: " + benachrichtigungsFensterMillis);
+		}
+		this.benachrichtigungsFensterMillis = benachrichtigungsFensterMillis;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the anzahlBenachrichtigungsThreads
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlBenachrichtigungsThreads() {
+		return anzahlBenachrichtigungsThreads;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlBenachrichtigungsThreads the anzahlBenachrichtigungsThreads to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setAnzahlBenachrichtigungsThreads(int anzahlBenachrichtigungsThreads) {
+		if(anzahlBenachrichtigungsThreads < 1) {
+			throw new IllegalArgumentException("mindestens ein Benachrichtigungs-Thread wird benötigt: " + anzahlBenachrichtigungsThreads);
+		}
+		this.anzahlBenachrichtigungsThreads = anzahlBenachrichtigungsThreads;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the anzahlSitzungsThreads
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlSitzungsThreads() {
+		return anzahlSitzungsThreads;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlSitzungsThreads the anzahlSitzungsThreads to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setAnzahlSitzungsThreads(int anzahlSitzungsThreads) {
+		if(anzahlSitzungsThreads < 1) {
+			throw new IllegalArgumentException("mindestens ein Sitzungs-Thread wird benötigt: " + anzahlSitzungsThreads);
+		}
+		this.anzahlSitzungsThreads = anzahlSitzungsThreads;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the maxGleichzeitigeRequests
+	 * 
+	 * </pre>
+	 */
+	public int getMaxGleichzeitigeRequests() {
+		return maxGleichzeitigeRequests;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param maxGleichzeitigeRequests the maxGleichzeitigeRequests to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setMaxGleichzeitigeRequests(int maxGleichzeitigeRequests) {
+		if(maxGleichzeitigeRequests < 1) {
+			throw new IllegalArgumentException("mindestens ein Request muss erlaubt sein: " + maxGleichzeitigeRequests);
+		}
+		this.maxGleichzeitigeRequests = maxGleichzeitigeRequests;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the maxWartendeAuftraegeJeSitzung
+	 * 
+	 * </pre>
+	 */
+	public int getMaxWartendeAuftraegeJeSitzung() {
+		return maxWartendeAuftraegeJeSitzung;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param maxWartendeAuftraegeJeSitzung the maxWartendeAuftraegeJeSitzung to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setMaxWartendeAuftraegeJeSitzung(int maxWartendeAuftraegeJeSitzung) {
+		if(maxWartendeAuftraegeJeSitzung < 1) {
+			throw new IllegalArgumentException("mindestens ein wartender Auftrag muss erlaubt sein: " + maxWartendeAuftraegeJeSitzung);
+		}
+		this.maxWartendeAuftraegeJeSitzung = maxWartendeAuftraegeJeSitzung;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the maxAusstehendeAntwortenJeVerbindung
+	 * 
+	 * </pre>
+	 */
+	public int getMaxAusstehendeAntwortenJeVerbindung() {
+		return maxAusstehendeAntwortenJeVerbindung;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param maxAusstehendeAntwortenJeVerbindung the maxAusstehendeAntwortenJeVerbindung to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setMaxAusstehendeAntwortenJeVerbindung(int maxAusstehendeAntwortenJeVerbindung) {
+		if(maxAusstehendeAntwortenJeVerbindung < 1) {
+			throw new IllegalArgumentException("mindestens eine ausstehende Antwort muss erlaubt sein: " + maxAusstehendeAntwortenJeVerbindung);
+		}
+		this.maxAusstehendeAntwortenJeVerbindung = maxAusstehendeAntwortenJeVerbindung;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the wiederholenNachMillis
+	 * 
+	 * </pre>
+	 */
+	public long getWiederholenNachMillis() {
+		return wiederholenNachMillis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param wiederholenNachMillis the wiederholenNachMillis to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setWiederholenNachMillis(long wiederholenNachMillis) {
+		if(wiederholenNachMillis < 0) {
+			throw new IllegalArgumentException("die Wartezeit darf nicht negativ sein: " + wiederholenNachMillis);
+		}
+		this.wiederholenNachMillis = wiederholenNachMillis;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the verwaltungsGeheimnis, oder null, wenn der Server keine VerwaltungsAufträge annimmt
+	 * 
+	 * </pre>
+	 */
+	public Long getVerwaltungsGeheimnis() {
+		return verwaltungsGeheimnis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param verwaltungsGeheimnis the verwaltungsGeheimnis to set (null: keine VerwaltungsAufträge annehmen)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setVerwaltungsGeheimnis(Long verwaltungsGeheimnis) {
+		this.verwaltungsGeheimnis = verwaltungsGeheimnis;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the mitBeispielSitzung
+	 * 
+	 * </pre>
+	 */
+	public boolean isMitBeispielSitzung() {
+		return mitBeispielSitzung;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param mitBeispielSitzung the mitBeispielSitzung to set
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setMitBeispielSitzung(boolean mitBeispielSitzung) {
+		this.mitBeispielSitzung = mitBeispielSitzung;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the leerlaufMillis
+	 * 
+	 * </pre>
+	 */
+	public long getLeerlaufMillis() {
+		return leerlaufMillis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Beim blockierenden Transport sollte der Wert größer als die Wartezeit eines WARTE_AUF_ZUG Requests sein,
+	 * der Client schickt während des Wartens nichts.
+	 * 
+	 * @param leerlaufMillis the leerlaufMillis to set (0 für nie)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setLeerlaufMillis(long leerlaufMillis) {
+		if(leerlaufMillis < 0 || leerlaufMillis > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("ungültige Leerlauf-Zeit: " + leerlaufMillis);
+		}
+		this.leerlaufMillis = leerlaufMillis;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the zugFristMillis
+	 * 
+	 * </pre>
+	 */
+	public long getZugFristMillis() {
+		return zugFristMillis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param zugFristMillis the zugFristMillis to set (0 für unbegrenzt)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setZugFristMillis(long zugFristMillis) {
+		if(zugFristMillis < 0) {
+			throw new IllegalArgumentException("die Zug-Frist darf nicht negativ sein: " + zugFristMillis);
+		}
+		this.zugFristMillis = zugFristMillis;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the unixSocketPfad, oder null, wenn nur der TCP Port horcht
+	 * 
+	 * </pre>
+	 */
+	public Path getUnixSocketPfad() {
+		return unixSocketPfad;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Clients auf demselben Rechner können sich darüber ohne den TCP Stack verbinden.
+	 * Wird nur vom Transport NIO unterstützt.
+	 * 
+	 * @param unixSocketPfad the unixSocketPfad to set (null: kein Unix Domain Socket)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setUnixSocketPfad(Path unixSocketPfad) {
+		this.unixSocketPfad = unixSocketPfad;
+		return this;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the checkpointVerzeichnis, oder null, wenn beim Abschalten keine Checkpoints geschrieben werden
+	 * 
+	 * </pre>
+	 */
+	public Path getCheckpointVerzeichnis() {
+		return checkpointVerzeichnis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Beim Abschalten schreibt der Server jede laufende Sitzung als Checkpoint in dieses Verzeichnis,
+	 * beim Starten lädt er die Checkpoints daraus und setzt die Sitzungen fort.
+	 * 
+	 * @param checkpointVerzeichnis the checkpointVerzeichnis to set (null: keine Checkpoints)
+	 * @return diese Einstellungen
+	 * 
+	 * </pre>
+	 */
+	public ServerEinstellungen setCheckpointVerzeichnis(Path checkpointVerzeichnis) {
+		this.checkpointVerzeichnis = checkpointVerzeichnis;
+		return this;
+	}
+}
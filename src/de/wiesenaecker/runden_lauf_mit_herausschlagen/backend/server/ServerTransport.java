@@ -0,0 +1,108 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.io.IOException;
+
+/**
+ * <pre>
+ * 
+ * Die Netzwerk-Anbindung des Servers:
+ * nimmt Client-Verbindungen an, liest die ClientRequests
+ * und schreibt die ServerAntworten zurück.
+ * 
+ * Die Bearbeitung der Requests selbst macht der Server,
+ * ein Transport kennt nur Verbindungen und Nachrichten.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public interface ServerTransport {
+	/**
+	 * <pre>
+	 * 
+	 * Die Arten der Transporte, zwischen denen gewählt werden kann.
+	 * 
+	 * </pre>
+	 */
+	public enum TransportArt {
+		/**
+		 * blockierender ServerSocket, ein Thread je Verbindung
+		 */
+		BLOCKIEREND,
+		
+		/**
+		 * nicht blockierende SocketChannels auf wenigen Event-Loop Threads mit einem Selector
+		 */
+		NIO
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Bindet den Port und nimmt Verbindungen an, ohne den Aufrufer zu blockieren.
+	 * 
+	 * @throws IOException wenn der Port nicht gebunden werden kann
+	 * 
+	 * </pre>
+	 */
+	void starten() throws IOException;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt keine Verbindungen mehr an und schließt alle offenen Verbindungen.
+	 * 
+	 * </pre>
+	 */
+	void beenden();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der gebundene Port
+	 * 
+	 * </pre>
+	 */
+	int getLokalerPort();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der seit dem Start angenommenen Verbindungen
+	 * 
+	 * </pre>
+	 */
+	long getAnzahlAngenommenerVerbindungen();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der gerade offenen Verbindungen
+	 * 
+	 * </pre>
+	 */
+	int getAnzahlOffenerVerbindungen();
+}
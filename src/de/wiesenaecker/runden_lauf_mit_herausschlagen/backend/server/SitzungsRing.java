@@ -0,0 +1,277 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <pre>
+ * 
+ * Ein Consistent-Hash Ring, der jede Sitzung einem Spiel-Server zuordnet.
+ * 
+ * Jeder Server ("host:port") steht mit {@link #getVirtuelleKnoten()} Punkten auf dem Ring,
+ * eine Sitzung gehört dem Server des ersten Punkts ab dem Hash ihres Schlüssels.
+ * Kommt ein Server dazu oder geht einer, wechseln deshalb nur die Sitzungen den Server,
+ * die er bekommt bzw. abgibt, im Mittel also der Anteil 1 / Anzahl der Server.
+ * 
+ * Ein Ring ändert sich nicht, {@link #mitKnoten(String)} und {@link #ohneKnoten(String)} liefern einen neuen Ring.
+ * Er kann deshalb ohne Sperre von beliebig vielen Threads gelesen werden.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SitzungsRing {
+	/**
+	 * so viele Punkte hat ein Server auf dem Ring, wenn nichts anderes angegeben ist
+	 */
+	public static final int STANDARD_VIRTUELLE_KNOTEN = 128;
+	
+	private final int virtuelleKnoten;
+	
+	/**
+	 * die Server in der Reihenfolge, in der sie dazu kamen
+	 */
+	private final List<String> knoten;
+	
+	/**
+	 * die sortierten Punkte auf dem Ring
+	 */
+	private final long[] punkte;
+	
+	/**
+	 * der Server jedes Punkts, am selben Index wie in {@link #punkte}
+	 */
+	private final String[] besitzer;
+	
+	private SitzungsRing(List<String> knoten, int virtuelleKnoten) {
+		this.knoten = List.copyOf(knoten);
+		this.virtuelleKnoten = virtuelleKnoten;
+		
+		long[][] paare = new long[knoten.size() * virtuelleKnoten][];
+		int anzahl = 0;
+		for(int i = 0; i < knoten.size(); i++) {
+			long basis = hashen(knoten.get(i));
+			for(int v = 0; v < virtuelleKnoten; v++) {
+				paare[anzahl++] = new long[] {mischen(basis + v), i};
+			}
+		}
+		// bei gleichem Punkt entscheidet die Adresse, nicht die Reihenfolge des Dazukommens
+		Arrays.sort(paare, (a, b) -> a[0] != b[0]
+				? Long.compare(a[0], b[0])
+				: knoten.get((int)a[1]).compareTo(knoten.get((int)b[1])));
+		this.punkte = new long[paare.length];
+		this.besitzer = new String[paare.length];
+		for(int i = 0; i < paare.length; i++) {
+			punkte[i] = paare[i][0];
+			besitzer[i] = knoten.get((int)paare[i][1]);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param knoten die Adressen der Server, jeweils "host:port"
+	 * @return der Ring mit {@link #STANDARD_VIRTUELLE_KNOTEN} Punkten je Server
+	 * 
+	 * </pre>
+	 */
+	public static SitzungsRing erstellenSitzungsRing(Collection<String> knoten) {
+		return erstellenSitzungsRing(knoten, STANDARD_VIRTUELLE_KNOTEN);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param knoten die Adressen der Server, jeweils "host:port"
+	 * @param virtuelleKnoten so viele Punkte hat jeder Server auf dem Ring
+	 * @return der Ring
+	 * 
+	 * </pre>
+	 */
+	public static SitzungsRing erstellenSitzungsRing(Collection<String> knoten, int virtuelleKnoten) {
+		if(virtuelleKnoten < 1) {
+			throw new IllegalArgumentException("jeder Server braucht mindestens einen Punkt: " + virtuelleKnoten);
+		}
+		Set<String> eindeutig = new LinkedHashSet<>();
+		for(String adresse : knoten) {
+			zerlegenAdresse(adresse);
+			if(!eindeutig.add(adresse)) {
+				throw new IllegalArgumentException("der Server steht doppelt im Ring: " + adresse);
+			}
+		}
+		return new SitzungsRing(new ArrayList<>(eindeutig), virtuelleKnoten);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param adresse die Adresse eines neuen Servers, "host:port"
+	 * @return ein neuer Ring mit dem Server
+	 * @throws IllegalArgumentException wenn der Server schon im Ring ist
+	 * 
+	 * </pre>
+	 */
+	public SitzungsRing mitKnoten(String adresse) {
+		List<String> neueKnoten = new ArrayList<>(knoten);
+		neueKnoten.add(adresse);
+		return erstellenSitzungsRing(neueKnoten, virtuelleKnoten);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param adresse die Adresse eines Servers im Ring
+	 * @return ein neuer Ring ohne den Server
+	 * @throws IllegalArgumentException wenn der Server nicht im Ring ist
+	 * 
+	 * </pre>
+	 */
+	public SitzungsRing ohneKnoten(String adresse) {
+		List<String> neueKnoten = new ArrayList<>(knoten);
+		if(!neueKnoten.remove(adresse)) {
+			throw new IllegalArgumentException("der Server ist nicht im Ring: " + adresse);
+		}
+		return new SitzungsRing(neueKnoten, virtuelleKnoten);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands einer Sitzung
+	 * @return die Adresse des Servers, dem die Sitzung gehört, oder null, wenn der Ring leer ist
+	 * 
+	 * </pre>
+	 */
+	public String bestimmeKnoten(long schluessel) {
+		if(punkte.length == 0) {
+			return null;
+		}
+		int index = Arrays.binarySearch(punkte, mischen(schluessel));
+		if(index < 0) {
+			index = -index - 1;
+		} else {
+			// bei gleichen Punkten gehört der Schlüssel dem ersten
+			while(index > 0 && punkte[index - 1] == punkte[index]) {
+				index--;
+			}
+		}
+		return besitzer[index == punkte.length ? 0 : index];
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Adressen der Server im Ring
+	 * 
+	 * </pre>
+	 */
+	public List<String> getKnoten() {
+		return knoten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return so viele Punkte hat jeder Server auf dem Ring
+	 * 
+	 * </pre>
+	 */
+	public int getVirtuelleKnoten() {
+		return virtuelleKnoten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param adresse die Adresse eines Servers, "host:port"
+	 * @return der Host
+	 * 
+	 * </pre>
+	 */
+	public static String getHost(String adresse) {
+		return adresse.substring(0, adresse.lastIndexOf(':'));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param adresse die Adresse eines Servers, "host:port"
+	 * @return der Port
+	 * 
+	 * </pre>
+	 */
+	public static int getPort(String adresse) {
+		return Integer.parseInt(adresse.substring(adresse.lastIndexOf(':') + 1));
+	}
+	
+	private static void zerlegenAdresse(String adresse) {
+		int trenner = adresse != null ? adresse.lastIndexOf(':') : -1;
+		if(trenner < 1) {
+			throw new IllegalArgumentException("die Adresse muss host:port sein: " + adresse);
+		}
+		int port;
+		try {
+			port = getPort(adresse);
+		} catch(NumberFormatException ausnahme) {
+			port = -1;
+		}
+		if(port < 1 || port > 65535) {
+			throw new IllegalArgumentException("ungültiger Port in der Adresse: " + adresse);
+		}
+	}
+	
+	/**
+	 * FNV-1a über die Bytes der Adresse, damit jeder Prozess denselben Ring berechnet
+	 */
+	private static long hashen(String adresse) {
+		long hash = 0xCBF29CE484222325L;
+		for(byte zeichen : adresse.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= zeichen & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * der Finalizer von SplitMix64, verteilt auch aufeinander folgende Schlüssel gleichmäßig über den Ring
+	 */
+	private static long mischen(long wert) {
+		long z = wert * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	@Override
+	public String toString() {
+		return "SitzungsRing [knoten=" + knoten + ", virtuelleKnoten=" + virtuelleKnoten + "]";
+	}
+}
@@ -0,0 +1,370 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag.VerwaltungsArt;
+
+/**
+ * <pre>
+ * 
+ * Verteilt die Sitzungen über einen SitzungsRing auf mehrere Spiel-Server.
+ * 
+ * Der Router spielt selbst nicht: jeder ClientRequest wird mit dem Status UMGELEITET
+ * und der Adresse des Servers beantwortet, dem die Sitzung laut Ring gehört.
+ * Eine ServerVerbindung folgt der Umleitung und schickt danach alle Requests der Sitzung direkt dorthin,
+ * der Router kostet also nur einen Weg über das Netzwerk je Sitzung und Verbindung.
+ * 
+ * Kommt ein Server dazu oder geht einer, lässt der Router die Sitzungen umziehen,
+ * die laut dem neuen Ring einem anderen Server gehören (einfrieren, exportieren, importieren,
+ * fortsetzen, weiterleiten). Die Spiel-Server müssen dafür das Verwaltungs-Geheimnis des Routers kennen.
+ * Erst danach gilt der neue Ring, bis dahin beantwortet der alte Server die Requests oder leitet sie um.
+ * 
+ * Ein Server, der ohne Abmeldung ausfällt, nimmt seine Sitzungen mit: der Router kennt nur die Adressen.
+ * Neue Sitzungen sollten auf dem Server angelegt werden, den {@link #getRing()} für ihren Schlüssel nennt,
+ * sonst ziehen sie bei der nächsten Änderung des Rings um.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SitzungsRouter {
+	/**
+	 * so lange wartet der Router höchstens auf die Antwort eines Spiel-Servers
+	 */
+	private static final long VERWALTUNGS_TIMEOUT_MILLIS = 10_000;
+	
+	private final NioServerTransport transport;
+	
+	/**
+	 * das Geheimnis, mit dem sich der Router bei den Spiel-Servern ausweist
+	 */
+	private final long verwaltungsGeheimnis;
+	
+	/**
+	 * Die Antwort auf jeden HERZSCHLAG Request
+	 */
+	private static final ServerAntwort HERZSCHLAG_ANTWORT = ServerAntwort.erstellenServerAntwort(null);
+	
+	private volatile SitzungsRing ring;
+	
+	/**
+	 * die Antworten mit dem Status UMGELEITET nach der Adresse des Servers
+	 */
+	private final Map<String, ServerAntwort> umleitungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * die Verbindungen, über die der Router die Spiel-Server verwaltet, nach ihrer Adresse
+	 */
+	private final Map<String, ServerVerbindung> verwaltungsVerbindungen = new ConcurrentHashMap<>();
+	
+	private final AtomicLong anzahlUmgeleitet = new AtomicLong();
+	
+	private final AtomicLong anzahlUmgezogen = new AtomicLong();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param routerPort der Port, an dem der Router auf Clients wartet (0 für einen freien Port)
+	 * @param knoten die Adressen der Spiel-Server, jeweils "host:port"
+	 * @param verwaltungsGeheimnis das Verwaltungs-Geheimnis der Spiel-Server
+	 * 
+	 * </pre>
+	 */
+	public SitzungsRouter(int routerPort, Collection<String> knoten, long verwaltungsGeheimnis) {
+		this.ring = SitzungsRing.erstellenSitzungsRing(knoten);
+		this.verwaltungsGeheimnis = verwaltungsGeheimnis;
+		this.transport = new NioServerTransport(
+				routerPort,
+				1,
+				LastBegrenzer.STANDARD_MAX_AUSSTEHENDE_ANTWORTEN_JE_VERBINDUNG,
+				() -> ServerAntwort.erstellenUeberlastetServerAntwort(
+						"der Router hat zu viele Antworten ausstehen",
+						LastBegrenzer.STANDARD_WIEDERHOLEN_NACH_MILLIS
+				),
+				(nachricht, kanal) -> CompletableFuture.completedFuture(umleiten(nachricht))
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @throws IOException wenn der Port nicht gebunden werden kann
+	 * 
+	 * </pre>
+	 */
+	public void starten() throws IOException {
+		transport.starten();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt keine Clients mehr an und schließt die Verbindungen zu den Spiel-Servern.
+	 * 
+	 * </pre>
+	 */
+	public void beenden() {
+		transport.beenden();
+		for(ServerVerbindung verbindung : verwaltungsVerbindungen.values()) {
+			verbindung.close();
+		}
+		verwaltungsVerbindungen.clear();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der gebundene Port
+	 * 
+	 * </pre>
+	 */
+	public int getLokalerPort() {
+		return transport.getLokalerPort();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Ring, nach dem der Router gerade umleitet
+	 * 
+	 * </pre>
+	 */
+	public SitzungsRing getRing() {
+		return ring;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der umgeleiteten Requests
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlUmgeleitet() {
+		return anzahlUmgeleitet.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der umgezogenen Sitzungen
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlUmgezogen() {
+		return anzahlUmgezogen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt einen Spiel-Server in den Ring auf und lässt die Sitzungen zu ihm umziehen, die ihm jetzt gehören.
+	 * 
+	 * @param adresse die Adresse des neuen Servers, "host:port"
+	 * @return die Anzahl der umgezogenen Sitzungen
+	 * @throws IOException wenn ein Server nicht erreichbar ist oder ein Umzug fehlschlägt,
+	 *         der Ring bleibt dann unverändert
+	 * 
+	 * </pre>
+	 */
+	public synchronized int hinzufuegenKnoten(String adresse) throws IOException {
+		SitzungsRing neuerRing = ring.mitKnoten(adresse);
+		int umgezogen = 0;
+		for(String knoten : ring.getKnoten()) {
+			umgezogen += umziehenFremdeSitzungen(knoten, neuerRing);
+		}
+		ring = neuerRing;
+		return umgezogen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt einen Spiel-Server aus dem Ring, nachdem alle seine Sitzungen zu ihren neuen Servern umgezogen sind.
+	 * Der Server leitet danach noch die Clients um, die ihn direkt ansprechen, und kann dann beendet werden.
+	 * 
+	 * @param adresse die Adresse des Servers, "host:port"
+	 * @return die Anzahl der umgezogenen Sitzungen
+	 * @throws IOException wenn ein Server nicht erreichbar ist oder ein Umzug fehlschlägt,
+	 *         der Ring bleibt dann unverändert
+	 * 
+	 * </pre>
+	 */
+	public synchronized int entfernenKnoten(String adresse) throws IOException {
+		SitzungsRing neuerRing = ring.ohneKnoten(adresse);
+		if(neuerRing.getKnoten().isEmpty()) {
+			throw new IllegalStateException("der letzte Server kann den Ring nicht verlassen: " + adresse);
+		}
+		int umgezogen = umziehenFremdeSitzungen(adresse, neuerRing);
+		ring = neuerRing;
+		umleitungen.remove(adresse);
+		ServerVerbindung verbindung = verwaltungsVerbindungen.remove(adresse);
+		if(verbindung != null) {
+			verbindung.close();
+		}
+		return umgezogen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein HERZSCHLAG gehört zu keiner Sitzung, er wird direkt beantwortet und nicht als Umleitung gezählt.
+	 * 
+	 * @return die Antwort für einen Client: UMGELEITET zum Server seiner Sitzung
+	 * 
+	 * </pre>
+	 */
+	private ServerAntwort umleiten(Object nachricht) {
+		if(!(nachricht instanceof ClientRequest anfrage)) {
+			return ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.FEHLER,
+					"der Router nimmt nur ClientRequests an: " + (nachricht != null ? nachricht.getClass().getName() : null)
+			);
+		}
+		if(anfrage.getInfo() == ClientRequestInfo.HERZSCHLAG) {
+			return HERZSCHLAG_ANTWORT;
+		}
+		String knoten = ring.bestimmeKnoten(anfrage.getSpielZustandSchluessel());
+		if(knoten == null) {
+			return ServerAntwort.erstellenFehlerServerAntwort(ServerAntwortStatus.FEHLER, "der Router kennt keinen Spiel-Server");
+		}
+		anzahlUmgeleitet.incrementAndGet();
+		return umleitungen.computeIfAbsent(knoten, adresse -> ServerAntwort.erstellenUmgeleitetServerAntwort(
+				"die Sitzung läuft auf " + adresse,
+				SitzungsRing.getHost(adresse),
+				SitzungsRing.getPort(adresse)
+		));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Lässt alle Sitzungen eines Servers umziehen, die ihm laut dem neuen Ring nicht gehören.
+	 * 
+	 * </pre>
+	 */
+	@SuppressWarnings("unchecked")
+	private int umziehenFremdeSitzungen(String knoten, SitzungsRing neuerRing) throws IOException {
+		List<Long> sitzungsSchluessel = (List<Long>)ausfuehren(knoten, VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(
+				VerwaltungsArt.SITZUNGEN, verwaltungsGeheimnis, 0
+		));
+		int umgezogen = 0;
+		for(long schluessel : sitzungsSchluessel) {
+			String ziel = neuerRing.bestimmeKnoten(schluessel);
+			if(!ziel.equals(knoten)) {
+				umziehen(schluessel, knoten, ziel);
+				umgezogen++;
+			}
+		}
+		return umgezogen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Lässt eine Sitzung von einem Server auf einen anderen umziehen.
+	 * Schlägt der Umzug vor dem Weiterleiten fehl, läuft die Sitzung auf dem alten Server weiter.
+	 * 
+	 * </pre>
+	 */
+	private void umziehen(long schluessel, String quelle, String ziel) throws IOException {
+		ausfuehren(quelle, VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.EINFRIEREN, verwaltungsGeheimnis, schluessel));
+		try {
+			byte[] checkpoint = (byte[])ausfuehren(quelle, VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(
+					VerwaltungsArt.EXPORTIEREN, verwaltungsGeheimnis, schluessel
+			));
+			ausfuehren(ziel, VerwaltungsAuftrag.erstellenImportierenAuftrag(verwaltungsGeheimnis, checkpoint));
+			ausfuehren(ziel, VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.FORTSETZEN, verwaltungsGeheimnis, schluessel));
+		} catch(IOException ausnahme) {
+			try {
+				ausfuehren(quelle, VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.FORTSETZEN, verwaltungsGeheimnis, schluessel));
+			} catch(IOException folgeAusnahme) {
+				ausnahme.addSuppressed(folgeAusnahme);
+			}
+			throw ausnahme;
+		}
+		ausfuehren(quelle, VerwaltungsAuftrag.erstellenWeiterleitenAuftrag(
+				verwaltungsGeheimnis,
+				schluessel,
+				SitzungsRing.getHost(ziel),
+				SitzungsRing.getPort(ziel)
+		));
+		anzahlUmgezogen.incrementAndGet();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Inhalt der Antwort des Servers
+	 * @throws IOException wenn der Server nicht erreichbar ist oder der Auftrag fehlschlägt
+	 * 
+	 * </pre>
+	 */
+	private Object ausfuehren(String knoten, VerwaltungsAuftrag auftrag) throws IOException {
+		ServerAntwort antwort;
+		try {
+			antwort = getVerwaltungsVerbindung(knoten).senden(auftrag).get(VERWALTUNGS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch(ExecutionException | TimeoutException ausnahme) {
+			throw new IOException(auftrag + " an " + knoten + " ist fehlgeschlagen", ausnahme);
+		} catch(InterruptedException ausnahme) {
+			Thread.currentThread().interrupt();
+			throw new IOException(auftrag + " an " + knoten + " wurde unterbrochen", ausnahme);
+		}
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new IOException(auftrag + " an " + knoten + " ist fehlgeschlagen: " + antwort.getStatus() + " " + antwort.getNachricht());
+		}
+		return antwort.getInhalt();
+	}
+	
+	private ServerVerbindung getVerwaltungsVerbindung(String knoten) throws IOException {
+		ServerVerbindung verbindung = verwaltungsVerbindungen.get(knoten);
+		if(verbindung == null || verbindung.isGeschlossen()) {
+			verbindung = new ServerVerbindung(SitzungsRing.getHost(knoten), SitzungsRing.getPort(knoten));
+			verwaltungsVerbindungen.put(knoten, verbindung);
+		}
+		return verbindung;
+	}
+	
+	@Override
+	public String toString() {
+		return "SitzungsRouter [ring=" + ring + ", anzahlUmgeleitet=" + anzahlUmgeleitet + ", anzahlUmgezogen=" + anzahlUmgezogen + "]";
+	}
+}
@@ -0,0 +1,280 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server.RundenLaufMitHerausschlagenServerService;
+
+/**
+ * <pre>
+ * 
+ * Verwaltet alle ServerSpielSitzungen eines Servers,
+ * über den Schlüssel ihres SpielZustands.
+ * 
+ * Alle Sitzungen teilen sich einen Thread-Pool mit einem Thread je Prozessor-Kern.
+ * Jede Sitzung bekommt eine eigene {@link SerielleAusfuehrung} auf diesem Pool,
+ * damit tausende Sitzungen in einem Server-Prozess laufen können,
+ * ohne dass jede Sitzung einen eigenen Thread oder Prozess braucht.
+ * 
+ * Die Warteschlange jeder Sitzung ist begrenzt, ein flutender Client
+ * füllt also höchstens die Warteschlange seiner eigenen Sitzung.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SpielSitzungsRegister {
+	/**
+	 * die Sitzungen nach dem Schlüssel ihres SpielZustands
+	 */
+	private final ConcurrentHashMap<Long, ServerSpielSitzung> sitzungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * der gemeinsame Thread-Pool aller Sitzungen
+	 */
+	private final ExecutorService rechenPool;
+	
+	/**
+	 * die seriellen Ausführungen der Sitzungen nach dem Schlüssel ihres SpielZustands
+	 */
+	private final ConcurrentHashMap<Long, SerielleAusfuehrung> ausfuehrungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * die Obergrenze der wartenden Aufträge je Sitzung
+	 */
+	private final int maxWartendeAuftraegeJeSitzung;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt ein Register mit einem Thread je Prozessor-Kern.
+	 * 
+	 * </pre>
+	 */
+	public SpielSitzungsRegister() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlThreads die Anzahl der Threads des gemeinsamen Pools
+	 * 
+	 * </pre>
+	 */
+	public SpielSitzungsRegister(int anzahlThreads) {
+		this(anzahlThreads, LastBegrenzer.STANDARD_MAX_WARTENDE_AUFTRAEGE_JE_SITZUNG);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlThreads die Anzahl der Threads des gemeinsamen Pools
+	 * @param maxWartendeAuftraegeJeSitzung die Obergrenze der wartenden Aufträge je Sitzung
+	 * 
+	 * </pre>
+	 */
+	public SpielSitzungsRegister(int anzahlThreads, int maxWartendeAuftraegeJeSitzung) {
+		if(maxWartendeAuftraegeJeSitzung < 1) {
+			throw new IllegalArgumentException("mindestens ein wartender Auftrag muss erlaubt sein: " + maxWartendeAuftraegeJeSitzung);
+		}
+		this.maxWartendeAuftraegeJeSitzung = maxWartendeAuftraegeJeSitzung;
+		AtomicInteger threadNummer = new AtomicInteger();
+		this.rechenPool = Executors.newFixedThreadPool(anzahlThreads, auftrag -> {
+			Thread thread = new Thread(auftrag, "spiel-sitzung-" + threadNummer.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt eine neue Sitzung für das übergebene Spiel und nimmt sie ins Register auf.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @param dasSpiel die Spiel-Logik
+	 * @return die neue Sitzung
+	 * @throws IllegalStateException wenn es schon eine Sitzung mit dem Schlüssel gibt
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung erstellenSitzung(long schluessel, RundenLaufMitHerausschlagenServerService dasSpiel) {
+		return erstellenSitzung(schluessel, dasSpiel, false);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt eine neue Sitzung für das übergebene Spiel und nimmt sie ins Register auf.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @param dasSpiel die Spiel-Logik
+	 * @param eingefroren true, wenn die Sitzung schon eingefroren im Register stehen soll
+	 * @return die neue Sitzung
+	 * @throws IllegalStateException wenn es schon eine Sitzung mit dem Schlüssel gibt
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung erstellenSitzung(long schluessel, RundenLaufMitHerausschlagenServerService dasSpiel, boolean eingefroren) {
+		SerielleAusfuehrung ausfuehrung = new SerielleAusfuehrung(rechenPool, maxWartendeAuftraegeJeSitzung);
+		ServerSpielSitzung sitzung = new ServerSpielSitzung(
+				schluessel,
+				dasSpiel,
+				ausfuehrung,
+				ausfuehrung.getVorrangAusfuehrer()
+		);
+		sitzung.setEingefroren(eingefroren);
+		if(sitzungen.putIfAbsent(schluessel, sitzung) != null) {
+			throw new IllegalStateException("es gibt schon eine Sitzung mit dem Schlüssel " + schluessel);
+		}
+		ausfuehrungen.put(schluessel, ausfuehrung);
+		return sitzung;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @return die Sitzung oder null, wenn es keine Sitzung mit dem Schlüssel gibt
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung getSitzung(long schluessel) {
+		return sitzungen.get(schluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @return die entfernte Sitzung oder null, wenn es keine Sitzung mit dem Schlüssel gab
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung entfernenSitzung(long schluessel) {
+		ausfuehrungen.remove(schluessel);
+		return sitzungen.remove(schluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @return die Anzahl der wartenden Aufträge der Sitzung, oder -1 wenn es keine Sitzung mit dem Schlüssel gibt
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlWartenderAuftraege(long schluessel) {
+		SerielleAusfuehrung ausfuehrung = ausfuehrungen.get(schluessel);
+		return ausfuehrung != null ? ausfuehrung.getAnzahlWartenderAuftraege() : -1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der wartenden Aufträge je Sitzung, nur Sitzungen mit wartenden Aufträgen
+	 * 
+	 * </pre>
+	 */
+	public Map<Long, Integer> getWarteschlangenTiefen() {
+		Map<Long, Integer> tiefen = new HashMap<>();
+		ausfuehrungen.forEach((schluessel, ausfuehrung) -> {
+			int anzahl = ausfuehrung.getAnzahlWartenderAuftraege();
+			if(anzahl > 0) {
+				tiefen.put(schluessel, anzahl);
+			}
+		});
+		return Collections.unmodifiableMap(tiefen);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Aufträge, die alle Sitzungen wegen einer vollen Warteschlange abgelehnt haben
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAbgelehnterAuftraege() {
+		long anzahl = 0;
+		for(SerielleAusfuehrung ausfuehrung : ausfuehrungen.values()) {
+			anzahl += ausfuehrung.getAnzahlAbgelehnterAuftraege();
+		}
+		return anzahl;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Schlüssel aller Sitzungen
+	 * 
+	 * </pre>
+	 */
+	public Set<Long> getSitzungsSchluessel() {
+		return sitzungen.keySet();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return alle Sitzungen
+	 * 
+	 * </pre>
+	 */
+	public Collection<ServerSpielSitzung> getSitzungen() {
+		return sitzungen.values();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Sitzungen
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlSitzungen() {
+		return sitzungen.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Beendet den gemeinsamen Thread-Pool.
+	 * 
+	 * </pre>
+	 */
+	public void herunterfahren() {
+		rechenPool.shutdown();
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 
+ * Erstellt den Executor, auf dem der Server seine Client-Verbindungen bedient.
+ * 
+ * Jede angenommene Verbindung wird als eigener Auftrag abgegeben,
+ * damit der Lausch-Thread sofort die nächste Verbindung annehmen kann.
+ * 
+ * Es gibt zwei Modi:
+ * - VIRTUELLE_THREADS: ein virtueller Thread je Verbindung.
+ *   Ein blockierender Lese-Aufruf eines langsamen Clients belegt dabei keinen Plattform-Thread.
+ *   Virtuelle Threads gibt es erst ab Java 21, deshalb wird die Fabrik-Methode
+ *   per Reflection gesucht, das Projekt selbst wird weiter mit Java 17 übersetzt.
+ * - PLATTFORM_THREADS: ein Pool mit einer festen Obergrenze an Plattform-Threads.
+ *   Eine Verbindung belegt ihren Thread, bis der Client sie schließt. Der Pool hat deshalb keine Warteschlange:
+ *   über der Obergrenze lehnt er weitere Verbindungen ab, der Lausch-Thread weist sie mit UEBERLASTET ab,
+ *   statt sie warten zu lassen, bis eine andere Verbindung geschlossen wird.
+ * 
+ * Ist der Modus VIRTUELLE_THREADS gewünscht, aber die Laufzeit zu alt,
+ * wird auf PLATTFORM_THREADS zurückgefallen.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class VerbindungsAusfuehrung {
+	/**
+	 * <pre>
+	 * 
+	 * Wie die Client-Verbindungen auf Threads verteilt werden.
+	 * 
+	 * </pre>
+	 */
+	public enum VerbindungsModus {
+		VIRTUELLE_THREADS,
+		PLATTFORM_THREADS
+	}
+	
+	/**
+	 * die Standard-Obergrenze der Plattform-Threads für Verbindungen
+	 */
+	public static final int STANDARD_MAX_PLATTFORM_THREADS = 512;
+	
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor(), falls die Laufzeit virtuelle Threads kennt, sonst null
+	 */
+	private static final Method VIRTUELLE_THREADS_FABRIK = sucheVirtuelleThreadsFabrik();
+	
+	private VerbindungsAusfuehrung() {
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ob die Laufzeit virtuelle Threads unterstützt
+	 * 
+	 * </pre>
+	 */
+	public static boolean isVirtuelleThreadsVerfuegbar() {
+		return VIRTUELLE_THREADS_FABRIK != null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param gewuenschterModus der gewünschte Modus
+	 * @return der Modus, der in dieser Laufzeit tatsächlich verwendet wird
+	 * 
+	 * </pre>
+	 */
+	public static VerbindungsModus bestimmeModus(VerbindungsModus gewuenschterModus) {
+		if(gewuenschterModus == VerbindungsModus.VIRTUELLE_THREADS && !isVirtuelleThreadsVerfuegbar()) {
+			return VerbindungsModus.PLATTFORM_THREADS;
+		}
+		return gewuenschterModus;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den Executor für die Client-Verbindungen.
+	 * 
+	 * Mit Plattform-Threads wirft execute() eine RejectedExecutionException,
+	 * sobald alle Threads eine Verbindung bedienen.
+	 * 
+	 * @param gewuenschterModus der gewünschte Modus, siehe {@link #bestimmeModus(VerbindungsModus)}
+	 * @param maxPlattformThreads die Obergrenze der Threads, falls Plattform-Threads verwendet werden
+	 * @return der Executor
+	 * 
+	 * </pre>
+	 */
+	public static ExecutorService erstellenAusfuehrer(VerbindungsModus gewuenschterModus, int maxPlattformThreads) {
+		return erstellenAusfuehrer(gewuenschterModus, maxPlattformThreads, new SynchronousQueue<>(), "verbindung-");
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den Executor für kurze Schreib-Aufträge, zum Beispiel die Push-Nachrichten.
+	 * 
+	 * Mit Plattform-Threads warten die Aufträge über der Obergrenze in der Warteschlange des Pools.
+	 * 
+	 * @param gewuenschterModus der gewünschte Modus, siehe {@link #bestimmeModus(VerbindungsModus)}
+	 * @param maxPlattformThreads die Obergrenze der Threads, falls Plattform-Threads verwendet werden
+	 * @return der Executor
+	 * 
+	 * </pre>
+	 */
+	public static ExecutorService erstellenSchreibAusfuehrer(VerbindungsModus gewuenschterModus, int maxPlattformThreads) {
+		return erstellenAusfuehrer(gewuenschterModus, maxPlattformThreads, new LinkedBlockingQueue<>(), "schreiben-");
+	}
+	
+	private static ExecutorService erstellenAusfuehrer(
+			VerbindungsModus gewuenschterModus,
+			int maxPlattformThreads,
+			BlockingQueue<Runnable> warteschlange,
+			String threadName
+	) {
+		if(maxPlattformThreads < 1) {
+			throw new IllegalArgumentException("mindestens ein Plattform-Thread wird benötigt: " + maxPlattformThreads);
+		}
+		
+		if(bestimmeModus(gewuenschterModus) == VerbindungsModus.VIRTUELLE_THREADS) {
+			try {
+				return (ExecutorService)VIRTUELLE_THREADS_FABRIK.invoke(null);
+			} catch(IllegalAccessException | InvocationTargetException ausnahme) {
+				ausnahme.printStackTrace();
+			}
+		}
+		
+		AtomicInteger threadNummer = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(
+				maxPlattformThreads,
+				maxPlattformThreads,
+				60,
+				TimeUnit.SECONDS,
+				warteschlange,
+				auftrag -> {
+					Thread thread = new Thread(auftrag, threadName + threadNummer.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+		);
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+	
+	private static Method sucheVirtuelleThreadsFabrik() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch(NoSuchMethodException ausnahme) {
+			return null;
+		}
+	}
+}
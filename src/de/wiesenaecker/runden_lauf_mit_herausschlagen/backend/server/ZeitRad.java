@@ -0,0 +1,399 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <pre>
+ * 
+ * Ein Zeit-Rad (hashed wheel timer): ein einziger Thread verwaltet beliebig viele Fristen,
+ * z.B. für jede Verbindung, ob sie zu lange nichts geschickt hat, und für jede Sitzung den laufenden Zug.
+ * 
+ * - das Rad hat eine feste Anzahl Fächer, je Tick rückt es um ein Fach weiter
+ * - eine Frist kommt in das Fach ihres Ablauf-Ticks, liegt er mehr als eine Umdrehung entfernt,
+ *   zählt sie die restlichen Umdrehungen herunter
+ * - {@link #planen(long, Runnable)} und {@link Frist#abbrechen()} legen die Frist nur in eine Warteschlange,
+ *   erst der Thread des Rads hängt sie in ihr Fach ein oder aus, beides in konstanter Zeit
+ * 
+ * Eine Frist läuft dadurch bis zu einem Tick zu spät ab, aber nie zu früh.
+ * Die Aufgaben laufen auf dem Thread des Rads: sie müssen kurz sein und dürfen nicht blockieren,
+ * längere Arbeit geben sie an ihren eigenen Thread ab, z.B. an den Thread einer Sitzung.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ZeitRad {
+	/**
+	 * die Standard-Dauer eines Ticks
+	 */
+	public static final long STANDARD_TICK_MILLIS = 10;
+	
+	/**
+	 * die Standard-Anzahl der Fächer, eine Umdrehung dauert damit gut 5 Sekunden
+	 */
+	public static final int STANDARD_ANZAHL_FAECHER = 512;
+	
+	/**
+	 * <pre>
+	 * 
+	 * So viele neue Fristen werden je Tick höchstens eingehängt,
+	 * damit ein Schwall neuer Fristen die fälligen nicht aufhält.
+	 * 
+	 * </pre>
+	 */
+	private static final int MAX_NEUE_FRISTEN_JE_TICK = 100_000;
+	
+	private static final int WARTEND = 0;
+	
+	private static final int ABGEBROCHEN = 1;
+	
+	private static final int ABGELAUFEN = 2;
+	
+	private final long tickNanos;
+	
+	/**
+	 * die Anzahl der Fächer minus eins, die Anzahl ist eine Zweierpotenz
+	 */
+	private final int maske;
+	
+	/**
+	 * die Fächer, nur der Thread des Rads fasst sie an
+	 */
+	private final Fach[] faecher;
+	
+	/**
+	 * die geplanten, noch nicht eingehängten Fristen
+	 */
+	private final Queue<Frist> neueFristen = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * die abgebrochenen, noch nicht ausgehängten Fristen
+	 */
+	private final Queue<Frist> abgebrocheneFristen = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * der Zeitpunkt, ab dem die Ticks gezählt werden
+	 */
+	private final long startNanos = System.nanoTime();
+	
+	private final AtomicLong anzahlWartend = new AtomicLong();
+	
+	private final AtomicLong anzahlAbgelaufen = new AtomicLong();
+	
+	private final Thread thread;
+	
+	/**
+	 * der nächste Tick, den der Thread des Rads bearbeitet
+	 */
+	private long tick;
+	
+	private volatile boolean beendet;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt ein Rad mit den Standard-Werten und startet seinen Thread.
+	 * 
+	 * @param name der Name des Threads
+	 * 
+	 * </pre>
+	 */
+	public ZeitRad(String name) {
+		this(name, STANDARD_TICK_MILLIS, STANDARD_ANZAHL_FAECHER);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt ein Rad und startet seinen Thread.
+	 * 
+	 * @param name der Name des Threads
+	 * @param tickMillis die Dauer eines Ticks, so genau laufen die Fristen ab
+	 * @param anzahlFaecher die Anzahl der Fächer, eine Zweierpotenz
+	 * 
+	 * </pre>
+	 */
+	public ZeitRad(String name, long tickMillis, int anzahlFaecher) {
+		if(tickMillis < 1) {
+			throw new IllegalArgumentException("ein Tick dauert mindestens eine Millisekunde: " + tickMillis);
+		}
+		if(anzahlFaecher < 1 || Integer.bitCount(anzahlFaecher) != 1) {
+			throw new IllegalArgumentException("die Anzahl der Fächer muss eine Zweierpotenz sein: " + anzahlFaecher);
+		}
+		this.tickNanos = tickMillis * 1_000_000;
+		this.maske = anzahlFaecher - 1;
+		this.faecher = new Fach[anzahlFaecher];
+		for(int i = 0; i < anzahlFaecher; i++) {
+			faecher[i] = new Fach();
+		}
+		this.thread = new Thread(this::drehen, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Plant eine Aufgabe ein. Läuft in konstanter Zeit und blockiert nie.
+	 * 
+	 * @param verzoegerungMillis nach so vielen Millisekunden läuft die Aufgabe auf dem Thread des Rads
+	 * @param aufgabe die Aufgabe, kurz und nicht blockierend
+	 * @return die Frist, mit der die Aufgabe abgebrochen werden kann
+	 * @throws IllegalStateException wenn das Rad beendet ist
+	 * 
+	 * </pre>
+	 */
+	public Frist planen(long verzoegerungMillis, Runnable aufgabe) {
+		if(aufgabe == null) {
+			throw new NullPointerException("die Aufgabe darf nicht null sein");
+		}
+		if(beendet) {
+			throw new IllegalStateException("das Zeit-Rad ist beendet");
+		}
+		Frist frist = new Frist(
+				System.nanoTime() - startNanos + Math.max(0, verzoegerungMillis) * 1_000_000,
+				aufgabe
+		);
+		anzahlWartend.incrementAndGet();
+		neueFristen.add(frist);
+		return frist;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Hält den Thread des Rads an, die wartenden Fristen laufen nicht mehr ab.
+	 * 
+	 * </pre>
+	 */
+	public void beenden() {
+		beendet = true;
+		LockSupport.unpark(thread);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Fristen, die weder abgelaufen noch abgebrochen sind
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlWartend() {
+		return anzahlWartend.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der seit dem Start abgelaufenen Fristen
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAbgelaufen() {
+		return anzahlAbgelaufen.get();
+	}
+	
+	private void drehen() {
+		while(!beendet) {
+			long tickEnde = (tick + 1) * tickNanos;
+			long schlafen;
+			while((schlafen = tickEnde - (System.nanoTime() - startNanos)) > 0) {
+				LockSupport.parkNanos(this, schlafen);
+				if(beendet) {
+					return;
+				}
+			}
+			aushaengenAbgebrochene();
+			einhaengenNeue();
+			ablaufen(faecher[(int)(tick & maske)]);
+			tick++;
+		}
+	}
+	
+	private void aushaengenAbgebrochene() {
+		Frist frist;
+		while((frist = abgebrocheneFristen.poll()) != null) {
+			if(frist.fach != null) {
+				frist.fach.entfernen(frist);
+			}
+		}
+	}
+	
+	private void einhaengenNeue() {
+		Frist frist;
+		for(int i = 0; i < MAX_NEUE_FRISTEN_JE_TICK && (frist = neueFristen.poll()) != null; i++) {
+			if(frist.zustand.get() != WARTEND) {
+				continue;
+			}
+			long ablaufTick = frist.ablaufNanos / tickNanos;
+			// eine schon fällige Frist kommt in das Fach dieses Ticks
+			long fachTick = Math.max(ablaufTick, tick);
+			frist.runden = (fachTick - tick) / faecher.length;
+			faecher[(int)(fachTick & maske)].hinzufuegen(frist);
+		}
+	}
+	
+	private void ablaufen(Fach fach) {
+		Frist frist = fach.erste;
+		while(frist != null) {
+			Frist naechste = frist.naechste;
+			if(frist.runden > 0) {
+				frist.runden--;
+			} else {
+				fach.entfernen(frist);
+				if(frist.zustand.compareAndSet(WARTEND, ABGELAUFEN)) {
+					anzahlWartend.decrementAndGet();
+					anzahlAbgelaufen.incrementAndGet();
+					try {
+						frist.aufgabe.run();
+					} catch(RuntimeException ausnahme) {
+						ausnahme.printStackTrace();
+					}
+				}
+			}
+			frist = naechste;
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Eine doppelt verkettete Liste von Fristen, nur der Thread des Rads fasst sie an.
+	 * 
+	 * </pre>
+	 */
+	private static class Fach {
+		private Frist erste;
+		
+		private Frist letzte;
+		
+		private void hinzufuegen(Frist frist) {
+			frist.fach = this;
+			frist.vorige = letzte;
+			if(letzte != null) {
+				letzte.naechste = frist;
+			} else {
+				erste = frist;
+			}
+			letzte = frist;
+		}
+		
+		private void entfernen(Frist frist) {
+			if(frist.vorige != null) {
+				frist.vorige.naechste = frist.naechste;
+			} else {
+				erste = frist.naechste;
+			}
+			if(frist.naechste != null) {
+				frist.naechste.vorige = frist.vorige;
+			} else {
+				letzte = frist.vorige;
+			}
+			frist.fach = null;
+			frist.vorige = null;
+			frist.naechste = null;
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Eine eingeplante Aufgabe.
+	 * 
+	 * </pre>
+	 */
+	public final class Frist {
+		/**
+		 * der Ablauf-Zeitpunkt, gezählt ab dem Start des Rads
+		 */
+		private final long ablaufNanos;
+		
+		private final Runnable aufgabe;
+		
+		private final AtomicInteger zustand = new AtomicInteger(WARTEND);
+		
+		/**
+		 * die restlichen Umdrehungen und die Verkettung im Fach, nur der Thread des Rads fasst sie an
+		 */
+		private long runden;
+		
+		private Fach fach;
+		
+		private Frist vorige;
+		
+		private Frist naechste;
+		
+		private Frist(long ablaufNanos, Runnable aufgabe) {
+			this.ablaufNanos = ablaufNanos;
+			this.aufgabe = aufgabe;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Bricht die Frist ab. Läuft in konstanter Zeit und blockiert nie.
+		 * 
+		 * @return true, wenn die Aufgabe dadurch nicht mehr läuft,
+		 * 		false, wenn sie schon abgelaufen oder abgebrochen ist
+		 * 
+		 * </pre>
+		 */
+		public boolean abbrechen() {
+			if(!zustand.compareAndSet(WARTEND, ABGEBROCHEN)) {
+				return false;
+			}
+			anzahlWartend.decrementAndGet();
+			abgebrocheneFristen.add(this);
+			return true;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @return ob die Aufgabe gelaufen ist oder gerade läuft
+		 * 
+		 * </pre>
+		 */
+		public boolean isAbgelaufen() {
+			return zustand.get() == ABGELAUFEN;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @return ob die Frist abgebrochen wurde
+		 * 
+		 * </pre>
+		 */
+		public boolean isAbgebrochen() {
+			return zustand.get() == ABGEBROCHEN;
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+
+/**
+ * <pre>
+ * 
+ * Schickt den angemeldeten Zuschauern einer Sitzung den neuesten SpielZustand,
+ * sobald er sich ändert, über den {@link PushKanal} ihrer Verbindung.
+ * 
+ * - Änderungen einer Sitzung innerhalb des Fensters werden zu einer Auslieferung gebündelt
+ * - {@link #melden(ServerSpielSitzung)} blockiert nie, der Thread der Sitzung
+ *   plant nur die Auslieferung ein
+ * - der Thread der Sitzung kopiert den SpielZustand je Version einmal (siehe SchnappschussCache),
+ *   alles Weitere läuft auf dem Thread des Verteilers: die Antwort wird je Format einmal kodiert
+ *   und dieselben Bytes werden an alle Zuschauer übergeben
+ * - geschrieben wird vom Transport, z.B. von den Event-Loops des NioServerTransport,
+ *   die alles in einem Durchlauf schreiben, was sich bis dahin angesammelt hat
+ * - ein langsamer Zuschauer hält nichts auf: sein PushKanal behält nur die neueste Version,
+ *   die Zwischenstände, die er nicht rechtzeitig abnimmt, werden verworfen
+ * 
+ * Die Spieler merken von den Zuschauern nur die eine Kopie je Version auf dem Thread der Sitzung,
+ * unabhängig davon, wie viele Zuschauer es sind.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ZuschauerVerteiler {
+	private final long fensterMillis;
+	
+	/**
+	 * liefert auf dem Thread der Sitzung die geteilte Antwort mit dem aktuellen SpielZustand
+	 */
+	private final Function<ServerSpielSitzung, CompletableFuture<ServerAntwort>> zustandLiefern;
+	
+	/**
+	 * plant die Auslieferungen ein und verteilt sie an die Zuschauer
+	 */
+	private final ScheduledThreadPoolExecutor verteiler;
+	
+	/**
+	 * die Zuschauer je Sitzung, nach dem Schlüssel des SpielZustands
+	 */
+	private final Map<Long, Publikum> publika = new ConcurrentHashMap<>();
+	
+	private final AtomicLong anzahlAuslieferungen = new AtomicLong();
+	
+	private final AtomicLong anzahlGepusht = new AtomicLong();
+	
+	private final AtomicLong anzahlVerworfen = new AtomicLong();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param fensterMillis so lange werden Änderungen gesammelt (0 für sofort)
+	 * @param zustandLiefern liefert die Antwort mit dem aktuellen SpielZustand einer Sitzung,
+	 * 		sobald der Thread der Sitzung sie erstellt hat
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerVerteiler(
+			long fensterMillis,
+			Function<ServerSpielSitzung, CompletableFuture<ServerAntwort>> zustandLiefern
+	) {
+		if(fensterMillis < 0) {
+			throw new IllegalArgumentException("das Fenster darf nicht negativ sein: " + fensterMillis);
+		}
+		this.fensterMillis = fensterMillis;
+		this.zustandLiefern = zustandLiefern;
+		this.verteiler = new ScheduledThreadPoolExecutor(1, auftrag -> {
+			Thread thread = new Thread(auftrag, "zuschauer-verteiler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Meldet einen Zuschauer für die Sitzung an. Meldet er sich noch einmal an,
+	 * z.B. über eine neue Verbindung, ersetzt der neue PushKanal den alten.
+	 * 
+	 * @param sitzung die Sitzung, der er zuschaut
+	 * @param zuschauerSchluessel der Schlüssel seiner ZuschauerRegistrierung
+	 * @param kanal der PushKanal seiner Verbindung
+	 * 
+	 * </pre>
+	 */
+	public void anmelden(ServerSpielSitzung sitzung, long zuschauerSchluessel, PushKanal kanal) {
+		publika.computeIfAbsent(sitzung.getSchluessel(), schluessel -> new Publikum(sitzung))
+				.kanaele.put(zuschauerSchluessel, kanal);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param sitzungsSchluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param zuschauerSchluessel der Schlüssel der ZuschauerRegistrierung
+	 * 
+	 * </pre>
+	 */
+	public void abmelden(long sitzungsSchluessel, long zuschauerSchluessel) {
+		Publikum publikum = publika.get(sitzungsSchluessel);
+		if(publikum != null) {
+			publikum.kanaele.remove(zuschauerSchluessel);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Meldet eine Änderung des SpielZustands einer Sitzung.
+	 * Blockiert nie und darf deshalb auf dem Thread der Sitzung aufgerufen werden.
+	 * 
+	 * @param sitzung die geänderte Sitzung
+	 * 
+	 * </pre>
+	 */
+	public void melden(ServerSpielSitzung sitzung) {
+		Publikum publikum = publika.get(sitzung.getSchluessel());
+		if(publikum == null || publikum.kanaele.isEmpty() || !publikum.eingeplant.compareAndSet(false, true)) {
+			// niemand schaut zu, oder die Änderung fährt mit der schon eingeplanten Auslieferung mit
+			return;
+		}
+		einplanen(publikum);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergisst die Sitzung mit allen ihren Zuschauern.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * 
+	 * </pre>
+	 */
+	public void entfernen(long schluessel) {
+		entfernen(schluessel, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergisst die Sitzung mit allen ihren Zuschauern und schickt ihnen vorher noch eine letzte Nachricht,
+	 * z.B. dass die Sitzung auf einen anderen Server umgezogen ist.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param abschied die letzte Nachricht an die Zuschauer, oder null
+	 * 
+	 * </pre>
+	 */
+	public void entfernen(long schluessel, ServerAntwort abschied) {
+		Publikum publikum = publika.remove(schluessel);
+		if(publikum == null || abschied == null) {
+			return;
+		}
+		try {
+			verteiler.execute(() -> verteilen(publikum, abschied));
+		} catch(RejectedExecutionException ausnahme) {
+			// der Verteiler ist beendet
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Beendet den Thread des Verteilers.
+	 * 
+	 * </pre>
+	 */
+	public void beenden() {
+		verteiler.shutdownNow();
+		publika.clear();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return die Anzahl der angemeldeten Zuschauer der Sitzung
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlZuschauer(long schluessel) {
+		Publikum publikum = publika.get(schluessel);
+		return publikum != null ? publikum.kanaele.size() : 0;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Auslieferungen, jede mit einer Version für alle Zuschauer einer Sitzung
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAuslieferungen() {
+		return anzahlAuslieferungen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der an die PushKanäle übergebenen Nachrichten
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlGepusht() {
+		return anzahlGepusht.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Versionen, die ein langsamer Zuschauer nicht mehr bekommen hat
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlVerworfen() {
+		return anzahlVerworfen.get();
+	}
+	
+	private void einplanen(Publikum publikum) {
+		try {
+			if(fensterMillis == 0) {
+				verteiler.execute(() -> ausliefern(publikum));
+			} else {
+				verteiler.schedule(() -> ausliefern(publikum), fensterMillis, TimeUnit.MILLISECONDS);
+			}
+		} catch(RejectedExecutionException ausnahme) {
+			// der Verteiler ist beendet
+			publikum.eingeplant.set(false);
+		}
+	}
+	
+	private void ausliefern(Publikum publikum) {
+		if(publika.get(publikum.sitzung.getSchluessel()) != publikum) {
+			return;
+		}
+		CompletableFuture<ServerAntwort> antwort;
+		try {
+			antwort = zustandLiefern.apply(publikum.sitzung);
+		} catch(RejectedExecutionException ausnahme) {
+			// die Warteschlange der Sitzung ist voll: nach dem nächsten Fenster noch einmal versuchen
+			einplanen(publikum);
+			return;
+		}
+		// ab hier plant die nächste Änderung eine neue Auslieferung ein,
+		// die Antwort wurde ja schon hinter allen bisherigen Änderungen eingereiht
+		publikum.eingeplant.set(false);
+		antwort.thenAcceptAsync(zustand -> verteilen(publikum, zustand), verteiler);
+	}
+	
+	private void verteilen(Publikum publikum, ServerAntwort zustand) {
+		long gepusht = 0;
+		long verworfen = 0;
+		Iterator<PushKanal> kanaele = publikum.kanaele.values().iterator();
+		while(kanaele.hasNext()) {
+			PushKanal kanal = kanaele.next();
+			if(!kanal.isOffen()) {
+				kanaele.remove();
+				continue;
+			}
+			if(kanal.pushen(zustand)) {
+				verworfen++;
+			}
+			gepusht++;
+		}
+		anzahlGepusht.addAndGet(gepusht);
+		anzahlVerworfen.addAndGet(verworfen);
+		anzahlAuslieferungen.incrementAndGet();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Zuschauer einer Sitzung.
+	 * 
+	 * </pre>
+	 */
+	private static class Publikum {
+		private final ServerSpielSitzung sitzung;
+		
+		/**
+		 * die PushKanäle der Zuschauer nach dem Schlüssel ihrer ZuschauerRegistrierung
+		 */
+		private final Map<Long, PushKanal> kanaele = new ConcurrentHashMap<>();
+		
+		/**
+		 * ob eine Auslieferung eingeplant, aber noch nicht an die Sitzung übergeben ist
+		 */
+		private final AtomicBoolean eingeplant = new AtomicBoolean();
+		
+		private Publikum(ServerSpielSitzung sitzung) {
+			this.sitzung = sitzung;
+		}
+	}
+}
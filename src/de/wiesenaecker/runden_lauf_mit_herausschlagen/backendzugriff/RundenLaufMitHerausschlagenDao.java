@@ -23,8 +23,6 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff;
 
-import java.util.Set;
-
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
@@ -35,51 +33,17 @@ import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
 /**
  * <pre>
  * 
+ * Die Datenhaltung mit lesendem und schreibendem Zugriff.
  * 
  * @author Christian Alexander Wiesenäcker
  * 
  * </pre>
  */
-public interface RundenLaufMitHerausschlagenDao {
+public interface RundenLaufMitHerausschlagenDao extends RundenLaufMitHerausschlagenLeseDao {
 	// ******************************************************************************************
-	// **** Start Access / Modify data
+	// **** Start Modify data
 	// ******************************************************************************************
 	
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen Spiel-Zustände aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller Spiel-Zustände
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getSpielZustaendeSchluessel();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Spiel-Zustände aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return Liste aller Spiel-Zustände
-	 * 
-	 * </pre>
-	 */
-	Set<SpielZustand> getSpielZustaendeMenge();
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt den Spiel-Zustände mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return den SpielZustand
-	 * 
-	 * </pre>
-	 */
-	SpielZustand getSpielZustand(long schluessel);
-	
 	/**
 	 * <pre>
 	 * 
@@ -123,40 +87,6 @@ public interface RundenLaufMitHerausschlagenDao {
 	 * </pre>
 	 */
 	void loeschenSpielZustand(SpielZustand zuLoeschen);
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen, aktiven Spieler aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller aktiven Spieler
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getAktiveSpielerSchluessel();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten aktiven Spieler zurück.
-	 * @return die aktiven Spieler
-	 * 
-	 * </pre>
-	 */
-	Set<AktiverSpielerDekorator> getAktiveSpielerMenge();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt den aktiven Spieler mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return der aktive Spieler
-	 * @throws PrimaerSchluesselException wenn das Element nicht in der Datenbank war
-	 * 
-	 * </pre>
-	 */
-	AktiverSpielerDekorator getAktiverSpieler(long schluessel);
 	
 	/**
 	 * <pre>
@@ -201,51 +131,6 @@ public interface RundenLaufMitHerausschlagenDao {
 	 * </pre>
 	 */
 	void loeschenAktiverSpieler(AktiverSpielerDekorator zuLoeschen);
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen Spieler aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller Spieler
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getSpielerSchluessel();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten konkreten / vakanten Spieler zurück.
-	 * @return die Spieler
-	 * 
-	 * </pre>
-	 */
-	Set<Spieler> getSpielerMenge();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten konkreten / vakanten Spieler zurück, die zu einem bestimmten SpielZustand gehören.
-	 * @param spielZustandSchluessel der Schlüssel zum SpielZustand
-	 * @return
-	 * 
-	 * </pre>
-	 */
-	Set<Spieler> getSpielerMengeBySpielZustandSchluessel(long spielZustandSchluessel);
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt den Spieler mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return der Spieler
-	 * @throws PrimaerSchluesselException wenn das Element nicht in der Datenbank war
-	 * 
-	 * </pre>
-	 */
-	Spieler getSpieler(long schluessel);
 	
 	/**
 	 * <pre>
@@ -293,40 +178,6 @@ public interface RundenLaufMitHerausschlagenDao {
 	 * </pre>
 	 */
 	void loeschenSpieler(Spieler zuLoeschen);
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen Farben aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller Farben
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getFarbenSchluessel();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten Farben zurück.
-	 * @return die Farben
-	 * 
-	 * </pre>
-	 */
-	Set<Farbe> getFarbenMenge();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt die Farbe mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return die Farbe
-	 * @throws PrimaerSchluesselException wenn das Element nicht in der Datenbank war
-	 * 
-	 * </pre>
-	 */
-	Farbe getFarbe(long schluessel);
 	
 	/**
 	 * <pre>
@@ -371,62 +222,6 @@ public interface RundenLaufMitHerausschlagenDao {
 	 * </pre>
 	 */
 	void loeschenFarbe(Farbe zuLoeschen);
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen Figuren aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller Figuren
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getFigurenSchluessel();
-
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten Figuren zurück.
-	 * @return die Figuren
-	 * 
-	 * </pre>
-	 */
-	Set<Figur> getFigurenMenge();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten Figuren eines Spielers mit spielerSchluessel zurück.
-	 * @param spielerSchluessel
-	 * @return
-	 * 
-	 * </pre>
-	 */
-	Set<Figur> getFigurenMengeBySpielerSchluessel(long spielerSchluessel);
-
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten Figuren eines SpielZustands mit spielZustandSchluessel zurück.
-	 * @param spielZustandSchluessel
-	 * @return
-	 * 
-	 * </pre>
-	 */
-	Set<Figur> getFigurenMengeBySpielZustandSchluessel(long spielZustandSchluessel);
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt die Figur mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return die Figur
-	 * @throws PrimaerSchluesselException wenn das Element nicht in der Datenbank war
-	 * 
-	 * </pre>
-	 */
-	Figur getFigur(long schluessel);
 	
 	/**
 	 * <pre>
@@ -470,40 +265,6 @@ public interface RundenLaufMitHerausschlagenDao {
 	 * </pre>
 	 */
 	void loeschenFigur(Figur zuLoeschen);
-
-	/**
-	 * <pre>
-	 * 
-	 * Holt alle Schlüssel der vorhandenen SpielFelder aus der Datenhaltung.
-	 * 
-	 * @return Liste der Schlüssel aller SpielFelder
-	 * 
-	 * </pre>
-	 */
-	Set<Long> getSpielFelderSchluessel();
-
-	/**
-	 * <pre>
-	 * 
-	 * Gibt alle gespeicherten SpielFelder zurück.
-	 * @return die SpielFelder
-	 * 
-	 * </pre>
-	 */
-	Set<SpielFeld> getSpielFelderMenge();
-	
-	/**
-	 * <pre>
-	 * 
-	 * Holt das SpielFeld mit dem Schluessel schluessel aus der Datenhaltung.
-	 * 
-	 * @param schluessel
-	 * @return das SpielFeld
-	 * @throws PrimaerSchluesselException wenn das Element nicht in der Datenbank war
-	 * 
-	 * </pre>
-	 */
-	SpielFeld getSpielFeld(long schluessel);
 	
 	/**
 	 * <pre>
@@ -0,0 +1,144 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert;
+
+/**
+ * <pre>
+ * 
+ * Nimmt auf der Client-Seite die Benachrichtigungen des Servers entgegen.
+ * 
+ * Der Port des Lauschers ist der clientNotifyPort der ClientRegistrierung.
+ * Der Server hält seine Verbindung offen, jede Verbindung wird auf einem eigenen
+ * Daemon-Thread gelesen und jede Benachrichtigung an den Beobachter weitergegeben.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class BenachrichtigungsLauscher implements Closeable {
+	private final ServerSocket lauscher;
+	
+	private final Consumer<SpielZustandGeaendert> beobachter;
+	
+	/**
+	 * die offenen Verbindungen vom Server
+	 */
+	private final Set<Socket> verbindungen = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * <pre>
+	 * 
+	 * Bindet den Port und startet den Lausch-Thread.
+	 * 
+	 * @param port der Port (0 für einen freien Port)
+	 * @param beobachter bekommt jede Benachrichtigung, auf dem Lese-Thread der Verbindung
+	 * @throws IOException wenn der Port nicht gebunden werden kann
+	 * 
+	 * </pre>
+	 */
+	public BenachrichtigungsLauscher(int port, Consumer<SpielZustandGeaendert> beobachter) throws IOException {
+		if(beobachter == null) {
+			throw new NullPointerException("der Beobachter darf nicht null sein");
+		}
+		this.beobachter = beobachter;
+		this.lauscher = new ServerSocket(port);
+		
+		Thread lauschThread = new Thread(this::lauschen, "benachrichtigungs-lauscher-" + lauscher.getLocalPort());
+		lauschThread.setDaemon(true);
+		lauschThread.start();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der gebundene Port, für den clientNotifyPort der ClientRegistrierung
+	 * 
+	 * </pre>
+	 */
+	public int getLokalerPort() {
+		return lauscher.getLocalPort();
+	}
+	
+	@Override
+	public void close() {
+		try {
+			lauscher.close();
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+		}
+		verbindungen.forEach(this::schliessen);
+	}
+	
+	private void lauschen() {
+		while(!lauscher.isClosed()) {
+			Socket verbindung;
+			try {
+				verbindung = lauscher.accept();
+			} catch(IOException ausnahme) {
+				continue;
+			}
+			verbindungen.add(verbindung);
+			Thread leseThread = new Thread(() -> lesen(verbindung), "benachrichtigungen-" + verbindung.getPort());
+			leseThread.setDaemon(true);
+			leseThread.start();
+		}
+	}
+	
+	private void lesen(Socket verbindung) {
+		try(verbindung) {
+			DataInputStream eingabe = new DataInputStream(new BufferedInputStream(verbindung.getInputStream()));
+			while(true) {
+				NachrichtenRahmen rahmen = NachrichtenRahmen.lesen(eingabe);
+				if(NachrichtenRahmen.dekodieren(rahmen.getNutzdaten()) instanceof SpielZustandGeaendert benachrichtigung) {
+					beobachter.accept(benachrichtigung);
+				}
+			}
+		} catch(IOException | ClassNotFoundException ausnahme) {
+			// der Server hat die Verbindung geschlossen oder etwas Unlesbares geschickt
+		} finally {
+			verbindungen.remove(verbindung);
+		}
+	}
+	
+	private void schliessen(Socket verbindung) {
+		try {
+			verbindung.close();
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+		}
+	}
+}
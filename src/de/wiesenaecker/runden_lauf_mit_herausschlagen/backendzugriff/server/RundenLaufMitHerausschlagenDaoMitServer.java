@@ -23,306 +23,913 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.DatenbankElement;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.IllegaleSpielerAktionException;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta.FigurPosition;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
 
 /**
  * <pre>
  * 
+ * Der Backend-Zugriff eines Spielers über eine einzige Verbindung zum Spiel-Server.
+ * 
+ * Alle Requests gehen über dieselbe {@link ServerVerbindung}, ohne auf die Antworten
+ * der vorherigen zu warten. Die Antworten werden über ihre Anfrage-Id zugeordnet
+ * und dürfen in beliebiger Reihenfolge ankommen.
+ * 
+ * Gelesen wird aus einer Kopie des SpielZustands der Sitzung des Spielers, die mit der Version
+ * des SpielZustands auf dem Server gemerkt wird. Solange sie aktuell ist, wird ohne Request gelesen.
+ * Veraltet ist sie
+ * - nach einer Benachrichtigung über eine neuere Version (siehe {@link #benachrichtigen(SpielZustandGeaendert)}),
+ * - nach einer eigenen Spiel-Aktion, die das Spiel geändert hat,
+ * - und wenn sie länger als das Prüf-Intervall nicht mit dem Server verglichen wurde.
+ * Dann holt ein einziger AENDERUNGEN_INFO Request die Änderungen seit der gemerkten Version,
+ * auch wenn viele Lese-Zugriffe gleichzeitig darauf warten.
+ * 
+ * Eine gemerkte Kopie wird nie verändert, Änderungen werden auf eine neue Kopie angewendet.
+ * Die gelesenen Objekte sind also ein fester Stand, den der Aufrufer nicht verändern darf.
+ * 
+ * Der Schlüssel der Sitzung wird einmal mit SITZUNG_INFO erfragt und danach wiederverwendet.
+ * 
+ * Jede Spiel-Aktion bekommt einen eigenen Idempotenz-Schlüssel, der Server führt sie also nur einmal aus.
+ * Mit einer Antwort-Frist (siehe {@link #setAntwortFristMillis(long)}) schickt der Dao eine Spiel-Aktion,
+ * deren Antwort nicht rechtzeitig kommt, noch einmal und nimmt die erste Antwort, die ankommt.
+ * 
+ * Der Server ist die einzige Stelle, an der das Spiel geändert wird:
+ * der Dao implementiert nur den lesenden Teil der Datenhaltung,
+ * geändert wird über die Spiel-Aktionen.
  * 
  * @author Christian Alexander Wiesenäcker
  * 
  * </pre>
  */
 public class RundenLaufMitHerausschlagenDaoMitServer implements RundenLaufMitHerausschlagenMitServerDao {
+	/**
+	 * so lange wird die gemerkte Kopie ohne Benachrichtigung höchstens gelesen, bevor ihre Version geprüft wird
+	 */
+	public static final long STANDARD_PRUEF_INTERVALL_MILLIS = 1_000;
+	
+	/**
+	 * so oft wird eine Spiel-Aktion mit Antwort-Frist höchstens geschickt
+	 */
+	public static final int MAX_AKTIONS_VERSUCHE = 5;
+	
+	private final ServerVerbindung verbindung;
+	private final long spielerSchluessel;
+	private final long geheimnis;
+	private final AtomicReference<CompletableFuture<Long>> sitzungsSchluessel = new AtomicReference<>();
+	
+	/**
+	 * die gemerkte Kopie des SpielZustands oder null
+	 */
+	private volatile GemerkterSpielZustand gemerkt;
+	
+	/**
+	 * die neueste Version, von der der Dao weiß, dass es sie auf dem Server gibt
+	 */
+	private final AtomicLong bekannteVersion = new AtomicLong(SpielZustandDelta.KEINE_VERSION);
+	
+	/**
+	 * die laufende Aktualisierung der gemerkten Kopie oder null
+	 */
+	private final AtomicReference<CompletableFuture<GemerkterSpielZustand>> aktualisierung = new AtomicReference<>();
+	
+	private volatile long pruefIntervallNanos = STANDARD_PRUEF_INTERVALL_MILLIS * 1_000_000;
+	
+	private final AtomicLong anzahlTreffer = new AtomicLong();
+	
+	private final AtomicLong anzahlAktualisierungen = new AtomicLong();
+	
+	/**
+	 * <pre>
+	 * 
+	 * der nächste Idempotenz-Schlüssel. Er wird ab einer Zufallszahl hochgezählt,
+	 * damit ein neuer Dao desselben Spielers, z.B. nach einem Neustart, keinen alten Schlüssel wiederholt.
+	 * 
+	 * </pre>
+	 */
+	private final AtomicLong naechsterIdempotenzSchluessel = new AtomicLong(ThreadLocalRandom.current().nextLong());
+	
+	/**
+	 * nach so vielen Millisekunden ohne Antwort wird eine Spiel-Aktion noch einmal geschickt, 0 für nie
+	 */
+	private volatile long antwortFristMillis;
+	
+	private final AtomicLong anzahlWiederholungen = new AtomicLong();
 
 	/**
 	 * <pre>
 	 * 
+	 * Baut die Verbindung zum Server auf.
 	 * 
-	 * @param user
-	 * @param credentials
+	 * @param serverHost der Host des Spiel-Servers
+	 * @param serverPort der Port des Spiel-Servers
+	 * @param spielerSchluessel der Schlüssel des Spielers
+	 * @param geheimnis das Geheimnis aus der ClientRegistrierung des Spielers
+	 * @throws UncheckedIOException wenn die Verbindung nicht aufgebaut werden kann
 	 * 
 	 * </pre>
 	 */
-	public RundenLaufMitHerausschlagenDaoMitServer(long user, long credentials) {
+	public RundenLaufMitHerausschlagenDaoMitServer(String serverHost, int serverPort, long spielerSchluessel, long geheimnis) {
+		this(oeffnenVerbindung(serverHost, serverPort), spielerSchluessel, geheimnis);
 	}
 
+	/**
+	 * <pre>
+	 * 
+	 * @param verbindung die Verbindung zum Server, sie wird mit {@link #close()} geschlossen
+	 * @param spielerSchluessel der Schlüssel des Spielers
+	 * @param geheimnis das Geheimnis aus der ClientRegistrierung des Spielers
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenDaoMitServer(ServerVerbindung verbindung, long spielerSchluessel, long geheimnis) {
+		if(verbindung == null) {
+			throw new NullPointerException();
+		}
+		this.verbindung = verbindung;
+		this.spielerSchluessel = spielerSchluessel;
+		this.geheimnis = geheimnis;
+	}
+	
+	private static ServerVerbindung oeffnenVerbindung(String serverHost, int serverPort) {
+		try {
+			return new ServerVerbindung(serverHost, serverPort);
+		} catch(IOException ausnahme) {
+			throw new UncheckedIOException(ausnahme);
+		}
+	}
+	
+	// ******************************************************************************************
+	// **** Start Verbindung
+	// ******************************************************************************************
+	
+	@Override
+	public CompletableFuture<Long> getEigenerSpielZustandSchluesselAsynchron() {
+		CompletableFuture<Long> bekannt = sitzungsSchluessel.get();
+		if(bekannt != null) {
+			return bekannt;
+		}
+		CompletableFuture<Long> neu = new CompletableFuture<>();
+		if(!sitzungsSchluessel.compareAndSet(null, neu)) {
+			return sitzungsSchluessel.get();
+		}
+		senden(ClientRequest.erstellenSitzungInfoClientRequest(spielerSchluessel, geheimnis))
+				.<Long>thenApply(inhalt -> (Long)inhalt)
+				.whenComplete((schluessel, ausnahme) -> {
+					if(ausnahme != null) {
+						// beim nächsten Mal wird wieder gefragt
+						sitzungsSchluessel.compareAndSet(neu, null);
+						neu.completeExceptionally(ausnahme);
+					} else {
+						neu.complete(schluessel);
+					}
+				});
+		return neu;
+	}
+	
+	private CompletableFuture<Object> sendenInSitzung(ClientRequestInfo info) {
+		return getEigenerSpielZustandSchluesselAsynchron().thenCompose(
+				schluessel -> senden(ClientRequest.erstellenClientRequest(schluessel, spielerSchluessel, geheimnis, info))
+		);
+	}
+	
+	private CompletableFuture<Object> sendenSpielAktionInSitzung(ClientRequestInfo info) {
+		return getEigenerSpielZustandSchluesselAsynchron().thenCompose(
+				schluessel -> sendenSpielAktion(ClientRequest.erstellenClientRequest(schluessel, spielerSchluessel, geheimnis, info))
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schickt die Spiel-Aktion mit einem neuen Idempotenz-Schlüssel,
+	 * mit Antwort-Frist nach jeder abgelaufenen Frist noch einmal, bis eine Antwort da ist.
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<Object> sendenSpielAktion(ClientRequest anfrage) {
+		ClientRequest wiederholbar = anfrage.mitIdempotenzSchluessel(naechsterIdempotenzSchluessel.getAndIncrement());
+		CompletableFuture<ServerAntwort> antwort = new CompletableFuture<>();
+		versuchen(wiederholbar, antwort, antwortFristMillis, 1);
+		return antwort.thenApply(RundenLaufMitHerausschlagenDaoMitServer::auswerten);
+	}
+	
+	private void versuchen(ClientRequest anfrage, CompletableFuture<ServerAntwort> antwort, long frist, int versuch) {
+		verbindung.senden(anfrage).whenComplete((fertig, ausnahme) -> {
+			if(ausnahme == null) {
+				antwort.complete(fertig);
+			} else if(versuch >= MAX_AKTIONS_VERSUCHE || frist == 0) {
+				antwort.completeExceptionally(ausnahme);
+			}
+		});
+		if(frist == 0 || versuch >= MAX_AKTIONS_VERSUCHE) {
+			return;
+		}
+		CompletableFuture.delayedExecutor(frist, TimeUnit.MILLISECONDS).execute(() -> {
+			if(!antwort.isDone()) {
+				anzahlWiederholungen.incrementAndGet();
+				versuchen(anfrage, antwort, frist, versuch + 1);
+			}
+		});
+	}
+	
+	private CompletableFuture<Object> senden(ClientRequest anfrage) {
+		return verbindung.senden(anfrage).thenApply(RundenLaufMitHerausschlagenDaoMitServer::auswerten);
+	}
+	
+	private static Object auswerten(ServerAntwort antwort) {
+		if(antwort.getStatus() == ServerAntwortStatus.OK) {
+			return antwort.getInhalt();
+		}
+		if(antwort.getStatus() == ServerAntwortStatus.FEHLER) {
+			throw new IllegaleSpielerAktionException(antwort.getNachricht());
+		}
+		throw new IllegalStateException(antwort.getStatus() + ": " + antwort.getNachricht());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Wartet auf das Ergebnis einer asynchronen Methode.
+	 * Eine RuntimeException, mit der das Future fehlgeschlagen ist, wird unverändert geworfen.
+	 * 
+	 * </pre>
+	 */
+	private static <T> T warten(CompletableFuture<T> ergebnis) {
+		try {
+			return ergebnis.join();
+		} catch(CompletionException ausnahme) {
+			if(ausnahme.getCause() instanceof RuntimeException grund) {
+				throw grund;
+			}
+			throw ausnahme;
+		}
+	}
+	
+	@Override
+	public void close() {
+		verbindung.close();
+	}
+	
+	// ******************************************************************************************
+	// **** Start Gemerkter SpielZustand
+	// ******************************************************************************************
+	
+	/**
+	 * <pre>
+	 * 
+	 * Markiert die gemerkte Kopie als veraltet, wenn die Benachrichtigung eine neuere Version meldet.
+	 * Kann direkt als Beobachter eines {@link BenachrichtigungsLauscher} benutzt werden.
+	 * 
+	 * </pre>
+	 */
 	@Override
-	public Set<Long> getSpielZustaendeSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+	public void benachrichtigen(SpielZustandGeaendert benachrichtigung) {
+		CompletableFuture<Long> schluessel = sitzungsSchluessel.get();
+		if(schluessel != null && schluessel.isDone() && !schluessel.isCompletedExceptionally()
+				&& schluessel.join() != benachrichtigung.getSpielZustandSchluessel()) {
+			return;
+		}
+		bekannteVersion.accumulateAndGet(benachrichtigung.getAenderungsNummer(), Math::max);
 	}
-
+	
+	/**
+	 * <pre>
+	 * 
+	 * Mit Benachrichtigungen kann das Intervall lang sein, ohne müssen Änderungen anderer Spieler
+	 * über die Prüfung gefunden werden.
+	 * 
+	 * @param pruefIntervallMillis so lange wird die gemerkte Kopie ohne Benachrichtigung gelesen,
+	 * 		bevor ihre Version geprüft wird; 0 prüft vor jedem Lese-Zugriff
+	 * @return this
+	 * @throws IllegalArgumentException wenn das Intervall negativ ist
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenDaoMitServer setPruefIntervallMillis(long pruefIntervallMillis) {
+		if(pruefIntervallMillis < 0) {
+			throw new IllegalArgumentException("das Prüf-Intervall darf nicht negativ sein: " + pruefIntervallMillis);
+		}
+		this.pruefIntervallNanos = pruefIntervallMillis > Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : pruefIntervallMillis * 1_000_000;
+		return this;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Eine kurze Frist senkt die Wartezeit, wenn einzelne Antworten hängen bleiben:
+	 * weil der Server jede Spiel-Aktion nur einmal ausführt, darf sie beliebig oft geschickt werden.
+	 * Eine Spiel-Aktion wird höchstens {@link #MAX_AKTIONS_VERSUCHE} Mal geschickt.
+	 * 
+	 * @param antwortFristMillis nach so vielen Millisekunden ohne Antwort wird eine Spiel-Aktion noch einmal geschickt,
+	 * 		0 für nie (der Standard)
+	 * @return this
+	 * @throws IllegalArgumentException wenn die Frist negativ ist
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenDaoMitServer setAntwortFristMillis(long antwortFristMillis) {
+		if(antwortFristMillis < 0) {
+			throw new IllegalArgumentException("die Antwort-Frist darf nicht negativ sein: " + antwortFristMillis);
+		}
+		this.antwortFristMillis = antwortFristMillis;
+		return this;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Spiel-Aktionen, die nach abgelaufener Antwort-Frist noch einmal geschickt wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlWiederholungen() {
+		return anzahlWiederholungen.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Lese-Zugriffe, die ohne Request aus der gemerkten Kopie beantwortet wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlTreffer() {
+		return anzahlTreffer.get();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der AENDERUNGEN_INFO Requests, mit denen die gemerkte Kopie geprüft oder aktualisiert wurde
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlAktualisierungen() {
+		return anzahlAktualisierungen.get();
+	}
+	
+	private CompletableFuture<SpielZustand> getGemerkterSpielZustand() {
+		GemerkterSpielZustand zustand = gemerkt;
+		if(zustand != null && zustand.version >= bekannteVersion.get() && System.nanoTime() - zustand.geprueftNanos < pruefIntervallNanos) {
+			anzahlTreffer.incrementAndGet();
+			return CompletableFuture.completedFuture(zustand.spielZustand);
+		}
+		return aktualisieren().thenApply(aktuell -> aktuell.spielZustand);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Startet eine Aktualisierung der gemerkten Kopie oder schließt sich der laufenden an.
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<GemerkterSpielZustand> aktualisieren() {
+		while(true) {
+			CompletableFuture<GemerkterSpielZustand> laufend = aktualisierung.get();
+			if(laufend != null) {
+				return laufend;
+			}
+			CompletableFuture<GemerkterSpielZustand> neu = new CompletableFuture<>();
+			if(!aktualisierung.compareAndSet(null, neu)) {
+				continue;
+			}
+			GemerkterSpielZustand alt = gemerkt;
+			holenAenderungen(alt == null ? SpielZustandDelta.KEINE_VERSION : alt.version)
+					.thenCompose(delta -> {
+						GemerkterSpielZustand aktuell = uebernehmen(alt, delta);
+						// reicht das Delta nicht, wird der ganze SpielZustand geholt
+						return aktuell != null
+								? CompletableFuture.completedFuture(aktuell)
+								: holenAenderungen(SpielZustandDelta.KEINE_VERSION).thenApply(vollstaendig -> uebernehmen(null, vollstaendig));
+					})
+					.whenComplete((aktuell, ausnahme) -> {
+						if(aktuell != null) {
+							gemerkt = aktuell;
+						}
+						// eine Änderung ab hier startet eine neue Aktualisierung
+						aktualisierung.set(null);
+						if(ausnahme != null) {
+							neu.completeExceptionally(ausnahme);
+						} else {
+							neu.complete(aktuell);
+						}
+					});
+			return neu;
+		}
+	}
+	
+	private CompletableFuture<SpielZustandDelta> holenAenderungen(long version) {
+		anzahlAktualisierungen.incrementAndGet();
+		return getEigenerSpielZustandSchluesselAsynchron()
+				.thenCompose(schluessel -> senden(ClientRequest.erstellenAenderungenClientRequest(schluessel, spielerSchluessel, geheimnis, version)))
+				.thenApply(inhalt -> (SpielZustandDelta)inhalt);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param alt die bisher gemerkte Kopie oder null
+	 * @param delta die Änderungen seit der Version der Kopie
+	 * @return die neue gemerkte Kopie, oder null, wenn das Delta nicht auf die Kopie angewendet werden kann
+	 * 
+	 * </pre>
+	 */
+	private static GemerkterSpielZustand uebernehmen(GemerkterSpielZustand alt, SpielZustandDelta delta) {
+		if(delta.isVollstaendig()) {
+			return new GemerkterSpielZustand(delta.getVersion(), delta.getSpielZustand());
+		}
+		if(alt == null) {
+			return null;
+		}
+		if(delta.getVersion() == alt.version) {
+			return new GemerkterSpielZustand(alt.version, alt.spielZustand);
+		}
+		SpielZustand kopie = kopieren(alt.spielZustand);
+		return anwenden(kopie, delta) ? new GemerkterSpielZustand(delta.getVersion(), kopie) : null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Überträgt die Figuren und den aktiven Spieler des Deltas auf die Kopie.
+	 * Hat sich die Liste der Gewinner geändert, gehört auch das Spiel-Ende dazu,
+	 * das nicht im Delta steht: dann wird der ganze SpielZustand gebraucht.
+	 * 
+	 * @return false, wenn das Delta nicht angewendet werden kann
+	 * 
+	 * </pre>
+	 */
+	private static boolean anwenden(SpielZustand kopie, SpielZustandDelta delta) {
+		List<Long> gewinnerSchluessel = kopie.getGewinnerListe().stream().map(Spieler::getSchluessel).collect(Collectors.toList());
+		if(!gewinnerSchluessel.equals(delta.getGewinnerSchluessel())) {
+			return false;
+		}
+		Map<Long, Figur> figuren = new HashMap<>();
+		for(Figur figur : kopie.getFigurenMenge()) {
+			figuren.put(figur.getSchluessel(), figur);
+		}
+		for(FigurPosition position : delta.getGeaenderteFiguren()) {
+			Figur figur = figuren.get(position.getFigurSchluessel());
+			if(figur == null) {
+				return false;
+			}
+			figur.setSpielFeld(position.getSpielFeld());
+		}
+		AktiverSpielerDekorator aktiverSpieler = kopie.getAktiverSpieler();
+		if(!Objects.equals(aktiverSpieler.getDerSpieler().getSchluessel(), delta.getAktiverSpielerSchluessel())) {
+			Spieler naechster = finden(kopie.getSpielerMenge(), delta.getAktiverSpielerSchluessel());
+			if(naechster == null) {
+				return false;
+			}
+			aktiverSpieler.naechsterAktiverSpieler(naechster);
+		}
+		aktiverSpieler.setTodoAktion(delta.getTodoAktion());
+		if(aktiverSpieler.getWuerfelErgebnis() != delta.getWuerfelErgebnis()) {
+			aktiverSpieler.setWuerfelErgebnis(delta.getWuerfelErgebnis());
+		}
+		return true;
+	}
+	
+	private static SpielZustand kopieren(SpielZustand original) {
+		try {
+			ByteArrayOutputStream puffer = new ByteArrayOutputStream();
+			try(ObjectOutputStream objektSchreiber = new ObjectOutputStream(puffer)) {
+				objektSchreiber.writeObject(original);
+			}
+			try(ObjectInputStream objektLeser = new ObjectInputStream(new ByteArrayInputStream(puffer.toByteArray()))) {
+				return (SpielZustand)objektLeser.readObject();
+			}
+		} catch(IOException ausnahme) {
+			throw new UncheckedIOException(ausnahme);
+		} catch(ClassNotFoundException ausnahme) {
+			throw new IllegalStateException(ausnahme);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nach einer eigenen Spiel-Aktion, die das Spiel geändert hat, ist die gemerkte Kopie veraltet.
+	 * 
+	 * </pre>
+	 */
+	private void veraltet() {
+		GemerkterSpielZustand zustand = gemerkt;
+		if(zustand != null) {
+			bekannteVersion.accumulateAndGet(zustand.version + 1, Math::max);
+		}
+	}
+	
+	// ******************************************************************************************
+	// **** Start Spiel-Aktionen
+	// ******************************************************************************************
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public CompletableFuture<List<SpielZug>> getMoeglicheSpielZuegeAsynchron() {
+		return sendenInSitzung(ClientRequestInfo.MOEGLICHE_ZUEGE_INFO).thenApply(inhalt -> (List<SpielZug>)inhalt);
+	}
+	
+	@Override
+	public CompletableFuture<WuerfelErgebnis> wuerfelnAsynchron() {
+		return sendenSpielAktionInSitzung(ClientRequestInfo.WUERFELN).thenApply(inhalt -> {
+			veraltet();
+			return (WuerfelErgebnis)inhalt;
+		});
+	}
+	
+	@Override
+	public CompletableFuture<Void> ziehenAsynchron(long figurSchluessel) {
+		return getEigenerSpielZustandSchluesselAsynchron()
+				.thenCompose(schluessel -> sendenSpielAktion(ClientRequest.erstellenZiehenClientRequest(schluessel, spielerSchluessel, geheimnis, figurSchluessel)))
+				.thenApply(inhalt -> {
+					veraltet();
+					return null;
+				});
+	}
+	
+	@Override
+	public CompletableFuture<Void> naechsterSpielerAsynchron() {
+		return sendenSpielAktionInSitzung(ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER).thenApply(inhalt -> {
+			veraltet();
+			return null;
+		});
+	}
+	
+	@Override
+	public CompletableFuture<WarteErgebnis> warteAufZugAsynchron(long wartezeitMillis) {
+		return getEigenerSpielZustandSchluesselAsynchron()
+				.thenCompose(schluessel -> senden(ClientRequest.erstellenWarteAufZugClientRequest(schluessel, spielerSchluessel, geheimnis, wartezeitMillis)))
+				.thenApply(inhalt -> (WarteErgebnis)inhalt);
+	}
+	
+	// ******************************************************************************************
+	// **** Start Asynchrones Lesen
+	// ******************************************************************************************
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ist die gemerkte Kopie aktuell, ist das Ergebnis sofort fertig.
+	 * 
+	 * @param auswahl bestimmt aus dem SpielZustand das Ergebnis
+	 * 
+	 * </pre>
+	 */
+	private <T> CompletableFuture<T> lesen(Function<SpielZustand, T> auswahl) {
+		return getGemerkterSpielZustand().thenApply(auswahl);
+	}
+	
 	@Override
-	public Set<SpielZustand> getSpielZustaendeMenge() {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Long>> getSpielZustaendeSchluesselAsynchron() {
+		return getEigenerSpielZustandSchluesselAsynchron().thenApply(schluessel -> Set.of(schluessel));
 	}
 
 	@Override
-	public SpielZustand getSpielZustand(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<SpielZustand>> getSpielZustaendeMengeAsynchron() {
+		return lesen(spielZustand -> Set.of(spielZustand));
 	}
 
+	/**
+	 * <pre>
+	 * 
+	 * @return der SpielZustand, null, wenn es nicht der SpielZustand der Sitzung des Spielers ist
+	 * 
+	 * </pre>
+	 */
 	@Override
-	public void hinzufuegenSpielZustand(SpielZustand spielZustand) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<SpielZustand> getSpielZustandAsynchron(long schluessel) {
+		return lesen(spielZustand -> finden(Set.of(spielZustand), schluessel));
 	}
 
 	@Override
-	public void updateSpielZustand(SpielZustand spielZustand) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<Long>> getAktiveSpielerSchluesselAsynchron() {
+		return getAktiveSpielerMengeAsynchron().thenApply(RundenLaufMitHerausschlagenDaoMitServer::getAlleSchluessel);
 	}
 
 	@Override
-	public void loeschenSpielZustand(long schluessel) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<AktiverSpielerDekorator>> getAktiveSpielerMengeAsynchron() {
+		return lesen(spielZustand -> spielZustand.getAktiverSpieler() == null ? Set.of() : Set.of(spielZustand.getAktiverSpieler()));
 	}
 
 	@Override
-	public void loeschenSpielZustand(SpielZustand zuLoeschen) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<AktiverSpielerDekorator> getAktiverSpielerAsynchron(long schluessel) {
+		return getAktiveSpielerMengeAsynchron().thenApply(menge -> finden(menge, schluessel));
 	}
 
 	@Override
-	public Set<Long> getAktiveSpielerSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Long>> getSpielerSchluesselAsynchron() {
+		return getSpielerMengeAsynchron().thenApply(RundenLaufMitHerausschlagenDaoMitServer::getAlleSchluessel);
 	}
 
 	@Override
-	public Set<AktiverSpielerDekorator> getAktiveSpielerMenge() {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Spieler>> getSpielerMengeAsynchron() {
+		return lesen(SpielZustand::getSpielerMenge);
 	}
 
 	@Override
-	public AktiverSpielerDekorator getAktiverSpieler(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Spieler>> getSpielerMengeBySpielZustandSchluesselAsynchron(long spielZustandSchluessel) {
+		return getSpielZustandAsynchron(spielZustandSchluessel)
+				.thenApply(spielZustand -> spielZustand == null ? Set.of() : spielZustand.getSpielerMenge());
 	}
 
 	@Override
-	public void hinzufuegenAktiverSpieler(AktiverSpielerDekorator aktiverSpieler) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Spieler> getSpielerAsynchron(long schluessel) {
+		return getSpielerMengeAsynchron().thenApply(menge -> finden(menge, schluessel));
 	}
 
 	@Override
-	public void updateAktiverSpieler(AktiverSpielerDekorator aktiverSpieler) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<Long>> getFarbenSchluesselAsynchron() {
+		return getFarbenMengeAsynchron().thenApply(RundenLaufMitHerausschlagenDaoMitServer::getAlleSchluessel);
 	}
 
+	/**
+	 * <pre>
+	 * 
+	 * @return die Farben der Spieler der Sitzung
+	 * 
+	 * </pre>
+	 */
 	@Override
-	public void loeschenAktiverSpieler(long schluessel) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<Farbe>> getFarbenMengeAsynchron() {
+		return lesen(spielZustand -> spielZustand.getSpielerMenge().stream()
+				.map(Spieler::getFarbe)
+				.collect(Collectors.toSet())
+		);
 	}
 
 	@Override
-	public void loeschenAktiverSpieler(AktiverSpielerDekorator zuLoeschen) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Farbe> getFarbeAsynchron(long schluessel) {
+		return getFarbenMengeAsynchron().thenApply(menge -> finden(menge, schluessel));
 	}
 
 	@Override
-	public Set<Long> getSpielerSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Long>> getFigurenSchluesselAsynchron() {
+		return getFigurenMengeAsynchron().thenApply(RundenLaufMitHerausschlagenDaoMitServer::getAlleSchluessel);
 	}
 
 	@Override
-	public Set<Spieler> getSpielerMenge() {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Figur>> getFigurenMengeAsynchron() {
+		return lesen(SpielZustand::getFigurenMenge);
 	}
 
 	@Override
-	public Set<Spieler> getSpielerMengeBySpielZustandSchluessel(long spielZustandSchluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Figur>> getFigurenMengeBySpielerSchluesselAsynchron(long spielerSchluessel) {
+		return getSpielerAsynchron(spielerSchluessel)
+				.thenApply(spieler -> spieler == null ? Set.of() : spieler.getFigurenMenge());
 	}
 
 	@Override
-	public Spieler getSpieler(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public CompletableFuture<Set<Figur>> getFigurenMengeBySpielZustandSchluesselAsynchron(long spielZustandSchluessel) {
+		return getSpielZustandAsynchron(spielZustandSchluessel)
+				.thenApply(spielZustand -> spielZustand == null ? Set.of() : spielZustand.getFigurenMenge());
 	}
 
 	@Override
-	public void hinzufuegenSpieler(Spieler spieler) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Figur> getFigurAsynchron(long schluessel) {
+		return getFigurenMengeAsynchron().thenApply(menge -> finden(menge, schluessel));
 	}
 
 	@Override
-	public void updateSpieler(Spieler spieler) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<Long>> getSpielFelderSchluesselAsynchron() {
+		return getSpielFelderMengeAsynchron().thenApply(RundenLaufMitHerausschlagenDaoMitServer::getAlleSchluessel);
 	}
 
+	/**
+	 * <pre>
+	 * 
+	 * Der SpielZustand enthält keine eigene Liste der SpielFelder.
+	 * 
+	 * @return die SpielFelder, auf denen eine Figur steht,
+	 * 		und die Start- und End-StreckenFelder der Spieler
+	 * 
+	 * </pre>
+	 */
 	@Override
-	public void loeschenSpieler(long schluessel) {
-		// TODO Auto-generated method stub
-		
+	public CompletableFuture<Set<SpielFeld>> getSpielFelderMengeAsynchron() {
+		return lesen(spielZustand -> {
+			Set<SpielFeld> spielFelder = new HashSet<>();
+			for(Figur figur : spielZustand.getFigurenMenge()) {
+				spielFelder.add(figur.getSpielFeld());
+			}
+			for(Spieler spieler : spielZustand.getSpielerMenge()) {
+				spielFelder.add(spieler.getStartStreckenFeld());
+				spielFelder.add(spieler.getEndStreckenFeld());
+			}
+			spielFelder.remove(null);
+			return spielFelder;
+		});
+	}
+
+	@Override
+	public CompletableFuture<SpielFeld> getSpielFeldAsynchron(long schluessel) {
+		return getSpielFelderMengeAsynchron().thenApply(menge -> finden(menge, schluessel));
+	}
+	
+	private static <T extends DatenbankElement> T finden(Collection<T> datenbankElementMenge, long schluessel) {
+		return datenbankElementMenge.stream()
+				.filter(element -> element.getSchluessel() != null && element.getSchluessel() == schluessel)
+				.findAny()
+				.orElse(null);
+	}
+	
+	private static <T extends DatenbankElement> Set<Long> getAlleSchluessel(Set<T> datenbankElementMenge) {
+		return datenbankElementMenge.stream()
+				.map(element -> element.getSchluessel())
+				.filter(s -> s != null)
+				.collect(Collectors.toSet());
+	}
+	
+	// ******************************************************************************************
+	// **** Start Access data
+	// ******************************************************************************************
+
+	@Override
+	public Set<Long> getSpielZustaendeSchluessel() {
+		return warten(getSpielZustaendeSchluesselAsynchron());
 	}
 
 	@Override
-	public void loeschenSpieler(Spieler zuLoeschen) {
-		// TODO Auto-generated method stub
-		
+	public Set<SpielZustand> getSpielZustaendeMenge() {
+		return warten(getSpielZustaendeMengeAsynchron());
 	}
 
 	@Override
-	public Set<Long> getFarbenSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+	public SpielZustand getSpielZustand(long schluessel) {
+		return warten(getSpielZustandAsynchron(schluessel));
 	}
 
+
+
+
+
 	@Override
-	public Set<Farbe> getFarbenMenge() {
-		// TODO Auto-generated method stub
-		return null;
+	public Set<Long> getAktiveSpielerSchluessel() {
+		return warten(getAktiveSpielerSchluesselAsynchron());
 	}
 
 	@Override
-	public Farbe getFarbe(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public Set<AktiverSpielerDekorator> getAktiveSpielerMenge() {
+		return warten(getAktiveSpielerMengeAsynchron());
 	}
 
 	@Override
-	public void hinzufuegenFarbe(Farbe farbe) {
-		// TODO Auto-generated method stub
-		
+	public AktiverSpielerDekorator getAktiverSpieler(long schluessel) {
+		return warten(getAktiverSpielerAsynchron(schluessel));
 	}
 
+
+
+
+
 	@Override
-	public void updateFarbe(Farbe farbe) {
-		// TODO Auto-generated method stub
-		
+	public Set<Long> getSpielerSchluessel() {
+		return warten(getSpielerSchluesselAsynchron());
 	}
 
 	@Override
-	public void loeschenFarbe(long schluessel) {
-		// TODO Auto-generated method stub
-		
+	public Set<Spieler> getSpielerMenge() {
+		return warten(getSpielerMengeAsynchron());
 	}
 
 	@Override
-	public void loeschenFarbe(Farbe zuLoeschen) {
-		// TODO Auto-generated method stub
-		
+	public Set<Spieler> getSpielerMengeBySpielZustandSchluessel(long spielZustandSchluessel) {
+		return warten(getSpielerMengeBySpielZustandSchluesselAsynchron(spielZustandSchluessel));
 	}
 
 	@Override
-	public Set<Long> getFigurenSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+	public Spieler getSpieler(long schluessel) {
+		return warten(getSpielerAsynchron(schluessel));
 	}
 
+
+
+
+
 	@Override
-	public Set<Figur> getFigurenMenge() {
-		// TODO Auto-generated method stub
-		return null;
+	public Set<Long> getFarbenSchluessel() {
+		return warten(getFarbenSchluesselAsynchron());
 	}
 
 	@Override
-	public Set<Figur> getFigurenMengeBySpielerSchluessel(long spielerSchluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public Set<Farbe> getFarbenMenge() {
+		return warten(getFarbenMengeAsynchron());
 	}
 
 	@Override
-	public Set<Figur> getFigurenMengeBySpielZustandSchluessel(long spielZustandSchluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public Farbe getFarbe(long schluessel) {
+		return warten(getFarbeAsynchron(schluessel));
 	}
 
+
+
+
+
 	@Override
-	public Figur getFigur(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+	public Set<Long> getFigurenSchluessel() {
+		return warten(getFigurenSchluesselAsynchron());
 	}
 
 	@Override
-	public void hinzufuegenFigur(Figur figur) {
-		// TODO Auto-generated method stub
-		
+	public Set<Figur> getFigurenMenge() {
+		return warten(getFigurenMengeAsynchron());
 	}
 
 	@Override
-	public void updateFigur(Figur figur) {
-		// TODO Auto-generated method stub
-		
+	public Set<Figur> getFigurenMengeBySpielerSchluessel(long spielerSchluessel) {
+		return warten(getFigurenMengeBySpielerSchluesselAsynchron(spielerSchluessel));
 	}
 
 	@Override
-	public void loeschenFigur(long schluessel) {
-		// TODO Auto-generated method stub
-		
+	public Set<Figur> getFigurenMengeBySpielZustandSchluessel(long spielZustandSchluessel) {
+		return warten(getFigurenMengeBySpielZustandSchluesselAsynchron(spielZustandSchluessel));
 	}
 
 	@Override
-	public void loeschenFigur(Figur zuLoeschen) {
-		// TODO Auto-generated method stub
-		
+	public Figur getFigur(long schluessel) {
+		return warten(getFigurAsynchron(schluessel));
 	}
 
+
+
+
+
 	@Override
 	public Set<Long> getSpielFelderSchluessel() {
-		// TODO Auto-generated method stub
-		return null;
+		return warten(getSpielFelderSchluesselAsynchron());
 	}
 
 	@Override
 	public Set<SpielFeld> getSpielFelderMenge() {
-		// TODO Auto-generated method stub
-		return null;
+		return warten(getSpielFelderMengeAsynchron());
 	}
 
 	@Override
 	public SpielFeld getSpielFeld(long schluessel) {
-		// TODO Auto-generated method stub
-		return null;
+		return warten(getSpielFeldAsynchron(schluessel));
 	}
 
-	@Override
-	public void hinzufuegenSpielFeld(SpielFeld spielFeld) {
-		// TODO Auto-generated method stub
-		
-	}
 
-	@Override
-	public void updateSpielFeld(SpielFeld spielFeld) {
-		// TODO Auto-generated method stub
-		
-	}
 
-	@Override
-	public void loeschenSpielFeld(long schluessel) {
-		// TODO Auto-generated method stub
-		
-	}
 
-	@Override
-	public void loeschenSpielFeld(SpielFeld zuLoeschen) {
-		// TODO Auto-generated method stub
+	
+	/**
+	 * <pre>
+	 * 
+	 * Eine Kopie des SpielZustands mit ihrer Version und dem Zeitpunkt,
+	 * zu dem sie zuletzt mit dem Server verglichen wurde.
+	 * 
+	 * </pre>
+	 */
+	private static class GemerkterSpielZustand {
+		private final long version;
 		
+		private final SpielZustand spielZustand;
+		
+		private final long geprueftNanos = System.nanoTime();
+		
+		private GemerkterSpielZustand(long version, SpielZustand spielZustand) {
+			this.version = version;
+			this.spielZustand = spielZustand;
+		}
 	}
-
 }
@@ -23,16 +23,167 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server;
 
-import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenLeseDao;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
 
 /**
  * <pre>
  * 
+ * Der Backend-Zugriff eines Clients über den Spiel-Server.
+ * 
+ * Zu jedem lesenden Zugriff gibt es eine asynchrone Variante, die sofort zurückkehrt.
+ * Geändert wird das Spiel nur über die Spiel-Aktionen, die es ebenfalls nur asynchron gibt:
+ * der Server prüft jede Aktion, bevor er sie ausführt. Die schreibenden Methoden der
+ * RundenLaufMitHerausschlagenDao gibt es deshalb nicht, der Compiler lehnt sie ab.
+ * 
+ * Die asynchronen Methoden blockieren nie, ein UI Thread darf sie deshalb aufrufen.
+ * Fehlgeschlagene Futures tragen die Ausnahme, die die synchrone Variante werfen würde.
  * 
  * @author Christian Alexander Wiesenäcker
  * 
  * </pre>
  */
-public interface RundenLaufMitHerausschlagenMitServerDao extends RundenLaufMitHerausschlagenDao {
-
+public interface RundenLaufMitHerausschlagenMitServerDao extends RundenLaufMitHerausschlagenLeseDao, Closeable {
+	// ******************************************************************************************
+	// **** Start Asynchrones Lesen
+	// ******************************************************************************************
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Schlüssel des SpielZustands, für den der Spieler registriert ist
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<Long> getEigenerSpielZustandSchluesselAsynchron();
+	
+	CompletableFuture<Set<Long>> getSpielZustaendeSchluesselAsynchron();
+	
+	CompletableFuture<Set<SpielZustand>> getSpielZustaendeMengeAsynchron();
+	
+	CompletableFuture<SpielZustand> getSpielZustandAsynchron(long schluessel);
+	
+	CompletableFuture<Set<Long>> getAktiveSpielerSchluesselAsynchron();
+	
+	CompletableFuture<Set<AktiverSpielerDekorator>> getAktiveSpielerMengeAsynchron();
+	
+	CompletableFuture<AktiverSpielerDekorator> getAktiverSpielerAsynchron(long schluessel);
+	
+	CompletableFuture<Set<Long>> getSpielerSchluesselAsynchron();
+	
+	CompletableFuture<Set<Spieler>> getSpielerMengeAsynchron();
+	
+	CompletableFuture<Set<Spieler>> getSpielerMengeBySpielZustandSchluesselAsynchron(long spielZustandSchluessel);
+	
+	CompletableFuture<Spieler> getSpielerAsynchron(long schluessel);
+	
+	CompletableFuture<Set<Long>> getFarbenSchluesselAsynchron();
+	
+	CompletableFuture<Set<Farbe>> getFarbenMengeAsynchron();
+	
+	CompletableFuture<Farbe> getFarbeAsynchron(long schluessel);
+	
+	CompletableFuture<Set<Long>> getFigurenSchluesselAsynchron();
+	
+	CompletableFuture<Set<Figur>> getFigurenMengeAsynchron();
+	
+	CompletableFuture<Set<Figur>> getFigurenMengeBySpielerSchluesselAsynchron(long spielerSchluessel);
+	
+	CompletableFuture<Set<Figur>> getFigurenMengeBySpielZustandSchluesselAsynchron(long spielZustandSchluessel);
+	
+	CompletableFuture<Figur> getFigurAsynchron(long schluessel);
+	
+	CompletableFuture<Set<Long>> getSpielFelderSchluesselAsynchron();
+	
+	CompletableFuture<Set<SpielFeld>> getSpielFelderMengeAsynchron();
+	
+	CompletableFuture<SpielFeld> getSpielFeldAsynchron(long schluessel);
+	
+	// ******************************************************************************************
+	// **** Start Spiel-Aktionen
+	// ******************************************************************************************
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Spielzüge, die der Spieler mit seinem Würfel-Ergebnis machen kann,
+	 * 		leer, wenn er nicht ziehen muss
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<List<SpielZug>> getMoeglicheSpielZuegeAsynchron();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return das Würfel-Ergebnis des Spielers
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<WuerfelErgebnis> wuerfelnAsynchron();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param figurSchluessel die Figur, die gezogen wird
+	 * @return fertig, sobald der Server den Zug ausgeführt hat
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<Void> ziehenAsynchron(long figurSchluessel);
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return fertig, sobald der nächste Spieler dran ist
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<Void> naechsterSpielerAsynchron();
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param wartezeitMillis so lange wartet der Server höchstens
+	 * @return ob der Spieler dran ist, das Spiel fertig ist oder die Wartezeit abgelaufen ist
+	 * 
+	 * </pre>
+	 */
+	CompletableFuture<WarteErgebnis> warteAufZugAsynchron(long wartezeitMillis);
+	
+	/**
+	 * <pre>
+	 * 
+	 * Nimmt eine Benachrichtigung des Servers entgegen, damit gemerkte Daten
+	 * einer älteren Version nicht mehr gelesen werden.
+	 * 
+	 * @param benachrichtigung die Benachrichtigung über eine Änderung
+	 * 
+	 * </pre>
+	 */
+	void benachrichtigen(SpielZustandGeaendert benachrichtigung);
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schließt die Verbindung zum Server.
+	 * 
+	 * </pre>
+	 */
+	@Override
+	void close();
 }
@@ -0,0 +1,794 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.LastBegrenzer.Grenze;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.PushKanal;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ZeitRad;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag;
+
+/**
+ * <pre>
+ * 
+ * Eine dauerhafte Verbindung eines Clients zum Spiel-Server.
+ * 
+ * Über eine Verbindung laufen beliebig viele Requests:
+ * - {@link #senden(ClientRequest)} vergibt eine neue Anfrage-Id, schreibt den Rahmen
+ *   und kehrt sofort zurück, ohne auf die Antwort zu warten
+ * - ein Lese-Thread liest die Antworten und schließt über die Anfrage-Id
+ *   das passende CompletableFuture ab, egal in welcher Reihenfolge die Antworten kommen
+ * 
+ * So kostet ein Request nur noch einen Weg über das Netzwerk,
+ * ohne Verbindungsaufbau und ohne neuen Objekt-Strom.
+ * 
+ * Weist der Server einen Request wegen Überlast ab (Status UEBERLASTET), wurde er nicht ausgeführt:
+ * {@link #senden(ClientRequest)} schickt ihn nach der vom Server genannten Wartezeit noch einmal.
+ * Ein wiederholter Request kann dabei hinter später geschickte Requests geraten.
+ * 
+ * Nachrichten, die der Server von sich aus schickt (Anfrage-Id {@link NachrichtenRahmen#BENACHRICHTIGUNGS_ID}),
+ * z.B. die SpielZustände für einen Zuschauer, gibt der Lese-Thread an den Push-Empfänger.
+ * 
+ * Ist eine Sitzung auf einen anderen Server umgezogen (Status UMGELEITET), folgt die Verbindung ihr:
+ * der Request geht noch einmal an den Ziel-Server, alle späteren Requests für die Sitzung gleich dorthin.
+ * Schickt der Server einem Zuschauer die Umleitung, meldet die Verbindung ihre Zuschauer noch einmal an,
+ * die Antworten darauf bekommt der Push-Empfänger.
+ * 
+ * Hat die Verbindung eine Weile nichts geschickt, schickt sie einen HERZSCHLAG Request,
+ * damit der Server sie nicht wegen Leerlaufs schließt. Die Herzschläge aller Verbindungen
+ * plant ein gemeinsames {@link ZeitRad}, je Verbindung mit einer einzigen Frist.
+ * 
+ * Beginnt der Host mit {@value #UNIX_SOCKET_PRAEFIX}, ist der Rest der Pfad eines Unix Domain Sockets
+ * des Servers auf demselben Rechner und der Port wird nicht gebraucht.
+ * 
+ * Läuft der Server in derselben JVM, z.B. für Bots und Tests, gibt eine Verbindung im Prozess
+ * ({@link #ServerVerbindung(RundenLaufMitHerausschlagenServer)}) die Requests direkt an den Server,
+ * ohne Socket, ohne Kodierung und ohne Lese-Thread. Die Antworten sind dann die Objekte des Servers,
+ * ein vollständiger SpielZustand ist der geteilte Schnappschuss der Sitzung und darf nicht verändert werden.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ServerVerbindung implements Closeable {
+	/**
+	 * so oft wird ein wegen Überlast abgewiesener Request höchstens geschickt
+	 */
+	public static final int MAX_UEBERLAST_VERSUCHE = 100;
+	
+	/**
+	 * nach so vielen Millisekunden ohne Request schickt eine Verbindung standardmäßig einen Herzschlag,
+	 * deutlich kürzer als {@link ServerEinstellungen#STANDARD_LEERLAUF_MILLIS}
+	 */
+	public static final long STANDARD_HERZSCHLAG_MILLIS = 10_000;
+	
+	/**
+	 * ein Host, der damit beginnt, ist der Pfad eines Unix Domain Sockets
+	 */
+	public static final String UNIX_SOCKET_PRAEFIX = "unix:";
+	
+	private static final ClientRequest HERZSCHLAG = ClientRequest.erstellenHerzschlagClientRequest();
+	
+	/**
+	 * das Rad für die Herzschläge aller Verbindungen
+	 */
+	private static final ZeitRad HERZSCHLAG_RAD = new ZeitRad("server-verbindung-herzschlag", 100, 256);
+	
+	/**
+	 * der Socket oder der Kanal des Unix Domain Sockets zum Server, null im Prozess
+	 */
+	private final Closeable kanal;
+	
+	private final DataOutputStream ausgabe;
+	
+	private final DataInputStream eingabe;
+	
+	/**
+	 * der Server in derselben JVM, an den die Requests direkt gehen, sonst null
+	 */
+	private final RundenLaufMitHerausschlagenServer imProzessServer;
+	
+	/**
+	 * der Push-Kanal, über den der Server im Prozess Nachrichten direkt an den Push-Empfänger gibt, sonst null
+	 */
+	private final PushKanal imProzessKanal;
+	
+	/**
+	 * die nächste freie Anfrage-Id
+	 */
+	private final AtomicLong naechsteAnfrageId = new AtomicLong(1);
+	
+	/**
+	 * die Requests, deren Antwort noch aussteht, nach ihrer Anfrage-Id
+	 */
+	private final Map<Long, CompletableFuture<ServerAntwort>> ausstehendeAntworten = new ConcurrentHashMap<>();
+	
+	/**
+	 * das Format, in dem die Requests kodiert werden, der Server antwortet im selben Format
+	 */
+	private final NachrichtenFormat format;
+	
+	/**
+	 * bekommt die Nachrichten, die der Server von sich aus schickt, oder null
+	 */
+	private volatile Consumer<ServerAntwort> pushEmpfaenger;
+	
+	/**
+	 * die Verbindungen zu den Servern, auf die Sitzungen umgezogen sind, nach "host:port"
+	 */
+	private final Map<String, ServerVerbindung> zielVerbindungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Verbindung zum Ziel-Server jeder umgezogenen Sitzung, nach dem Schlüssel ihres SpielZustands.
+	 * 
+	 * Ein Eintrag wird vergessen, sobald seine Verbindung geschlossen ist oder der Ziel-Server die Sitzung nicht mehr kennt.
+	 * 
+	 * </pre>
+	 */
+	private final Map<Long, ServerVerbindung> umgezogeneSitzungen = new ConcurrentHashMap<>();
+	
+	/**
+	 * die ZUSCHAUEN Requests über diese Verbindung, nach dem Schlüssel des Zuschauers
+	 */
+	private final Map<Long, ClientRequest> zuschauAnfragen = new ConcurrentHashMap<>();
+	
+	private volatile boolean geschlossen;
+	
+	/**
+	 * nach so vielen Nanosekunden ohne Request wird ein Herzschlag geschickt, 0 für nie
+	 */
+	private final long herzschlagNanos;
+	
+	/**
+	 * wann zuletzt etwas geschickt wurde, in System.nanoTime()
+	 */
+	private volatile long letzteSendungNanos = System.nanoTime();
+	
+	/**
+	 * die laufende Herzschlag-Frist, oder null
+	 */
+	private volatile ZeitRad.Frist herzschlagFrist;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Verbindet sich mit dem Server im kompakten Binär-Format und startet den Lese-Thread.
+	 * 
+	 * @param serverHost der Host des Servers
+	 * @param serverPort der Port des Servers
+	 * @throws IOException wenn keine Verbindung aufgebaut werden kann
+	 * 
+	 * </pre>
+	 */
+	public ServerVerbindung(String serverHost, int serverPort) throws IOException {
+		this(serverHost, serverPort, NachrichtenFormat.BINAER);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Verbindet sich mit dem Server und startet den Lese-Thread.
+	 * 
+	 * @param serverHost der Host des Servers
+	 * @param serverPort der Port des Servers
+	 * @param format das Format, in dem die Requests kodiert werden
+	 * @throws IOException wenn keine Verbindung aufgebaut werden kann
+	 * 
+	 * </pre>
+	 */
+	public ServerVerbindung(String serverHost, int serverPort, NachrichtenFormat format) throws IOException {
+		this(serverHost, serverPort, format, STANDARD_HERZSCHLAG_MILLIS);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Verbindet sich mit dem Server und startet den Lese-Thread.
+	 * 
+	 * @param serverHost der Host des Servers oder {@value #UNIX_SOCKET_PRAEFIX} und der Pfad eines Unix Domain Sockets
+	 * @param serverPort der Port des Servers
+	 * @param format das Format, in dem die Requests kodiert werden
+	 * @param herzschlagMillis nach so vielen Millisekunden ohne Request wird ein Herzschlag geschickt (0 für nie)
+	 * @throws IOException wenn keine Verbindung aufgebaut werden kann
+	 * 
+	 * </pre>
+	 */
+	public ServerVerbindung(String serverHost, int serverPort, NachrichtenFormat format, long herzschlagMillis) throws IOException {
+		if(herzschlagMillis < 0) {
+			throw new IllegalArgumentException("der Herzschlag darf nicht negativ sein: " + herzschlagMillis);
+		}
+		if(format == null) {
+			throw new NullPointerException("das Format darf nicht null sein");
+		}
+		this.format = format;
+		this.herzschlagNanos = herzschlagMillis * 1_000_000;
+		this.imProzessServer = null;
+		this.imProzessKanal = null;
+		String threadName;
+		if(serverHost.startsWith(UNIX_SOCKET_PRAEFIX)) {
+			String pfad = serverHost.substring(UNIX_SOCKET_PRAEFIX.length());
+			SocketChannel unixKanal = SocketChannel.open(UnixDomainSocketAddress.of(pfad));
+			this.kanal = unixKanal;
+			this.ausgabe = new DataOutputStream(new BufferedOutputStream(new KanalAusgabe(unixKanal)));
+			this.eingabe = new DataInputStream(new BufferedInputStream(new KanalEingabe(unixKanal)));
+			threadName = "server-verbindung-" + pfad;
+		} else {
+			Socket socket = new Socket();
+			this.kanal = socket;
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress(serverHost, serverPort));
+			this.ausgabe = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			this.eingabe = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			threadName = "server-verbindung-" + socket.getLocalPort();
+		}
+		
+		Thread leseThread = new Thread(this::lesen, threadName);
+		leseThread.setDaemon(true);
+		leseThread.start();
+		
+		if(herzschlagNanos > 0) {
+			planenHerzschlag(herzschlagNanos);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Verbindet sich im Prozess mit einem Server in derselben JVM.
+	 * 
+	 * Requests und Antworten werden nicht kodiert, sondern als Objekte übergeben.
+	 * Eine Antwort wird auf dem Thread fertig, der sie auf dem Server fertigstellt, meist dem Thread der Sitzung:
+	 * was an ihr hängt, darf deshalb nicht blockieren, genau wie auf dem Lese-Thread einer Socket-Verbindung.
+	 * Herzschläge braucht die Verbindung nicht, der Server schließt sie nie wegen Leerlaufs.
+	 * Ist eine Sitzung umgezogen, folgt die Verbindung ihr über das Netzwerk.
+	 * 
+	 * @param server der Server, er muss nicht gestartet sein
+	 * 
+	 * </pre>
+	 */
+	public ServerVerbindung(RundenLaufMitHerausschlagenServer server) {
+		if(server == null) {
+			throw new NullPointerException("der Server darf nicht null sein");
+		}
+		this.format = NachrichtenFormat.BINAER;
+		this.herzschlagNanos = 0;
+		this.kanal = null;
+		this.ausgabe = null;
+		this.eingabe = null;
+		this.imProzessServer = server;
+		this.imProzessKanal = new ImProzessPushKanal();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schickt einen Request an den Server, ohne auf die Antwort zu warten.
+	 * Ist der Server überlastet, wird der Request nach der genannten Wartezeit wiederholt,
+	 * nach {@link #MAX_UEBERLAST_VERSUCHE} Versuchen kommt die Antwort mit dem Status UEBERLASTET zurück.
+	 * Ist die Sitzung umgezogen, geht der Request an den Ziel-Server.
+	 * 
+	 * @param anfrage der Request
+	 * @return die Antwort, sobald sie angekommen ist
+	 *         (schlägt mit einer UncheckedIOException fehl, wenn die Verbindung vorher abbricht)
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> senden(ClientRequest anfrage) {
+		ServerVerbindung ziel = umgezogeneSitzungen.get(anfrage.getSpielZustandSchluessel());
+		if(ziel != null && !ziel.isGeschlossen()) {
+			return ziel.senden(anfrage).thenCompose(antwort -> {
+				if(antwort.getStatus() != ServerAntwortStatus.UNBEKANNTE_SITZUNG || geschlossen) {
+					return CompletableFuture.completedFuture(antwort);
+				}
+				// die Sitzung ist beendet oder weiter umgezogen, der ursprüngliche Server weiß mehr
+				umgezogeneSitzungen.remove(anfrage.getSpielZustandSchluessel(), ziel);
+				return senden(anfrage, 1);
+			});
+		}
+		if(ziel != null) {
+			// der Ziel-Server ist nicht mehr erreichbar: der ursprüngliche Server leitet neu um
+			vergessenZiel(ziel);
+		}
+		if(anfrage.getInfo() == ClientRequestInfo.ZUSCHAUEN) {
+			zuschauAnfragen.put(anfrage.getSpielerSchluessel(), anfrage);
+		}
+		return senden(anfrage, 1);
+	}
+	
+	private CompletableFuture<ServerAntwort> senden(ClientRequest anfrage, int versuch) {
+		return sendenOhneWiederholen(anfrage).thenCompose(antwort -> {
+			if(antwort.getStatus() == ServerAntwortStatus.UMGELEITET && !geschlossen) {
+				return folgen(anfrage, antwort);
+			}
+			if(antwort.getStatus() != ServerAntwortStatus.UEBERLASTET || versuch >= MAX_UEBERLAST_VERSUCHE || geschlossen) {
+				return CompletableFuture.completedFuture(antwort);
+			}
+			return CompletableFuture.supplyAsync(
+					() -> senden(anfrage, versuch + 1),
+					CompletableFuture.delayedExecutor(antwort.getWiederholenNachMillis(), TimeUnit.MILLISECONDS)
+			).thenCompose(wiederholt -> wiederholt);
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schickt den Request an den Server, auf den seine Sitzung umgezogen ist,
+	 * und merkt sich diesen Server für alle späteren Requests der Sitzung.
+	 * Die Verbindung wird nicht auf dem Lese-Thread aufgebaut.
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<ServerAntwort> folgen(ClientRequest anfrage, ServerAntwort umleitung) {
+		return CompletableFuture.supplyAsync(() -> getZielVerbindung(umleitung.getZielHost(), umleitung.getZielPort()))
+				.thenCompose(ziel -> {
+					umgezogeneSitzungen.put(anfrage.getSpielZustandSchluessel(), ziel);
+					if(anfrage.getInfo() == ClientRequestInfo.ZUSCHAUEN) {
+						// ab jetzt meldet die Ziel-Verbindung den Zuschauer an
+						zuschauAnfragen.remove(anfrage.getSpielerSchluessel(), anfrage);
+					}
+					return ziel.senden(anfrage).thenApply(antwort -> {
+						if(antwort.getStatus() == ServerAntwortStatus.UNBEKANNTE_SITZUNG) {
+							umgezogeneSitzungen.remove(anfrage.getSpielZustandSchluessel(), ziel);
+						}
+						return antwort;
+					});
+				});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergisst eine geschlossene Ziel-Verbindung und alle Sitzungen, die über sie liefen.
+	 * 
+	 * </pre>
+	 */
+	private void vergessenZiel(ServerVerbindung ziel) {
+		umgezogeneSitzungen.values().removeIf(umgezogen -> umgezogen == ziel);
+		zielVerbindungen.values().remove(ziel);
+	}
+	
+	private ServerVerbindung getZielVerbindung(String zielHost, int zielPort) {
+		return zielVerbindungen.compute(zielHost + ":" + zielPort, (adresse, ziel) -> {
+			if(ziel != null && !ziel.isGeschlossen()) {
+				return ziel;
+			}
+			try {
+				ServerVerbindung neu = new ServerVerbindung(zielHost, zielPort, format, herzschlagNanos / 1_000_000);
+				neu.setPushEmpfaenger(pushEmpfaenger);
+				return neu;
+			} catch(IOException ausnahme) {
+				throw new UncheckedIOException(ausnahme);
+			}
+		});
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schickt einen Request an den Server, ohne auf die Antwort zu warten.
+	 * Eine Antwort mit dem Status UEBERLASTET oder UMGELEITET kommt unverändert zurück.
+	 * 
+	 * @param anfrage der Request
+	 * @return die Antwort, sobald sie angekommen ist
+	 *         (schlägt mit einer UncheckedIOException fehl, wenn die Verbindung vorher abbricht)
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> sendenOhneWiederholen(ClientRequest anfrage) {
+		return sendenNachricht(anfrage, format);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schickt einen VerwaltungsAuftrag an den Server, ohne auf die Antwort zu warten.
+	 * Der Auftrag wird immer im Format JAVA_SERIALISIERUNG kodiert und weder wiederholt noch umgeleitet.
+	 * 
+	 * @param auftrag der Auftrag
+	 * @return die Antwort, sobald sie angekommen ist
+	 *         (schlägt mit einer UncheckedIOException fehl, wenn die Verbindung vorher abbricht)
+	 * 
+	 * </pre>
+	 */
+	public CompletableFuture<ServerAntwort> senden(VerwaltungsAuftrag auftrag) {
+		return sendenNachricht(auftrag, NachrichtenFormat.JAVA_SERIALISIERUNG);
+	}
+	
+	private CompletableFuture<ServerAntwort> sendenNachricht(Object nachricht, NachrichtenFormat nachrichtenFormat) {
+		if(imProzessServer != null) {
+			return sendenImProzess(nachricht);
+		}
+		long anfrageId = naechsteAnfrageId.getAndIncrement();
+		CompletableFuture<ServerAntwort> antwort = new CompletableFuture<>();
+		ausstehendeAntworten.put(anfrageId, antwort);
+		try {
+			if(geschlossen) {
+				throw new IOException("die Verbindung zum Server ist geschlossen");
+			}
+			byte[] nutzdaten = NachrichtenRahmen.kodieren(nachricht, nachrichtenFormat);
+			letzteSendungNanos = System.nanoTime();
+			synchronized(ausgabe) {
+				NachrichtenRahmen.schreiben(ausgabe, anfrageId, nutzdaten);
+				ausgabe.flush();
+			}
+		} catch(IOException ausnahme) {
+			ausstehendeAntworten.remove(anfrageId);
+			antwort.completeExceptionally(new UncheckedIOException(ausnahme));
+		}
+		return antwort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Gibt die Nachricht direkt an den Server im Prozess. Wie ein Transport weist die Verbindung
+	 * einen Request mit UEBERLASTET ab, wenn sie schon zu viele ausstehende Antworten hat.
+	 * 
+	 * </pre>
+	 */
+	private CompletableFuture<ServerAntwort> sendenImProzess(Object nachricht) {
+		if(geschlossen) {
+			return CompletableFuture.failedFuture(
+					new UncheckedIOException(new IOException("die Verbindung zum Server ist geschlossen"))
+			);
+		}
+		if(ausstehendeAntworten.size() >= imProzessServer.getEinstellungen().getMaxAusstehendeAntwortenJeVerbindung()) {
+			return CompletableFuture.completedFuture(imProzessServer.getLastBegrenzer().abweisen(Grenze.VERBINDUNG));
+		}
+		CompletableFuture<ServerAntwort> verarbeitet = nachricht instanceof VerwaltungsAuftrag auftrag
+				? imProzessServer.verarbeiteVerwaltungsAuftrag(auftrag)
+				: imProzessServer.verarbeiteClientRequest((ClientRequest)nachricht, imProzessKanal);
+		if(verarbeitet.isDone() && !verarbeitet.isCompletedExceptionally()) {
+			// z.B. ein HERZSCHLAG oder eine Abweisung: nichts steht aus
+			return verarbeitet;
+		}
+		long anfrageId = naechsteAnfrageId.getAndIncrement();
+		CompletableFuture<ServerAntwort> antwort = new CompletableFuture<>();
+		ausstehendeAntworten.put(anfrageId, antwort);
+		if(geschlossen) {
+			// close() hat die ausstehenden Antworten vielleicht schon abgebrochen
+			ausstehendeAntworten.remove(anfrageId);
+			antwort.completeExceptionally(new UncheckedIOException(new IOException("die Verbindung zum Server ist geschlossen")));
+			return antwort;
+		}
+		verarbeitet.whenComplete((fertig, ausnahme) -> {
+			ausstehendeAntworten.remove(anfrageId);
+			antwort.complete(ausnahme == null ? fertig : ServerAntwort.erstellenFehlerServerAntwort(
+					ServerAntwortStatus.FEHLER,
+					String.valueOf(ausnahme)
+			));
+		});
+		return antwort;
+	}
+	
+	private void planenHerzschlag(long nanos) {
+		herzschlagFrist = HERZSCHLAG_RAD.planen((nanos + 999_999) / 1_000_000, this::pruefenHerzschlag);
+		if(geschlossen) {
+			herzschlagFrist.abbrechen();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Läuft auf dem Thread des Zeit-Rads: schickt einen Herzschlag, wenn seit dem letzten Request
+	 * die Herzschlag-Zeit vergangen ist, sonst wird die Frist für die restliche Zeit neu geplant.
+	 * Geschickt wird auf einem anderen Thread, ein voller Socket hält das Rad nicht auf.
+	 * 
+	 * </pre>
+	 */
+	private void pruefenHerzschlag() {
+		if(geschlossen) {
+			return;
+		}
+		long rest = herzschlagNanos - (System.nanoTime() - letzteSendungNanos);
+		if(rest > 0) {
+			planenHerzschlag(rest);
+			return;
+		}
+		CompletableFuture.runAsync(() -> sendenNachricht(HERZSCHLAG, format));
+		planenHerzschlag(herzschlagNanos);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Setzt den Empfänger der Nachrichten, die der Server von sich aus schickt.
+	 * Er wird auf dem Lese-Thread aufgerufen und darf deshalb nicht blockieren.
+	 * Ohne Empfänger werden diese Nachrichten verworfen.
+	 * 
+	 * @param pushEmpfaenger der Empfänger oder null
+	 * 
+	 * </pre>
+	 */
+	public void setPushEmpfaenger(Consumer<ServerAntwort> pushEmpfaenger) {
+		this.pushEmpfaenger = pushEmpfaenger;
+		for(ServerVerbindung ziel : zielVerbindungen.values()) {
+			ziel.setPushEmpfaenger(pushEmpfaenger);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Requests, deren Antwort noch aussteht
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlAusstehenderAntworten() {
+		return ausstehendeAntworten.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der umgezogenen Sitzungen, deren Ziel-Server sich die Verbindung merkt
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlUmgezogenerSitzungen() {
+		return umgezogeneSitzungen.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return das Format, in dem die Requests kodiert werden
+	 * 
+	 * </pre>
+	 */
+	public NachrichtenFormat getFormat() {
+		return format;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ob die Verbindung geschlossen ist
+	 * 
+	 * </pre>
+	 */
+	public boolean isGeschlossen() {
+		return geschlossen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schließt die Verbindung und die Verbindungen zu den Ziel-Servern umgezogener Sitzungen.
+	 * Alle ausstehenden Antworten schlagen fehl.
+	 * 
+	 * </pre>
+	 */
+	@Override
+	public void close() {
+		geschlossen = true;
+		ZeitRad.Frist frist = herzschlagFrist;
+		if(frist != null) {
+			frist.abbrechen();
+		}
+		for(ServerVerbindung ziel : zielVerbindungen.values()) {
+			ziel.close();
+		}
+		if(kanal == null) {
+			// im Prozess gibt es keinen Lese-Thread, der die ausstehenden Antworten abbricht
+			UncheckedIOException fehler = new UncheckedIOException(new IOException("die Verbindung zum Server ist geschlossen"));
+			ausstehendeAntworten.values().forEach(antwort -> antwort.completeExceptionally(fehler));
+			ausstehendeAntworten.clear();
+			return;
+		}
+		try {
+			kanal.close();
+		} catch(IOException ausnahme) {
+			ausnahme.printStackTrace();
+		}
+	}
+	
+	private void lesen() {
+		IOException grund = null;
+		try {
+			while(!geschlossen) {
+				NachrichtenRahmen rahmen = NachrichtenRahmen.lesen(eingabe);
+				if(rahmen.getAnfrageId() == NachrichtenRahmen.BENACHRICHTIGUNGS_ID) {
+					empfangenPush(rahmen);
+					continue;
+				}
+				CompletableFuture<ServerAntwort> antwort = ausstehendeAntworten.remove(rahmen.getAnfrageId());
+				if(antwort == null) {
+					continue;
+				}
+				try {
+					antwort.complete((ServerAntwort)NachrichtenRahmen.dekodieren(rahmen.getNutzdaten()));
+				} catch(IOException | ClassNotFoundException | ClassCastException ausnahme) {
+					antwort.completeExceptionally(ausnahme);
+				}
+			}
+		} catch(IOException ausnahme) {
+			grund = ausnahme;
+		} finally {
+			close();
+			UncheckedIOException fehler = new UncheckedIOException(
+					grund != null ? grund : new IOException("die Verbindung zum Server ist geschlossen")
+			);
+			ausstehendeAntworten.values().forEach(antwort -> antwort.completeExceptionally(fehler));
+			ausstehendeAntworten.clear();
+		}
+	}
+	
+	private void empfangenPush(NachrichtenRahmen rahmen) {
+		ServerAntwort nachricht;
+		try {
+			nachricht = (ServerAntwort)NachrichtenRahmen.dekodieren(rahmen.getNutzdaten());
+		} catch(IOException | ClassNotFoundException | ClassCastException ausnahme) {
+			ausnahme.printStackTrace();
+			return;
+		}
+		empfangenPush(nachricht);
+	}
+	
+	private void empfangenPush(ServerAntwort nachricht) {
+		if(nachricht.getStatus() == ServerAntwortStatus.UMGELEITET) {
+			zuschauenNachUmzug();
+			return;
+		}
+		Consumer<ServerAntwort> empfaenger = pushEmpfaenger;
+		if(empfaenger != null) {
+			empfaenger.accept(nachricht);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Meldet die Zuschauer dieser Verbindung noch einmal an. Die Nachricht mit der Umleitung nennt die Sitzung nicht:
+	 * der Server antwortet für umgezogene Sitzungen mit UMGELEITET, die Verbindung folgt dann,
+	 * für alle anderen mit dem aktuellen SpielZustand.
+	 * 
+	 * </pre>
+	 */
+	private void zuschauenNachUmzug() {
+		for(ClientRequest anfrage : zuschauAnfragen.values()) {
+			senden(anfrage).thenAccept(antwort -> {
+				Consumer<ServerAntwort> empfaenger = pushEmpfaenger;
+				if(empfaenger != null) {
+					empfaenger.accept(antwort);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Der Push-Kanal einer Verbindung im Prozess: gibt die Nachricht sofort an den Push-Empfänger,
+	 * auf dem Thread des Servers, der sie schickt. Es bleibt also nie eine Nachricht liegen, die ersetzt werden könnte.
+	 * 
+	 * </pre>
+	 */
+	private class ImProzessPushKanal implements PushKanal {
+		@Override
+		public boolean pushen(ServerAntwort nachricht) {
+			if(!geschlossen) {
+				empfangenPush(nachricht);
+			}
+			return false;
+		}
+		
+		@Override
+		public boolean isOffen() {
+			return !geschlossen;
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Liest direkt aus dem blockierenden Kanal eines Unix Domain Sockets.
+	 * 
+	 * Die Ströme aus java.nio.channels.Channels sperren beim Lesen und Schreiben dieselbe Sperre
+	 * des Kanals, ein wartender Lese-Thread würde dann jeden Request aufhalten.
+	 * 
+	 * </pre>
+	 */
+	private static class KanalEingabe extends InputStream {
+		private final SocketChannel kanal;
+		
+		private KanalEingabe(SocketChannel kanal) {
+			this.kanal = kanal;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] einByte = new byte[1];
+			return read(einByte, 0, 1) < 0 ? -1 : einByte[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] puffer, int start, int laenge) throws IOException {
+			if(laenge == 0) {
+				return 0;
+			}
+			return kanal.read(ByteBuffer.wrap(puffer, start, laenge));
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schreibt direkt in den blockierenden Kanal eines Unix Domain Sockets, siehe {@link KanalEingabe}.
+	 * 
+	 * </pre>
+	 */
+	private static class KanalAusgabe extends OutputStream {
+		private final SocketChannel kanal;
+		
+		private KanalAusgabe(SocketChannel kanal) {
+			this.kanal = kanal;
+		}
+		
+		@Override
+		public void write(int einByte) throws IOException {
+			write(new byte[] {(byte)einByte}, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] puffer, int start, int laenge) throws IOException {
+			ByteBuffer daten = ByteBuffer.wrap(puffer, start, laenge);
+			while(daten.hasRemaining()) {
+				kanal.write(daten);
+			}
+		}
+	}
+}
@@ -0,0 +1,618 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto;
+
+import java.util.Arrays;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld.FeldArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Der SpielZustand als gepackte, primitive Darstellung für die Spiel-Regeln:
+ * Züge bestimmen, Züge ausführen und das Spiel-Ende prüfen legen kein Objekt auf dem Heap an.
+ * 
+ * Ein kompakter SpielZustand hat:
+ * - je Figur ein Byte für ihr Feld: ein Strecken-Feld 0..63, {@link #START_FELD} oder {@link #ZIEL_FELD}
+ *   mit dem Index des Felds in den unteren Bits, oder {@link #KEIN_FELD}
+ * - je Spieler eine Bit-Maske der belegten Strecken-Felder (ein long)
+ * - je Spieler 4 Bits der belegten Start- und Ziel-Felder (zusammen je ein int)
+ * - je Strecken-Feld den Index der Figur darauf, damit eine geschlagene Figur sofort gefunden wird
+ * - je Spieler die {@link ZugTabelle} seiner Strecke, ein Ziel-Feld zu bestimmen ist ein Lesen aus der Tabelle
+ * 
+ * Die Spieler haben die Reihenfolge der Spieler-Menge des SpielZustands, die Figuren des Spielers
+ * mit dem Index s haben die Indizes 4 * s bis 4 * s + 3. Ein Zug ist ein int aus dem Index der Figur
+ * und dem Byte ihres Ziel-Felds, siehe {@link #getZugFigur(int)} und {@link #getZugZiel(int)}.
+ * 
+ * {@link #laden(SpielZustand)} liest den SpielZustand ein, {@link #zurueckschreiben()} setzt jeder
+ * Figur, deren Feld sich geändert hat, ein neues SpielFeld, so wie der Server-Service es beim Ziehen tut.
+ * Eine Figur, deren Feld gleich geblieben ist, behält ihr SpielFeld-Objekt.
+ * 
+ * Ein kompakter SpielZustand ist nicht thread-sicher und kann für viele SpielZustände wiederverwendet werden.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public final class KompakterSpielZustand {
+	/**
+	 * so viele Spieler-Positionen passen in die Masken der Start- und Ziel-Felder
+	 */
+	public static final int MAX_SPIELER = 8;
+	
+	/**
+	 * so viele Strecken-Felder passen in die Maske eines Spielers
+	 */
+	public static final int MAX_STRECKEN_FELDER = Long.SIZE;
+	
+	/**
+	 * die Bits eines Start-Felds, der Index des Felds steht in den unteren Bits
+	 */
+	public static final int START_FELD = 0x80;
+	
+	/**
+	 * die Bits eines Ziel-Felds, der Index des Felds steht in den unteren Bits
+	 */
+	public static final int ZIEL_FELD = 0x40;
+	
+	/**
+	 * das Feld einer Figur, die es nicht gibt, z.B. bei einem vakanten Spieler
+	 */
+	public static final int KEIN_FELD = 0xFF;
+	
+	private static final int ART_MASKE = START_FELD | ZIEL_FELD;
+	
+	private static final int INDEX_MASKE = ~ART_MASKE & 0xFF;
+	
+	private static final int FIGUREN_MASKE = (1 << Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) - 1;
+	
+	private static final int KEINE_FIGUR = -1;
+	
+	/**
+	 * das Feld jeder Figur
+	 */
+	private final byte[] figurFelder = new byte[MAX_SPIELER * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER];
+	
+	/**
+	 * je Spieler die belegten Strecken-Felder
+	 */
+	private final long[] streckenMasken = new long[MAX_SPIELER];
+	
+	/**
+	 * je Spieler 4 Bits der belegten Start-Felder
+	 */
+	private int startMasken;
+	
+	/**
+	 * je Spieler 4 Bits der belegten Ziel-Felder
+	 */
+	private int zielMasken;
+	
+	/**
+	 * je Strecken-Feld der Index der Figur darauf, oder {@link #KEINE_FIGUR}
+	 */
+	private final byte[] streckenFiguren = new byte[MAX_STRECKEN_FELDER];
+	
+	/**
+	 * je Spieler das Strecken-Feld, auf das er seine Figuren herauswürfelt
+	 */
+	private final byte[] startStreckenFelder = new byte[MAX_SPIELER];
+	
+	/**
+	 * je Spieler das letzte Strecken-Feld vor seinen Ziel-Feldern
+	 */
+	private final byte[] endStreckenFelder = new byte[MAX_SPIELER];
+	
+	/**
+	 * je Spieler die Ziel-Felder seiner Züge
+	 */
+	private final ZugTabelle[] zugTabellen = new ZugTabelle[MAX_SPIELER];
+	
+	private int anzahlSpieler;
+	
+	private int anzahlKonkreterSpieler;
+	
+	private int anzahlStreckenFelder;
+	
+	/**
+	 * die Spieler des zuletzt geladenen SpielZustands, für das Zurückschreiben
+	 */
+	private final Spieler[] spieler = new Spieler[MAX_SPIELER];
+	
+	/**
+	 * die Figuren des zuletzt geladenen SpielZustands, für das Zurückschreiben
+	 */
+	private final Figur[] figuren = new Figur[MAX_SPIELER * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER];
+	
+	/**
+	 * <pre>
+	 * 
+	 * Liest die Felder aller Figuren des SpielZustands ein, der vorige Inhalt wird überschrieben.
+	 * 
+	 * @param spielZustand der SpielZustand
+	 * @throws IllegalArgumentException wenn der SpielZustand zu viele Spieler oder Strecken-Felder hat,
+	 * 		ein Spieler mehr als 4 Figuren hat oder eine Figur auf einem ungültigen Feld steht
+	 * 
+	 * </pre>
+	 */
+	public void laden(SpielZustand spielZustand) {
+		int neueAnzahlStreckenFelder = spielZustand.getAnzahlStreckenFelder();
+		if(neueAnzahlStreckenFelder > MAX_STRECKEN_FELDER || spielZustand.getSpielerMenge().size() > MAX_SPIELER) {
+			throw new IllegalArgumentException(
+					"höchstens " + MAX_SPIELER + " Spieler und " + MAX_STRECKEN_FELDER + " Strecken-Felder: "
+					+ spielZustand.getSpielerMenge().size() + " Spieler, " + neueAnzahlStreckenFelder + " Strecken-Felder"
+			);
+		}
+		Arrays.fill(figurFelder, (byte)KEIN_FELD);
+		Arrays.fill(streckenMasken, 0);
+		Arrays.fill(streckenFiguren, (byte)KEINE_FIGUR);
+		Arrays.fill(zugTabellen, null);
+		Arrays.fill(spieler, null);
+		Arrays.fill(figuren, null);
+		startMasken = 0;
+		zielMasken = 0;
+		anzahlStreckenFelder = neueAnzahlStreckenFelder;
+		anzahlKonkreterSpieler = spielZustand.getAnzahlKonkreterSpieler();
+		
+		int index = 0;
+		for(Spieler einSpieler : spielZustand.getSpielerMenge()) {
+			spieler[index] = einSpieler;
+			startStreckenFelder[index] = (byte)einSpieler.getStartStreckenFeld().getFeldPosition();
+			endStreckenFelder[index] = (byte)einSpieler.getEndStreckenFeld().getFeldPosition();
+			zugTabellen[index] = ZugTabelle.getZugTabelle(
+					neueAnzahlStreckenFelder,
+					startStreckenFelder[index],
+					endStreckenFelder[index]
+			);
+			int figur = index * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+			for(Figur eineFigur : einSpieler.getFigurenMenge()) {
+				if(figur == (index + 1) * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
+					throw new IllegalArgumentException("der Spieler " + einSpieler.getName() + " hat zu viele Figuren");
+				}
+				figuren[figur] = eineFigur;
+				setzen(figur, kodieren(eineFigur.getSpielFeld()));
+				figur++;
+			}
+			index++;
+		}
+		anzahlSpieler = index;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Überträgt die Felder in die Figuren des zuletzt geladenen SpielZustands.
+	 * 
+	 * Eine Figur auf dem Start-Strecken-Feld oder dem End-Strecken-Feld ihres Spielers
+	 * bekommt das SpielFeld des Spielers, auf jedem anderen Strecken-Feld ein farbloses SpielFeld.
+	 * 
+	 * @return die Anzahl der Figuren, deren SpielFeld gesetzt wurde
+	 * 
+	 * </pre>
+	 */
+	public int zurueckschreiben() {
+		int anzahl = 0;
+		for(int figur = 0; figur < anzahlSpieler * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; figur++) {
+			if(figuren[figur] == null) {
+				continue;
+			}
+			int feld = getFeld(figur);
+			if(kodieren(figuren[figur].getSpielFeld()) != feld) {
+				figuren[figur].setSpielFeld(erstellenSpielFeld(figur, feld));
+				anzahl++;
+			}
+		}
+		return anzahl;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Kopiert den ganzen Stand in einen anderen kompakten SpielZustand, z.B. um Züge auszuprobieren.
+	 * 
+	 * @param ziel wird überschrieben
+	 * 
+	 * </pre>
+	 */
+	public void kopierenIn(KompakterSpielZustand ziel) {
+		System.arraycopy(figurFelder, 0, ziel.figurFelder, 0, figurFelder.length);
+		System.arraycopy(streckenMasken, 0, ziel.streckenMasken, 0, streckenMasken.length);
+		System.arraycopy(streckenFiguren, 0, ziel.streckenFiguren, 0, streckenFiguren.length);
+		System.arraycopy(startStreckenFelder, 0, ziel.startStreckenFelder, 0, startStreckenFelder.length);
+		System.arraycopy(endStreckenFelder, 0, ziel.endStreckenFelder, 0, endStreckenFelder.length);
+		System.arraycopy(zugTabellen, 0, ziel.zugTabellen, 0, zugTabellen.length);
+		System.arraycopy(spieler, 0, ziel.spieler, 0, spieler.length);
+		System.arraycopy(figuren, 0, ziel.figuren, 0, figuren.length);
+		ziel.startMasken = startMasken;
+		ziel.zielMasken = zielMasken;
+		ziel.anzahlSpieler = anzahlSpieler;
+		ziel.anzahlKonkreterSpieler = anzahlKonkreterSpieler;
+		ziel.anzahlStreckenFelder = anzahlStreckenFelder;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Bestimmt die möglichen Züge des Spielers nach denselben Regeln wie
+	 * RundenLaufMitHerausschlagenServerService#bestimmeMoeglicheSpielZuege:
+	 * 
+	 * - eine Figur darf nicht auf ein Feld mit einer eigenen Figur ziehen, eine gegnerische Figur wird geschlagen
+	 * - hat der Spieler Figuren auf seinen Start-Feldern, muss er sein Start-Strecken-Feld freimachen, wenn er kann
+	 * - bei einer 6 muss er dann eine Figur von seinen Start-Feldern herausziehen, wenn er kann
+	 * 
+	 * @param spielerIndex der Index des Spielers
+	 * @param augen die gewürfelte Zahl
+	 * @param zuege bekommt die Züge, muss Platz für 4 Züge haben
+	 * @return die Anzahl der Züge
+	 * 
+	 * </pre>
+	 */
+	public int bestimmenZuege(int spielerIndex, int augen, int[] zuege) {
+		int anzahl = 0;
+		int ersteFigur = spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		for(int figur = ersteFigur; figur < ersteFigur + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; figur++) {
+			int feld = getFeld(figur);
+			if(feld == KEIN_FELD) {
+				continue;
+			}
+			int ziel = zugTabellen[spielerIndex].getZiel(feld, augen);
+			if(ziel != KEIN_FELD && !isEigeneFigurAuf(spielerIndex, ziel)) {
+				zuege[anzahl++] = figur << 8 | ziel;
+			}
+		}
+		if(anzahl == 0) {
+			return 0;
+		}
+		
+		// die Filter packen die passenden Züge nach vorne, ohne passenden Zug bleibt die Liste unverändert
+		if(getStartMaske(spielerIndex) != 0) {
+			int vomStartStreckenFeld = filtern(zuege, anzahl, startStreckenFelder[spielerIndex]);
+			if(vomStartStreckenFeld > 0) {
+				return vomStartStreckenFeld;
+			}
+		}
+		if(augen != WuerfelErgebnis.SECHS.getValue()) {
+			return anzahl;
+		}
+		int vomStartFeld = filtern(zuege, anzahl, START_FELD);
+		return vomStartFeld > 0 ? vomStartFeld : anzahl;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerIndex der Index des Spielers
+	 * @param augen die gewürfelte Zahl
+	 * @return true, wenn der Spieler mit dieser Zahl ziehen kann
+	 * 
+	 * </pre>
+	 */
+	public boolean hatZug(int spielerIndex, int augen) {
+		int ersteFigur = spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		for(int figur = ersteFigur; figur < ersteFigur + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; figur++) {
+			int feld = getFeld(figur);
+			if(feld == KEIN_FELD) {
+				continue;
+			}
+			int ziel = zugTabellen[spielerIndex].getZiel(feld, augen);
+			if(ziel != KEIN_FELD && !isEigeneFigurAuf(spielerIndex, ziel)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt einen Zug aus {@link #bestimmenZuege(int, int, int[])} aus. Eine geschlagene Figur
+	 * kommt auf das erste freie Start-Feld ihres Spielers.
+	 * 
+	 * @param zug der Zug
+	 * @return der Index der geschlagenen Figur, oder -1
+	 * 
+	 * </pre>
+	 */
+	public int ausfuehrenZug(int zug) {
+		int figur = getZugFigur(zug);
+		int ziel = getZugZiel(zug);
+		entfernen(figur);
+		int geschlagen = KEINE_FIGUR;
+		if((ziel & ART_MASKE) == 0) {
+			geschlagen = streckenFiguren[ziel];
+			if(geschlagen != KEINE_FIGUR) {
+				int gegner = geschlagen / Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+				entfernen(geschlagen);
+				setzen(geschlagen, START_FELD | Integer.numberOfTrailingZeros(~getStartMaske(gegner)));
+			}
+		}
+		setzen(figur, ziel);
+		return geschlagen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Das Spiel ist fertig, wenn alle konkreten Spieler bis auf einen alle Figuren auf ihren Ziel-Feldern haben.
+	 * 
+	 * @return true, wenn das Spiel fertig ist
+	 * 
+	 * </pre>
+	 */
+	public boolean isSpielFertig() {
+		int anzahlFertigerSpieler = 0;
+		for(int spielerIndex = 0; spielerIndex < anzahlSpieler; spielerIndex++) {
+			if(getZielMaske(spielerIndex) == FIGUREN_MASKE) {
+				anzahlFertigerSpieler++;
+			}
+		}
+		return anzahlFertigerSpieler >= anzahlKonkreterSpieler - 1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spieler ein Spieler des zuletzt geladenen SpielZustands, auch als AktiverSpielerDekorator
+	 * @return der Index des Spielers, oder -1
+	 * 
+	 * </pre>
+	 */
+	public int getSpielerIndex(Spieler spieler) {
+		if(spieler instanceof AktiverSpielerDekorator aktiverSpieler) {
+			spieler = aktiverSpieler.getDerSpieler();
+		}
+		for(int index = 0; index < anzahlSpieler; index++) {
+			if(this.spieler[index] == spieler) {
+				return index;
+			}
+		}
+		for(int index = 0; index < anzahlSpieler; index++) {
+			if(this.spieler[index].equals(spieler)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param figur eine Figur des zuletzt geladenen SpielZustands
+	 * @return der Index der Figur, oder -1
+	 * 
+	 * </pre>
+	 */
+	public int getFigurIndex(Figur figur) {
+		for(int index = 0; index < anzahlSpieler * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; index++) {
+			if(figuren[index] == figur) {
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt den SpielZug zu einem Zug aus {@link #bestimmenZuege(int, int, int[])}, bevor er ausgeführt wird.
+	 * 
+	 * @param zug der Zug
+	 * @param wuerfelErgebnis das Würfel-Ergebnis, mit dem der Zug bestimmt wurde
+	 * @return der SpielZug mit den Figuren des zuletzt geladenen SpielZustands
+	 * 
+	 * </pre>
+	 */
+	public SpielZug erstellenSpielZug(int zug, WuerfelErgebnis wuerfelErgebnis) {
+		int figur = getZugFigur(zug);
+		int ziel = getZugZiel(zug);
+		int geschlagen = (ziel & ART_MASKE) == 0 ? streckenFiguren[ziel] : KEINE_FIGUR;
+		return new SpielZug(
+				figuren[figur],
+				wuerfelErgebnis,
+				erstellenSpielFeld(figur, ziel),
+				geschlagen != KEINE_FIGUR ? figuren[geschlagen] : null
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielFeld ein SpielFeld
+	 * @return das Byte des Felds als int
+	 * @throws IllegalArgumentException wenn die Position des Felds nicht in das Byte passt
+	 * 
+	 * </pre>
+	 */
+	public static int kodieren(SpielFeld spielFeld) {
+		int position = spielFeld.getFeldPosition();
+		int grenze = spielFeld.getFeldArt() == FeldArt.STRECKEN_FELD ? MAX_STRECKEN_FELDER : Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		if(position < 0 || position >= grenze) {
+			throw new IllegalArgumentException("ungültige Position: " + spielFeld);
+		}
+		return switch(spielFeld.getFeldArt()) {
+		case START_FELD -> START_FELD | position;
+		case STRECKEN_FELD -> position;
+		case ZIEL_FELD -> ZIEL_FELD | position;
+		};
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param zug ein Zug
+	 * @return der Index der ziehenden Figur
+	 * 
+	 * </pre>
+	 */
+	public static int getZugFigur(int zug) {
+		return zug >>> 8;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param zug ein Zug
+	 * @return das Ziel-Feld der Figur
+	 * 
+	 * </pre>
+	 */
+	public static int getZugZiel(int zug) {
+		return zug & 0xFF;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param figur der Index der Figur
+	 * @return das Feld der Figur, {@link #KEIN_FELD} wenn es die Figur nicht gibt
+	 * 
+	 * </pre>
+	 */
+	public int getFeld(int figur) {
+		return figurFelder[figur] & 0xFF;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerIndex der Index des Spielers
+	 * @return die Strecken-Felder mit einer Figur des Spielers
+	 * 
+	 * </pre>
+	 */
+	public long getStreckenMaske(int spielerIndex) {
+		return streckenMasken[spielerIndex];
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerIndex der Index des Spielers
+	 * @return die Start-Felder des Spielers mit einer Figur, Bit i für das Feld i
+	 * 
+	 * </pre>
+	 */
+	public int getStartMaske(int spielerIndex) {
+		return startMasken >>> (spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) & FIGUREN_MASKE;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerIndex der Index des Spielers
+	 * @return die Ziel-Felder des Spielers mit einer Figur, Bit i für das Feld i
+	 * 
+	 * </pre>
+	 */
+	public int getZielMaske(int spielerIndex) {
+		return zielMasken >>> (spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) & FIGUREN_MASKE;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the anzahlSpieler
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlSpieler() {
+		return anzahlSpieler;
+	}
+	
+	private boolean isEigeneFigurAuf(int spielerIndex, int feld) {
+		return switch(feld & ART_MASKE) {
+		case START_FELD -> (getStartMaske(spielerIndex) & 1 << (feld & INDEX_MASKE)) != 0;
+		case ZIEL_FELD -> (getZielMaske(spielerIndex) & 1 << (feld & INDEX_MASKE)) != 0;
+		default -> (streckenMasken[spielerIndex] & 1L << feld) != 0;
+		};
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Packt die Züge, deren Figur auf dem Feld steht (bei {@link #START_FELD} auf irgendeinem Start-Feld), nach vorne.
+	 * 
+	 * @return die Anzahl dieser Züge
+	 * 
+	 * </pre>
+	 */
+	private int filtern(int[] zuege, int anzahl, int vonFeld) {
+		int passend = 0;
+		for(int i = 0; i < anzahl; i++) {
+			int feld = getFeld(getZugFigur(zuege[i]));
+			if(vonFeld == START_FELD ? (feld & ART_MASKE) == START_FELD : feld == vonFeld) {
+				zuege[passend++] = zuege[i];
+			}
+		}
+		return passend;
+	}
+	
+	private void setzen(int figur, int feld) {
+		figurFelder[figur] = (byte)feld;
+		int spielerIndex = figur / Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		int bit = 1 << (spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER + (feld & INDEX_MASKE));
+		switch(feld & ART_MASKE) {
+		case START_FELD -> startMasken |= bit;
+		case ZIEL_FELD -> zielMasken |= bit;
+		default -> {
+			streckenMasken[spielerIndex] |= 1L << feld;
+			streckenFiguren[feld] = (byte)figur;
+		}
+		}
+	}
+	
+	private void entfernen(int figur) {
+		int feld = getFeld(figur);
+		int spielerIndex = figur / Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		int bit = 1 << (spielerIndex * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER + (feld & INDEX_MASKE));
+		switch(feld & ART_MASKE) {
+		case START_FELD -> startMasken &= ~bit;
+		case ZIEL_FELD -> zielMasken &= ~bit;
+		default -> {
+			streckenMasken[spielerIndex] &= ~(1L << feld);
+			streckenFiguren[feld] = (byte)KEINE_FIGUR;
+		}
+		}
+		figurFelder[figur] = (byte)KEIN_FELD;
+	}
+	
+	private SpielFeld erstellenSpielFeld(int figur, int feld) {
+		int spielerIndex = figur / Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		Spieler besitzer = spieler[spielerIndex];
+		int index = feld & INDEX_MASKE;
+		return switch(feld & ART_MASKE) {
+		case START_FELD -> SpielFeld.erstelleStartFeld(besitzer.getFarbe(), index);
+		case ZIEL_FELD -> SpielFeld.erstelleZielFeld(besitzer.getFarbe(), index);
+		default -> {
+			if(feld == startStreckenFelder[spielerIndex]) {
+				yield besitzer.getStartStreckenFeld();
+			} else if(feld == endStreckenFelder[spielerIndex]) {
+				yield besitzer.getEndStreckenFeld();
+			}
+			yield SpielFeld.erstelleFarblosesStreckenFeld(feld);
+		}
+		};
+	}
+}
@@ -23,13 +23,19 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <pre>
  * 
  * Würfelt zufällige Würfel-Ergebnisse aus.
  * 
+ * Der Zufallszahlen-Generator ist ein SplitMix64: sein ganzer Zustand ist ein long,
+ * der sich auslesen und in einem neuen Wuerfel fortsetzen lässt.
+ * So würfelt eine Sitzung nach dem Umzug auf einen anderen Server dieselbe Folge weiter.
+ * Jede Sitzung hat ihren eigenen Wuerfel, die Sitzungen teilen sich keinen Generator.
+ * 
  * @author Christian Alexander Wiesenäcker
  * 
  * </pre>
@@ -44,12 +50,19 @@ public class Wuerfel {
 	 * 
 	 * </pre>
 	 */
-	private static final Wuerfel INSTANCE = new Wuerfel();
+	private static final Wuerfel INSTANCE = erstellenZufaelligenWuerfel();
+	
+	/**
+	 * der Abstand, um den der Zustand je Wurf weiterzählt
+	 */
+	private static final long SCHRITT = 0x9E3779B97F4A7C15L;
+	
+	private static final WuerfelErgebnis[] ERGEBNISSE = WuerfelErgebnis.values();
 	
 	/**
-	 * Eine Referenz zu einem Pseudo-Zufallszahlen-Generator.
+	 * Der Zustand des Pseudo-Zufallszahlen-Generators.
 	 */
-	private final Random wuerfel = new Random();
+	private final AtomicLong zustand;
 
 	/**
 	 * <pre>
@@ -59,7 +72,9 @@ public class Wuerfel {
 	 * 
 	 * </pre>
 	 */
-	private Wuerfel() {}
+	private Wuerfel(long zustand) {
+		this.zustand = new AtomicLong(zustand);
+	}
 	
 	/**
 	 * <pre>
@@ -74,6 +89,40 @@ public class Wuerfel {
 		return INSTANCE;
 	}
 	
+	/**
+	 * <pre>
+	 * 
+	 * @param zustand der Zustand, z.B. von {@link #getZustand()} eines anderen Wuerfels
+	 * @return ein Wuerfel, der ab diesem Zustand weiterwürfelt
+	 * 
+	 * </pre>
+	 */
+	public static Wuerfel erstellenWuerfel(long zustand) {
+		return new Wuerfel(zustand);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ein Wuerfel mit zufälligem Anfangszustand
+	 * 
+	 * </pre>
+	 */
+	public static Wuerfel erstellenZufaelligenWuerfel() {
+		return new Wuerfel(ThreadLocalRandom.current().nextLong());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der aktuelle Zustand des Generators, aus dem {@link #erstellenWuerfel(long)} dieselbe Folge fortsetzt
+	 * 
+	 * </pre>
+	 */
+	public long getZustand() {
+		return zustand.get();
+	}
+	
 	/**
 	 * <pre>
 	 * 
@@ -83,8 +132,11 @@ public class Wuerfel {
 	 * </pre>
 	 */
 	public WuerfelErgebnis wuerfeln() {
-		WuerfelErgebnis[] ergebnisse = WuerfelErgebnis.values();
-		return ergebnisse[wuerfel.nextInt(ergebnisse.length)];
+		long zufall = zustand.addAndGet(SCHRITT);
+		zufall = (zufall ^ (zufall >>> 30)) * 0xBF58476D1CE4E5B9L;
+		zufall = (zufall ^ (zufall >>> 27)) * 0x94D049BB133111EBL;
+		zufall = zufall ^ (zufall >>> 31);
+		return ERGEBNISSE[(int)Long.remainderUnsigned(zufall, ERGEBNISSE.length)];
 	}
 	
 	/**
@@ -0,0 +1,223 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Die Ziel-Felder aller Züge eines Spielers, vorausberechnet für eine Strecke:
+ * je Feld und gewürfelter Zahl das Ziel-Feld im Format von {@link KompakterSpielZustand},
+ * oder {@link KompakterSpielZustand#KEIN_FELD}, wenn die Figur nicht so weit ziehen kann.
+ * Andere Figuren spielen keine Rolle, ob das Ziel-Feld frei ist, prüft der KompakterSpielZustand.
+ * 
+ * Die Ziele hängen nur von der Anzahl der Strecken-Felder und dem Start- und End-Strecken-Feld des Spielers ab.
+ * Jede Zug-Tabelle wird deshalb nur einmal berechnet und von allen Spielen mit derselben Strecke geteilt,
+ * ein Brett mit 4 Spieler-Positionen hat 4 Zug-Tabellen, egal wie viele Spiele darauf laufen.
+ * 
+ * Zug-Tabellen sind unveränderlich und thread-sicher.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public final class ZugTabelle {
+	private static final int ANZAHL_AUGEN = WuerfelErgebnis.values().length;
+	
+	/**
+	 * die Zug-Tabellen aller bisher benutzten Strecken, siehe {@link #getSchluessel(int, int, int)}
+	 */
+	private static final ConcurrentMap<Integer, ZugTabelle> ZUG_TABELLEN = new ConcurrentHashMap<>();
+	
+	private final int anzahlStreckenFelder;
+	
+	private final int startStreckenFeld;
+	
+	private final int endStreckenFeld;
+	
+	/**
+	 * die Ziel-Felder, je Zeile die gewürfelten Zahlen 1 bis 6:
+	 * die Zeilen 0 bis anzahlStreckenFelder - 1 für die Strecken-Felder,
+	 * dann je eine Zeile für die Ziel-Felder und eine für alle Start-Felder
+	 */
+	private final byte[] ziele;
+	
+	private ZugTabelle(int anzahlStreckenFelder, int startStreckenFeld, int endStreckenFeld) {
+		this.anzahlStreckenFelder = anzahlStreckenFelder;
+		this.startStreckenFeld = startStreckenFeld;
+		this.endStreckenFeld = endStreckenFeld;
+		this.ziele = new byte[(anzahlStreckenFelder + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER + 1) * ANZAHL_AUGEN];
+		for(int augen = 1; augen <= ANZAHL_AUGEN; augen++) {
+			for(int position = 0; position < anzahlStreckenFelder; position++) {
+				ziele[getIndex(position, augen)] = (byte)berechnenStreckenZiel(position, augen);
+			}
+			for(int index = 0; index < Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; index++) {
+				ziele[getIndex(KompakterSpielZustand.ZIEL_FELD | index, augen)] = (byte)(
+						index + augen < Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER
+						? KompakterSpielZustand.ZIEL_FELD | (index + augen)
+						: KompakterSpielZustand.KEIN_FELD
+				);
+			}
+			ziele[getIndex(KompakterSpielZustand.START_FELD, augen)] = (byte)(
+					augen == WuerfelErgebnis.SECHS.getValue() ? startStreckenFeld : KompakterSpielZustand.KEIN_FELD
+			);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param anzahlStreckenFelder die Anzahl der Strecken-Felder des Bretts
+	 * @param startStreckenFeld die Position des Start-Strecken-Felds des Spielers
+	 * @param endStreckenFeld die Position des End-Strecken-Felds des Spielers
+	 * @return die Zug-Tabelle, beim ersten Aufruf für diese Strecke wird sie berechnet
+	 * @throws IllegalArgumentException wenn die Strecke nicht in einen KompakterSpielZustand passt
+	 * 
+	 * </pre>
+	 */
+	public static ZugTabelle getZugTabelle(int anzahlStreckenFelder, int startStreckenFeld, int endStreckenFeld) {
+		if(
+				anzahlStreckenFelder <= 0 || anzahlStreckenFelder > KompakterSpielZustand.MAX_STRECKEN_FELDER
+				|| startStreckenFeld < 0 || startStreckenFeld >= anzahlStreckenFelder
+				|| endStreckenFeld < 0 || endStreckenFeld >= anzahlStreckenFelder
+		) {
+			throw new IllegalArgumentException(
+					"ungültige Strecke: " + anzahlStreckenFelder + " Strecken-Felder, Start " + startStreckenFeld + ", Ende " + endStreckenFeld
+			);
+		}
+		return ZUG_TABELLEN.computeIfAbsent(
+				getSchluessel(anzahlStreckenFelder, startStreckenFeld, endStreckenFeld),
+				schluessel -> new ZugTabelle(anzahlStreckenFelder, startStreckenFeld, endStreckenFeld)
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param feld das Feld der Figur im Format von {@link KompakterSpielZustand}
+	 * @param augen die gewürfelte Zahl
+	 * @return das Ziel-Feld, oder {@link KompakterSpielZustand#KEIN_FELD}
+	 * 
+	 * </pre>
+	 */
+	public int getZiel(int feld, int augen) {
+		return ziele[getIndex(feld, augen)] & 0xFF;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Strecken-Felder des Bretts
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlStreckenFelder() {
+		return anzahlStreckenFelder;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Position des Start-Strecken-Felds des Spielers
+	 * 
+	 * </pre>
+	 */
+	public int getStartStreckenFeld() {
+		return startStreckenFeld;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Position des End-Strecken-Felds des Spielers
+	 * 
+	 * </pre>
+	 */
+	public int getEndStreckenFeld() {
+		return endStreckenFeld;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der bisher berechneten Zug-Tabellen
+	 * 
+	 * </pre>
+	 */
+	public static int getAnzahlZugTabellen() {
+		return ZUG_TABELLEN.size();
+	}
+	
+	private int getIndex(int feld, int augen) {
+		int zeile = switch(feld & (KompakterSpielZustand.START_FELD | KompakterSpielZustand.ZIEL_FELD)) {
+		case KompakterSpielZustand.START_FELD -> anzahlStreckenFelder + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER;
+		case KompakterSpielZustand.ZIEL_FELD -> anzahlStreckenFelder + (feld & ~KompakterSpielZustand.ZIEL_FELD);
+		default -> feld;
+		};
+		return zeile * ANZAHL_AUGEN + augen - 1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Das Ziel von einem Strecken-Feld: die Figur läuft die Strecke entlang,
+	 * nach ihrem End-Strecken-Feld weiter auf ihre Ziel-Felder, aber nicht darüber hinaus.
+	 * 
+	 * </pre>
+	 */
+	private int berechnenStreckenZiel(int position, int augen) {
+		int zielPosition = position + augen;
+		int vergleichZielPosition = zielPosition;
+		int vergleichEndStreckenFeld = endStreckenFeld;
+		if(startStreckenFeld != 0) {
+			vergleichEndStreckenFeld += anzahlStreckenFelder;
+			if(position < startStreckenFeld) {
+				vergleichZielPosition += anzahlStreckenFelder;
+			}
+		}
+		if(vergleichZielPosition == vergleichEndStreckenFeld) {
+			return endStreckenFeld;
+		} else if(vergleichZielPosition < vergleichEndStreckenFeld) {
+			return zielPosition % anzahlStreckenFelder;
+		} else if(vergleichZielPosition < vergleichEndStreckenFeld + 1 + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
+			return KompakterSpielZustand.ZIEL_FELD | (vergleichZielPosition - (vergleichEndStreckenFeld + 1));
+		}
+		return KompakterSpielZustand.KEIN_FELD;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Packt die Strecke in einen int, jede Position braucht höchstens 7 Bits.
+	 * 
+	 * </pre>
+	 */
+	private static int getSchluessel(int anzahlStreckenFelder, int startStreckenFeld, int endStreckenFeld) {
+		return anzahlStreckenFelder << 16 | startStreckenFeld << 8 | endStreckenFeld;
+	}
+}
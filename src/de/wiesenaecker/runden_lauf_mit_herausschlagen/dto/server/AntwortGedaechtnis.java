@@ -0,0 +1,168 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+
+/**
+ * <pre>
+ * 
+ * Merkt sich die Antworten auf die letzten Spiel-Aktionen einer Sitzung, die mit einem
+ * Idempotenz-Schlüssel geschickt wurden (siehe {@link ClientRequest#mitIdempotenzSchluessel(long)}).
+ * 
+ * Schickt ein Client eine Spiel-Aktion noch einmal, z.B. weil die Antwort nicht rechtzeitig kam,
+ * bekommt er die Antwort auf die erste Ausführung, ohne dass die Aktion ein zweites Mal ausgeführt wird.
+ * 
+ * Es werden höchstens {@link #MAX_ANTWORTEN} Antworten gemerkt, die älteste wird zuerst vergessen.
+ * Ein Idempotenz-Schlüssel gilt nur zusammen mit dem Schlüssel des Spielers, der ihn geschickt hat.
+ * Beim Umzug einer Sitzung zieht das Gedächtnis nicht mit.
+ * 
+ * Wird nur auf dem Thread der Sitzung benutzt.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class AntwortGedaechtnis {
+	/**
+	 * so viele Antworten merkt sich eine Sitzung höchstens
+	 */
+	public static final int MAX_ANTWORTEN = 256;
+	
+	/**
+	 * die gemerkten Antworten in der Reihenfolge, in der sie gemerkt wurden
+	 */
+	private final Map<Schluessel, GemerkteAntwort> antworten = new LinkedHashMap<>(MAX_ANTWORTEN * 4 / 3 + 1) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Schluessel, GemerkteAntwort> aeltester) {
+			return size() > MAX_ANTWORTEN;
+		}
+	};
+	
+	/**
+	 * die Anzahl der Wiederholungen, die mit einer gemerkten Antwort beantwortet wurden
+	 */
+	private long anzahlTreffer;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerSchluessel der Schlüssel des Spielers, der den Request geschickt hat
+	 * @param anfrage der Request mit Idempotenz-Schlüssel
+	 * @return die Antwort auf die erste Ausführung, null, wenn der Request noch nicht ausgeführt wurde
+	 * @throws IllegalArgumentException wenn der Spieler den Idempotenz-Schlüssel schon für eine andere Spiel-Aktion benutzt hat
+	 * 
+	 * </pre>
+	 */
+	public ServerAntwort suchen(long spielerSchluessel, ClientRequest anfrage) {
+		GemerkteAntwort gemerkt = antworten.get(new Schluessel(spielerSchluessel, anfrage.getIdempotenzSchluessel()));
+		if(gemerkt == null) {
+			return null;
+		}
+		if(gemerkt.info != anfrage.getInfo()) {
+			throw new IllegalArgumentException(
+					"der Idempotenz-Schlüssel " + anfrage.getIdempotenzSchluessel() + " wurde schon für " + gemerkt.info + " benutzt"
+			);
+		}
+		anzahlTreffer++;
+		return gemerkt.antwort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielerSchluessel der Schlüssel des Spielers, der den Request geschickt hat
+	 * @param anfrage der ausgeführte Request mit Idempotenz-Schlüssel
+	 * @param antwort die Antwort auf die Ausführung
+	 * 
+	 * </pre>
+	 */
+	public void merken(long spielerSchluessel, ClientRequest anfrage, ServerAntwort antwort) {
+		antworten.put(
+				new Schluessel(spielerSchluessel, anfrage.getIdempotenzSchluessel()),
+				new GemerkteAntwort(anfrage.getInfo(), antwort)
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der gemerkten Antworten
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlAntworten() {
+		return antworten.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Wiederholungen, die mit einer gemerkten Antwort beantwortet wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlTreffer() {
+		return anzahlTreffer;
+	}
+	
+	private static final class Schluessel {
+		private final long spielerSchluessel;
+		
+		private final long idempotenzSchluessel;
+		
+		private Schluessel(long spielerSchluessel, long idempotenzSchluessel) {
+			this.spielerSchluessel = spielerSchluessel;
+			this.idempotenzSchluessel = idempotenzSchluessel;
+		}
+		
+		@Override
+		public boolean equals(Object anderes) {
+			return anderes instanceof Schluessel schluessel
+					&& schluessel.spielerSchluessel == spielerSchluessel
+					&& schluessel.idempotenzSchluessel == idempotenzSchluessel;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.hashCode(spielerSchluessel) * 31 + Long.hashCode(idempotenzSchluessel);
+		}
+	}
+	
+	private static final class GemerkteAntwort {
+		private final ClientRequestInfo info;
+		
+		private final ServerAntwort antwort;
+		
+		private GemerkteAntwort(ClientRequestInfo info, ServerAntwort antwort) {
+			this.info = info;
+			this.antwort = antwort;
+		}
+	}
+}
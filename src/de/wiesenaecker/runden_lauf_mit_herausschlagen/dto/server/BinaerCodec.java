@@ -0,0 +1,1188 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld.FeldArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.VakanterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta.FigurPosition;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis.SchrittErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis.SchrittStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert.AenderungsArt;
+
+/**
+ * <pre>
+ * 
+ * Ein kompaktes, von Hand geschriebenes Binär-Format für die Nachrichten zwischen Client und Server.
+ * 
+ * Aufbau der Nutzdaten:
+ * 
+ *   +---------------------+-------------------------+-----------------------+
+ *   | Kennung (1 Byte)    | Schema-Version (1 Byte) | Wert (Typ + Felder)   |
+ *   +---------------------+-------------------------+-----------------------+
+ * 
+ * - ganze Zahlen und Schlüssel sind VarInts (7 Bit je Byte, vorzeichenbehaftete per ZigZag),
+ *   so braucht ein kleiner Schlüssel 1 bis 2 Bytes statt 8
+ * - Enums werden als Ordinalzahl geschrieben
+ * - die Felder stehen in fester Reihenfolge, optionale Felder werden
+ *   über Bits in einem Flag-Byte vor dem Objekt an- und abgemeldet
+ * - Farben, Spielfelder, Figuren und Spieler werden beim ersten Auftreten vollständig geschrieben,
+ *   danach nur noch als Verweis auf ihre laufende Nummer in der Nachricht.
+ *   So bleibt wie bei der Java-Serialisierung erhalten, dass z.B. eine Figur des Spielers
+ *   dasselbe Objekt ist wie in der Figuren-Menge des SpielZustands
+ * - Mengen werden beim Lesen als LinkedHashSet in der geschriebenen Reihenfolge aufgebaut,
+ *   die Reihenfolge der Spieler bleibt also erhalten
+ * 
+ * Werte, die das Format nicht kennt, werden eingebettet mit der Java-Serialisierung übertragen.
+ * 
+ * Ändert sich eine der Klassen oder die Reihenfolge der Konstanten eines Enums,
+ * muss {@link #SCHEMA_VERSION} erhöht werden: ein Codec lehnt Nachrichten mit einer
+ * anderen Schema-Version ab, statt sie falsch zu lesen.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class BinaerCodec implements NachrichtenCodec {
+	/**
+	 * das erste Byte der Nutzdaten ('R'), die Java-Serialisierung beginnt dagegen mit 0xAC
+	 */
+	public static final byte KENNUNG = 0x52;
+	
+	/**
+	 * die Version des Schemas, in dem dieser Codec schreibt und liest
+	 */
+	public static final byte SCHEMA_VERSION = 9;
+	
+	private static final int WERT_NULL = 0;
+	private static final int WERT_CLIENT_REQUEST = 1;
+	private static final int WERT_SERVER_ANTWORT = 2;
+	private static final int WERT_SPIEL_ZUSTAND = 3;
+	private static final int WERT_SPIEL_ZUG = 4;
+	private static final int WERT_WUERFEL_ERGEBNIS = 5;
+	private static final int WERT_LISTE = 6;
+	private static final int WERT_SPIEL_ZUSTAND_GEAENDERT = 7;
+	private static final int WERT_SPIEL_ZUSTAND_DELTA = 8;
+	private static final int WERT_WARTE_ERGEBNIS = 9;
+	private static final int WERT_STAPEL_ERGEBNIS = 10;
+	private static final int WERT_JAVA_SERIALISIERT = 15;
+	
+	/**
+	 * ein Verweis auf null
+	 */
+	private static final int VERWEIS_NULL = 0;
+	
+	/**
+	 * das Objekt kommt zum ersten Mal vor und folgt vollständig
+	 */
+	private static final int VERWEIS_NEU = 1;
+	
+	/**
+	 * ab hier ist ein Verweis die laufende Nummer eines schon geschriebenen Objekts plus 2
+	 */
+	private static final int VERWEIS_ERSTER_INDEX = 2;
+	
+	/**
+	 * mehr Würfel-Versuche sind auch mit vielen Sechsen hintereinander nicht plausibel
+	 */
+	private static final int MAX_WUERFEL_VERSUCHE = 1024;
+	
+	private static final int SPIELER_KONKRET = 0;
+	private static final int SPIELER_VAKANT = 1;
+	private static final int SPIELER_AKTIV = 2;
+	
+	/**
+	 * die Farb-Kanäle stehen als drei double im Strom
+	 */
+	private static final int KANAL_ROH = 0;
+	
+	/**
+	 * die Farb-Kanäle sind (float)(k / 255.0), wie bei JavaFX, und stehen als je ein Byte k im Strom
+	 */
+	private static final int KANAL_FLOAT_255 = 1;
+	
+	/**
+	 * die Farb-Kanäle sind k / 255.0 und stehen als je ein Byte k im Strom
+	 */
+	private static final int KANAL_DOUBLE_255 = 2;
+	
+	private static final ClientRequestInfo[] CLIENT_REQUEST_INFOS = ClientRequestInfo.values();
+	private static final ServerAntwortStatus[] SERVER_ANTWORT_STATUS = ServerAntwortStatus.values();
+	private static final WuerfelErgebnis[] WUERFEL_ERGEBNISSE = WuerfelErgebnis.values();
+	private static final AktiverSpielerTodoAktion[] TODO_AKTIONEN = AktiverSpielerTodoAktion.values();
+	private static final FeldArt[] FELD_ARTEN = FeldArt.values();
+	private static final AenderungsArt[] AENDERUNGS_ARTEN = AenderungsArt.values();
+	private static final WarteErgebnis[] WARTE_ERGEBNISSE = WarteErgebnis.values();
+	private static final Bedingung[] BEDINGUNGEN = Bedingung.values();
+	private static final SchrittStatus[] SCHRITT_STATUS = SchrittStatus.values();
+	
+	@Override
+	public byte[] kodieren(Object nachricht) throws IOException {
+		Schreiber schreiber = new Schreiber();
+		schreiber.schreibenByte(KENNUNG);
+		schreiber.schreibenByte(SCHEMA_VERSION);
+		schreiber.schreibenWert(nachricht);
+		return schreiber.toByteArray();
+	}
+	
+	@Override
+	public Object dekodieren(byte[] nutzdaten) throws IOException, ClassNotFoundException {
+		Leser leser = new Leser(nutzdaten);
+		if(leser.lesenByte() != KENNUNG) {
+			throw new StreamCorruptedException("die Nutzdaten sind nicht im Binär-Format");
+		}
+		int version = leser.lesenByte();
+		if(version != SCHEMA_VERSION) {
+			throw new StreamCorruptedException("nicht unterstützte Schema-Version: " + version);
+		}
+		try {
+			Object nachricht = leser.lesenWert();
+			if(leser.position != nutzdaten.length) {
+				throw new StreamCorruptedException("überzählige Bytes nach der Nachricht");
+			}
+			return nachricht;
+		} catch(RuntimeException ausnahme) {
+			// die Daten-Klassen prüfen ihre Werte selbst, ein Verstoß heißt hier: der Strom ist beschädigt
+			StreamCorruptedException fehler = new StreamCorruptedException(
+					"die Nachricht ist ungültig: " + ausnahme.getMessage()
+			);
+			fehler.initCause(ausnahme);
+			throw fehler;
+		}
+	}
+	
+	private static int kanal255(double wert, boolean alsFloat) {
+		long k = Math.round(wert * 255);
+		if(k < 0 || k > 255) {
+			return -1;
+		}
+		double erwartet = alsFloat ? (double)(float)(k / 255.0) : k / 255.0;
+		return Double.compare(erwartet, wert) == 0 ? (int)k : -1;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schreibt eine Nachricht in einen wachsenden Puffer.
+	 * 
+	 * </pre>
+	 */
+	private static final class Schreiber {
+		private byte[] puffer = new byte[256];
+		
+		private int laenge;
+		
+		/**
+		 * die laufenden Nummern der schon geschriebenen Objekte
+		 */
+		private final Map<Object, Integer> verweise = new IdentityHashMap<>(64);
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(puffer, laenge);
+		}
+		
+		private void platzFuer(int anzahl) {
+			if(laenge + anzahl > puffer.length) {
+				puffer = Arrays.copyOf(puffer, Math.max(puffer.length * 2, laenge + anzahl));
+			}
+		}
+		
+		void schreibenByte(int wert) {
+			platzFuer(1);
+			puffer[laenge++] = (byte)wert;
+		}
+		
+		void schreibenBytes(byte[] bytes) {
+			platzFuer(bytes.length);
+			System.arraycopy(bytes, 0, puffer, laenge, bytes.length);
+			laenge += bytes.length;
+		}
+		
+		void schreibenVarInt(int wert) {
+			platzFuer(5);
+			while((wert & ~0x7F) != 0) {
+				puffer[laenge++] = (byte)((wert & 0x7F) | 0x80);
+				wert >>>= 7;
+			}
+			puffer[laenge++] = (byte)wert;
+		}
+		
+		void schreibenVarLong(long wert) {
+			platzFuer(10);
+			while((wert & ~0x7FL) != 0) {
+				puffer[laenge++] = (byte)((wert & 0x7F) | 0x80);
+				wert >>>= 7;
+			}
+			puffer[laenge++] = (byte)wert;
+		}
+		
+		void schreibenZigZagInt(int wert) {
+			schreibenVarInt((wert << 1) ^ (wert >> 31));
+		}
+		
+		void schreibenZigZagLong(long wert) {
+			schreibenVarLong((wert << 1) ^ (wert >> 63));
+		}
+		
+		void schreibenFestLong(long wert) {
+			platzFuer(8);
+			for(int i = 56; i >= 0; i -= 8) {
+				puffer[laenge++] = (byte)(wert >>> i);
+			}
+		}
+		
+		void schreibenFestInt(int wert) {
+			platzFuer(4);
+			for(int i = 24; i >= 0; i -= 8) {
+				puffer[laenge++] = (byte)(wert >>> i);
+			}
+		}
+		
+		/**
+		 * schreibt die Länge + 1 und die UTF-8 Bytes, 0 steht für null
+		 */
+		void schreibenText(String text) {
+			if(text == null) {
+				schreibenVarInt(0);
+				return;
+			}
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			schreibenVarInt(bytes.length + 1);
+			schreibenBytes(bytes);
+		}
+		
+		void schreibenZeitpunkt(LocalDateTime zeitpunkt) {
+			schreibenZigZagLong(zeitpunkt.toEpochSecond(ZoneOffset.UTC));
+			schreibenVarInt(zeitpunkt.getNano());
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * Schreibt den Verweis auf ein Objekt.
+		 * 
+		 * @return ob das Objekt neu ist und der Aufrufer es vollständig schreiben
+		 *         und danach {@link #registrieren(Object)} aufrufen muss
+		 * 
+		 * </pre>
+		 */
+		boolean schreibenVerweis(Object objekt) {
+			if(objekt == null) {
+				schreibenVarInt(VERWEIS_NULL);
+				return false;
+			}
+			Integer nummer = verweise.get(objekt);
+			if(nummer != null) {
+				schreibenVarInt(VERWEIS_ERSTER_INDEX + nummer);
+				return false;
+			}
+			schreibenVarInt(VERWEIS_NEU);
+			return true;
+		}
+		
+		void registrieren(Object objekt) {
+			verweise.put(objekt, verweise.size());
+		}
+		
+		void schreibenWert(Object wert) throws IOException {
+			if(wert == null) {
+				schreibenVarInt(WERT_NULL);
+			} else if(wert instanceof ClientRequest) {
+				schreibenVarInt(WERT_CLIENT_REQUEST);
+				schreibenClientRequest((ClientRequest)wert);
+			} else if(wert instanceof ServerAntwort) {
+				schreibenVarInt(WERT_SERVER_ANTWORT);
+				schreibenServerAntwort((ServerAntwort)wert);
+			} else if(wert instanceof SpielZustand) {
+				schreibenVarInt(WERT_SPIEL_ZUSTAND);
+				schreibenSpielZustand((SpielZustand)wert);
+			} else if(wert instanceof SpielZug) {
+				schreibenVarInt(WERT_SPIEL_ZUG);
+				schreibenSpielZug((SpielZug)wert);
+			} else if(wert instanceof WuerfelErgebnis) {
+				schreibenVarInt(WERT_WUERFEL_ERGEBNIS);
+				schreibenVarInt(((WuerfelErgebnis)wert).ordinal());
+			} else if(wert instanceof SpielZustandGeaendert) {
+				SpielZustandGeaendert aenderung = (SpielZustandGeaendert)wert;
+				schreibenVarInt(WERT_SPIEL_ZUSTAND_GEAENDERT);
+				schreibenZigZagLong(aenderung.getSpielZustandSchluessel());
+				schreibenZigZagLong(aenderung.getAenderungsNummer());
+				schreibenVarInt(aenderung.getLetzteAenderung().ordinal());
+			} else if(wert instanceof WarteErgebnis) {
+				schreibenVarInt(WERT_WARTE_ERGEBNIS);
+				schreibenVarInt(((WarteErgebnis)wert).ordinal());
+			} else if(wert instanceof StapelErgebnis) {
+				schreibenVarInt(WERT_STAPEL_ERGEBNIS);
+				schreibenStapelErgebnis((StapelErgebnis)wert);
+			} else if(wert instanceof SpielZustandDelta) {
+				schreibenVarInt(WERT_SPIEL_ZUSTAND_DELTA);
+				schreibenSpielZustandDelta((SpielZustandDelta)wert);
+			} else if(wert instanceof List) {
+				List<?> liste = (List<?>)wert;
+				schreibenVarInt(WERT_LISTE);
+				schreibenVarInt(liste.size());
+				for(Object element : liste) {
+					schreibenWert(element);
+				}
+			} else if(wert instanceof Serializable) {
+				byte[] eingebettet = NachrichtenFormat.JAVA_SERIALISIERUNG.getCodec().kodieren(wert);
+				schreibenVarInt(WERT_JAVA_SERIALISIERT);
+				schreibenVarInt(eingebettet.length);
+				schreibenBytes(eingebettet);
+			} else {
+				throw new NotSerializableException(wert.getClass().getName());
+			}
+		}
+		
+		private void schreibenClientRequest(ClientRequest anfrage) {
+			// ZIEHEN hat den Figur-Schlüssel, AENDERUNGEN_INFO die bekannte Version, WARTE_AUF_ZUG die Wartezeit als Parameter
+			Long parameter = switch(anfrage.getInfo()) {
+			case ZIEHEN -> anfrage.getFigurSchluessel();
+			case AENDERUNGEN_INFO -> anfrage.getBekannteVersion();
+			case WARTE_AUF_ZUG -> anfrage.getWartezeitMillis();
+			default -> null;
+			};
+			Long idempotenzSchluessel = anfrage.getIdempotenzSchluessel();
+			schreibenVarInt(anfrage.getInfo().ordinal() << 2 | (idempotenzSchluessel != null ? 2 : 0) | (parameter != null ? 1 : 0));
+			schreibenZigZagLong(anfrage.getSpielZustandSchluessel());
+			schreibenZigZagLong(anfrage.getSpielerSchluessel());
+			// das Geheimnis ist eine Zufallszahl, als VarInt wäre es länger als 8 Bytes
+			schreibenFestLong(anfrage.getGeheimnis());
+			if(idempotenzSchluessel != null) {
+				// meist ab einer Zufallszahl hochgezählt, also wie das Geheimnis fest 8 Bytes
+				schreibenFestLong(idempotenzSchluessel);
+			}
+			if(parameter != null) {
+				schreibenZigZagLong(parameter);
+			}
+			if(anfrage.getInfo() == ClientRequestInfo.STAPEL) {
+				schreibenVarInt(anfrage.getSchritte().size());
+				for(StapelSchritt schritt : anfrage.getSchritte()) {
+					Long figurSchluessel = schritt.getFigurSchluessel();
+					schreibenVarInt(schritt.getAktion().ordinal() << 3 | schritt.getBedingung().ordinal() << 1 | (figurSchluessel != null ? 1 : 0));
+					if(figurSchluessel != null) {
+						schreibenZigZagLong(figurSchluessel);
+					}
+				}
+			}
+		}
+		
+		private void schreibenStapelErgebnis(StapelErgebnis stapelErgebnis) {
+			schreibenVarInt(stapelErgebnis.getSchrittErgebnisse().size());
+			for(SchrittErgebnis ergebnis : stapelErgebnis.getSchrittErgebnisse()) {
+				int flags = ergebnis.getStatus().ordinal() << 3
+						| (ergebnis.getWuerfelErgebnis() != null ? 1 : 0)
+						| (ergebnis.getFigurSchluessel() != null ? 2 : 0)
+						| (ergebnis.getFehler() != null ? 4 : 0);
+				schreibenByte(flags);
+				if(ergebnis.getWuerfelErgebnis() != null) {
+					schreibenVarInt(ergebnis.getWuerfelErgebnis().ordinal());
+				}
+				if(ergebnis.getFigurSchluessel() != null) {
+					schreibenZigZagLong(ergebnis.getFigurSchluessel());
+				}
+				if(ergebnis.getFehler() != null) {
+					schreibenText(ergebnis.getFehler());
+				}
+			}
+			schreibenVarInt(stapelErgebnis.getTodoAktion().ordinal());
+		}
+		
+		private void schreibenSpielZustandDelta(SpielZustandDelta delta) throws IOException {
+			int flags = (delta.isVollstaendig() ? 1 : 0)
+					| (delta.getAktiverSpielerSchluessel() != null ? 2 : 0)
+					| (delta.getTodoAktion() != null ? 4 : 0)
+					| (delta.getWuerfelErgebnis() != null ? 8 : 0);
+			schreibenByte(flags);
+			schreibenZigZagLong(delta.getVersion());
+			if(delta.isVollstaendig()) {
+				schreibenSpielZustand(delta.getSpielZustand());
+				return;
+			}
+			schreibenVarInt(delta.getGeaenderteFiguren().size());
+			for(FigurPosition position : delta.getGeaenderteFiguren()) {
+				schreibenZigZagLong(position.getFigurSchluessel());
+				schreibenSpielFeld(position.getSpielFeld());
+			}
+			if(delta.getAktiverSpielerSchluessel() != null) {
+				schreibenZigZagLong(delta.getAktiverSpielerSchluessel());
+			}
+			if(delta.getTodoAktion() != null) {
+				schreibenVarInt(delta.getTodoAktion().ordinal());
+			}
+			if(delta.getWuerfelErgebnis() != null) {
+				schreibenVarInt(delta.getWuerfelErgebnis().ordinal());
+			}
+			schreibenVarInt(delta.getGewinnerSchluessel().size());
+			for(Long gewinner : delta.getGewinnerSchluessel()) {
+				schreibenZigZagLong(gewinner);
+			}
+		}
+		
+		private void schreibenServerAntwort(ServerAntwort antwort) throws IOException {
+			schreibenVarInt(antwort.getStatus().ordinal());
+			if(antwort.getStatus() == ServerAntwortStatus.OK) {
+				schreibenWert(antwort.getInhalt());
+			} else {
+				schreibenText(antwort.getNachricht());
+				if(antwort.getStatus() == ServerAntwortStatus.UEBERLASTET) {
+					schreibenVarLong(antwort.getWiederholenNachMillis());
+				} else if(antwort.getStatus() == ServerAntwortStatus.UMGELEITET) {
+					schreibenText(antwort.getZielHost());
+					schreibenVarInt(antwort.getZielPort());
+				}
+			}
+		}
+		
+		private void schreibenSpielZustand(SpielZustand zustand) throws IOException {
+			int flags = (zustand.getSchluessel() != null ? 1 : 0)
+					| (zustand.getSpielStart() != null ? 2 : 0)
+					| (zustand.getSpielEnde() != null ? 4 : 0);
+			schreibenByte(flags);
+			schreibenZigZagInt(zustand.getAnzahlSpielerPositionen());
+			schreibenZigZagInt(zustand.getAnzahlKonkreterSpieler());
+			schreibenZigZagInt(zustand.getSpielerOffset());
+			
+			Set<Spieler> alleSpieler = zustand.getSpielerMenge();
+			schreibenVarInt(alleSpieler == null ? 0 : alleSpieler.size() + 1);
+			if(alleSpieler != null) {
+				for(Spieler spieler : alleSpieler) {
+					schreibenSpieler(spieler);
+				}
+			}
+			schreibenFiguren(zustand.getFigurenMenge());
+			schreibenSpieler(zustand.getAktiverSpieler());
+			
+			if(zustand.getSchluessel() != null) {
+				schreibenZigZagLong(zustand.getSchluessel());
+			}
+			if(zustand.getSpielStart() != null) {
+				schreibenZeitpunkt(zustand.getSpielStart());
+			}
+			if(zustand.getSpielEnde() != null) {
+				schreibenZeitpunkt(zustand.getSpielEnde());
+			}
+		}
+		
+		private void schreibenFiguren(Set<Figur> figuren) throws IOException {
+			schreibenVarInt(figuren == null ? 0 : figuren.size() + 1);
+			if(figuren != null) {
+				for(Figur figur : figuren) {
+					schreibenFigur(figur);
+				}
+			}
+		}
+		
+		private void schreibenSpielZug(SpielZug zug) throws IOException {
+			int flags = (zug.getSchluessel() != null ? 1 : 0)
+					| (zug.getWuerfelErgebnis() != null ? 2 : 0);
+			schreibenByte(flags);
+			schreibenFigur(zug.getZugFigur());
+			schreibenSpielFeld(zug.getZielFeld());
+			schreibenFigur(zug.getSchlagFigur());
+			if(zug.getWuerfelErgebnis() != null) {
+				schreibenVarInt(zug.getWuerfelErgebnis().ordinal());
+			}
+			if(zug.getSchluessel() != null) {
+				schreibenZigZagLong(zug.getSchluessel());
+			}
+		}
+		
+		private void schreibenFarbe(Farbe farbe) {
+			if(!schreibenVerweis(farbe)) {
+				return;
+			}
+			int kanalArt = KANAL_ROH;
+			if(kanal255(farbe.getRot(), true) >= 0 && kanal255(farbe.getGruen(), true) >= 0 && kanal255(farbe.getBlau(), true) >= 0) {
+				kanalArt = KANAL_FLOAT_255;
+			} else if(kanal255(farbe.getRot(), false) >= 0 && kanal255(farbe.getGruen(), false) >= 0 && kanal255(farbe.getBlau(), false) >= 0) {
+				kanalArt = KANAL_DOUBLE_255;
+			}
+			int flags = (farbe.getSchluessel() != null ? 1 : 0)
+					| (farbe.getDisplayName() != null ? 2 : 0)
+					| kanalArt << 2;
+			schreibenByte(flags);
+			schreibenFestInt(farbe.getFarbwert());
+			if(kanalArt == KANAL_ROH) {
+				schreibenFestLong(Double.doubleToRawLongBits(farbe.getRot()));
+				schreibenFestLong(Double.doubleToRawLongBits(farbe.getGruen()));
+				schreibenFestLong(Double.doubleToRawLongBits(farbe.getBlau()));
+			} else {
+				boolean alsFloat = kanalArt == KANAL_FLOAT_255;
+				schreibenByte(kanal255(farbe.getRot(), alsFloat));
+				schreibenByte(kanal255(farbe.getGruen(), alsFloat));
+				schreibenByte(kanal255(farbe.getBlau(), alsFloat));
+			}
+			if(farbe.getSchluessel() != null) {
+				schreibenZigZagLong(farbe.getSchluessel());
+			}
+			if(farbe.getDisplayName() != null) {
+				schreibenText(farbe.getDisplayName());
+			}
+			registrieren(farbe);
+		}
+		
+		private void schreibenSpielFeld(SpielFeld feld) {
+			if(!schreibenVerweis(feld)) {
+				return;
+			}
+			schreibenByte((feld.getSchluessel() != null ? 1 : 0) | feld.getFeldArt().ordinal() << 1);
+			schreibenFarbe(feld.getFeldFarbe());
+			schreibenZigZagInt(feld.getFeldPosition());
+			if(feld.getSchluessel() != null) {
+				schreibenZigZagLong(feld.getSchluessel());
+			}
+			registrieren(feld);
+		}
+		
+		private void schreibenFigur(Figur figur) {
+			if(!schreibenVerweis(figur)) {
+				return;
+			}
+			int flags = (figur.getSchluessel() != null ? 1 : 0)
+					| (figur.getFremdSchluesselSpielZustand() != null ? 2 : 0)
+					| (figur.getFremdSchluesselSpieler() != null ? 4 : 0);
+			schreibenByte(flags);
+			schreibenFarbe(figur.getFarbe());
+			schreibenSpielFeld(figur.getSpielFeld());
+			if(figur.getSchluessel() != null) {
+				schreibenZigZagLong(figur.getSchluessel());
+			}
+			if(figur.getFremdSchluesselSpielZustand() != null) {
+				schreibenZigZagLong(figur.getFremdSchluesselSpielZustand());
+			}
+			if(figur.getFremdSchluesselSpieler() != null) {
+				schreibenZigZagLong(figur.getFremdSchluesselSpieler());
+			}
+			registrieren(figur);
+		}
+		
+		private void schreibenSpieler(Spieler spieler) throws IOException {
+			if(!schreibenVerweis(spieler)) {
+				return;
+			}
+			int flags = (spieler.getSchluessel() != null ? 4 : 0)
+					| (spieler.getFremdSchluesselSpielZustand() != null ? 8 : 0);
+			if(spieler instanceof KonkreterSpieler) {
+				KonkreterSpieler konkret = (KonkreterSpieler)spieler;
+				flags |= SPIELER_KONKRET
+						| (konkret.getGewinnerPosition() != null ? 16 : 0)
+						| (konkret.getName() != null ? 32 : 0);
+				schreibenByte(flags);
+				schreibenFarbe(konkret.getFarbe());
+				schreibenSpielFeld(konkret.getStartStreckenFeld());
+				schreibenSpielFeld(konkret.getEndStreckenFeld());
+				if(konkret.getName() != null) {
+					schreibenText(konkret.getName());
+				}
+				schreibenFiguren(konkret.getFigurenMenge());
+				if(konkret.getGewinnerPosition() != null) {
+					schreibenZigZagInt(konkret.getGewinnerPosition());
+				}
+			} else if(spieler instanceof VakanterSpieler) {
+				flags |= SPIELER_VAKANT;
+				schreibenByte(flags);
+				schreibenFarbe(spieler.getFarbe());
+				schreibenSpielFeld(spieler.getStartStreckenFeld());
+				schreibenSpielFeld(spieler.getEndStreckenFeld());
+			} else if(spieler instanceof AktiverSpielerDekorator) {
+				AktiverSpielerDekorator aktiv = (AktiverSpielerDekorator)spieler;
+				flags |= SPIELER_AKTIV
+						| (aktiv.getWuerfelErgebnis() != null ? 16 : 0)
+						| (aktiv.isHatGezogen() ? 32 : 0);
+				schreibenByte(flags);
+				schreibenSpieler(aktiv.getDerSpieler());
+				schreibenVarInt(aktiv.getAktuelleTodoAktion().ordinal());
+				if(aktiv.getWuerfelErgebnis() != null) {
+					schreibenVarInt(aktiv.getWuerfelErgebnis().ordinal());
+				}
+				schreibenVarInt(aktiv.getWuerfelVersuchsAnzahl());
+			} else {
+				throw new NotSerializableException(spieler.getClass().getName());
+			}
+			if(spieler.getSchluessel() != null) {
+				schreibenZigZagLong(spieler.getSchluessel());
+			}
+			if(spieler.getFremdSchluesselSpielZustand() != null) {
+				schreibenZigZagLong(spieler.getFremdSchluesselSpielZustand());
+			}
+			registrieren(spieler);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Liest eine Nachricht aus den Nutzdaten, in derselben Reihenfolge wie der {@link Schreiber}.
+	 * 
+	 * </pre>
+	 */
+	private static final class Leser {
+		private final byte[] daten;
+		
+		private int position;
+		
+		/**
+		 * die schon gelesenen Objekte, nach ihrer laufenden Nummer
+		 */
+		private final List<Object> objekte = new ArrayList<>();
+		
+		Leser(byte[] daten) {
+			this.daten = daten;
+		}
+		
+		int lesenByte() throws EOFException {
+			if(position >= daten.length) {
+				throw new EOFException("die Nachricht ist zu kurz");
+			}
+			return daten[position++] & 0xFF;
+		}
+		
+		byte[] lesenBytes(int anzahl) throws EOFException {
+			if(anzahl < 0 || anzahl > daten.length - position) {
+				throw new EOFException("die Nachricht ist zu kurz");
+			}
+			byte[] bytes = Arrays.copyOfRange(daten, position, position + anzahl);
+			position += anzahl;
+			return bytes;
+		}
+		
+		int lesenVarInt() throws IOException {
+			int wert = 0;
+			for(int verschiebung = 0; verschiebung < 35; verschiebung += 7) {
+				int b = lesenByte();
+				wert |= (b & 0x7F) << verschiebung;
+				if((b & 0x80) == 0) {
+					return wert;
+				}
+			}
+			throw new StreamCorruptedException("VarInt ist zu lang");
+		}
+		
+		long lesenVarLong() throws IOException {
+			long wert = 0;
+			for(int verschiebung = 0; verschiebung < 70; verschiebung += 7) {
+				int b = lesenByte();
+				wert |= (long)(b & 0x7F) << verschiebung;
+				if((b & 0x80) == 0) {
+					return wert;
+				}
+			}
+			throw new StreamCorruptedException("VarLong ist zu lang");
+		}
+		
+		int lesenZigZagInt() throws IOException {
+			int wert = lesenVarInt();
+			return (wert >>> 1) ^ -(wert & 1);
+		}
+		
+		long lesenZigZagLong() throws IOException {
+			long wert = lesenVarLong();
+			return (wert >>> 1) ^ -(wert & 1);
+		}
+		
+		long lesenFestLong() throws EOFException {
+			long wert = 0;
+			for(int i = 0; i < 8; i++) {
+				wert = wert << 8 | lesenByte();
+			}
+			return wert;
+		}
+		
+		int lesenFestInt() throws EOFException {
+			int wert = 0;
+			for(int i = 0; i < 4; i++) {
+				wert = wert << 8 | lesenByte();
+			}
+			return wert;
+		}
+		
+		String lesenText() throws IOException {
+			int laenge = lesenVarInt();
+			if(laenge == 0) {
+				return null;
+			}
+			return new String(lesenBytes(laenge - 1), StandardCharsets.UTF_8);
+		}
+		
+		LocalDateTime lesenZeitpunkt() throws IOException {
+			long sekunden = lesenZigZagLong();
+			return LocalDateTime.ofEpochSecond(sekunden, lesenVarInt(), ZoneOffset.UTC);
+		}
+		
+		<E extends Enum<E>> E lesenEnum(E[] werte) throws IOException {
+			return ordinal(werte, lesenVarInt());
+		}
+		
+		private static <E extends Enum<E>> E ordinal(E[] werte, int ordinal) throws StreamCorruptedException {
+			if(ordinal < 0 || ordinal >= werte.length) {
+				throw new StreamCorruptedException("unbekannte Ordinalzahl " + ordinal + " für " + werte.getClass().getComponentType().getSimpleName());
+			}
+			return werte[ordinal];
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @param verweis ein gelesener Verweis, größer gleich {@link BinaerCodec#VERWEIS_ERSTER_INDEX}
+		 * @return das schon gelesene Objekt, auf das der Verweis zeigt
+		 * 
+		 * </pre>
+		 */
+		private <T> T bekanntesObjekt(int verweis, Class<T> typ) throws StreamCorruptedException {
+			int nummer = verweis - VERWEIS_ERSTER_INDEX;
+			if(verweis < VERWEIS_ERSTER_INDEX || nummer >= objekte.size() || !typ.isInstance(objekte.get(nummer))) {
+				throw new StreamCorruptedException("ungültiger Verweis auf " + typ.getSimpleName() + ": " + verweis);
+			}
+			return typ.cast(objekte.get(nummer));
+		}
+		
+		Object lesenWert() throws IOException, ClassNotFoundException {
+			int typ = lesenVarInt();
+			switch(typ) {
+			case WERT_NULL:
+				return null;
+			case WERT_CLIENT_REQUEST:
+				return lesenClientRequest();
+			case WERT_SERVER_ANTWORT:
+				return lesenServerAntwort();
+			case WERT_SPIEL_ZUSTAND:
+				return lesenSpielZustand();
+			case WERT_SPIEL_ZUG:
+				return lesenSpielZug();
+			case WERT_WUERFEL_ERGEBNIS:
+				return lesenEnum(WUERFEL_ERGEBNISSE);
+			case WERT_LISTE:
+				int anzahl = lesenVarInt();
+				if(anzahl < 0 || anzahl > daten.length - position) {
+					throw new StreamCorruptedException("ungültige Listen-Länge: " + anzahl);
+				}
+				ArrayList<Object> liste = new ArrayList<>(anzahl);
+				for(int i = 0; i < anzahl; i++) {
+					liste.add(lesenWert());
+				}
+				return liste;
+			case WERT_SPIEL_ZUSTAND_GEAENDERT:
+				long spielZustandSchluessel = lesenZigZagLong();
+				long aenderungsNummer = lesenZigZagLong();
+				return new SpielZustandGeaendert(spielZustandSchluessel, aenderungsNummer, lesenEnum(AENDERUNGS_ARTEN));
+			case WERT_SPIEL_ZUSTAND_DELTA:
+				return lesenSpielZustandDelta();
+			case WERT_WARTE_ERGEBNIS:
+				return lesenEnum(WARTE_ERGEBNISSE);
+			case WERT_STAPEL_ERGEBNIS:
+				return lesenStapelErgebnis();
+			case WERT_JAVA_SERIALISIERT:
+				byte[] eingebettet = lesenBytes(lesenVarInt());
+				return NachrichtenFormat.JAVA_SERIALISIERUNG.getCodec().dekodieren(eingebettet);
+			default:
+				throw new StreamCorruptedException("unbekannter Werte-Typ: " + typ);
+			}
+		}
+		
+		private ClientRequest lesenClientRequest() throws IOException {
+			int kopf = lesenVarInt();
+			ClientRequestInfo info = ordinal(CLIENT_REQUEST_INFOS, kopf >>> 2);
+			long spielZustandSchluessel = lesenZigZagLong();
+			long spielerSchluessel = lesenZigZagLong();
+			long geheimnis = lesenFestLong();
+			if((kopf & 2) == 0) {
+				return lesenClientRequest(kopf, info, spielZustandSchluessel, spielerSchluessel, geheimnis);
+			}
+			long idempotenzSchluessel = lesenFestLong();
+			if(!ClientRequest.isSpielAktion(info)) {
+				throw new StreamCorruptedException(info + " hat keinen Idempotenz-Schlüssel");
+			}
+			return lesenClientRequest(kopf, info, spielZustandSchluessel, spielerSchluessel, geheimnis)
+					.mitIdempotenzSchluessel(idempotenzSchluessel);
+		}
+		
+		private ClientRequest lesenClientRequest(
+				int kopf,
+				ClientRequestInfo info,
+				long spielZustandSchluessel,
+				long spielerSchluessel,
+				long geheimnis
+		) throws IOException {
+			if((kopf & 1) != 0) {
+				long parameter = lesenZigZagLong();
+				switch(info) {
+				case ZIEHEN:
+					return ClientRequest.erstellenZiehenClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, parameter);
+				case AENDERUNGEN_INFO:
+					return ClientRequest.erstellenAenderungenClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, parameter);
+				case WARTE_AUF_ZUG:
+					return ClientRequest.erstellenWarteAufZugClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, parameter);
+				default:
+					throw new StreamCorruptedException(info + " hat keinen Parameter");
+				}
+			}
+			if(info == ClientRequestInfo.STAPEL) {
+				int anzahl = lesenVarInt();
+				if(anzahl < 1 || anzahl > ClientRequest.MAX_STAPEL_SCHRITTE) {
+					throw new StreamCorruptedException("ungültige Anzahl Schritte: " + anzahl);
+				}
+				List<StapelSchritt> schritte = new ArrayList<>(anzahl);
+				for(int i = 0; i < anzahl; i++) {
+					int schrittKopf = lesenVarInt();
+					ClientRequestInfo aktion = ordinal(CLIENT_REQUEST_INFOS, schrittKopf >>> 3);
+					Bedingung bedingung = ordinal(BEDINGUNGEN, (schrittKopf >>> 1) & 3);
+					Long figurSchluessel = (schrittKopf & 1) != 0 ? lesenZigZagLong() : null;
+					schritte.add(switch(aktion) {
+					case WUERFELN -> StapelSchritt.erstellenWuerfelnSchritt(bedingung);
+					case ZIEHEN -> StapelSchritt.erstellenZiehenSchritt(bedingung, figurSchluessel);
+					case GEHE_ZUM_NAECHSTER_SPIELER -> StapelSchritt.erstellenNaechsterSpielerSchritt(bedingung);
+					default -> throw new StreamCorruptedException(aktion + " ist kein Schritt eines Stapels");
+					});
+				}
+				return ClientRequest.erstellenStapelClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, schritte);
+			}
+			return ClientRequest.erstellenClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, info);
+		}
+		
+		private StapelErgebnis lesenStapelErgebnis() throws IOException {
+			int anzahl = lesenVarInt();
+			if(anzahl < 0 || anzahl > daten.length - position) {
+				throw new StreamCorruptedException("ungültige Anzahl Schritt-Ergebnisse: " + anzahl);
+			}
+			List<SchrittErgebnis> ergebnisse = new ArrayList<>(anzahl);
+			for(int i = 0; i < anzahl; i++) {
+				int flags = lesenByte();
+				SchrittStatus status = ordinal(SCHRITT_STATUS, flags >>> 3);
+				WuerfelErgebnis wuerfelErgebnis = (flags & 1) != 0 ? lesenEnum(WUERFEL_ERGEBNISSE) : null;
+				Long figurSchluessel = (flags & 2) != 0 ? lesenZigZagLong() : null;
+				String fehler = (flags & 4) != 0 ? lesenText() : null;
+				ergebnisse.add(switch(status) {
+				case AUSGEFUEHRT -> SchrittErgebnis.erstellenAusgefuehrt(wuerfelErgebnis, figurSchluessel);
+				case UEBERSPRUNGEN -> SchrittErgebnis.erstellenUebersprungen();
+				case FEHLGESCHLAGEN -> SchrittErgebnis.erstellenFehlgeschlagen(fehler);
+				});
+			}
+			return new StapelErgebnis(ergebnisse, lesenEnum(TODO_AKTIONEN));
+		}
+		
+		private SpielZustandDelta lesenSpielZustandDelta() throws IOException {
+			int flags = lesenByte();
+			long version = lesenZigZagLong();
+			if((flags & 1) != 0) {
+				return SpielZustandDelta.erstellenVollstaendig(version, lesenSpielZustand());
+			}
+			int anzahl = lesenVarInt();
+			if(anzahl < 0 || anzahl > daten.length - position) {
+				throw new StreamCorruptedException("ungültige Anzahl geänderter Figuren: " + anzahl);
+			}
+			List<FigurPosition> geaenderteFiguren = new ArrayList<>(anzahl);
+			for(int i = 0; i < anzahl; i++) {
+				long figurSchluessel = lesenZigZagLong();
+				geaenderteFiguren.add(new FigurPosition(figurSchluessel, lesenSpielFeld()));
+			}
+			Long aktiverSpielerSchluessel = (flags & 2) != 0 ? lesenZigZagLong() : null;
+			AktiverSpielerTodoAktion todoAktion = (flags & 4) != 0 ? lesenEnum(TODO_AKTIONEN) : null;
+			WuerfelErgebnis wuerfelErgebnis = (flags & 8) != 0 ? lesenEnum(WUERFEL_ERGEBNISSE) : null;
+			int anzahlGewinner = lesenVarInt();
+			if(anzahlGewinner < 0 || anzahlGewinner > daten.length - position) {
+				throw new StreamCorruptedException("ungültige Anzahl Gewinner: " + anzahlGewinner);
+			}
+			List<Long> gewinnerSchluessel = new ArrayList<>(anzahlGewinner);
+			for(int i = 0; i < anzahlGewinner; i++) {
+				gewinnerSchluessel.add(lesenZigZagLong());
+			}
+			return SpielZustandDelta.erstellenDelta(
+					version,
+					geaenderteFiguren,
+					aktiverSpielerSchluessel,
+					todoAktion,
+					wuerfelErgebnis,
+					gewinnerSchluessel
+			);
+		}
+		
+		private ServerAntwort lesenServerAntwort() throws IOException, ClassNotFoundException {
+			ServerAntwortStatus status = lesenEnum(SERVER_ANTWORT_STATUS);
+			if(status == ServerAntwortStatus.OK) {
+				Object inhalt = lesenWert();
+				if(inhalt != null && !(inhalt instanceof Serializable)) {
+					throw new StreamCorruptedException("der Inhalt der Antwort ist nicht serialisierbar");
+				}
+				return ServerAntwort.erstellenServerAntwort((Serializable)inhalt);
+			}
+			String nachricht = lesenText();
+			if(status == ServerAntwortStatus.UEBERLASTET) {
+				long wiederholenNachMillis = lesenVarLong();
+				if(wiederholenNachMillis < 0) {
+					throw new StreamCorruptedException("ungültige Wartezeit: " + wiederholenNachMillis);
+				}
+				return ServerAntwort.erstellenUeberlastetServerAntwort(nachricht, wiederholenNachMillis);
+			}
+			if(status == ServerAntwortStatus.UMGELEITET) {
+				String zielHost = lesenText();
+				int zielPort = lesenVarInt();
+				if(zielHost == null || zielPort < 1 || zielPort > 65535) {
+					throw new StreamCorruptedException("ungültiges Ziel: " + zielHost + ":" + zielPort);
+				}
+				return ServerAntwort.erstellenUmgeleitetServerAntwort(nachricht, zielHost, zielPort);
+			}
+			return ServerAntwort.erstellenFehlerServerAntwort(status, nachricht);
+		}
+		
+		private SpielZustand lesenSpielZustand() throws IOException {
+			int flags = lesenByte();
+			int anzahlSpielerPositionen = lesenZigZagInt();
+			int anzahlKonkreterSpieler = lesenZigZagInt();
+			int spielerOffset = lesenZigZagInt();
+			
+			Set<Spieler> alleSpieler = null;
+			int anzahlSpieler = lesenVarInt();
+			if(anzahlSpieler > 0) {
+				alleSpieler = new LinkedHashSet<>();
+				for(int i = 1; i < anzahlSpieler; i++) {
+					alleSpieler.add(lesenSpieler());
+				}
+			}
+			Set<Figur> alleFiguren = lesenFiguren();
+			Spieler aktiverSpieler = lesenSpieler();
+			if(aktiverSpieler != null && !(aktiverSpieler instanceof AktiverSpielerDekorator)) {
+				throw new StreamCorruptedException("der aktive Spieler ist kein AktiverSpielerDekorator");
+			}
+			
+			SpielZustand zustand = new SpielZustand(
+					(AktiverSpielerDekorator)aktiverSpieler,
+					alleSpieler,
+					alleFiguren,
+					anzahlSpielerPositionen,
+					anzahlKonkreterSpieler,
+					spielerOffset
+			);
+			if((flags & 1) != 0) {
+				zustand.setSchluessel(lesenZigZagLong());
+			}
+			if((flags & 2) != 0) {
+				zustand.setSpielStart(lesenZeitpunkt());
+			}
+			if((flags & 4) != 0) {
+				zustand.setSpielEnde(lesenZeitpunkt());
+			}
+			return zustand;
+		}
+		
+		private Set<Figur> lesenFiguren() throws IOException {
+			int anzahl = lesenVarInt();
+			if(anzahl == 0) {
+				return null;
+			}
+			Set<Figur> figuren = new LinkedHashSet<>();
+			for(int i = 1; i < anzahl; i++) {
+				figuren.add(lesenFigur());
+			}
+			return figuren;
+		}
+		
+		private SpielZug lesenSpielZug() throws IOException {
+			int flags = lesenByte();
+			Figur zugFigur = lesenFigur();
+			SpielFeld zielFeld = lesenSpielFeld();
+			Figur schlagFigur = lesenFigur();
+			WuerfelErgebnis wuerfelErgebnis = (flags & 2) != 0 ? lesenEnum(WUERFEL_ERGEBNISSE) : null;
+			SpielZug zug = new SpielZug(zugFigur, wuerfelErgebnis, zielFeld, schlagFigur);
+			if((flags & 1) != 0) {
+				zug.setSchluessel(lesenZigZagLong());
+			}
+			return zug;
+		}
+		
+		private Farbe lesenFarbe() throws IOException {
+			int verweis = lesenVarInt();
+			if(verweis == VERWEIS_NULL) {
+				return null;
+			}
+			if(verweis != VERWEIS_NEU) {
+				return bekanntesObjekt(verweis, Farbe.class);
+			}
+			int flags = lesenByte();
+			int kanalArt = flags >>> 2;
+			int farbwert = lesenFestInt();
+			double rot;
+			double gruen;
+			double blau;
+			if(kanalArt == KANAL_ROH) {
+				rot = Double.longBitsToDouble(lesenFestLong());
+				gruen = Double.longBitsToDouble(lesenFestLong());
+				blau = Double.longBitsToDouble(lesenFestLong());
+			} else if(kanalArt == KANAL_FLOAT_255) {
+				rot = (double)(float)(lesenByte() / 255.0);
+				gruen = (double)(float)(lesenByte() / 255.0);
+				blau = (double)(float)(lesenByte() / 255.0);
+			} else if(kanalArt == KANAL_DOUBLE_255) {
+				rot = lesenByte() / 255.0;
+				gruen = lesenByte() / 255.0;
+				blau = lesenByte() / 255.0;
+			} else {
+				throw new StreamCorruptedException("unbekannte Art der Farb-Kanäle: " + kanalArt);
+			}
+			Long schluessel = (flags & 1) != 0 ? lesenZigZagLong() : null;
+			String displayName = (flags & 2) != 0 ? lesenText() : null;
+			
+			Farbe farbe = new Farbe(displayName, rot, gruen, blau, farbwert);
+			if(schluessel != null) {
+				farbe.setSchluessel(schluessel);
+			}
+			objekte.add(farbe);
+			return farbe;
+		}
+		
+		private SpielFeld lesenSpielFeld() throws IOException {
+			int verweis = lesenVarInt();
+			if(verweis == VERWEIS_NULL) {
+				return null;
+			}
+			if(verweis != VERWEIS_NEU) {
+				return bekanntesObjekt(verweis, SpielFeld.class);
+			}
+			int flags = lesenByte();
+			FeldArt feldArt = ordinal(FELD_ARTEN, flags >>> 1);
+			Farbe farbe = lesenFarbe();
+			SpielFeld feld = new SpielFeld(farbe, feldArt, lesenZigZagInt());
+			if((flags & 1) != 0) {
+				feld.setSchluessel(lesenZigZagLong());
+			}
+			objekte.add(feld);
+			return feld;
+		}
+		
+		private Figur lesenFigur() throws IOException {
+			int verweis = lesenVarInt();
+			if(verweis == VERWEIS_NULL) {
+				return null;
+			}
+			if(verweis != VERWEIS_NEU) {
+				return bekanntesObjekt(verweis, Figur.class);
+			}
+			int flags = lesenByte();
+			Farbe farbe = lesenFarbe();
+			Figur figur = Figur.erstelleFigur(farbe, lesenSpielFeld());
+			if((flags & 1) != 0) {
+				figur.setSchluessel(lesenZigZagLong());
+			}
+			if((flags & 2) != 0) {
+				figur.setFremdSchluesselSpielZustand(lesenZigZagLong());
+			}
+			if((flags & 4) != 0) {
+				figur.setFremdSchluesselSpieler(lesenZigZagLong());
+			}
+			objekte.add(figur);
+			return figur;
+		}
+		
+		private Spieler lesenSpieler() throws IOException {
+			int verweis = lesenVarInt();
+			if(verweis == VERWEIS_NULL) {
+				return null;
+			}
+			if(verweis != VERWEIS_NEU) {
+				return bekanntesObjekt(verweis, Spieler.class);
+			}
+			int flags = lesenByte();
+			Spieler spieler;
+			switch(flags & 3) {
+			case SPIELER_KONKRET:
+				Farbe farbe = lesenFarbe();
+				SpielFeld startStreckenFeld = lesenSpielFeld();
+				SpielFeld endStreckenFeld = lesenSpielFeld();
+				String name = (flags & 32) != 0 ? lesenText() : null;
+				Set<Figur> figurenMenge = lesenFiguren();
+				Integer gewinnerPosition = (flags & 16) != 0 ? lesenZigZagInt() : null;
+				spieler = new KonkreterSpieler(farbe, startStreckenFeld, endStreckenFeld, name, figurenMenge, gewinnerPosition);
+				break;
+			case SPIELER_VAKANT:
+				spieler = new VakanterSpieler(lesenFarbe(), lesenSpielFeld(), lesenSpielFeld());
+				break;
+			case SPIELER_AKTIV:
+				Spieler derSpieler = lesenSpieler();
+				if(!(derSpieler instanceof KonkreterSpieler)) {
+					throw new StreamCorruptedException("ein aktiver Spieler muss einen konkreten Spieler dekorieren");
+				}
+				AktiverSpielerTodoAktion todoAktion = lesenEnum(TODO_AKTIONEN);
+				WuerfelErgebnis wuerfelErgebnis = (flags & 16) != 0 ? lesenEnum(WUERFEL_ERGEBNISSE) : null;
+				int wuerfelVersuchsAnzahl = lesenVarInt();
+				if(wuerfelVersuchsAnzahl < 0 || wuerfelVersuchsAnzahl > MAX_WUERFEL_VERSUCHE) {
+					throw new StreamCorruptedException("ungültige Anzahl Würfel-Versuche: " + wuerfelVersuchsAnzahl);
+				}
+				// die Fabrik-Methode lässt höchstens 3 Versuche zu, nach einer Sechs würfelt ein Spieler aber öfter
+				int anfangsAnzahl = Math.min(wuerfelVersuchsAnzahl, 3);
+				AktiverSpielerDekorator aktiverSpieler = AktiverSpielerDekorator.erstelleAktivenSpieler(
+						(KonkreterSpieler)derSpieler,
+						todoAktion,
+						wuerfelErgebnis,
+						anfangsAnzahl,
+						(flags & 32) != 0
+				);
+				for(int versuch = anfangsAnzahl; versuch < wuerfelVersuchsAnzahl; versuch++) {
+					aktiverSpieler.setWuerfelErgebnis(wuerfelErgebnis);
+				}
+				spieler = aktiverSpieler;
+				break;
+			default:
+				throw new StreamCorruptedException("unbekannte Spieler-Art: " + (flags & 3));
+			}
+			Long schluessel = (flags & 4) != 0 ? lesenZigZagLong() : null;
+			// erst den Fremdschlüssel: der aktive Spieler nimmt ihn nicht mehr an, sobald er einen Schlüssel hat
+			if((flags & 8) != 0) {
+				spieler.setFremdSchluesselSpielZustand(lesenZigZagLong());
+			}
+			if(schluessel != null) {
+				spieler.setSchluessel(schluessel);
+			}
+			objekte.add(spieler);
+			return spieler;
+		}
+	}
+}
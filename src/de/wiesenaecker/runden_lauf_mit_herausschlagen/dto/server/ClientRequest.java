@@ -25,6 +25,7 @@ package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * <pre>
@@ -43,6 +44,16 @@ public class ClientRequest implements Serializable {
 	 */
 	@Serial
 	private static final long serialVersionUID = 3556879805405553953L;
+	
+	/**
+	 * so viele Schritte darf ein STAPEL Request höchstens haben
+	 */
+	public static final int MAX_STAPEL_SCHRITTE = 64;
+
+	/**
+	 * der Schlüssel des SpielZustands, dessen ServerSpielSitzung die Anfrage bearbeiten soll
+	 */
+	private final long spielZustandSchluessel;
 
 	private final long spielerSchluessel;
 	
@@ -50,24 +61,71 @@ public class ClientRequest implements Serializable {
 	
 	private final ClientRequestInfo info;
 	
+	/**
+	 * der Schlüssel der zu ziehenden Figur (nur bei {@link ClientRequestInfo#ZIEHEN})
+	 */
+	private final Long figurSchluessel;
+	
+	/**
+	 * die Version des SpielZustands, die der Client schon kennt (nur bei {@link ClientRequestInfo#AENDERUNGEN_INFO})
+	 */
+	private final Long bekannteVersion;
+	
+	/**
+	 * so lange wartet der Server höchstens auf den Zug des Clients (nur bei {@link ClientRequestInfo#WARTE_AUF_ZUG})
+	 */
+	private final Long wartezeitMillis;
+	
+	/**
+	 * die Schritte, die der Server nacheinander ausführt (nur bei {@link ClientRequestInfo#STAPEL})
+	 */
+	private final List<StapelSchritt> schritte;
+	
+	/**
+	 * der vom Client vergebene Schlüssel, unter dem der Server die Antwort auf eine Spiel-Aktion
+	 * für Wiederholungen merkt, oder null
+	 */
+	private final Long idempotenzSchluessel;
+	
 	/**
 	 * <pre>
 	 * 
+	 * @param spielZustandSchluessel
+	 * @param spielerSchluessel
+	 * @param geheimnis
 	 * @param info
+	 * @param figurSchluessel
+	 * @param bekannteVersion
+	 * @param wartezeitMillis
+	 * @param schritte
+	 * @param idempotenzSchluessel
 	 * 
 	 * </pre>
 	 */
 	private ClientRequest(
+			long spielZustandSchluessel,
 			long spielerSchluessel,
 			long geheimnis,
-			ClientRequestInfo info
+			ClientRequestInfo info,
+			Long figurSchluessel,
+			Long bekannteVersion,
+			Long wartezeitMillis,
+			List<StapelSchritt> schritte,
+			Long idempotenzSchluessel
 	) {
+		this.spielZustandSchluessel = spielZustandSchluessel;
 		this.spielerSchluessel = spielerSchluessel;
 		this.geheimnis = geheimnis;
 		this.info = info;
+		this.figurSchluessel = figurSchluessel;
+		this.bekannteVersion = bekannteVersion;
+		this.wartezeitMillis = wartezeitMillis;
+		this.schritte = schritte;
+		this.idempotenzSchluessel = idempotenzSchluessel;
 	}
 	
 	public static ClientRequest erstellenClientRequest(
+			long spielZustandSchluessel,
 			long spielerSchluessel,
 			long geheimnis,
 			ClientRequestInfo info
@@ -75,7 +133,204 @@ public class ClientRequest implements Serializable {
 		if(info == null) {
 			throw new NullPointerException();
 		}
-		return new ClientRequest(spielerSchluessel, geheimnis, info);
+		if(info == ClientRequestInfo.ZIEHEN) {
+			throw new IllegalArgumentException("ZIEHEN benötigt den Schlüssel der zu ziehenden Figur");
+		}
+		if(info == ClientRequestInfo.AENDERUNGEN_INFO) {
+			throw new IllegalArgumentException("AENDERUNGEN_INFO benötigt die bekannte Version des SpielZustands");
+		}
+		if(info == ClientRequestInfo.WARTE_AUF_ZUG) {
+			throw new IllegalArgumentException("WARTE_AUF_ZUG benötigt die Wartezeit");
+		}
+		if(info == ClientRequestInfo.STAPEL) {
+			throw new IllegalArgumentException("STAPEL benötigt die Schritte");
+		}
+		return new ClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, info, null, null, null, null, null);
+	}
+	
+	public static ClientRequest erstellenZiehenClientRequest(
+			long spielZustandSchluessel,
+			long spielerSchluessel,
+			long geheimnis,
+			long figurSchluessel
+	) {
+		return new ClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, ClientRequestInfo.ZIEHEN, figurSchluessel, null, null, null, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param bekannteVersion die Version des SpielZustands, die der Client schon kennt,
+	 * 		oder {@link SpielZustandDelta#KEINE_VERSION} für den vollständigen SpielZustand
+	 * @return ein Request nach den Änderungen seit der bekannten Version
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenAenderungenClientRequest(
+			long spielZustandSchluessel,
+			long spielerSchluessel,
+			long geheimnis,
+			long bekannteVersion
+	) {
+		return new ClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, ClientRequestInfo.AENDERUNGEN_INFO, null, bekannteVersion, null, null, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param wartezeitMillis so lange wartet der Server höchstens, bevor er mit
+	 * 		{@link WarteErgebnis#ZEIT_ABGELAUFEN} antwortet
+	 * @return ein Request, der erst beantwortet wird, wenn der Spieler dran ist oder das Spiel fertig ist
+	 * @throws IllegalArgumentException wenn die Wartezeit negativ ist
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenWarteAufZugClientRequest(
+			long spielZustandSchluessel,
+			long spielerSchluessel,
+			long geheimnis,
+			long wartezeitMillis
+	) {
+		if(wartezeitMillis < 0) {
+			throw new IllegalArgumentException("die Wartezeit darf nicht negativ sein: " + wartezeitMillis);
+		}
+		return new ClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, ClientRequestInfo.WARTE_AUF_ZUG, null, null, wartezeitMillis, null, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Der Server führt die Schritte nacheinander aus, ohne dass ein anderer Request dazwischen kommt,
+	 * und antwortet einmal mit einem {@link StapelErgebnis}.
+	 * 
+	 * @param schritte die Schritte, z.B. ein ganzer Zug
+	 * @return ein Request mit mehreren Schritten
+	 * @throws IllegalArgumentException wenn es keine oder mehr als {@link #MAX_STAPEL_SCHRITTE} Schritte sind
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenStapelClientRequest(
+			long spielZustandSchluessel,
+			long spielerSchluessel,
+			long geheimnis,
+			List<StapelSchritt> schritte
+	) {
+		if(schritte.isEmpty() || schritte.size() > MAX_STAPEL_SCHRITTE) {
+			throw new IllegalArgumentException("ein Stapel braucht 1 bis " + MAX_STAPEL_SCHRITTE + " Schritte: " + schritte.size());
+		}
+		return new ClientRequest(spielZustandSchluessel, spielerSchluessel, geheimnis, ClientRequestInfo.STAPEL, null, null, null, List.copyOf(schritte), null);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Der Server antwortet mit dem vollständigen SpielZustand und schickt danach
+	 * über dieselbe Verbindung nach jeder Änderung den neuesten SpielZustand,
+	 * als Nachricht mit der Anfrage-Id {@link NachrichtenRahmen#BENACHRICHTIGUNGS_ID}.
+	 * 
+	 * @param zuschauerSchluessel der Schlüssel der {@link ZuschauerRegistrierung}
+	 * @param geheimnis das Geheimnis der ZuschauerRegistrierung
+	 * @return ein Request, mit dem sich ein Zuschauer für die Sitzung anmeldet
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenZuschauenClientRequest(
+			long spielZustandSchluessel,
+			long zuschauerSchluessel,
+			long geheimnis
+	) {
+		return new ClientRequest(spielZustandSchluessel, zuschauerSchluessel, geheimnis, ClientRequestInfo.ZUSCHAUEN, null, null, null, null, null);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Der Server antwortet sofort, ohne Sitzung und ohne Ausweis.
+	 * Eine Verbindung, über die sonst gerade nichts geschickt wird, z.B. die eines Zuschauers,
+	 * zeigt damit, dass sie noch gebraucht wird.
+	 * 
+	 * @return ein Request, der nur die Verbindung offen hält
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenHerzschlagClientRequest() {
+		return new ClientRequest(0, 0, 0, ClientRequestInfo.HERZSCHLAG, null, null, null, null, null);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Ein Client, der nur seinen Spieler-Schlüssel und sein Geheimnis kennt,
+	 * erfährt damit den Schlüssel des SpielZustands seiner Sitzung.
+	 * 
+	 * @return ein Request nach dem Schlüssel des SpielZustands, für den der Spieler registriert ist
+	 * 
+	 * </pre>
+	 */
+	public static ClientRequest erstellenSitzungInfoClientRequest(
+			long spielerSchluessel,
+			long geheimnis
+	) {
+		return new ClientRequest(0, spielerSchluessel, geheimnis, ClientRequestInfo.SITZUNG_INFO, null, null, null, null, null);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Der Server führt eine Spiel-Aktion mit Idempotenz-Schlüssel nur einmal aus und merkt sich ihre Antwort
+	 * (siehe {@link AntwortGedaechtnis}). Schickt der Client den Request noch einmal, z.B. nach einer
+	 * abgelaufenen Frist oder über eine neue Verbindung, bekommt er die Antwort auf die erste Ausführung.
+	 * 
+	 * Der Client wählt für jede Spiel-Aktion einen neuen Schlüssel, der auch nach einem Neustart
+	 * nicht wieder vorkommt, z.B. ab einer Zufallszahl hochgezählt.
+	 * 
+	 * @param schluessel der Idempotenz-Schlüssel
+	 * @return eine Kopie dieses Requests mit dem Idempotenz-Schlüssel
+	 * @throws IllegalArgumentException wenn der Request keine Spiel-Aktion ist
+	 * 		(nur WUERFELN, ZIEHEN, GEHE_ZUM_NAECHSTER_SPIELER und STAPEL)
+	 * 
+	 * </pre>
+	 */
+	public ClientRequest mitIdempotenzSchluessel(long schluessel) {
+		if(!isSpielAktion(info)) {
+			throw new IllegalArgumentException(info + " ist keine Spiel-Aktion und braucht keinen Idempotenz-Schlüssel");
+		}
+		return new ClientRequest(
+				spielZustandSchluessel,
+				spielerSchluessel,
+				geheimnis,
+				info,
+				figurSchluessel,
+				bekannteVersion,
+				wartezeitMillis,
+				schritte,
+				schluessel
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return ob ein Request dieser Art das Spiel ändern kann
+	 * 
+	 * </pre>
+	 */
+	public static boolean isSpielAktion(ClientRequestInfo info) {
+		return info == ClientRequestInfo.WUERFELN
+				|| info == ClientRequestInfo.ZIEHEN
+				|| info == ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER
+				|| info == ClientRequestInfo.STAPEL;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the spielZustandSchluessel
+	 * 
+	 * </pre>
+	 */
+	public long getSpielZustandSchluessel() {
+		return spielZustandSchluessel;
 	}
 
 	/**
@@ -111,6 +366,61 @@ public class ClientRequest implements Serializable {
 		return info;
 	}
 
+	/**
+	 * <pre>
+	 * 
+	 * @return the figurSchluessel
+	 * 
+	 * </pre>
+	 */
+	public Long getFigurSchluessel() {
+		return figurSchluessel;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the bekannteVersion
+	 * 
+	 * </pre>
+	 */
+	public Long getBekannteVersion() {
+		return bekannteVersion;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the wartezeitMillis
+	 * 
+	 * </pre>
+	 */
+	public Long getWartezeitMillis() {
+		return wartezeitMillis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the schritte
+	 * 
+	 * </pre>
+	 */
+	public List<StapelSchritt> getSchritte() {
+		return schritte;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the idempotenzSchluessel
+	 * 
+	 * </pre>
+	 */
+	public Long getIdempotenzSchluessel() {
+		return idempotenzSchluessel;
+	}
+
 	/**
 	 * <pre>
 	 * 
@@ -124,6 +434,12 @@ public class ClientRequest implements Serializable {
 		MOEGLICHE_ZUEGE_INFO,
 		WUERFELN,
 		ZIEHEN,
-		GEHE_ZUM_NAECHSTER_SPIELER
+		GEHE_ZUM_NAECHSTER_SPIELER,
+		AENDERUNGEN_INFO,
+		WARTE_AUF_ZUG,
+		STAPEL,
+		ZUSCHAUEN,
+		HERZSCHLAG,
+		SITZUNG_INFO
 	}
 }
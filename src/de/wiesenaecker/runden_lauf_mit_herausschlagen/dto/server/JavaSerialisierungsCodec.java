@@ -0,0 +1,62 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * <pre>
+ * 
+ * Kodiert die Nachrichten mit der Java-Serialisierung.
+ * 
+ * Das ist das ursprüngliche Format: es kann jedes Serializable übertragen,
+ * schreibt aber zu jedem Objekt die Klassen-Beschreibung mit
+ * und ist deshalb groß und langsam.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class JavaSerialisierungsCodec implements NachrichtenCodec {
+	
+	@Override
+	public byte[] kodieren(Object nachricht) throws IOException {
+		ByteArrayOutputStream puffer = new ByteArrayOutputStream(512);
+		try(ObjectOutputStream objektSchreiber = new ObjectOutputStream(puffer)) {
+			objektSchreiber.writeObject(nachricht);
+		}
+		return puffer.toByteArray();
+	}
+	
+	@Override
+	public Object dekodieren(byte[] nutzdaten) throws IOException, ClassNotFoundException {
+		try(ObjectInputStream objektLeser = new ObjectInputStream(new ByteArrayInputStream(nutzdaten))) {
+			return objektLeser.readObject();
+		}
+	}
+}
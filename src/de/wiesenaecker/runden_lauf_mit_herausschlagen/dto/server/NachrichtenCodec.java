@@ -0,0 +1,61 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.IOException;
+
+/**
+ * <pre>
+ * 
+ * Wandelt die Nachrichten zwischen Client und Server (ClientRequest, ServerAntwort)
+ * in die Nutzdaten eines {@link NachrichtenRahmen}s um und zurück.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public interface NachrichtenCodec {
+	/**
+	 * <pre>
+	 * 
+	 * @param nachricht ein ClientRequest oder eine ServerAntwort
+	 * @return die Nutzdaten der Nachricht, ohne Rahmen-Kopf
+	 * @throws IOException wenn die Nachricht nicht kodiert werden kann
+	 * 
+	 * </pre>
+	 */
+	byte[] kodieren(Object nachricht) throws IOException;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param nutzdaten die Nutzdaten eines Rahmens
+	 * @return die Nachricht
+	 * @throws IOException wenn die Nutzdaten beschädigt sind
+	 * @throws ClassNotFoundException wenn die Klasse der Nachricht unbekannt ist
+	 * 
+	 * </pre>
+	 */
+	Object dekodieren(byte[] nutzdaten) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,91 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+
+/**
+ * <pre>
+ * 
+ * Die Formate, in denen die Nutzdaten eines {@link NachrichtenRahmen}s kodiert sein können.
+ * 
+ * Das Format steckt im ersten Byte der Nutzdaten,
+ * deshalb kann der Server jeden Rahmen ohne Absprache lesen
+ * und antwortet im Format des Requests.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public enum NachrichtenFormat {
+	/**
+	 * die Java-Serialisierung, ein Strom beginnt immer mit 0xACED
+	 */
+	JAVA_SERIALISIERUNG(new JavaSerialisierungsCodec()),
+	/**
+	 * das kompakte Binär-Format, beginnt mit {@link BinaerCodec#KENNUNG}
+	 */
+	BINAER(new BinaerCodec());
+	
+	private final NachrichtenCodec codec;
+	
+	private NachrichtenFormat(NachrichtenCodec codec) {
+		this.codec = codec;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Codec dieses Formats
+	 * 
+	 * </pre>
+	 */
+	public NachrichtenCodec getCodec() {
+		return codec;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erkennt das Format am ersten Byte der Nutzdaten.
+	 * 
+	 * @param nutzdaten die Nutzdaten eines Rahmens
+	 * @return das Format der Nutzdaten
+	 * @throws StreamCorruptedException wenn das Format unbekannt ist
+	 * 
+	 * </pre>
+	 */
+	public static NachrichtenFormat erkennen(byte[] nutzdaten) throws StreamCorruptedException {
+		if(nutzdaten.length > 0) {
+			if(nutzdaten[0] == BinaerCodec.KENNUNG) {
+				return BINAER;
+			}
+			if(nutzdaten[0] == (byte)(ObjectStreamConstants.STREAM_MAGIC >>> 8)) {
+				return JAVA_SERIALISIERUNG;
+			}
+		}
+		throw new StreamCorruptedException("unbekanntes Nachrichten-Format");
+	}
+}
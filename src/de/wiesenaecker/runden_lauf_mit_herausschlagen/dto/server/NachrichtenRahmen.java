@@ -0,0 +1,218 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * <pre>
+ * 
+ * Ein Rahmen einer Nachricht zwischen Client und Server:
+ * 
+ *   +---------------------+--------------------------+-------------------------+
+ *   | Länge (int, 4 Byte) | Anfrage-Id (long, 8 Byte)| Nutzdaten (Länge Bytes) |
+ *   +---------------------+--------------------------+-------------------------+
+ * 
+ * Die Nutzdaten sind ein ClientRequest, eine ServerAntwort oder eine Benachrichtigung des Servers,
+ * kodiert in einem der {@link NachrichtenFormat}e.
+ * Durch die Länge vorneweg kann ein nicht blockierender Server
+ * eine Nachricht erst dann dekodieren, wenn sie vollständig angekommen ist,
+ * und es können beliebig viele Nachrichten über eine Verbindung laufen.
+ * 
+ * Die Anfrage-Id vergibt der Client, der Server schreibt sie unverändert in den Rahmen der Antwort.
+ * So kann ein Client mehrere Requests abschicken, ohne auf die Antworten zu warten,
+ * und der Server darf die Antworten in beliebiger Reihenfolge zurückschicken.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class NachrichtenRahmen {
+	/**
+	 * die Länge des Rahmen-Kopfs in Bytes: die Länge der Nutzdaten und die Anfrage-Id
+	 */
+	public static final int KOPF_LAENGE = Integer.BYTES + Long.BYTES;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die maximale Länge der Nutzdaten.
+	 * Längere Rahmen werden als fehlerhaft abgelehnt,
+	 * damit ein Client den Server nicht zu riesigen Puffern zwingen kann.
+	 * 
+	 * </pre>
+	 */
+	public static final int MAX_NUTZDATEN_LAENGE = 1 << 20;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Anfrage-Id einer Nachricht, die der Server von sich aus schickt, z.B. eine Benachrichtigung.
+	 * Ein Client vergibt sie nie für einen Request, auf sie gibt es keine Antwort.
+	 * 
+	 * </pre>
+	 */
+	public static final long BENACHRICHTIGUNGS_ID = 0;
+	
+	/**
+	 * die Anfrage-Id, zu der die Nachricht gehört
+	 */
+	private final long anfrageId;
+	
+	/**
+	 * die kodierte Nachricht
+	 */
+	private final byte[] nutzdaten;
+	
+	private NachrichtenRahmen(long anfrageId, byte[] nutzdaten) {
+		this.anfrageId = anfrageId;
+		this.nutzdaten = nutzdaten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anfrage-Id, zu der die Nachricht gehört
+	 * 
+	 * </pre>
+	 */
+	public long getAnfrageId() {
+		return anfrageId;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die kodierte Nachricht
+	 * 
+	 * </pre>
+	 */
+	public byte[] getNutzdaten() {
+		return nutzdaten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Baut den Kopf eines Rahmens, so kann ein nicht blockierender Transport
+	 * Kopf und Nutzdaten hintereinander schreiben, ohne die Nutzdaten zu kopieren.
+	 * Die Nutzdaten einer geteilten Antwort gehen so unverändert an alle Verbindungen.
+	 * 
+	 * @param anfrageId die Anfrage-Id
+	 * @param laenge die Länge der Nutzdaten
+	 * @return der Kopf
+	 * 
+	 * </pre>
+	 */
+	public static byte[] erstellenKopf(long anfrageId, int laenge) {
+		byte[] kopf = new byte[KOPF_LAENGE];
+		ByteBuffer.wrap(kopf).putInt(laenge).putLong(anfrageId);
+		return kopf;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Eine geteilte ServerAntwort liefert die schon kodierten Nutzdaten,
+	 * das Array darf dann nicht verändert werden.
+	 * 
+	 * @param nachricht ein ClientRequest oder eine ServerAntwort
+	 * @param format das Format, in dem die Nachricht kodiert wird
+	 * @return die Nutzdaten der Nachricht, ohne Rahmen-Kopf
+	 * @throws IOException wenn die Nachricht nicht kodiert werden kann
+	 * 
+	 * </pre>
+	 */
+	public static byte[] kodieren(Object nachricht, NachrichtenFormat format) throws IOException {
+		if(nachricht instanceof ServerAntwort antwort) {
+			return antwort.kodieren(format);
+		}
+		return format.getCodec().kodieren(nachricht);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Dekodiert die Nutzdaten in dem Format, das an ihrem ersten Byte zu erkennen ist.
+	 * 
+	 * @param nutzdaten die Nutzdaten eines Rahmens
+	 * @return die Nachricht
+	 * @throws IOException wenn die Nutzdaten beschädigt sind
+	 * @throws ClassNotFoundException wenn die Klasse der Nachricht unbekannt ist
+	 * 
+	 * </pre>
+	 */
+	public static Object dekodieren(byte[] nutzdaten) throws IOException, ClassNotFoundException {
+		return NachrichtenFormat.erkennen(nutzdaten).getCodec().dekodieren(nutzdaten);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param laenge die gelesene Länge der Nutzdaten
+	 * @throws StreamCorruptedException wenn die Länge nicht erlaubt ist
+	 * 
+	 * </pre>
+	 */
+	public static void pruefenLaenge(int laenge) throws StreamCorruptedException {
+		if(laenge < 0 || laenge > MAX_NUTZDATEN_LAENGE) {
+			throw new StreamCorruptedException("ungültige Rahmen-Länge: " + laenge);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Schreibt einen Rahmen auf einen blockierenden Strom, ohne zu flushen.
+	 * 
+	 * </pre>
+	 */
+	public static void schreiben(DataOutputStream ausgabe, long anfrageId, byte[] nutzdaten) throws IOException {
+		ausgabe.writeInt(nutzdaten.length);
+		ausgabe.writeLong(anfrageId);
+		ausgabe.write(nutzdaten);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Liest einen Rahmen von einem blockierenden Strom.
+	 * 
+	 * @return der Rahmen
+	 * 
+	 * </pre>
+	 */
+	public static NachrichtenRahmen lesen(DataInputStream eingabe) throws IOException {
+		int laenge = eingabe.readInt();
+		pruefenLaenge(laenge);
+		long anfrageId = eingabe.readLong();
+		byte[] nutzdaten = new byte[laenge];
+		eingabe.readFully(nutzdaten);
+		return new NachrichtenRahmen(anfrageId, nutzdaten);
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.util.function.Supplier;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+
+/**
+ * <pre>
+ * 
+ * Merkt sich für die aktuelle Version des SpielZustands einer Sitzung
+ * den Schnappschuss und die geteilten Antworten darauf.
+ * 
+ * Fragen viele Clients oder Zuschauer denselben Stand ab, wird der SpielZustand
+ * je Version nur einmal kopiert und je Format nur einmal kodiert
+ * (siehe {@link ServerAntwort#erstellenGeteilteServerAntwort(java.io.Serializable)}).
+ * Der Aufwand hängt dann von der Anzahl der Änderungen ab, nicht von der Anzahl der Requests.
+ * 
+ * Wird nur auf dem Thread der Sitzung benutzt.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SchnappschussCache {
+	/**
+	 * die Version, zu der die gemerkten Antworten gehören
+	 */
+	private long version = SpielZustandDelta.KEINE_VERSION;
+	
+	/**
+	 * der Schnappschuss der Version oder null
+	 */
+	private SpielZustand schnappschuss;
+	
+	/**
+	 * die Antwort auf SPIEL_INFO oder null
+	 */
+	private ServerAntwort spielInfoAntwort;
+	
+	/**
+	 * die Antwort auf AENDERUNGEN_INFO, wenn ein Delta nicht reicht, oder null
+	 */
+	private ServerAntwort vollstaendigeAntwort;
+	
+	/**
+	 * die Anzahl der erstellten Schnappschüsse
+	 */
+	private long anzahlSchnappschuesse;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param aktuelleVersion die aktuelle Version des SpielZustands
+	 * @param kopieren erstellt einen Schnappschuss des aktuellen SpielZustands
+	 * @return die geteilte Antwort mit dem Schnappschuss der Version
+	 * 
+	 * </pre>
+	 */
+	public ServerAntwort getSpielInfoAntwort(long aktuelleVersion, Supplier<SpielZustand> kopieren) {
+		pruefenVersion(aktuelleVersion);
+		if(spielInfoAntwort == null) {
+			spielInfoAntwort = ServerAntwort.erstellenGeteilteServerAntwort(getSchnappschuss(kopieren));
+		}
+		return spielInfoAntwort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param aktuelleVersion die aktuelle Version des SpielZustands
+	 * @param kopieren erstellt einen Schnappschuss des aktuellen SpielZustands
+	 * @return die geteilte Antwort mit dem vollständigen SpielZustandDelta der Version
+	 * 
+	 * </pre>
+	 */
+	public ServerAntwort getVollstaendigeAntwort(long aktuelleVersion, Supplier<SpielZustand> kopieren) {
+		pruefenVersion(aktuelleVersion);
+		if(vollstaendigeAntwort == null) {
+			vollstaendigeAntwort = ServerAntwort.erstellenGeteilteServerAntwort(
+					SpielZustandDelta.erstellenVollstaendig(aktuelleVersion, getSchnappschuss(kopieren))
+			);
+		}
+		return vollstaendigeAntwort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der Schnappschüsse, die bisher erstellt wurden
+	 * 
+	 * </pre>
+	 */
+	public long getAnzahlSchnappschuesse() {
+		return anzahlSchnappschuesse;
+	}
+	
+	private void pruefenVersion(long aktuelleVersion) {
+		if(aktuelleVersion != version) {
+			version = aktuelleVersion;
+			schnappschuss = null;
+			spielInfoAntwort = null;
+			vollstaendigeAntwort = null;
+		}
+	}
+	
+	private SpielZustand getSchnappschuss(Supplier<SpielZustand> kopieren) {
+		if(schnappschuss == null) {
+			schnappschuss = kopieren.get();
+			anzahlSchnappschuesse++;
+		}
+		return schnappschuss;
+	}
+}
@@ -0,0 +1,331 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <pre>
+ * 
+ * Stellt die Antwort des Servers auf einen {@link ClientRequest} dar.
+ * 
+ * Eine ServerAntwort:
+ * - ist serialisierbar
+ * - hat einen Status
+ * - hat bei einem Fehler eine Nachricht
+ * - hat bei Erfolg einen optionalen Inhalt (z.B. einen SpielZustand)
+ * - nennt bei Überlast, nach wie vielen Millisekunden der Request wiederholt werden soll
+ * - nennt nach dem Umzug einer Sitzung den Server, an den der Request gehen soll
+ * - kann geteilt sein: dann geht dieselbe Antwort an viele Clients und wird je Format nur einmal kodiert
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ServerAntwort implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = -1590287412335624741L;
+
+	/**
+	 * der Status der Antwort
+	 */
+	private final ServerAntwortStatus status;
+	
+	/**
+	 * eine Nachricht, z.B. die Fehlerbeschreibung
+	 */
+	private final String nachricht;
+	
+	/**
+	 * der Inhalt der Antwort
+	 */
+	private final Serializable inhalt;
+	
+	/**
+	 * bei Status UEBERLASTET: nach wie vielen Millisekunden der Client es wieder versuchen soll
+	 */
+	private final long wiederholenNachMillis;
+	
+	/**
+	 * bei Status UMGELEITET: der Host des Servers, auf dem die Sitzung jetzt läuft
+	 */
+	private final String zielHost;
+	
+	/**
+	 * bei Status UMGELEITET: der Port des Servers, auf dem die Sitzung jetzt läuft
+	 */
+	private final int zielPort;
+	
+	/**
+	 * <pre>
+	 * 
+	 * bei einer geteilten Antwort: die schon kodierten Nutzdaten je {@link NachrichtenFormat}, sonst null.
+	 * Wird nicht serialisiert, auf der anderen Seite ist die Antwort nicht mehr geteilt.
+	 * 
+	 * </pre>
+	 */
+	private final transient AtomicReferenceArray<byte[]> nutzdatenJeFormat;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param status
+	 * @param nachricht
+	 * @param inhalt
+	 * @param wiederholenNachMillis
+	 * @param zielHost
+	 * @param zielPort
+	 * @param geteilt
+	 * 
+	 * </pre>
+	 */
+	private ServerAntwort(
+			ServerAntwortStatus status,
+			String nachricht,
+			Serializable inhalt,
+			long wiederholenNachMillis,
+			String zielHost,
+			int zielPort,
+			boolean geteilt
+	) {
+		this.status = status;
+		this.nachricht = nachricht;
+		this.inhalt = inhalt;
+		this.wiederholenNachMillis = wiederholenNachMillis;
+		this.zielHost = zielHost;
+		this.zielPort = zielPort;
+		this.nutzdatenJeFormat = geteilt ? new AtomicReferenceArray<>(NachrichtenFormat.values().length) : null;
+	}
+	
+	public static ServerAntwort erstellenServerAntwort(Serializable inhalt) {
+		return new ServerAntwort(ServerAntwortStatus.OK, null, inhalt, 0, null, 0, false);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt eine Antwort, die unverändert an viele Clients geht, z.B. den SpielZustand einer Version.
+	 * Sie wird je Format nur beim ersten Senden kodiert, danach schreiben alle Verbindungen dieselben Bytes.
+	 * 
+	 * Der Inhalt darf danach nicht mehr verändert werden.
+	 * 
+	 * @param inhalt der Inhalt der Antwort
+	 * @return die geteilte Antwort mit dem Status OK
+	 * 
+	 * </pre>
+	 */
+	public static ServerAntwort erstellenGeteilteServerAntwort(Serializable inhalt) {
+		return new ServerAntwort(ServerAntwortStatus.OK, null, inhalt, 0, null, 0, true);
+	}
+	
+	public static ServerAntwort erstellenFehlerServerAntwort(
+			ServerAntwortStatus status,
+			String nachricht
+	) {
+		if(status == null) {
+			throw new NullPointerException();
+		}
+		if(status == ServerAntwortStatus.OK) {
+			throw new IllegalArgumentException("eine Fehler-Antwort darf nicht den Status OK haben");
+		}
+		return new ServerAntwort(status, nachricht, null, 0, null, 0, false);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt die Antwort auf einen Request, den der Server wegen Überlast nicht angenommen hat.
+	 * Der Request wurde nicht ausgeführt und kann gefahrlos wiederholt werden.
+	 * 
+	 * @param nachricht welche Grenze erreicht ist
+	 * @param wiederholenNachMillis nach wie vielen Millisekunden es der Client wieder versuchen soll
+	 * @return die Antwort mit dem Status UEBERLASTET
+	 * 
+	 * </pre>
+	 */
+	public static ServerAntwort erstellenUeberlastetServerAntwort(
+			String nachricht,
+			long wiederholenNachMillis
+	) {
+		if(wiederholenNachMillis < 0) {
+			throw new IllegalArgumentException("die Wartezeit darf nicht negativ sein: " + wiederholenNachMillis);
+		}
+		return new ServerAntwort(ServerAntwortStatus.UEBERLASTET, nachricht, null, wiederholenNachMillis, null, 0, false);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt die Antwort auf einen Request an eine Sitzung, die auf einen anderen Server umgezogen ist.
+	 * Der Request wurde nicht ausgeführt und soll an den genannten Server gehen.
+	 * 
+	 * @param nachricht warum umgeleitet wird
+	 * @param zielHost der Host des Servers, auf dem die Sitzung jetzt läuft
+	 * @param zielPort der Port des Servers, auf dem die Sitzung jetzt läuft
+	 * @return die Antwort mit dem Status UMGELEITET
+	 * 
+	 * </pre>
+	 */
+	public static ServerAntwort erstellenUmgeleitetServerAntwort(
+			String nachricht,
+			String zielHost,
+			int zielPort
+	) {
+		if(zielHost == null) {
+			throw new NullPointerException("der Ziel-Host darf nicht null sein");
+		}
+		if(zielPort < 1 || zielPort > 65535) {
+			throw new IllegalArgumentException("ungültiger Ziel-Port: " + zielPort);
+		}
+		return new ServerAntwort(ServerAntwortStatus.UMGELEITET, nachricht, null, 0, zielHost, zielPort, false);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the status
+	 * 
+	 * </pre>
+	 */
+	public ServerAntwortStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the nachricht
+	 * 
+	 * </pre>
+	 */
+	public String getNachricht() {
+		return nachricht;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the inhalt
+	 * 
+	 * </pre>
+	 */
+	public Serializable getInhalt() {
+		return inhalt;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return nach wie vielen Millisekunden ein überlasteter Request wiederholt werden soll, sonst 0
+	 * 
+	 * </pre>
+	 */
+	public long getWiederholenNachMillis() {
+		return wiederholenNachMillis;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Host des Servers, auf den eine Sitzung umgezogen ist, sonst null
+	 * 
+	 * </pre>
+	 */
+	public String getZielHost() {
+		return zielHost;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Port des Servers, auf den eine Sitzung umgezogen ist, sonst 0
+	 * 
+	 * </pre>
+	 */
+	public int getZielPort() {
+		return zielPort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return true, wenn die Antwort geteilt ist und je Format nur einmal kodiert wird
+	 * 
+	 * </pre>
+	 */
+	public boolean isGeteilt() {
+		return nutzdatenJeFormat != null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Kodiert die Antwort. Eine geteilte Antwort wird je Format nur einmal kodiert,
+	 * alle Aufrufer bekommen danach dasselbe Array, das deshalb niemand verändern darf.
+	 * 
+	 * </pre>
+	 */
+	byte[] kodieren(NachrichtenFormat format) throws IOException {
+		if(nutzdatenJeFormat == null) {
+			return format.getCodec().kodieren(this);
+		}
+		byte[] nutzdaten = nutzdatenJeFormat.get(format.ordinal());
+		if(nutzdaten == null) {
+			// kodieren zwei Threads gleichzeitig, gewinnt das erste Ergebnis, beide sind gleich
+			nutzdatenJeFormat.compareAndSet(format.ordinal(), null, format.getCodec().kodieren(this));
+			nutzdaten = nutzdatenJeFormat.get(format.ordinal());
+		}
+		return nutzdaten;
+	}
+
+	@Override
+	public String toString() {
+		return "ServerAntwort [status=" + status + ", nachricht=" + nachricht + ", inhalt=" + inhalt
+				+ (status == ServerAntwortStatus.UEBERLASTET ? ", wiederholenNachMillis=" + wiederholenNachMillis : "")
+				+ (status == ServerAntwortStatus.UMGELEITET ? ", ziel=" + zielHost + ":" + zielPort : "") + "]";
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Die möglichen Status einer ServerAntwort.
+	 * @author Christian Alexander Wiesenäcker
+	 * 
+	 * </pre>
+	 */
+	public enum ServerAntwortStatus {
+		OK,
+		FEHLER,
+		NICHT_AUTORISIERT,
+		UNBEKANNTE_SITZUNG,
+		UEBERLASTET,
+		UMGELEITET
+	}
+}
@@ -23,14 +23,500 @@
  */
 package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server.RundenLaufMitHerausschlagenServerService;
+
 /**
  * <pre>
  * 
+ * Stellt eine laufende Spiel-Sitzung auf dem Server dar.
+ * 
+ * Eine ServerSpielSitzung:
+ * - wird über den Schlüssel ihres SpielZustands identifiziert
+ * - hat die Spiel-Logik für genau ein Spiel
+ * - hat die ClientRegistrierungen der Clients, die in diesem Spiel mitspielen
+ * - hat die ZuschauerRegistrierungen der Zuschauer, die das Spiel nur verfolgen
+ * - merkt sich die Clients, die auf ihren Zug warten, ohne dafür einen Thread zu belegen
+ * - kann eingefroren werden, z.B. für den Umzug auf einen anderen Server: dann ändert kein Request mehr ihr Spiel
+ * - führt alle Aufträge an ihr Spiel nacheinander aus (nie parallel),
+ *   verschiedene Sitzungen laufen aber parallel auf allen Prozessor-Kernen.
+ * - kann Aufträge mit Vorrang vor allen wartenden Aufträgen ausführen, z.B. die des Spielers, der dran ist
  * 
  * @author Christian Alexander Wiesenäcker
  * 
  * </pre>
  */
 public class ServerSpielSitzung {
+	/**
+	 * der Schlüssel des SpielZustands dieser Sitzung
+	 */
+	private final long schluessel;
+	
+	/**
+	 * die Spiel-Logik dieser Sitzung
+	 */
+	private final RundenLaufMitHerausschlagenServerService dasSpiel;
+	
+	/**
+	 * <pre>
+	 * 
+	 * die Registrierungen der Spiel-Clients dieser Sitzung
+	 * 
+	 * Keine HashSet, weil sich der hashCode einer ClientRegistrierung
+	 * mit den Figuren-Positionen ihres Spielers ändert.
+	 * 
+	 * </pre>
+	 */
+	private final List<ClientRegistrierung> registrierungen = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * die Registrierungen der Zuschauer dieser Sitzung nach ihrem Schlüssel
+	 */
+	private final Map<Long, ZuschauerRegistrierung> zuschauer = new ConcurrentHashMap<>();
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt die Aufträge an diese Sitzung seriell aus.
+	 * 
+	 * </pre>
+	 */
+	private final Executor ausfuehrer;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt die Aufträge mit Vorrang aus, vor allen wartenden Aufträgen des normalen Ausführers.
+	 * 
+	 * </pre>
+	 */
+	private final Executor vorrangAusfuehrer;
+	
+	/**
+	 * <pre>
+	 * 
+	 * die Clients, die auf ihren Zug warten, in der Reihenfolge ihres Eingangs.
+	 * Wird nur auf dem Thread der Sitzung benutzt.
+	 * 
+	 * </pre>
+	 */
+	private final List<WartenderClient> wartende = new ArrayList<>();
+	
+	/**
+	 * <pre>
+	 * 
+	 * die geteilten Antworten für die aktuelle Version des SpielZustands.
+	 * Wird nur auf dem Thread der Sitzung benutzt.
+	 * 
+	 * </pre>
+	 */
+	private final SchnappschussCache schnappschussCache = new SchnappschussCache();
+	
+	/**
+	 * <pre>
+	 * 
+	 * die Antworten auf die letzten Spiel-Aktionen mit Idempotenz-Schlüssel.
+	 * Wird nur auf dem Thread der Sitzung benutzt.
+	 * 
+	 * </pre>
+	 */
+	private final AntwortGedaechtnis antwortGedaechtnis = new AntwortGedaechtnis();
+	
+	/**
+	 * ob die Sitzung eingefroren ist, wird nur auf dem Thread der Sitzung geändert
+	 */
+	private volatile boolean eingefroren;
+	
+	/**
+	 * <pre>
+	 * 
+	 * der Schlüssel des Spielers, der nach dem letzten Auftrag dran war, oder null.
+	 * Wird nur auf dem Thread der Sitzung geändert, aber von jedem Thread gelesen.
+	 * 
+	 * </pre>
+	 */
+	private volatile Long aktiverSpielerSchluessel;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Erstellt eine Sitzung ohne Vorrang: Aufträge mit Vorrang laufen in Eingangsreihenfolge wie alle anderen.
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @param dasSpiel die Spiel-Logik
+	 * @param ausfuehrer ein serieller Executor für die Aufträge an diese Sitzung
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung(
+			long schluessel,
+			RundenLaufMitHerausschlagenServerService dasSpiel,
+			Executor ausfuehrer
+	) {
+		this(schluessel, dasSpiel, ausfuehrer, ausfuehrer);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des SpielZustands
+	 * @param dasSpiel die Spiel-Logik
+	 * @param ausfuehrer ein serieller Executor für die Aufträge an diese Sitzung
+	 * @param vorrangAusfuehrer reiht Aufträge auf demselben seriellen Executor vor allen wartenden ein
+	 * 
+	 * </pre>
+	 */
+	public ServerSpielSitzung(
+			long schluessel,
+			RundenLaufMitHerausschlagenServerService dasSpiel,
+			Executor ausfuehrer,
+			Executor vorrangAusfuehrer
+	) {
+		if(dasSpiel == null || ausfuehrer == null || vorrangAusfuehrer == null) {
+			throw new NullPointerException("die Parameter dürfen nicht null sein");
+		}
+		this.schluessel = schluessel;
+		this.dasSpiel = dasSpiel;
+		this.ausfuehrer = ausfuehrer;
+		this.vorrangAusfuehrer = vorrangAusfuehrer;
+		// die Sitzung läuft noch nicht, das Spiel darf hier noch gelesen werden
+		this.aktiverSpielerSchluessel = bestimmeAktiverSpielerSchluessel();
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the schluessel
+	 * 
+	 * </pre>
+	 */
+	public long getSchluessel() {
+		return schluessel;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Die Spiel-Logik darf nur innerhalb von {@link #ausfuehren(Supplier)} benutzt werden.
+	 * @return the dasSpiel
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenServerService getSpiel() {
+		return dasSpiel;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return die Registrierungen der Sitzung (nicht änderbar)
+	 * 
+	 * </pre>
+	 */
+	public List<ClientRegistrierung> getRegistrierungen() {
+		return Collections.unmodifiableList(registrierungen);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param registrierung die neue Registrierung eines Clients
+	 * 
+	 * </pre>
+	 */
+	public void hinzufuegenRegistrierung(ClientRegistrierung registrierung) {
+		registrierungen.add(registrierung);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @param registrierung eine Registrierung
+	 * @return true, wenn genau diese Registrierung zu dieser Sitzung gehört
+	 * 
+	 * </pre>
+	 */
+	public boolean isRegistriert(ClientRegistrierung registrierung) {
+		for(ClientRegistrierung vergleich : registrierungen) {
+			if(vergleich == registrierung) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param registrierung die Registrierung eines Zuschauers
+	 * @return die ersetzte Registrierung mit demselben Schlüssel oder null
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerRegistrierung hinzufuegenZuschauer(ZuschauerRegistrierung registrierung) {
+		return zuschauer.put(registrierung.getSchluessel(), registrierung);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param zuschauerSchluessel der Schlüssel eines Zuschauers
+	 * @return die entfernte Registrierung oder null
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerRegistrierung entfernenZuschauer(long zuschauerSchluessel) {
+		return zuschauer.remove(zuschauerSchluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param zuschauerSchluessel der Schlüssel eines Zuschauers
+	 * @return die Registrierung des Zuschauers oder null
+	 * 
+	 * </pre>
+	 */
+	public ZuschauerRegistrierung getZuschauer(long zuschauerSchluessel) {
+		return zuschauer.get(zuschauerSchluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Anzahl der registrierten Zuschauer
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlZuschauer() {
+		return zuschauer.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Reiht einen Auftrag an das Spiel dieser Sitzung ein.
+	 * Aufträge einer Sitzung werden in der Reihenfolge ihres Eingangs nacheinander ausgeführt.
+	 * 
+	 * @param auftrag der Auftrag
+	 * @return das Ergebnis des Auftrags, sobald er ausgeführt wurde
+	 * @throws RejectedExecutionException wenn die Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public <T> CompletableFuture<T> ausfuehren(Supplier<T> auftrag) {
+		return CompletableFuture.supplyAsync(() -> ausfuehrenUndMerken(auftrag), ausfuehrer);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Reiht einen Auftrag vor allen wartenden Aufträgen ein, die ohne Vorrang eingereiht wurden.
+	 * Aufträge mit Vorrang laufen untereinander in der Reihenfolge ihres Eingangs.
+	 * 
+	 * @param auftrag der Auftrag
+	 * @return das Ergebnis des Auftrags, sobald er ausgeführt wurde
+	 * @throws RejectedExecutionException wenn die Vorrang-Warteschlange der Sitzung voll ist
+	 * 
+	 * </pre>
+	 */
+	public <T> CompletableFuture<T> ausfuehrenMitVorrang(Supplier<T> auftrag) {
+		return CompletableFuture.supplyAsync(() -> ausfuehrenUndMerken(auftrag), vorrangAusfuehrer);
+	}
+	
+	private <T> T ausfuehrenUndMerken(Supplier<T> auftrag) {
+		try {
+			return auftrag.get();
+		} finally {
+			aktiverSpielerSchluessel = bestimmeAktiverSpielerSchluessel();
+		}
+	}
+	
+	private Long bestimmeAktiverSpielerSchluessel() {
+		AktiverSpielerDekorator aktiver = dasSpiel.getSpielZustand().getAktiverSpieler();
+		return aktiver != null && aktiver.getDerSpieler() != null ? aktiver.getDerSpieler().getSchluessel() : null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Darf von jedem Thread aufgerufen werden, z.B. um einen Request einzuordnen, bevor er eingereiht wird.
+	 * Ein Auftrag, der noch wartet, kann den aktiven Spieler schon gewechselt haben.
+	 * 
+	 * @param spieler der Spieler
+	 * @return true, wenn der Spieler nach dem letzten ausgeführten Auftrag dran war
+	 * 
+	 * </pre>
+	 */
+	public boolean isAktiverSpieler(Spieler spieler) {
+		Long schluessel = aktiverSpielerSchluessel;
+		return spieler != null && schluessel != null && schluessel.equals(spieler.getSchluessel());
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * Friert die Sitzung ein oder taut sie auf.
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} aufgerufen werden, oder bevor die Sitzung
+	 * im SpielSitzungsRegister steht. Alle später eingereihten Aufträge sehen also den neuen Wert.
+	 * 
+	 * @param eingefroren true, wenn kein Request mehr das Spiel ändern darf
+	 * 
+	 * </pre>
+	 */
+	public void setEingefroren(boolean eingefroren) {
+		this.eingefroren = eingefroren;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return true, wenn die Sitzung eingefroren ist
+	 * 
+	 * </pre>
+	 */
+	public boolean isEingefroren() {
+		return eingefroren;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Registrierungen der Zuschauer dieser Sitzung (nicht änderbar)
+	 * 
+	 * </pre>
+	 */
+	public List<ZuschauerRegistrierung> getZuschauerRegistrierungen() {
+		return List.copyOf(zuschauer.values());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Merkt sich einen Client, der auf seinen Zug wartet.
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} aufgerufen werden.
+	 * 
+	 * @param spieler der Spieler des wartenden Clients
+	 * @param antwort wird beim Wecken mit der Antwort fertiggestellt
+	 * 
+	 * </pre>
+	 */
+	public void hinzufuegenWartenden(KonkreterSpieler spieler, CompletableFuture<ServerAntwort> antwort) {
+		wartende.add(new WartenderClient(spieler, antwort));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Vergisst einen wartenden Client, z.B. nachdem seine Wartezeit abgelaufen ist.
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} aufgerufen werden.
+	 * 
+	 * @param antwort die Antwort des wartenden Clients
+	 * @return true, wenn der Client noch gewartet hat
+	 * 
+	 * </pre>
+	 */
+	public boolean entfernenWartenden(CompletableFuture<ServerAntwort> antwort) {
+		return wartende.removeIf(wartender -> wartender.antwort == antwort);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Weckt alle wartenden Clients, für die die Prüfung eine Antwort liefert.
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} aufgerufen werden.
+	 * 
+	 * @param pruefung liefert für einen Spieler die Antwort oder null, wenn er weiter warten soll
+	 * 
+	 * </pre>
+	 */
+	public void weckenWartende(Function<KonkreterSpieler, ServerAntwort> pruefung) {
+		Iterator<WartenderClient> iterator = wartende.iterator();
+		while(iterator.hasNext()) {
+			WartenderClient wartender = iterator.next();
+			if(wartender.antwort.isDone()) {
+				iterator.remove();
+				continue;
+			}
+			ServerAntwort antwort = pruefung.apply(wartender.spieler);
+			if(antwort != null) {
+				iterator.remove();
+				wartender.antwort.complete(antwort);
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} aufgerufen werden.
+	 * @return die Anzahl der Clients, die auf ihren Zug warten
+	 * 
+	 * </pre>
+	 */
+	public int getAnzahlWartende() {
+		return wartende.size();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} benutzt werden.
+	 * @return die geteilten Antworten für die aktuelle Version des SpielZustands
+	 * 
+	 * </pre>
+	 */
+	public SchnappschussCache getSchnappschussCache() {
+		return schnappschussCache;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Darf nur innerhalb von {@link #ausfuehren(Supplier)} benutzt werden.
+	 * @return die Antworten auf die letzten Spiel-Aktionen mit Idempotenz-Schlüssel
+	 * 
+	 * </pre>
+	 */
+	public AntwortGedaechtnis getAntwortGedaechtnis() {
+		return antwortGedaechtnis;
+	}
 
+	@Override
+	public String toString() {
+		return "ServerSpielSitzung [schluessel=" + schluessel + ", registrierungen=" + registrierungen.size() + ", zuschauer=" + zuschauer.size() + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein Client, der auf seinen Zug wartet.
+	 * 
+	 * </pre>
+	 */
+	private static class WartenderClient {
+		private final KonkreterSpieler spieler;
+		
+		private final CompletableFuture<ServerAntwort> antwort;
+		
+		private WartenderClient(KonkreterSpieler spieler, CompletableFuture<ServerAntwort> antwort) {
+			this.spieler = spieler;
+			this.antwort = antwort;
+		}
+	}
 }
@@ -0,0 +1,189 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+
+/**
+ * <pre>
+ * 
+ * Der Stand einer eingefrorenen ServerSpielSitzung, mit dem sie auf einem anderen Server weiterläuft.
+ * 
+ * Ein Checkpoint enthält:
+ * - den SpielZustand mit dem AktiverSpielerDekorator, also auch Würfel-Ergebnis, Versuche und Todo-Aktion des Zugs
+ * - die Version des SpielZustands, damit die Clients ihre Versionen weiter benutzen können
+ * - den Zustand des Wuerfels, der Zug wird also mit derselben Würfel-Folge fortgesetzt
+ * - die ClientRegistrierungen und ZuschauerRegistrierungen
+ * 
+ * Kodiert wird der ganze Checkpoint in einem Objekt-Strom:
+ * der Spieler einer ClientRegistrierung bleibt dasselbe Objekt wie der Spieler im SpielZustand.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SitzungsCheckpoint implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = -4630880513391263105L;
+	
+	private final SpielZustand spielZustand;
+	
+	private final long zustandsVersion;
+	
+	private final long wuerfelZustand;
+	
+	private final List<ClientRegistrierung> registrierungen;
+	
+	private final List<ZuschauerRegistrierung> zuschauer;
+	
+	private SitzungsCheckpoint(
+			SpielZustand spielZustand,
+			long zustandsVersion,
+			long wuerfelZustand,
+			List<ClientRegistrierung> registrierungen,
+			List<ZuschauerRegistrierung> zuschauer
+	) {
+		this.spielZustand = spielZustand;
+		this.zustandsVersion = zustandsVersion;
+		this.wuerfelZustand = wuerfelZustand;
+		this.registrierungen = registrierungen;
+		this.zuschauer = zuschauer;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Kodiert den Stand einer Sitzung. Darf nur aufgerufen werden, solange sich die Sitzung nicht ändert,
+	 * also auf ihrem Thread, nachdem sie eingefroren wurde.
+	 * 
+	 * @return der kodierte Checkpoint
+	 * @throws IOException wenn ein Teil nicht serialisiert werden kann
+	 * 
+	 * </pre>
+	 */
+	public static byte[] kodieren(
+			SpielZustand spielZustand,
+			long zustandsVersion,
+			long wuerfelZustand,
+			List<ClientRegistrierung> registrierungen,
+			List<ZuschauerRegistrierung> zuschauer
+	) throws IOException {
+		if(spielZustand == null || spielZustand.getSchluessel() == null) {
+			throw new IllegalArgumentException("nur ein SpielZustand mit Schlüssel kann umziehen");
+		}
+		return NachrichtenFormat.JAVA_SERIALISIERUNG.getCodec().kodieren(new SitzungsCheckpoint(
+				spielZustand,
+				zustandsVersion,
+				wuerfelZustand,
+				List.copyOf(registrierungen),
+				List.copyOf(zuschauer)
+		));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param daten ein mit {@link #kodieren(SpielZustand, long, long, List, List)} kodierter Checkpoint
+	 * @return der Checkpoint, alle Objekte darin sind neu
+	 * @throws IOException wenn die Daten kein Checkpoint sind
+	 * 
+	 * </pre>
+	 */
+	public static SitzungsCheckpoint dekodieren(byte[] daten) throws IOException {
+		Object checkpoint;
+		try {
+			checkpoint = NachrichtenFormat.JAVA_SERIALISIERUNG.getCodec().dekodieren(daten);
+		} catch(ClassNotFoundException ausnahme) {
+			throw new StreamCorruptedException("unbekannte Klasse im Checkpoint: " + ausnahme.getMessage());
+		}
+		if(!(checkpoint instanceof SitzungsCheckpoint sitzungsCheckpoint)) {
+			throw new StreamCorruptedException("kein SitzungsCheckpoint: " + (checkpoint != null ? checkpoint.getClass().getName() : null));
+		}
+		return sitzungsCheckpoint;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the spielZustand
+	 * 
+	 * </pre>
+	 */
+	public SpielZustand getSpielZustand() {
+		return spielZustand;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the zustandsVersion
+	 * 
+	 * </pre>
+	 */
+	public long getZustandsVersion() {
+		return zustandsVersion;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the wuerfelZustand
+	 * 
+	 * </pre>
+	 */
+	public long getWuerfelZustand() {
+		return wuerfelZustand;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the registrierungen
+	 * 
+	 * </pre>
+	 */
+	public List<ClientRegistrierung> getRegistrierungen() {
+		return registrierungen;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the zuschauer
+	 * 
+	 * </pre>
+	 */
+	public List<ZuschauerRegistrierung> getZuschauer() {
+		return zuschauer;
+	}
+}
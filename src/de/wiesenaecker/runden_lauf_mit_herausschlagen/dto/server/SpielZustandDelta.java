@@ -0,0 +1,317 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Die Antwort auf einen {@link ClientRequest.ClientRequestInfo#AENDERUNGEN_INFO} Request:
+ * was sich am SpielZustand seit der Version geändert hat, die der Client schon kennt.
+ * 
+ * Ein Delta enthält:
+ * - die neuen Felder der Figuren, die seitdem gezogen oder geschlagen wurden
+ * - den aktiven Spieler mit seiner Todo-Aktion und seinem Würfel-Ergebnis
+ * - die Gewinner in der Reihenfolge ihrer Gewinner-Position
+ * 
+ * Liegt die bekannte Version zu weit zurück (oder ist sie unbekannt), enthält die Antwort
+ * stattdessen den vollständigen SpielZustand, siehe {@link #isVollstaendig()}.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SpielZustandDelta implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = -2280419635507327741L;
+	
+	/**
+	 * die bekannte Version eines Clients, der noch keinen SpielZustand hat
+	 */
+	public static final long KEINE_VERSION = -1;
+	
+	/**
+	 * die Version des SpielZustands, auf die das Delta den Client bringt
+	 */
+	private final long version;
+	
+	/**
+	 * der vollständige SpielZustand, null bei einem Delta
+	 */
+	private final SpielZustand spielZustand;
+	
+	private final List<FigurPosition> geaenderteFiguren;
+	
+	private final Long aktiverSpielerSchluessel;
+	
+	private final AktiverSpielerTodoAktion todoAktion;
+	
+	private final WuerfelErgebnis wuerfelErgebnis;
+	
+	/**
+	 * die Schlüssel der Gewinner, der erste Gewinner zuerst
+	 */
+	private final List<Long> gewinnerSchluessel;
+	
+	private SpielZustandDelta(
+			long version,
+			SpielZustand spielZustand,
+			List<FigurPosition> geaenderteFiguren,
+			Long aktiverSpielerSchluessel,
+			AktiverSpielerTodoAktion todoAktion,
+			WuerfelErgebnis wuerfelErgebnis,
+			List<Long> gewinnerSchluessel
+	) {
+		this.version = version;
+		this.spielZustand = spielZustand;
+		this.geaenderteFiguren = geaenderteFiguren;
+		this.aktiverSpielerSchluessel = aktiverSpielerSchluessel;
+		this.todoAktion = todoAktion;
+		this.wuerfelErgebnis = wuerfelErgebnis;
+		this.gewinnerSchluessel = gewinnerSchluessel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param version die aktuelle Version des SpielZustands
+	 * @param geaenderteFiguren die Figuren, deren Feld sich seit der bekannten Version geändert hat
+	 * @param aktiverSpielerSchluessel
+	 * @param todoAktion
+	 * @param wuerfelErgebnis das Würfel-Ergebnis des aktiven Spielers (kann null sein)
+	 * @param gewinnerSchluessel
+	 * @return ein Delta
+	 * 
+	 * </pre>
+	 */
+	public static SpielZustandDelta erstellenDelta(
+			long version,
+			List<FigurPosition> geaenderteFiguren,
+			Long aktiverSpielerSchluessel,
+			AktiverSpielerTodoAktion todoAktion,
+			WuerfelErgebnis wuerfelErgebnis,
+			List<Long> gewinnerSchluessel
+	) {
+		if(geaenderteFiguren == null || gewinnerSchluessel == null) {
+			throw new NullPointerException("die Listen dürfen nicht null sein");
+		}
+		return new SpielZustandDelta(
+				version,
+				null,
+				List.copyOf(geaenderteFiguren),
+				aktiverSpielerSchluessel,
+				todoAktion,
+				wuerfelErgebnis,
+				List.copyOf(gewinnerSchluessel)
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param version die aktuelle Version des SpielZustands
+	 * @param spielZustand eine Kopie des SpielZustands, die die Sitzung nicht mehr verändert
+	 * @return eine Antwort mit dem vollständigen SpielZustand
+	 * 
+	 * </pre>
+	 */
+	public static SpielZustandDelta erstellenVollstaendig(long version, SpielZustand spielZustand) {
+		if(spielZustand == null) {
+			throw new NullPointerException("der SpielZustand darf nicht null sein");
+		}
+		return new SpielZustandDelta(version, spielZustand, Collections.emptyList(), null, null, null, Collections.emptyList());
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the version
+	 * 
+	 * </pre>
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return true, wenn die Antwort den vollständigen SpielZustand enthält
+	 * 
+	 * </pre>
+	 */
+	public boolean isVollstaendig() {
+		return spielZustand != null;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der vollständige SpielZustand oder null bei einem Delta
+	 * 
+	 * </pre>
+	 */
+	public SpielZustand getSpielZustand() {
+		return spielZustand;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the geaenderteFiguren
+	 * 
+	 * </pre>
+	 */
+	public List<FigurPosition> getGeaenderteFiguren() {
+		return geaenderteFiguren;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the aktiverSpielerSchluessel
+	 * 
+	 * </pre>
+	 */
+	public Long getAktiverSpielerSchluessel() {
+		return aktiverSpielerSchluessel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the todoAktion
+	 * 
+	 * </pre>
+	 */
+	public AktiverSpielerTodoAktion getTodoAktion() {
+		return todoAktion;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the wuerfelErgebnis
+	 * 
+	 * </pre>
+	 */
+	public WuerfelErgebnis getWuerfelErgebnis() {
+		return wuerfelErgebnis;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the gewinnerSchluessel
+	 * 
+	 * </pre>
+	 */
+	public List<Long> getGewinnerSchluessel() {
+		return gewinnerSchluessel;
+	}
+	
+	@Override
+	public String toString() {
+		if(isVollstaendig()) {
+			return "SpielZustandDelta [version=" + version + ", vollständig]";
+		}
+		return "SpielZustandDelta [version=" + version + ", geaenderteFiguren=" + geaenderteFiguren
+				+ ", aktiverSpielerSchluessel=" + aktiverSpielerSchluessel + ", todoAktion=" + todoAktion
+				+ ", wuerfelErgebnis=" + wuerfelErgebnis + ", gewinnerSchluessel=" + gewinnerSchluessel + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Das neue Feld einer Figur.
+	 * 
+	 * </pre>
+	 */
+	public static class FigurPosition implements Serializable {
+		/**
+		 * Die Serial Version dieser Klasse
+		 */
+		@Serial
+		private static final long serialVersionUID = 6110847023346590628L;
+		
+		private final long figurSchluessel;
+		
+		private final SpielFeld spielFeld;
+		
+		/**
+		 * <pre>
+		 * 
+		 * @param figurSchluessel
+		 * @param spielFeld
+		 * 
+		 * </pre>
+		 */
+		public FigurPosition(long figurSchluessel, SpielFeld spielFeld) {
+			if(spielFeld == null) {
+				throw new NullPointerException("das SpielFeld darf nicht null sein");
+			}
+			this.figurSchluessel = figurSchluessel;
+			this.spielFeld = spielFeld;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @return the figurSchluessel
+		 * 
+		 * </pre>
+		 */
+		public long getFigurSchluessel() {
+			return figurSchluessel;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @return the spielFeld
+		 * 
+		 * </pre>
+		 */
+		public SpielFeld getSpielFeld() {
+			return spielFeld;
+		}
+		
+		@Override
+		public String toString() {
+			return "FigurPosition [figurSchluessel=" + figurSchluessel + ", spielFeld=" + spielFeld + "]";
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * <pre>
+ * 
+ * Die Benachrichtigung, die der Server an die registrierten Clients einer Sitzung schickt,
+ * wenn sich deren SpielZustand geändert hat.
+ * 
+ * Eine Benachrichtigung enthält nicht den SpielZustand selbst:
+ * der Client holt ihn bei Bedarf mit einem SPIEL_INFO oder AENDERUNGEN_INFO Request ab.
+ * Mehrere Änderungen kurz hintereinander werden zu einer Benachrichtigung gebündelt,
+ * die Änderungs-Nummer ist die Version des SpielZustands und zählt jede einzelne Änderung.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SpielZustandGeaendert implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = 4213950728126474031L;
+	
+	/**
+	 * der Schlüssel des geänderten SpielZustands
+	 */
+	private final long spielZustandSchluessel;
+	
+	/**
+	 * die Version des SpielZustands nach der letzten Änderung
+	 */
+	private final long aenderungsNummer;
+	
+	/**
+	 * die Art der letzten Änderung
+	 */
+	private final AenderungsArt letzteAenderung;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param spielZustandSchluessel
+	 * @param aenderungsNummer
+	 * @param letzteAenderung
+	 * 
+	 * </pre>
+	 */
+	public SpielZustandGeaendert(
+			long spielZustandSchluessel,
+			long aenderungsNummer,
+			AenderungsArt letzteAenderung
+	) {
+		if(letzteAenderung == null) {
+			throw new NullPointerException("die Art der Änderung darf nicht null sein");
+		}
+		this.spielZustandSchluessel = spielZustandSchluessel;
+		this.aenderungsNummer = aenderungsNummer;
+		this.letzteAenderung = letzteAenderung;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the spielZustandSchluessel
+	 * 
+	 * </pre>
+	 */
+	public long getSpielZustandSchluessel() {
+		return spielZustandSchluessel;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the aenderungsNummer
+	 * 
+	 * </pre>
+	 */
+	public long getAenderungsNummer() {
+		return aenderungsNummer;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the letzteAenderung
+	 * 
+	 * </pre>
+	 */
+	public AenderungsArt getLetzteAenderung() {
+		return letzteAenderung;
+	}
+
+	@Override
+	public String toString() {
+		return "SpielZustandGeaendert [spielZustandSchluessel=" + spielZustandSchluessel + ", aenderungsNummer="
+				+ aenderungsNummer + ", letzteAenderung=" + letzteAenderung + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Aktionen, die einen SpielZustand ändern.
+	 * @author Christian Alexander Wiesenäcker
+	 * 
+	 * </pre>
+	 */
+	public enum AenderungsArt {
+		GEWUERFELT,
+		GEZOGEN,
+		NAECHSTER_SPIELER
+	}
+}
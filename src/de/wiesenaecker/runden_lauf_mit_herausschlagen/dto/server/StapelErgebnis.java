@@ -0,0 +1,223 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Die Antwort auf einen {@link ClientRequest.ClientRequestInfo#STAPEL} Request.
+ * 
+ * Enthält für jeden erreichten Schritt ein Ergebnis, in der Reihenfolge der Schritte.
+ * Schlägt ein Schritt fehl, werden die folgenden Schritte nicht mehr ausgeführt:
+ * die Liste endet dann mit dem fehlgeschlagenen Schritt.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class StapelErgebnis implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = -5839412207756913162L;
+	
+	private final List<SchrittErgebnis> schrittErgebnisse;
+	
+	/**
+	 * die Todo-Aktion des aktiven Spielers nach dem letzten Schritt
+	 */
+	private final AktiverSpielerTodoAktion todoAktion;
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schrittErgebnisse
+	 * @param todoAktion
+	 * 
+	 * </pre>
+	 */
+	public StapelErgebnis(List<SchrittErgebnis> schrittErgebnisse, AktiverSpielerTodoAktion todoAktion) {
+		if(schrittErgebnisse == null || todoAktion == null) {
+			throw new NullPointerException("die Parameter dürfen nicht null sein");
+		}
+		this.schrittErgebnisse = List.copyOf(schrittErgebnisse);
+		this.todoAktion = todoAktion;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the schrittErgebnisse
+	 * 
+	 * </pre>
+	 */
+	public List<SchrittErgebnis> getSchrittErgebnisse() {
+		return schrittErgebnisse;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the todoAktion
+	 * 
+	 * </pre>
+	 */
+	public AktiverSpielerTodoAktion getTodoAktion() {
+		return todoAktion;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return true, wenn kein Schritt fehlgeschlagen ist
+	 * 
+	 * </pre>
+	 */
+	public boolean isErfolgreich() {
+		return schrittErgebnisse.isEmpty() || schrittErgebnisse.get(schrittErgebnisse.size() - 1).getStatus() != SchrittStatus.FEHLGESCHLAGEN;
+	}
+
+	@Override
+	public String toString() {
+		return "StapelErgebnis [schrittErgebnisse=" + schrittErgebnisse + ", todoAktion=" + todoAktion + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Das Ergebnis eines Schritts.
+	 * 
+	 * </pre>
+	 */
+	public static class SchrittErgebnis implements Serializable {
+		/**
+		 * Die Serial Version dieser Klasse
+		 */
+		@Serial
+		private static final long serialVersionUID = 2905516083817045117L;
+		
+		private final SchrittStatus status;
+		
+		/**
+		 * das Würfel-Ergebnis eines ausgeführten Würfeln-Schritts, sonst null
+		 */
+		private final WuerfelErgebnis wuerfelErgebnis;
+		
+		/**
+		 * die gezogene Figur eines ausgeführten Ziehen-Schritts, sonst null
+		 */
+		private final Long figurSchluessel;
+		
+		/**
+		 * die Fehler-Meldung eines fehlgeschlagenen Schritts, sonst null
+		 */
+		private final String fehler;
+		
+		private SchrittErgebnis(SchrittStatus status, WuerfelErgebnis wuerfelErgebnis, Long figurSchluessel, String fehler) {
+			this.status = status;
+			this.wuerfelErgebnis = wuerfelErgebnis;
+			this.figurSchluessel = figurSchluessel;
+			this.fehler = fehler;
+		}
+		
+		public static SchrittErgebnis erstellenAusgefuehrt(WuerfelErgebnis wuerfelErgebnis, Long figurSchluessel) {
+			return new SchrittErgebnis(SchrittStatus.AUSGEFUEHRT, wuerfelErgebnis, figurSchluessel, null);
+		}
+		
+		public static SchrittErgebnis erstellenUebersprungen() {
+			return new SchrittErgebnis(SchrittStatus.UEBERSPRUNGEN, null, null, null);
+		}
+		
+		public static SchrittErgebnis erstellenFehlgeschlagen(String fehler) {
+			return new SchrittErgebnis(SchrittStatus.FEHLGESCHLAGEN, null, null, fehler);
+		}
+
+		/**
+		 * <pre>
+		 * 
+		 * @return the status
+		 * 
+		 * </pre>
+		 */
+		public SchrittStatus getStatus() {
+			return status;
+		}
+
+		/**
+		 * <pre>
+		 * 
+		 * @return the wuerfelErgebnis
+		 * 
+		 * </pre>
+		 */
+		public WuerfelErgebnis getWuerfelErgebnis() {
+			return wuerfelErgebnis;
+		}
+
+		/**
+		 * <pre>
+		 * 
+		 * @return the figurSchluessel
+		 * 
+		 * </pre>
+		 */
+		public Long getFigurSchluessel() {
+			return figurSchluessel;
+		}
+
+		/**
+		 * <pre>
+		 * 
+		 * @return the fehler
+		 * 
+		 * </pre>
+		 */
+		public String getFehler() {
+			return fehler;
+		}
+
+		@Override
+		public String toString() {
+			return "SchrittErgebnis [status=" + status + ", wuerfelErgebnis=" + wuerfelErgebnis + ", figurSchluessel="
+					+ figurSchluessel + ", fehler=" + fehler + "]";
+		}
+	}
+	
+	public enum SchrittStatus {
+		AUSGEFUEHRT,
+		/**
+		 * die Bedingung des Schritts war nicht erfüllt
+		 */
+		UEBERSPRUNGEN,
+		FEHLGESCHLAGEN
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+
+/**
+ * <pre>
+ * 
+ * Ein Schritt eines {@link ClientRequestInfo#STAPEL} Requests.
+ * 
+ * Ein Schritt ist eine Aktion des Spielers (Würfeln, Ziehen oder an den nächsten Spieler abgeben)
+ * mit einer Bedingung: ist sie beim Erreichen des Schritts nicht erfüllt, wird der Schritt übersprungen.
+ * So kann ein Client einen ganzen Zug auf einmal schicken, z.B.
+ * 
+ *   würfeln, wenn möglich ziehen, wenn fertig an den nächsten Spieler abgeben
+ * 
+ * Ist der Spieler nicht (mehr) dran, ist außer {@link Bedingung#IMMER} keine Bedingung erfüllt.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class StapelSchritt implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = 1760952311457286402L;
+	
+	private final ClientRequestInfo aktion;
+	
+	private final Bedingung bedingung;
+	
+	/**
+	 * die zu ziehende Figur, null für den ersten möglichen Zug (nur bei {@link ClientRequestInfo#ZIEHEN})
+	 */
+	private final Long figurSchluessel;
+	
+	private StapelSchritt(ClientRequestInfo aktion, Bedingung bedingung, Long figurSchluessel) {
+		if(bedingung == null) {
+			throw new NullPointerException("die Bedingung darf nicht null sein");
+		}
+		this.aktion = aktion;
+		this.bedingung = bedingung;
+		this.figurSchluessel = figurSchluessel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param bedingung wann der Schritt ausgeführt wird
+	 * @return ein Schritt, der würfelt
+	 * 
+	 * </pre>
+	 */
+	public static StapelSchritt erstellenWuerfelnSchritt(Bedingung bedingung) {
+		return new StapelSchritt(ClientRequestInfo.WUERFELN, bedingung, null);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param bedingung wann der Schritt ausgeführt wird
+	 * @param figurSchluessel die zu ziehende Figur, null für den ersten möglichen Zug
+	 * @return ein Schritt, der eine Figur zieht
+	 * 
+	 * </pre>
+	 */
+	public static StapelSchritt erstellenZiehenSchritt(Bedingung bedingung, Long figurSchluessel) {
+		return new StapelSchritt(ClientRequestInfo.ZIEHEN, bedingung, figurSchluessel);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param bedingung wann der Schritt ausgeführt wird
+	 * @return ein Schritt, der an den nächsten Spieler abgibt
+	 * 
+	 * </pre>
+	 */
+	public static StapelSchritt erstellenNaechsterSpielerSchritt(Bedingung bedingung) {
+		return new StapelSchritt(ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER, bedingung, null);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the aktion
+	 * 
+	 * </pre>
+	 */
+	public ClientRequestInfo getAktion() {
+		return aktion;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the bedingung
+	 * 
+	 * </pre>
+	 */
+	public Bedingung getBedingung() {
+		return bedingung;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the figurSchluessel
+	 * 
+	 * </pre>
+	 */
+	public Long getFigurSchluessel() {
+		return figurSchluessel;
+	}
+
+	@Override
+	public String toString() {
+		return "StapelSchritt [aktion=" + aktion + ", bedingung=" + bedingung + ", figurSchluessel=" + figurSchluessel + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Wann ein Schritt ausgeführt wird, geprüft an der Todo-Aktion des aktiven Spielers.
+	 * 
+	 * </pre>
+	 */
+	public enum Bedingung {
+		IMMER(null),
+		WENN_MUSS_WUERFELN(AktiverSpielerTodoAktion.MUSS_WUERFELN),
+		/**
+		 * der Spieler muss ziehen, es gibt also einen möglichen Zug
+		 */
+		WENN_MUSS_ZIEHEN(AktiverSpielerTodoAktion.MUSS_ZIEHEN),
+		WENN_FERTIG(AktiverSpielerTodoAktion.FERTIG);
+		
+		private final AktiverSpielerTodoAktion todoAktion;
+		
+		private Bedingung(AktiverSpielerTodoAktion todoAktion) {
+			this.todoAktion = todoAktion;
+		}
+		
+		/**
+		 * <pre>
+		 * 
+		 * @param aktuelleTodoAktion die Todo-Aktion des aktiven Spielers
+		 * @return true, wenn der Schritt ausgeführt werden soll
+		 * 
+		 * </pre>
+		 */
+		public boolean isErfuellt(AktiverSpielerTodoAktion aktuelleTodoAktion) {
+			return todoAktion == null || todoAktion == aktuelleTodoAktion;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * <pre>
+ * 
+ * Ein Auftrag zur Verwaltung der Sitzungen eines Servers, z.B. von einem SitzungsRouter,
+ * der Sitzungen zwischen den Servern umziehen lässt.
+ * 
+ * Ein Server nimmt VerwaltungsAufträge nur an, wenn in seinen Einstellungen ein Verwaltungs-Geheimnis gesetzt ist,
+ * und nur mit diesem Geheimnis. Die Aufträge werden im Format JAVA_SERIALISIERUNG geschickt,
+ * das Binär-Format kennt nur ClientRequests.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class VerwaltungsAuftrag implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = 3349582203477180215L;
+	
+	private final VerwaltungsArt art;
+	
+	/**
+	 * das Verwaltungs-Geheimnis des Servers
+	 */
+	private final long geheimnis;
+	
+	/**
+	 * der Schlüssel des SpielZustands der Sitzung, bei SITZUNGEN und IMPORTIEREN ohne Bedeutung
+	 */
+	private final long spielZustandSchluessel;
+	
+	/**
+	 * bei IMPORTIEREN: der exportierte SitzungsCheckpoint
+	 */
+	private final byte[] checkpoint;
+	
+	/**
+	 * bei WEITERLEITEN: der Host des Ziel-Servers
+	 */
+	private final String zielHost;
+	
+	/**
+	 * bei WEITERLEITEN: der Port des Ziel-Servers
+	 */
+	private final int zielPort;
+	
+	private VerwaltungsAuftrag(
+			VerwaltungsArt art,
+			long geheimnis,
+			long spielZustandSchluessel,
+			byte[] checkpoint,
+			String zielHost,
+			int zielPort
+	) {
+		this.art = art;
+		this.geheimnis = geheimnis;
+		this.spielZustandSchluessel = spielZustandSchluessel;
+		this.checkpoint = checkpoint;
+		this.zielHost = zielHost;
+		this.zielPort = zielPort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param art SITZUNGEN, EINFRIEREN, EXPORTIEREN oder FORTSETZEN
+	 * @param geheimnis das Verwaltungs-Geheimnis des Servers
+	 * @param spielZustandSchluessel der Schlüssel des SpielZustands der Sitzung
+	 * @return der neue Auftrag
+	 * 
+	 * </pre>
+	 */
+	public static VerwaltungsAuftrag erstellenVerwaltungsAuftrag(VerwaltungsArt art, long geheimnis, long spielZustandSchluessel) {
+		if(art == null || art == VerwaltungsArt.IMPORTIEREN || art == VerwaltungsArt.WEITERLEITEN) {
+			throw new IllegalArgumentException("für " + art + " gibt es eine eigene Fabrik-Methode");
+		}
+		return new VerwaltungsAuftrag(art, geheimnis, spielZustandSchluessel, null, null, 0);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param geheimnis das Verwaltungs-Geheimnis des Servers
+	 * @param checkpoint der exportierte SitzungsCheckpoint
+	 * @return der neue Auftrag
+	 * 
+	 * </pre>
+	 */
+	public static VerwaltungsAuftrag erstellenImportierenAuftrag(long geheimnis, byte[] checkpoint) {
+		if(checkpoint == null) {
+			throw new IllegalArgumentException("der Checkpoint darf nicht null sein");
+		}
+		return new VerwaltungsAuftrag(VerwaltungsArt.IMPORTIEREN, geheimnis, 0, checkpoint, null, 0);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param geheimnis das Verwaltungs-Geheimnis des Servers
+	 * @param spielZustandSchluessel der Schlüssel des SpielZustands der Sitzung
+	 * @param zielHost der Host des Servers, auf dem die Sitzung jetzt läuft
+	 * @param zielPort der Port des Servers, auf dem die Sitzung jetzt läuft
+	 * @return der neue Auftrag
+	 * 
+	 * </pre>
+	 */
+	public static VerwaltungsAuftrag erstellenWeiterleitenAuftrag(long geheimnis, long spielZustandSchluessel, String zielHost, int zielPort) {
+		if(zielHost == null || zielHost.isEmpty() || zielPort < 1 || zielPort > 65535) {
+			throw new IllegalArgumentException("ungültiges Ziel: " + zielHost + ":" + zielPort);
+		}
+		return new VerwaltungsAuftrag(VerwaltungsArt.WEITERLEITEN, geheimnis, spielZustandSchluessel, null, zielHost, zielPort);
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the art
+	 * 
+	 * </pre>
+	 */
+	public VerwaltungsArt getArt() {
+		return art;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the geheimnis
+	 * 
+	 * </pre>
+	 */
+	public long getGeheimnis() {
+		return geheimnis;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the spielZustandSchluessel
+	 * 
+	 * </pre>
+	 */
+	public long getSpielZustandSchluessel() {
+		return spielZustandSchluessel;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the checkpoint
+	 * 
+	 * </pre>
+	 */
+	public byte[] getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the zielHost
+	 * 
+	 * </pre>
+	 */
+	public String getZielHost() {
+		return zielHost;
+	}
+
+	/**
+	 * <pre>
+	 * 
+	 * @return the zielPort
+	 * 
+	 * </pre>
+	 */
+	public int getZielPort() {
+		return zielPort;
+	}
+	
+	@Override
+	public String toString() {
+		return "VerwaltungsAuftrag [art=" + art + ", spielZustandSchluessel=" + spielZustandSchluessel
+				+ (art == VerwaltungsArt.WEITERLEITEN ? ", ziel=" + zielHost + ":" + zielPort : "")
+				+ (art == VerwaltungsArt.IMPORTIEREN ? ", checkpoint=" + checkpoint.length + " Bytes" : "") + "]";
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Verwaltungs-Aufträge, mit denen eine Sitzung umzieht.
+	 * 
+	 * </pre>
+	 */
+	public enum VerwaltungsArt {
+		/**
+		 * die Schlüssel aller Sitzungen des Servers
+		 */
+		SITZUNGEN,
+		EINFRIEREN,
+		/**
+		 * antwortet mit dem kodierten SitzungsCheckpoint
+		 */
+		EXPORTIEREN,
+		IMPORTIEREN,
+		FORTSETZEN,
+		WEITERLEITEN
+	}
+}
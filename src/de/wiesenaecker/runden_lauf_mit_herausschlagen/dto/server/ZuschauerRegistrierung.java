@@ -0,0 +1,103 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * <pre>
+ * 
+ * Die Registrierung eines Zuschauers einer ServerSpielSitzung.
+ * 
+ * Ein Zuschauer weist sich wie ein Spiel-Client mit Schlüssel und Geheimnis aus,
+ * spielt aber keinen Spieler: er bekommt den SpielZustand geschickt, kann aber nichts im Spiel tun.
+ * Der Schlüssel muss nur innerhalb seiner Sitzung eindeutig sein.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ZuschauerRegistrierung implements Serializable {
+	/**
+	 * Die Serial Version dieser Klasse
+	 */
+	@Serial
+	private static final long serialVersionUID = 6028443914570718253L;
+	
+	/**
+	 * der Schlüssel, mit dem sich der Zuschauer ausweist
+	 */
+	private final long schluessel;
+	
+	/**
+	 * Das Geheimnis, mit dem ein Zuschauer sich beim Server authentifiziert
+	 */
+	private final long geheimnis;
+	
+	private ZuschauerRegistrierung(long schluessel, long geheimnis) {
+		this.schluessel = schluessel;
+		this.geheimnis = geheimnis;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @param schluessel der Schlüssel des Zuschauers, eindeutig innerhalb seiner Sitzung
+	 * @param geheimnis das Geheimnis, mit dem er sich ausweist
+	 * @return die neue Registrierung
+	 * 
+	 * </pre>
+	 */
+	public static ZuschauerRegistrierung erstellenZuschauerRegistrierung(long schluessel, long geheimnis) {
+		return new ZuschauerRegistrierung(schluessel, geheimnis);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the schluessel
+	 * 
+	 * </pre>
+	 */
+	public long getSchluessel() {
+		return schluessel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return the geheimnis
+	 * 
+	 * </pre>
+	 */
+	public long getGeheimnis() {
+		return geheimnis;
+	}
+	
+	@Override
+	public String toString() {
+		return "ZuschauerRegistrierung [schluessel=" + schluessel + "]";
+	}
+}
@@ -26,7 +26,10 @@ package de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -35,6 +38,7 @@ import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorato
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.IllegaleSpielerAktionException;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KompakterSpielZustand;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
@@ -42,8 +46,10 @@ import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
-import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld.FeldArt;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta.FigurPosition;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandGeaendert.AenderungsArt;
 import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.RundenLaufMitHerausschlagenService;
 
 /**
@@ -55,16 +61,222 @@ import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.RundenLaufMitHe
  * </pre>
  */
 public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHerausschlagenService {
+	/**
+	 * <pre>
+	 * 
+	 * So viele Versionen merkt sich der Service, welche Figuren sich geändert haben.
+	 * Liegt die bekannte Version eines Clients weiter zurück, bekommt er den ganzen SpielZustand.
+	 * 
+	 * </pre>
+	 */
+	public static final int MAX_DELTA_VERSIONEN = 64;
+	
 	private final RundenLaufMitHerausschlagenDao james;
 	
 	private SpielZustand aktivesSpiel;
 	
+	/**
+	 * der Wuerfel dieses Spiels
+	 */
+	private final Wuerfel wuerfel;
+	
+	/**
+	 * die Version des SpielZustands, jede Änderung zählt sie um eins hoch
+	 */
+	private long zustandsVersion;
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ring-Puffer: die Schlüssel der Figuren, deren Feld sich mit der Version v geändert hat,
+	 * stehen bei v % MAX_DELTA_VERSIONEN.
+	 * null, wenn eine der Figuren keinen Schlüssel hat und deshalb kein Delta möglich ist.
+	 * 
+	 * </pre>
+	 */
+	private final long[][] geaenderteFigurenJeVersion = new long[MAX_DELTA_VERSIONEN][];
+	
+	/**
+	 * die Nummer des laufenden Zugs, jeder Spieler-Wechsel zählt sie um eins hoch
+	 */
+	private long zugNummer;
+	
+	/**
+	 * wird nach jeder Änderung des SpielZustands aufgerufen, kann null sein
+	 */
+	private Consumer<AenderungsArt> aenderungsBeobachter;
+	
+	/**
+	 * der SpielZustand als Bit-Masken für die Zug-Bestimmung und das Spiel-Ende, wird bei jeder Prüfung neu geladen
+	 */
+	private final KompakterSpielZustand kompakterZustand = new KompakterSpielZustand();
+	
 	public RundenLaufMitHerausschlagenServerService(
 			RundenLaufMitHerausschlagenDao james,
 			SpielZustand aktivesSpiel
 	) {
+		this(james, aktivesSpiel, Wuerfel.erstellenZufaelligenWuerfel(), 0);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Setzt ein Spiel fort, z.B. nach dem Umzug seiner Sitzung auf einen anderen Server.
+	 * Für die Versionen vor der übergebenen gibt es kein Delta, ein Client bekommt dann den ganzen SpielZustand.
+	 * 
+	 * @param james die Datenhaltung
+	 * @param aktivesSpiel der SpielZustand
+	 * @param wuerfel der Wuerfel des Spiels
+	 * @param zustandsVersion die bisherige Version des SpielZustands
+	 * 
+	 * </pre>
+	 */
+	public RundenLaufMitHerausschlagenServerService(
+			RundenLaufMitHerausschlagenDao james,
+			SpielZustand aktivesSpiel,
+			Wuerfel wuerfel,
+			long zustandsVersion
+	) {
+		if(zustandsVersion < 0) {
+			throw new IllegalArgumentException("die Version darf nicht negativ sein: " + zustandsVersion);
+		}
 		this.james = james;
 		this.aktivesSpiel = aktivesSpiel;
+		this.wuerfel = wuerfel;
+		this.zustandsVersion = zustandsVersion;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der SpielZustand des aktiven Spiels
+	 * 
+	 * </pre>
+	 */
+	public SpielZustand getSpielZustand() {
+		return aktivesSpiel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Wuerfel dieses Spiels
+	 * 
+	 * </pre>
+	 */
+	public Wuerfel getWuerfel() {
+		return wuerfel;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Der Beobachter wird auf dem Thread aufgerufen, der den SpielZustand geändert hat,
+	 * er darf deshalb nicht blockieren.
+	 * 
+	 * @param aenderungsBeobachter wird nach jedem Würfeln, Ziehen und Spieler-Wechsel aufgerufen (null für keinen)
+	 * 
+	 * </pre>
+	 */
+	public void setAenderungsBeobachter(Consumer<AenderungsArt> aenderungsBeobachter) {
+		this.aenderungsBeobachter = aenderungsBeobachter;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Version des SpielZustands, 0 vor der ersten Änderung
+	 * 
+	 * </pre>
+	 */
+	public long getZustandsVersion() {
+		return zustandsVersion;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Bestimmt, was sich seit der bekannten Version geändert hat.
+	 * 
+	 * @param bekannteVersion die Version des SpielZustands, die der Client schon kennt
+	 * @return das Delta, oder null, wenn der Client den ganzen SpielZustand braucht:
+	 * 		- die bekannte Version ist unbekannt oder liegt mehr als {@link #MAX_DELTA_VERSIONEN} zurück
+	 * 		- eine der seitdem geänderten Figuren hat keinen Schlüssel
+	 * 
+	 * </pre>
+	 */
+	public SpielZustandDelta erstellenDelta(long bekannteVersion) {
+		if(bekannteVersion < 0 || bekannteVersion > zustandsVersion || zustandsVersion - bekannteVersion > MAX_DELTA_VERSIONEN) {
+			return null;
+		}
+		
+		Set<Long> figurSchluessel = new LinkedHashSet<>();
+		for(long version = bekannteVersion + 1; version <= zustandsVersion; version++) {
+			long[] geaenderteFiguren = geaenderteFigurenJeVersion[(int)(version % MAX_DELTA_VERSIONEN)];
+			if(geaenderteFiguren == null) {
+				return null;
+			}
+			for(long schluessel : geaenderteFiguren) {
+				figurSchluessel.add(schluessel);
+			}
+		}
+		
+		List<FigurPosition> geaenderteFiguren = new ArrayList<>(figurSchluessel.size());
+		for(Figur figur : aktivesSpiel.getFigurenMenge()) {
+			if(figur.getSchluessel() != null && figurSchluessel.contains(figur.getSchluessel())) {
+				geaenderteFiguren.add(new FigurPosition(figur.getSchluessel(), figur.getSpielFeld()));
+			}
+		}
+		
+		List<Long> gewinnerSchluessel = new ArrayList<>();
+		for(Spieler gewinner : aktivesSpiel.getGewinnerListe()) {
+			if(gewinner.getSchluessel() == null) {
+				return null;
+			}
+			gewinnerSchluessel.add(gewinner.getSchluessel());
+		}
+		
+		AktiverSpielerDekorator aktiverSpieler = aktivesSpiel.getAktiverSpieler();
+		return SpielZustandDelta.erstellenDelta(
+				zustandsVersion,
+				geaenderteFiguren,
+				aktiverSpieler.getDerSpieler().getSchluessel(),
+				aktiverSpieler.getAktuelleTodoAktion(),
+				aktiverSpieler.getWuerfelErgebnis(),
+				gewinnerSchluessel
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Zählt die Version hoch, merkt sich die geänderten Figuren und ruft den Beobachter auf.
+	 * 
+	 * @param aenderungsArt
+	 * @param geaenderteFiguren die Figuren, deren Feld sich geändert hat (null wird übersprungen)
+	 * 
+	 * </pre>
+	 */
+	private void melden(AenderungsArt aenderungsArt, Figur... geaenderteFiguren) {
+		long[] figurSchluessel = new long[geaenderteFiguren.length];
+		int anzahl = 0;
+		for(Figur figur : geaenderteFiguren) {
+			if(figur == null) {
+				continue;
+			}
+			if(figur.getSchluessel() == null) {
+				figurSchluessel = null;
+				break;
+			}
+			figurSchluessel[anzahl++] = figur.getSchluessel();
+		}
+		zustandsVersion++;
+		geaenderteFigurenJeVersion[(int)(zustandsVersion % MAX_DELTA_VERSIONEN)] =
+				figurSchluessel != null ? Arrays.copyOf(figurSchluessel, anzahl) : null;
+		
+		if(aenderungsBeobachter != null) {
+			aenderungsBeobachter.accept(aenderungsArt);
+		}
 	}
 	
 	/**
@@ -124,15 +336,8 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 	}
 	
 	public boolean isSpielFertig() {
-		long anzahlFertigerSpieler = aktivesSpiel.getFigurenMenge().stream().filter(f ->
-				f.getSpielFeld().getFeldArt() == FeldArt.ZIEL_FELD
-		).collect(Collectors.groupingBy(
-				f -> f.getFarbe(),
-				Collectors.counting()
-		)).entrySet().stream().filter(
-				e -> e.getValue() == Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER
-		).count();
-		return anzahlFertigerSpieler >= aktivesSpiel.getAnzahlKonkreterSpieler() - 1;
+		kompakterZustand.laden(aktivesSpiel);
+		return kompakterZustand.isSpielFertig();
 	}
 	
 	/**
@@ -205,6 +410,46 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 		AktiverSpielerDekorator aktiverSpieler = aktivesSpiel.getAktiverSpieler();
 		aktiverSpieler.naechsterAktiverSpieler(naechsterAktiverSpieler);
 		james.updateAktiverSpieler(aktiverSpieler);
+		zugNummer++;
+		melden(AenderungsArt.NAECHSTER_SPIELER);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Nummer des laufenden Zugs, 0 für den ersten Zug dieses Service
+	 * 
+	 * </pre>
+	 */
+	public long getZugNummer() {
+		return zugNummer;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Beendet den Zug des aktiven Spielers, weil seine Zug-Frist abgelaufen ist:
+	 * was er in diesem Zug noch nicht getan hat, verfällt, und der nächste Spieler ist dran.
+	 * 
+	 * @param zugNummer die Nummer des Zugs, für den die Frist galt
+	 * @return true, wenn der nächste Spieler dran ist,
+	 * 		false, wenn der Zug schon vorbei ist, das Spiel fertig ist oder nur noch ein Spieler übrig ist
+	 * 
+	 * </pre>
+	 */
+	public boolean beendenZugNachFrist(long zugNummer) {
+		if(zugNummer != this.zugNummer || isSpielFertig()) {
+			return false;
+		}
+		AktiverSpielerDekorator aktiverSpieler = aktivesSpiel.getAktiverSpieler();
+		AktiverSpielerTodoAktion todoAktion = aktiverSpieler.getAktuelleTodoAktion();
+		aktiverSpieler.setTodoAktion(AktiverSpielerTodoAktion.FERTIG);
+		naechsterAktiverSpieler();
+		if(zugNummer == this.zugNummer) {
+			aktiverSpieler.setTodoAktion(todoAktion);
+			return false;
+		}
+		return true;
 	}
 	
 	/**
@@ -254,25 +499,23 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 			throw new IllegaleSpielerAktionException("der aktiver Spieler mit der Farbe " + aktiverSpieler.getFarbe().toPrettyString() + " darf jetzt nicht würfeln");
 		}
 		
-		Wuerfel wuerfel = Wuerfel.getInstance();
-
 		WuerfelErgebnis wuerfelErgebnis = wuerfel.wuerfeln();
 		aktiverSpieler.setWuerfelErgebnis(wuerfelErgebnis);
 
-		int zielFeldFigurenMask = 0;
-		for(Figur zielFeldFigur : aktiverSpieler.getZielFeldFigurenMenge()) {
-			zielFeldFigurenMask = zielFeldFigurenMask | (1 << zielFeldFigur.getSpielFeld().getFeldPosition());
-		}
+		// die Filter von bestimmeMoeglicheSpielZuege wählen nur unter den Zügen aus,
+		// ob es überhaupt einen Zug gibt, entscheidet der kompakte SpielZustand ohne SpielZug-Objekte
+		kompakterZustand.laden(aktivesSpiel);
+		int spielerIndex = kompakterZustand.getSpielerIndex(aktiverSpieler.getDerSpieler());
+		int zielFeldFigurenMask = kompakterZustand.getZielMaske(spielerIndex);
 		
-		List<SpielZug> moeglicheZuege = bestimmeMoeglicheSpielZuege(aktiverSpieler, wuerfelErgebnis);
-		if(!moeglicheZuege.isEmpty()) {
+		if(kompakterZustand.hatZug(spielerIndex, wuerfelErgebnis.getValue())) {
 			aktiverSpieler.setTodoAktion(AktiverSpielerTodoAktion.MUSS_ZIEHEN);
 		} else if(wuerfelErgebnis == WuerfelErgebnis.SECHS) {
 			aktiverSpieler.setTodoAktion(AktiverSpielerTodoAktion.MUSS_WUERFELN);
 		} else if(
 				!aktiverSpieler.isHatGezogen()
 				&& aktiverSpieler.getWuerfelVersuchsAnzahl() < 3
-				&& aktiverSpieler.getStreckenFeldFigurenMenge().isEmpty()
+				&& kompakterZustand.getStreckenMaske(spielerIndex) == 0
 				&& Arrays.asList(0, 8, 12, 14).contains(zielFeldFigurenMask)
 		) {
 			aktiverSpieler.setTodoAktion(AktiverSpielerTodoAktion.MUSS_WUERFELN);
@@ -281,6 +524,7 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 		}
 		
 		james.updateAktiverSpieler(aktiverSpieler);
+		melden(AenderungsArt.GEWUERFELT);
 	}
 
 	/**
@@ -297,125 +541,22 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 			throw new IllegalArgumentException("Parameter dürfen nicht null sein");
 		}
 		
-		// Ermittle alle möglichen Züge
-		List<SpielZug> moeglicheZuege = spieler.getFigurenMenge().stream().map(zugFigur -> {
-			if(!spieler.getFarbe().equals(zugFigur.getFarbe())) {
-				return null;
-			}
-			
-			SpielFeld zielFeld = null;
-			Figur schlagFigur = null;
-			Farbe spielerFarbe = spieler.getFarbe();
-			SpielFeld zugFigurFeld = zugFigur.getSpielFeld();
-			FeldArt zugFigurFeldArt= zugFigurFeld.getFeldArt();
-
-			switch(zugFigurFeldArt) {
-			case START_FELD -> {
-				if(wuerfelErgebnis == WuerfelErgebnis.SECHS) {
-					zielFeld = spieler.getStartStreckenFeld();
-				}
-			}
-			case STRECKEN_FELD -> {
-				final int anzahlStreckenFelder = aktivesSpiel.getAnzahlStreckenFelder();
-				final SpielFeld startStreckenFeld = spieler.getStartStreckenFeld();
-				final SpielFeld endStreckenFeld = spieler.getEndStreckenFeld();
-
-				final int startStreckenFeldPosition = startStreckenFeld.getFeldPosition();
-				final int endStreckenFeldPosition = endStreckenFeld.getFeldPosition();
-				final int figurStartPosition = zugFigurFeld.getFeldPosition();
-				final int figurZielPosition = figurStartPosition + wuerfelErgebnis.getValue();
-				
-				int vergleichFigurZielPosition = figurZielPosition;
-				int vergleichEndStreckenFeldPosition = endStreckenFeldPosition;
-				if(startStreckenFeldPosition != 0) {
-					vergleichEndStreckenFeldPosition += anzahlStreckenFelder;
-					if(figurStartPosition < startStreckenFeldPosition) {
-						vergleichFigurZielPosition += anzahlStreckenFelder;
-					}
-				}
-
-				if(vergleichFigurZielPosition == vergleichEndStreckenFeldPosition) {
-					zielFeld = endStreckenFeld;
-				} else if(vergleichFigurZielPosition < vergleichEndStreckenFeldPosition) {
-					zielFeld = SpielFeld.erstelleFarblosesStreckenFeld(
-							figurZielPosition % anzahlStreckenFelder
-					);
-				} else if(vergleichFigurZielPosition < (vergleichEndStreckenFeldPosition + 1) + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
-					zielFeld = SpielFeld.erstelleZielFeld(
-							spielerFarbe,
-							vergleichFigurZielPosition - (vergleichEndStreckenFeldPosition + 1)
-					);
-				}
-			}
-			case ZIEL_FELD -> {
-				int figurStartPosition = zugFigurFeld.getFeldPosition();
-				int figurZielPosition = figurStartPosition + wuerfelErgebnis.getValue();
-				
-				if(figurZielPosition < Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
-					zielFeld = SpielFeld.erstelleZielFeld(spielerFarbe, figurZielPosition);
-				}
-			}
-			}
-
-			if(zielFeld == null) {
-				return null;
-			}
-				
-			SpielFeld vergleichZielFeld = zielFeld;
-			Figur andereFigur = aktivesSpiel.getFigurenMenge()
-					.stream()
-					.filter(f -> !zugFigur.equals(f) && vergleichZielFeld.equals(f.getSpielFeld()))
-					.findFirst()
-					.orElse(null);
-			if(andereFigur != null) {
-				if(spielerFarbe.equals(andereFigur.getFarbe())) {
-					zielFeld = null;
-				} else {
-					schlagFigur = andereFigur;
-				}
-			}
-
-			if(zielFeld == null) {
-				return null;
-			}
-
-			return new SpielZug(
-					zugFigur,
-					wuerfelErgebnis,
-					zielFeld,
-					schlagFigur
-			);
-		}).filter(s -> s != null).collect(Collectors.toList());
-
-		if(moeglicheZuege.isEmpty()) {
-			return Collections.emptyList();
+		// die Regeln stehen im kompakten SpielZustand, die Ziel-Felder kommen aus den ZugTabellen der Strecke
+		kompakterZustand.laden(aktivesSpiel);
+		int spielerIndex = kompakterZustand.getSpielerIndex(spieler);
+		if(spielerIndex < 0) {
+			throw new IllegalArgumentException("der Spieler mit der Farbe " + spieler.getFarbe().toPrettyString() + " spielt nicht mit");
 		}
-		
-		// Wenn der Spieler wartende Figuren auf seinen Startfeldern hat,
-		// dann muss das Start-Streckenfeld freigemacht werden, wenn möglich.
-		if(!spieler.getStartFeldFigurenMenge().isEmpty()) {
-			List<SpielZug> moeglicheZuegeStartStreckenFeld = moeglicheZuege.stream().filter(zug ->
-				zug.getZugFeld().getFeldArt() == FeldArt.STRECKEN_FELD
-				&& zug.getZugFeld().getFeldPosition() == spieler.getStartStreckenFeld().getFeldPosition()
-			).collect(Collectors.toList());
-			if(!moeglicheZuegeStartStreckenFeld.isEmpty()) {
-				return moeglicheZuegeStartStreckenFeld;
-			}
+		int[] zuege = new int[Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER];
+		int anzahlZuege = kompakterZustand.bestimmenZuege(spielerIndex, wuerfelErgebnis.getValue(), zuege);
+		if(anzahlZuege == 0) {
+			return Collections.emptyList();
 		}
 		
-		if(wuerfelErgebnis != WuerfelErgebnis.SECHS) {
-			return moeglicheZuege;
-		}
-
-		// Wenn der Spieler wartende Figuren auf seinen Startfeldern hat,
-		// müssen sie zuerst auf das Start-Streckenfeld gespielt werden.
-		List<SpielZug> moeglicheZuegeStartFelder = moeglicheZuege.stream().filter(zug ->
-			zug.getZugFeld().getFeldArt() == FeldArt.START_FELD
-		).collect(Collectors.toList());
-		if(!moeglicheZuegeStartFelder.isEmpty()) {
-			return moeglicheZuegeStartFelder;
+		List<SpielZug> moeglicheZuege = new ArrayList<>(anzahlZuege);
+		for(int i = 0; i < anzahlZuege; i++) {
+			moeglicheZuege.add(kompakterZustand.erstellenSpielZug(zuege[i], wuerfelErgebnis));
 		}
-		
 		return moeglicheZuege;
 	}
 	
@@ -475,6 +616,6 @@ public class RundenLaufMitHerausschlagenServerService implements RundenLaufMitHe
 		james.updateAktiverSpieler(aktiverSpieler);
 		james.updateFigur(schlagFigur);
 		james.updateFigur(zugFigur);
-		
+		melden(AenderungsArt.GEZOGEN, zugFigur, schlagFigur);
 	}
 }
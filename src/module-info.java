@@ -27,6 +27,8 @@ module de.wiesenaecker.runden_lauf_mit_herausschlagen {
 //	requires javafx.fxml;
 	requires javafx.graphics;
 	requires java.sql;
+	requires java.management;
+	requires jdk.management;
 	requires args4j;
 //	requires javafx.media;
 //	requires javafx.swing;
@@ -0,0 +1,332 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+
+/**
+ * <pre>
+ * 
+ * Testet das Abschalten des Servers mit Checkpoints und das Fortsetzen auf einem neu gestarteten Server:
+ * 
+ * - schon eingereihte Requests laufen noch und werden beantwortet
+ * - wartende WARTE_AUF_ZUG Requests und neue Requests bekommen UEBERLASTET, neue Sitzungen werden abgewiesen
+ * - jede Sitzung wird als Checkpoint geschrieben
+ * - der neu gestartete Server setzt jede Sitzung mit Version, Würfel und aktivem Spieler fort
+ *   und löscht ihren Checkpoint, ein kaputter Checkpoint bleibt liegen
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class AbschaltenTest {
+	private static final long[] SPIEL_ZUSTAND_SCHLUESSEL = {23_000L, 23_100L, 23_200L};
+	
+	private static final int ANZAHL_LESENDE_REQUESTS = 50;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Abschalten mit Checkpoints");
+		System.out.println("*".repeat(60) + "\n");
+		
+		Path verzeichnis = Files.createTempDirectory("runden-lauf-checkpoints");
+		// beide Server teilen sich die Datenhaltung, wie nach einem Neustart mit derselben Datenbank
+		RundenLaufMitHerausschlagenDao james = new RundenLaufMitHerausSchlagenDaoMitMaker(
+				new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+		);
+		
+		RundenLaufMitHerausschlagenServer alterServer = erstellenServer(verzeichnis, james);
+		alterServer.starten();
+		List<List<long[]>> spielerDaten = new ArrayList<>();
+		for(long schluessel : SPIEL_ZUSTAND_SCHLUESSEL) {
+			spielerDaten.add(hinzufuegenSpielSitzung(alterServer, schluessel));
+		}
+		long[][] vorher = testenAbschalten(alterServer, verzeichnis, spielerDaten.get(0));
+		testenFortsetzen(verzeichnis, james, spielerDaten, vorher);
+		
+		Files.deleteIfExists(verzeichnis.resolve("kaputt" + RundenLaufMitHerausschlagenServer.CHECKPOINT_ENDUNG));
+		Files.deleteIfExists(verzeichnis);
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Abschalten mit Checkpoints");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je Sitzung die Version, der Würfel-Zustand und der Schlüssel des aktiven Spielers beim Abschalten
+	 * 
+	 * </pre>
+	 */
+	private static long[][] testenAbschalten(
+			RundenLaufMitHerausschlagenServer server,
+			Path verzeichnis,
+			List<long[]> spielerDaten
+	) throws Exception {
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL[0]);
+		long[] aktiver = getAktiverSpieler(sitzung, spielerDaten);
+		long[] wartender = spielerDaten.stream().filter(spieler -> spieler != aktiver).findFirst().orElseThrow();
+		
+		ServerAntwort gewuerfelt = server.verarbeiteClientRequest(
+				ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.WUERFELN)
+		).get(5, TimeUnit.SECONDS);
+		if(gewuerfelt.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("das Würfeln ist fehlgeschlagen: " + gewuerfelt);
+		}
+		CompletableFuture<ServerAntwort> warten = server.verarbeiteClientRequest(
+				ClientRequest.erstellenWarteAufZugClientRequest(wartender[0], wartender[1], wartender[2], 5_000)
+		);
+		
+		// die Sitzung hängt, bis das Abschalten begonnen hat: die Requests dahinter sind noch in Arbeit
+		CountDownLatch freigabe = new CountDownLatch(1);
+		sitzung.ausfuehren(() -> {
+			try {
+				freigabe.await(5, TimeUnit.SECONDS);
+			} catch(InterruptedException ausnahme) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		List<CompletableFuture<ServerAntwort>> inArbeit = new ArrayList<>();
+		for(int i = 0; i < ANZAHL_LESENDE_REQUESTS; i++) {
+			inArbeit.add(server.verarbeiteClientRequest(
+					ClientRequest.erstellenClientRequest(wartender[0], wartender[1], wartender[2], ClientRequestInfo.SPIEL_INFO)
+			));
+		}
+		
+		long start = System.nanoTime();
+		CompletableFuture<Integer> abgeschaltet = CompletableFuture.supplyAsync(() -> {
+			try {
+				return server.abschalten(5_000);
+			} catch(Exception ausnahme) {
+				throw new IllegalStateException(ausnahme);
+			}
+		});
+		while(!server.isAbschaltend()) {
+			Thread.sleep(1);
+		}
+		freigabe.countDown();
+		int anzahlCheckpoints = abgeschaltet.get(10, TimeUnit.SECONDS);
+		long abschaltMillis = (System.nanoTime() - start) / 1_000_000;
+		
+		for(CompletableFuture<ServerAntwort> antwort : inArbeit) {
+			if(antwort.get(5, TimeUnit.SECONDS).getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("ein Request in Arbeit wurde nicht fertig: " + antwort.join());
+			}
+		}
+		if(warten.get(5, TimeUnit.SECONDS).getStatus() != ServerAntwortStatus.UEBERLASTET) {
+			throw new AssertionError("ein wartender Client muss es beim neuen Server wiederholen: " + warten.join());
+		}
+		ServerAntwort neu = server.verarbeiteClientRequest(
+				ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.SPIEL_INFO)
+		).get(5, TimeUnit.SECONDS);
+		if(neu.getStatus() != ServerAntwortStatus.UEBERLASTET) {
+			throw new AssertionError("ein neuer Request muss es beim neuen Server wiederholen: " + neu);
+		}
+		try {
+			server.hinzufuegenSpielSitzung(erstellenSpielZustand(24_000L), List.of());
+			throw new AssertionError("ein abschaltender Server darf keine neue Sitzung annehmen");
+		} catch(IllegalStateException ausnahme) {
+			// erwartet
+		}
+		if(server.getLokalerPort() != -1) {
+			throw new AssertionError("der Transport muss beendet sein");
+		}
+		if(anzahlCheckpoints != SPIEL_ZUSTAND_SCHLUESSEL.length) {
+			throw new AssertionError("falsche Anzahl Checkpoints: " + anzahlCheckpoints);
+		}
+		
+		long[][] vorher = new long[SPIEL_ZUSTAND_SCHLUESSEL.length][];
+		for(int i = 0; i < SPIEL_ZUSTAND_SCHLUESSEL.length; i++) {
+			Path datei = verzeichnis.resolve(SPIEL_ZUSTAND_SCHLUESSEL[i] + RundenLaufMitHerausschlagenServer.CHECKPOINT_ENDUNG);
+			if(!Files.isRegularFile(datei)) {
+				throw new AssertionError("der Checkpoint fehlt: " + datei);
+			}
+			vorher[i] = getStand(server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL[i]));
+		}
+		System.out.println(
+				"abgeschaltet nach " + abschaltMillis + " ms: " + ANZAHL_LESENDE_REQUESTS + " Requests in Arbeit beantwortet, "
+				+ anzahlCheckpoints + " Checkpoints mit zusammen " + getGroesse(verzeichnis) + " Bytes"
+		);
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+		return vorher;
+	}
+	
+	private static void testenFortsetzen(
+			Path verzeichnis,
+			RundenLaufMitHerausschlagenDao james,
+			List<List<long[]>> spielerDaten,
+			long[][] vorher
+	) throws Exception {
+		Path kaputt = verzeichnis.resolve("kaputt" + RundenLaufMitHerausschlagenServer.CHECKPOINT_ENDUNG);
+		Files.write(kaputt, new byte[] {1, 2, 3});
+		
+		RundenLaufMitHerausschlagenServer server = erstellenServer(verzeichnis, james);
+		long start = System.nanoTime();
+		server.starten();
+		long startMillis = (System.nanoTime() - start) / 1_000_000;
+		
+		for(int i = 0; i < SPIEL_ZUSTAND_SCHLUESSEL.length; i++) {
+			ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL[i]);
+			if(sitzung == null || sitzung.isEingefroren()) {
+				throw new AssertionError("die Sitzung " + SPIEL_ZUSTAND_SCHLUESSEL[i] + " wurde nicht fortgesetzt");
+			}
+			long[] nachher = getStand(sitzung);
+			if(vorher[i][0] != nachher[0] || vorher[i][1] != nachher[1] || vorher[i][2] != nachher[2]) {
+				throw new AssertionError("die Sitzung " + SPIEL_ZUSTAND_SCHLUESSEL[i] + " hat ihren Stand verloren");
+			}
+			if(Files.exists(verzeichnis.resolve(SPIEL_ZUSTAND_SCHLUESSEL[i] + RundenLaufMitHerausschlagenServer.CHECKPOINT_ENDUNG))) {
+				throw new AssertionError("der Checkpoint einer fortgesetzten Sitzung muss gelöscht werden");
+			}
+			long[] aktiver = getAktiverSpieler(sitzung, spielerDaten.get(i));
+			ServerAntwort antwort = server.verarbeiteClientRequest(
+					ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.SPIEL_INFO)
+			).get(5, TimeUnit.SECONDS);
+			if(antwort.getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("der Client muss auf dem neuen Server weiterspielen können: " + antwort);
+			}
+		}
+		if(!Files.exists(kaputt)) {
+			throw new AssertionError("ein kaputter Checkpoint muss liegen bleiben");
+		}
+		System.out.println(
+				"neu gestartet nach " + startMillis + " ms: " + server.getAnzahlSpielSitzungen()
+				+ " Sitzungen fortgesetzt, der kaputte Checkpoint bleibt liegen"
+		);
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(Path verzeichnis, RundenLaufMitHerausschlagenDao james) {
+		return new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setMitBeispielSitzung(false)
+						.setCheckpointVerzeichnis(verzeichnis),
+				james
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die Version, der Würfel-Zustand und der Schlüssel des aktiven Spielers
+	 * 
+	 * </pre>
+	 */
+	private static long[] getStand(ServerSpielSitzung sitzung) throws Exception {
+		return sitzung.ausfuehren(() -> new long[] {
+				sitzung.getSpiel().getZustandsVersion(),
+				sitzung.getSpiel().getWuerfel().getZustand(),
+				sitzung.getSpiel().getAktiverSpieler().getSchluessel()
+		}).get(5, TimeUnit.SECONDS);
+	}
+	
+	private static long getGroesse(Path verzeichnis) throws Exception {
+		long groesse = 0;
+		for(long schluessel : SPIEL_ZUSTAND_SCHLUESSEL) {
+			groesse += Files.size(verzeichnis.resolve(schluessel + RundenLaufMitHerausschlagenServer.CHECKPOINT_ENDUNG));
+		}
+		return groesse;
+	}
+	
+	private static long[] getAktiverSpieler(ServerSpielSitzung sitzung, List<long[]> spielerDaten) throws Exception {
+		long schluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).get(5, TimeUnit.SECONDS);
+		return spielerDaten.stream().filter(spieler -> spieler[1] == schluessel).findFirst().orElseThrow();
+	}
+	
+	private static SpielZustand erstellenSpielZustand(long spielZustandSchluessel) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(spielZustandSchluessel);
+		return spielZustand;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je registriertem Spieler der Schlüssel des SpielZustands, der Schlüssel des Spielers und sein Geheimnis
+	 * 
+	 * </pre>
+	 */
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, long spielZustandSchluessel) {
+		SpielZustand spielZustand = erstellenSpielZustand(spielZustandSchluessel);
+		
+		long schluessel = spielZustandSchluessel + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,271 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.BenachrichtigungsVerteiler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.BenachrichtigungsLauscher;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld.FeldArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Testet die Benachrichtigungen des Servers an die registrierten Clients:
+ * 
+ * - drei Clients spielen ein Spiel so schnell wie möglich, höchstens ANZAHL_AKTIONEN Aktionen oder bis es fertig ist,
+ *   zwei nehmen Benachrichtigungen an, der dritte nimmt die Verbindung an und liest nie
+ * - die beiden lesenden Clients bekommen am Ende die Nummer der letzten Änderung
+ * - Änderungen innerhalb des Fensters werden gebündelt: es kommen weniger Benachrichtigungen als Änderungen
+ * - das Spiel wartet nie auf die Benachrichtigungen, auch nicht auf den Client, der nie liest
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class BenachrichtigungTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 7_000L;
+	
+	private static final long FENSTER_MILLIS = 50;
+	
+	private static final int ANZAHL_AKTIONEN = 600;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Benachrichtigungen an die Clients");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setBenachrichtigungsFensterMillis(FENSTER_MILLIS)
+						.setAnzahlBenachrichtigungsThreads(2),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		
+		List<AtomicLong> letzteNummern = new ArrayList<>();
+		List<AtomicInteger> anzahlBenachrichtigungen = new ArrayList<>();
+		List<BenachrichtigungsLauscher> lauscher = new ArrayList<>();
+		for(int i = 0; i < 2; i++) {
+			AtomicLong letzteNummer = new AtomicLong();
+			AtomicInteger anzahl = new AtomicInteger();
+			lauscher.add(new BenachrichtigungsLauscher(0, benachrichtigung -> {
+				if(benachrichtigung.getSpielZustandSchluessel() != SPIEL_ZUSTAND_SCHLUESSEL) {
+					throw new AssertionError("Benachrichtigung für eine fremde Sitzung: " + benachrichtigung);
+				}
+				letzteNummer.accumulateAndGet(benachrichtigung.getAenderungsNummer(), Math::max);
+				anzahl.incrementAndGet();
+			}));
+			letzteNummern.add(letzteNummer);
+			anzahlBenachrichtigungen.add(anzahl);
+		}
+		
+		// nimmt die Verbindung an, liest aber nie: der Empfangs-Puffer läuft irgendwann voll
+		ServerSocket schlafenderClient = new ServerSocket(0);
+		schlafenderClient.setReceiveBufferSize(1024);
+		List<Socket> schlafendeVerbindungen = new ArrayList<>();
+		Thread annehmen = new Thread(() -> {
+			try {
+				while(true) {
+					schlafendeVerbindungen.add(schlafenderClient.accept());
+				}
+			} catch(IOException ausnahme) {
+				// geschlossen
+			}
+		});
+		annehmen.setDaemon(true);
+		annehmen.start();
+		
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server, new int[] {
+				lauscher.get(0).getLokalerPort(),
+				lauscher.get(1).getLokalerPort(),
+				schlafenderClient.getLocalPort()
+		});
+		
+		long start = System.nanoTime();
+		long anzahlAenderungen = spielen(server, spielerDaten);
+		long spielMillis = (System.nanoTime() - start) / 1_000_000;
+		System.out.println(anzahlAenderungen + " Aktionen mit je einer Änderung in " + spielMillis + " ms gespielt.");
+		if(spielMillis > ANZAHL_AKTIONEN * FENSTER_MILLIS / 4) {
+			throw new AssertionError("das Spiel hat auf die Benachrichtigungen gewartet");
+		}
+		
+		long ende = System.currentTimeMillis() + 5_000;
+		while(
+				(letzteNummern.get(0).get() != anzahlAenderungen || letzteNummern.get(1).get() != anzahlAenderungen)
+				&& System.currentTimeMillis() < ende
+		) {
+			Thread.sleep(10);
+		}
+		for(int i = 0; i < 2; i++) {
+			System.out.println("  Client " + i + ": " + anzahlBenachrichtigungen.get(i).get()
+					+ " Benachrichtigungen, letzte Änderungs-Nummer " + letzteNummern.get(i).get());
+			if(letzteNummern.get(i).get() != anzahlAenderungen) {
+				throw new AssertionError("Client " + i + " hat die letzte Änderung nicht mitbekommen");
+			}
+			if(anzahlBenachrichtigungen.get(i).get() >= anzahlAenderungen) {
+				throw new AssertionError("Client " + i + " hat ungebündelte Benachrichtigungen bekommen");
+			}
+		}
+		
+		BenachrichtigungsVerteiler verteiler = server.getBenachrichtigungsVerteiler();
+		System.out.println("  Verteiler: " + verteiler.getAnzahlGesendet() + " gesendet, "
+				+ verteiler.getAnzahlFehlgeschlagen() + " fehlgeschlagen, " + verteiler.getAnzahlVerworfen() + " verworfen");
+		if(schlafendeVerbindungen.isEmpty()) {
+			throw new AssertionError("der schlafende Client wurde nicht benachrichtigt");
+		}
+		
+		lauscher.forEach(BenachrichtigungsLauscher::close);
+		schlafenderClient.close();
+		verteiler.beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Benachrichtigungen an die Clients");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Spielt mit dem jeweils aktiven Spieler, ohne auf Benachrichtigungen zu warten.
+	 * Mit Glück beim Würfeln ist das Spiel vor ANZAHL_AKTIONEN Aktionen fertig, dann endet die Schleife.
+	 * 
+	 * @return die Anzahl der Änderungen des SpielZustands
+	 * 
+	 * </pre>
+	 */
+	private static long spielen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten) {
+		long anzahlAenderungen = 0;
+		for(int i = 0; i < ANZAHL_AKTIONEN; i++) {
+			SpielZustand spielZustand = (SpielZustand)pruefen(server.verarbeiteClientRequest(
+					anfrage(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)
+			).join()).getInhalt();
+			if(isSpielFertig(spielZustand)) {
+				break;
+			}
+			AktiverSpielerDekorator aktiverSpieler = spielZustand.getAktiverSpieler();
+			long aktiverSchluessel = aktiverSpieler.getDerSpieler().getSchluessel();
+			long[] spieler = spielerDaten.stream().filter(s -> s[1] == aktiverSchluessel).findFirst().get();
+			
+			ClientRequest aktion = switch(aktiverSpieler.getAktuelleTodoAktion()) {
+			case MUSS_WUERFELN -> anfrage(spieler, ClientRequestInfo.WUERFELN);
+			case MUSS_ZIEHEN -> {
+				@SuppressWarnings("unchecked")
+				List<SpielZug> zuege = (List<SpielZug>)pruefen(server.verarbeiteClientRequest(
+						anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)
+				).join()).getInhalt();
+				yield ClientRequest.erstellenZiehenClientRequest(spieler[0], spieler[1], spieler[2], zuege.get(0).getZugFigur().getSchluessel());
+			}
+			case FERTIG -> anfrage(spieler, ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER);
+			};
+			pruefen(server.verarbeiteClientRequest(aktion).join());
+			anzahlAenderungen++;
+		}
+		return anzahlAenderungen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Wie der Server: fertig, wenn alle konkreten Spieler bis auf einen alle Figuren auf ihren Ziel-Feldern haben.
+	 * 
+	 * </pre>
+	 */
+	private static boolean isSpielFertig(SpielZustand spielZustand) {
+		long anzahlFertigerSpieler = spielZustand.getSpielerMenge().stream().filter(spieler ->
+				spieler instanceof KonkreterSpieler
+				&& spieler.getFigurenMenge().stream().allMatch(figur -> figur.getSpielFeld().getFeldArt() == FeldArt.ZIEL_FELD)
+		).count();
+		return anzahlFertigerSpieler >= spielZustand.getAnzahlKonkreterSpieler() - 1;
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, int[] benachrichtigungsPorts) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				benachrichtigungsPorts.length,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		int clientNummer = 0;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						benachrichtigungsPorts[clientNummer++]
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
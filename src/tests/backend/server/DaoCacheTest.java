@@ -0,0 +1,277 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.BenachrichtigungsLauscher;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+
+/**
+ * <pre>
+ * 
+ * Testet den gemerkten SpielZustand im RundenLaufMitHerausschlagenDaoMitServer:
+ * 
+ * - nach dem ersten Lesen werden viele Lese-Zugriffe ohne Request beantwortet
+ * - zieht ein anderer Spieler, macht die Benachrichtigung des Servers die Kopie ungültig,
+ *   danach stimmen die gelesenen Figuren mit dem Server überein, der alte Stand bleibt unverändert
+ * - nach einer eigenen Spiel-Aktion wird ohne Benachrichtigung der neue Stand gelesen
+ * - mit Prüf-Intervall 0 wird vor jedem Lesen geprüft, ohne Änderung bleibt die Kopie dieselbe
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class DaoCacheTest {
+	private static final int ANZAHL_LESE_ZUGRIFFE = 10_000;
+	
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 18_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: gemerkter SpielZustand im Dao mit Server");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0).setTransportArt(TransportArt.NIO),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		int port = server.getLokalerPort();
+		
+		// der Beobachter bekommt den Dao erst, wenn der Spieler seinen Schlüssel hat
+		AtomicReference<RundenLaufMitHerausschlagenDaoMitServer> beobachterDao = new AtomicReference<>();
+		BenachrichtigungsLauscher lauscher = new BenachrichtigungsLauscher(0, benachrichtigung -> {
+			RundenLaufMitHerausschlagenDaoMitServer dao = beobachterDao.get();
+			if(dao != null) {
+				dao.benachrichtigen(benachrichtigung);
+			}
+		});
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server, lauscher.getLokalerPort());
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		long aktiverSchluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).join();
+		long[] aktiver = spielerDaten.stream().filter(spieler -> spieler[1] == aktiverSchluessel).findFirst().get();
+		// nur der erste Spieler hat einen Lauscher
+		long[] beobachter = spielerDaten.get(0) != aktiver ? spielerDaten.get(0) : spielerDaten.get(1);
+		
+		try(
+				RundenLaufMitHerausschlagenDaoMitServer beobachterVerbindung = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, beobachter[1], beobachter[2])
+						.setPruefIntervallMillis(Long.MAX_VALUE);
+				RundenLaufMitHerausschlagenDaoMitServer aktiverDao = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, aktiver[1], aktiver[2])
+						.setPruefIntervallMillis(Long.MAX_VALUE);
+				RundenLaufMitHerausschlagenDaoMitServer pruefenderDao = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, beobachter[1], beobachter[2])
+						.setPruefIntervallMillis(0)
+		) {
+			beobachterDao.set(beobachterVerbindung);
+			SpielZustand alterStand = testenTreffer(beobachterVerbindung);
+			testenEigeneAktion(aktiverDao, aktiver[1]);
+			testenBenachrichtigung(beobachterVerbindung, sitzung, alterStand);
+			testenPruefen(pruefenderDao);
+		}
+		lauscher.close();
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: gemerkter SpielZustand im Dao mit Server");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static SpielZustand testenTreffer(RundenLaufMitHerausschlagenDaoMitServer dao) {
+		SpielZustand spielZustand = dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL);
+		long aktualisierungen = dao.getAnzahlAktualisierungen();
+		Long figurSchluessel = spielZustand.getFigurenMenge().iterator().next().getSchluessel();
+		// ein vakanter Spieler hat keinen Schlüssel
+		Long spielerSchluessel = spielZustand.getSpielerMenge().stream()
+				.map(Spieler::getSchluessel)
+				.filter(schluessel -> schluessel != null)
+				.findFirst()
+				.get();
+		
+		long start = System.nanoTime();
+		for(int i = 0; i < ANZAHL_LESE_ZUGRIFFE; i++) {
+			if(dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL) != spielZustand
+					|| dao.getFigur(figurSchluessel) == null
+					|| dao.getSpieler(spielerSchluessel) == null
+					|| dao.getFigurenMenge().size() != spielZustand.getFigurenMenge().size()) {
+				throw new AssertionError("aus der gemerkten Kopie wurde falsch gelesen");
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		if(dao.getAnzahlAktualisierungen() != aktualisierungen || dao.getAnzahlTreffer() < 4L * ANZAHL_LESE_ZUGRIFFE) {
+			throw new AssertionError(
+					"ohne Änderung darf nicht gefragt werden: " + (dao.getAnzahlAktualisierungen() - aktualisierungen) + " Requests"
+			);
+		}
+		System.out.println(
+				4 * ANZAHL_LESE_ZUGRIFFE + " Lese-Zugriffe ohne Request in " + nanos / 1_000_000 + " ms ("
+				+ nanos / (4 * ANZAHL_LESE_ZUGRIFFE) + " ns je Zugriff), " + aktualisierungen + " Request für die erste Kopie"
+		);
+		return spielZustand;
+	}
+	
+	private static void testenEigeneAktion(RundenLaufMitHerausschlagenDaoMitServer dao, long spielerSchluessel) throws Exception {
+		AktiverSpielerDekorator aktiverSpieler = dao.getAktiveSpielerMenge().iterator().next();
+		int anzahlAktionen = 0;
+		// ohne Benachrichtigung und mit langem Prüf-Intervall: jede Aktion macht die eigene Kopie ungültig
+		while(aktiverSpieler.getAktuelleTodoAktion() != AktiverSpielerTodoAktion.FERTIG) {
+			if(aktiverSpieler.getAktuelleTodoAktion() == AktiverSpielerTodoAktion.MUSS_WUERFELN) {
+				if(dao.wuerfelnAsynchron().get(5, TimeUnit.SECONDS) != dao.getAktiveSpielerMenge().iterator().next().getWuerfelErgebnis()) {
+					throw new AssertionError("nach dem Würfeln muss das eigene Würfel-Ergebnis gelesen werden");
+				}
+			} else {
+				List<SpielZug> moeglicheZuege = dao.getMoeglicheSpielZuegeAsynchron().get(5, TimeUnit.SECONDS);
+				dao.ziehenAsynchron(moeglicheZuege.get(0).getZugFigur().getSchluessel()).get(5, TimeUnit.SECONDS);
+			}
+			anzahlAktionen++;
+			AktiverSpielerDekorator danach = dao.getAktiveSpielerMenge().iterator().next();
+			if(danach == aktiverSpieler) {
+				throw new AssertionError("nach einer eigenen Aktion darf die alte Kopie nicht gelesen werden");
+			}
+			aktiverSpieler = danach;
+		}
+		dao.naechsterSpielerAsynchron().get(5, TimeUnit.SECONDS);
+		if(dao.getAktiveSpielerMenge().iterator().next().getDerSpieler().getSchluessel() == spielerSchluessel) {
+			throw new AssertionError("nach dem eigenen Zug muss ein anderer Spieler gelesen werden");
+		}
+		System.out.println(
+				anzahlAktionen + 1 + " eigene Aktionen, danach jeweils der neue Stand mit "
+				+ dao.getAnzahlAktualisierungen() + " Requests gelesen"
+		);
+	}
+	
+	private static void testenBenachrichtigung(
+			RundenLaufMitHerausschlagenDaoMitServer dao,
+			ServerSpielSitzung sitzung,
+			SpielZustand alterStand
+	) throws Exception {
+		Map<Long, SpielFeld> serverFelder = sitzung.ausfuehren(() -> {
+			Map<Long, SpielFeld> felder = new HashMap<>();
+			for(Figur figur : sitzung.getSpiel().getSpielZustand().getFigurenMenge()) {
+				felder.put(figur.getSchluessel(), figur.getSpielFeld());
+			}
+			return felder;
+		}).join();
+		long serverAktiver = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).join();
+		
+		long ende = System.currentTimeMillis() + 5_000;
+		while(dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL) == alterStand && System.currentTimeMillis() < ende) {
+			Thread.sleep(10);
+		}
+		SpielZustand neuerStand = dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL);
+		if(neuerStand == alterStand) {
+			throw new AssertionError("nach der Benachrichtigung wird immer noch die alte Kopie gelesen");
+		}
+		for(Figur figur : neuerStand.getFigurenMenge()) {
+			if(!figur.getSpielFeld().equals(serverFelder.get(figur.getSchluessel()))) {
+				throw new AssertionError("die Figur " + figur.getSchluessel() + " steht auf " + figur.getSpielFeld()
+						+ " statt auf " + serverFelder.get(figur.getSchluessel()));
+			}
+		}
+		if(neuerStand.getAktiverSpieler().getDerSpieler().getSchluessel() != serverAktiver) {
+			throw new AssertionError("falscher aktiver Spieler in der neuen Kopie");
+		}
+		if(alterStand.getAktiverSpieler().getDerSpieler().getSchluessel() == serverAktiver
+				|| alterStand.getAktiverSpieler().getAktuelleTodoAktion() != AktiverSpielerTodoAktion.MUSS_WUERFELN) {
+			throw new AssertionError("der alte Stand darf nicht verändert werden");
+		}
+		System.out.println(
+				"nach der Benachrichtigung stimmt die neue Kopie mit dem Server überein, "
+				+ dao.getAnzahlAktualisierungen() + " Requests insgesamt"
+		);
+	}
+	
+	private static void testenPruefen(RundenLaufMitHerausschlagenDaoMitServer dao) {
+		SpielZustand spielZustand = dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL);
+		long aktualisierungen = dao.getAnzahlAktualisierungen();
+		for(int i = 0; i < 10; i++) {
+			if(dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL) != spielZustand) {
+				throw new AssertionError("ohne Änderung muss die Kopie dieselbe bleiben");
+			}
+		}
+		if(dao.getAnzahlAktualisierungen() != aktualisierungen + 10) {
+			throw new AssertionError("mit Prüf-Intervall 0 muss vor jedem Lesen geprüft werden");
+		}
+		System.out.println("mit Prüf-Intervall 0: 10 Prüfungen, die Kopie ist dieselbe geblieben");
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, int lauscherPort) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						spielerDaten.isEmpty() ? lauscherPort : 20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,252 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausschlagenDao;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenMitServerDao;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.IllegaleSpielerAktionException;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Testet den RundenLaufMitHerausschlagenDaoMitServer:
+ * 
+ * - der Schlüssel der Sitzung wird mit Spieler-Schlüssel und Geheimnis erfragt
+ * - viele asynchrone Lese-Zugriffe laufen gleichzeitig über eine Verbindung
+ *   und werden vor einem früher geschickten WARTE_AUF_ZUG beantwortet
+ * - ein ganzer Zug über die Spiel-Aktionen, danach ist der nächste Spieler dran
+ * - Fehler kommen als IllegaleSpielerAktionException, schreibende Methoden hat der Dao nicht
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class DaoMitServerTest {
+	private static final int ANZAHL_LESE_ZUGRIFFE = 500;
+	
+	private static final long WARTE_MILLIS = 2_000;
+	
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 17_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Dao mit Server");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0).setTransportArt(TransportArt.NIO),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		long aktiverSchluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).join();
+		long[] aktiver = spielerDaten.stream().filter(spieler -> spieler[1] == aktiverSchluessel).findFirst().get();
+		long[] wartender = spielerDaten.stream().filter(spieler -> spieler != aktiver).findFirst().get();
+		int port = server.getLokalerPort();
+		
+		try(
+				RundenLaufMitHerausschlagenMitServerDao aktiverDao = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, aktiver[1], aktiver[2]);
+				RundenLaufMitHerausschlagenMitServerDao wartenderDao = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, wartender[1], wartender[2])
+		) {
+			testenSitzung(aktiverDao, port);
+			testenPipeline(wartenderDao);
+			testenZug(aktiverDao, aktiverSchluessel);
+			testenFehler(wartenderDao);
+		}
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Dao mit Server");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenSitzung(RundenLaufMitHerausschlagenMitServerDao dao, int port) throws Exception {
+		if(dao.getEigenerSpielZustandSchluesselAsynchron().get(5, TimeUnit.SECONDS) != SPIEL_ZUSTAND_SCHLUESSEL
+				|| !dao.getSpielZustaendeSchluessel().equals(Set.of(SPIEL_ZUSTAND_SCHLUESSEL))) {
+			throw new AssertionError("falscher Schlüssel der Sitzung");
+		}
+		if(dao.getSpielZustand(SPIEL_ZUSTAND_SCHLUESSEL + 1_000) != null) {
+			throw new AssertionError("ein fremder SpielZustand darf nicht gefunden werden");
+		}
+		
+		// mit falschem Geheimnis schlägt die Suche fehl und wird beim nächsten Mal wiederholt
+		try(RundenLaufMitHerausschlagenMitServerDao fremd = new RundenLaufMitHerausschlagenDaoMitServer("localhost", port, SPIEL_ZUSTAND_SCHLUESSEL + 1, 1)) {
+			for(int versuch = 0; versuch < 2; versuch++) {
+				try {
+					fremd.getSpielerMenge();
+					throw new AssertionError("ein falsches Geheimnis darf nicht akzeptiert werden");
+				} catch(IllegalStateException ausnahme) {
+					// erwartet: NICHT_AUTORISIERT
+				}
+			}
+		}
+		System.out.println("Sitzung " + SPIEL_ZUSTAND_SCHLUESSEL + " über Spieler-Schlüssel und Geheimnis gefunden");
+	}
+	
+	private static void testenPipeline(RundenLaufMitHerausschlagenMitServerDao dao) throws Exception {
+		// der Spieler ist nicht dran, die Antwort kommt erst nach der Wartezeit
+		CompletableFuture<WarteErgebnis> warten = dao.warteAufZugAsynchron(WARTE_MILLIS);
+		
+		long start = System.nanoTime();
+		List<CompletableFuture<Set<Figur>>> leseZugriffe = new ArrayList<>();
+		for(int i = 0; i < ANZAHL_LESE_ZUGRIFFE; i++) {
+			leseZugriffe.add(dao.getFigurenMengeAsynchron());
+		}
+		long aufrufNanos = System.nanoTime() - start;
+		CompletableFuture.allOf(leseZugriffe.toArray(CompletableFuture[]::new)).get(WARTE_MILLIS, TimeUnit.MILLISECONDS);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		
+		if(warten.isDone()) {
+			throw new AssertionError("WARTE_AUF_ZUG darf noch nicht beantwortet sein");
+		}
+		int anzahlFiguren = dao.getFigurenSchluessel().size();
+		for(CompletableFuture<Set<Figur>> leseZugriff : leseZugriffe) {
+			if(leseZugriff.join().size() != anzahlFiguren) {
+				throw new AssertionError("falsche Anzahl Figuren: " + leseZugriff.join().size());
+			}
+		}
+		if(warten.get(5, TimeUnit.SECONDS) != WarteErgebnis.ZEIT_ABGELAUFEN) {
+			throw new AssertionError("die Wartezeit muss abgelaufen sein");
+		}
+		System.out.println(
+				ANZAHL_LESE_ZUGRIFFE + " Lese-Zugriffe in " + aufrufNanos / 1_000 + " µs abgeschickt und nach "
+				+ millis + " ms beantwortet, vor dem früher geschickten WARTE_AUF_ZUG"
+		);
+	}
+	
+	private static void testenZug(RundenLaufMitHerausschlagenMitServerDao dao, long spielerSchluessel) throws Exception {
+		AktiverSpielerDekorator aktiverSpieler = dao.getAktiveSpielerMenge().iterator().next();
+		if(aktiverSpieler.getDerSpieler().getSchluessel() != spielerSchluessel
+				|| dao.getFigurenMengeBySpielerSchluessel(spielerSchluessel).size() != 4
+				|| !dao.getFarbenMenge().contains(dao.getSpieler(spielerSchluessel).getFarbe())) {
+			throw new AssertionError("falscher aktiver Spieler, falsche Figuren oder falsche Farbe");
+		}
+		
+		// bei einer Sechs wird nach dem Ziehen noch einmal gewürfelt
+		int anzahlWuerfe = 0;
+		int anzahlZuege = 0;
+		while(aktiverSpieler.getAktuelleTodoAktion() != AktiverSpielerTodoAktion.FERTIG) {
+			if(aktiverSpieler.getAktuelleTodoAktion() == AktiverSpielerTodoAktion.MUSS_WUERFELN) {
+				dao.wuerfelnAsynchron().get(5, TimeUnit.SECONDS);
+				anzahlWuerfe++;
+			} else {
+				List<SpielZug> moeglicheZuege = dao.getMoeglicheSpielZuegeAsynchron().get(5, TimeUnit.SECONDS);
+				if(moeglicheZuege.isEmpty()) {
+					throw new AssertionError("wer ziehen muss, braucht einen möglichen Zug");
+				}
+				dao.ziehenAsynchron(moeglicheZuege.get(0).getZugFigur().getSchluessel()).get(5, TimeUnit.SECONDS);
+				anzahlZuege++;
+			}
+			aktiverSpieler = dao.getAktiveSpielerMengeAsynchron().get(5, TimeUnit.SECONDS).iterator().next();
+		}
+		dao.naechsterSpielerAsynchron().get(5, TimeUnit.SECONDS);
+		
+		long naechster = dao.getAktiveSpielerMenge().iterator().next().getDerSpieler().getSchluessel();
+		if(naechster == spielerSchluessel) {
+			throw new AssertionError("nach dem Zug muss ein anderer Spieler dran sein");
+		}
+		System.out.println(anzahlWuerfe + " mal gewürfelt, " + anzahlZuege + " mal gezogen, danach ist Spieler " + naechster + " dran");
+	}
+	
+	private static void testenFehler(RundenLaufMitHerausschlagenMitServerDao dao) throws Exception {
+		// der Spieler hat nicht gewürfelt und die Figur gibt es nicht
+		try {
+			dao.ziehenAsynchron(-1).join();
+			throw new AssertionError("ein Zug ohne Würfeln darf nicht gelingen");
+		} catch(CompletionException ausnahme) {
+			if(!(ausnahme.getCause() instanceof IllegaleSpielerAktionException)) {
+				throw new AssertionError("falsche Ausnahme: " + ausnahme.getCause());
+			}
+		}
+		// schreiben kann der Dao gar nicht erst, der Compiler lehnt es ab
+		if(dao instanceof RundenLaufMitHerausschlagenDao) {
+			throw new AssertionError("der Dao darf keine schreibenden Methoden haben");
+		}
+		System.out.println("Fehler des Servers als IllegaleSpielerAktionException, keine schreibenden Methoden");
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
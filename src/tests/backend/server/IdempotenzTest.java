@@ -0,0 +1,299 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.AntwortGedaechtnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+
+/**
+ * <pre>
+ * 
+ * Testet die Spiel-Aktionen mit Idempotenz-Schlüssel:
+ * 
+ * - eine Wiederholung, auch eine gleichzeitig geschickte, bekommt die Antwort der ersten Ausführung,
+ *   die Spiel-Logik läuft nur einmal
+ * - derselbe Schlüssel für eine andere Spiel-Aktion wird mit FEHLER abgewiesen
+ * - eine Sitzung merkt sich höchstens {@link AntwortGedaechtnis#MAX_ANTWORTEN} Antworten
+ * - der Dao mit Server schickt eine hängende Spiel-Aktion nach der Antwort-Frist noch einmal,
+ *   gewürfelt wird trotzdem nur einmal
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class IdempotenzTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 21_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Spiel-Aktionen mit Idempotenz-Schlüssel");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long[] gewuerfelt = testenWiederholung(server, sitzung, spielerDaten);
+		testenAndereAktion(server, gewuerfelt);
+		testenObergrenze(server, sitzung, spielerDaten);
+		testenDaoMitFrist(server, sitzung, spielerDaten);
+		
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Spiel-Aktionen mit Idempotenz-Schlüssel");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Spieler, der gewürfelt hat
+	 * 
+	 * </pre>
+	 */
+	private static long[] testenWiederholung(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			List<long[]> spielerDaten
+	) throws Exception {
+		long[] aktiver = getAktiverSpieler(sitzung, spielerDaten);
+		long versionVorher = getVersion(sitzung);
+		ClientRequest wuerfeln = ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.WUERFELN)
+				.mitIdempotenzSchluessel(1);
+		
+		// die Wiederholungen werden geschickt, bevor die erste Ausführung beantwortet ist
+		List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			antworten.add(server.verarbeiteClientRequest(wuerfeln));
+		}
+		antworten.add(server.verarbeiteClientRequest(antworten.get(0).thenApply(fertig -> wuerfeln).get(5, TimeUnit.SECONDS)));
+		
+		ServerAntwort erste = antworten.get(0).get(5, TimeUnit.SECONDS);
+		if(erste.getStatus() != ServerAntwortStatus.OK || !(erste.getInhalt() instanceof WuerfelErgebnis)) {
+			throw new AssertionError("das Würfeln ist fehlgeschlagen: " + erste);
+		}
+		for(CompletableFuture<ServerAntwort> antwort : antworten) {
+			if(antwort.get(5, TimeUnit.SECONDS) != erste) {
+				throw new AssertionError("eine Wiederholung hat nicht die gemerkte Antwort bekommen: " + antwort.join());
+			}
+		}
+		if(getVersion(sitzung) != versionVorher + 1) {
+			throw new AssertionError("gewürfelt wurde nicht genau einmal: Version " + versionVorher + " -> " + getVersion(sitzung));
+		}
+		long treffer = sitzung.ausfuehren(() -> sitzung.getAntwortGedaechtnis().getAnzahlTreffer()).get(5, TimeUnit.SECONDS);
+		if(treffer != 3) {
+			throw new AssertionError("es müssen 3 Wiederholungen aus dem Gedächtnis beantwortet werden: " + treffer);
+		}
+		System.out.println("4 x WUERFELN mit demselben Schlüssel: einmal gewürfelt (" + erste.getInhalt() + "), 3 gemerkte Antworten");
+		return aktiver;
+	}
+	
+	private static void testenAndereAktion(RundenLaufMitHerausschlagenServer server, long[] spieler) throws Exception {
+		ServerAntwort abgewiesen = server.verarbeiteClientRequest(
+				ClientRequest.erstellenZiehenClientRequest(spieler[0], spieler[1], spieler[2], 4711).mitIdempotenzSchluessel(1)
+		).get(5, TimeUnit.SECONDS);
+		if(abgewiesen.getStatus() != ServerAntwortStatus.FEHLER || !abgewiesen.getNachricht().contains("WUERFELN")) {
+			throw new AssertionError("derselbe Schlüssel für ZIEHEN muss abgewiesen werden: " + abgewiesen);
+		}
+		try {
+			ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], ClientRequestInfo.SPIEL_INFO).mitIdempotenzSchluessel(2);
+			throw new AssertionError("SPIEL_INFO ist keine Spiel-Aktion");
+		} catch(IllegalArgumentException ausnahme) {
+			// erwartet
+		}
+		System.out.println("anderer Request mit demselben Schlüssel: " + abgewiesen.getNachricht());
+	}
+	
+	private static void testenObergrenze(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			List<long[]> spielerDaten
+	) throws Exception {
+		long[] spieler = spielerDaten.get(spielerDaten.size() - 1);
+		List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+		for(int i = 0; i < AntwortGedaechtnis.MAX_ANTWORTEN + 50; i++) {
+			antworten.add(server.verarbeiteClientRequest(
+					ClientRequest.erstellenZiehenClientRequest(spieler[0], spieler[1], spieler[2], 4711).mitIdempotenzSchluessel(1_000 + i)
+			));
+		}
+		CompletableFuture.allOf(antworten.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		int anzahl = sitzung.ausfuehren(() -> sitzung.getAntwortGedaechtnis().getAnzahlAntworten()).get(5, TimeUnit.SECONDS);
+		if(anzahl != AntwortGedaechtnis.MAX_ANTWORTEN) {
+			throw new AssertionError("das Gedächtnis muss begrenzt sein: " + anzahl);
+		}
+		System.out.println((AntwortGedaechtnis.MAX_ANTWORTEN + 50) + " Spiel-Aktionen, " + anzahl + " gemerkte Antworten");
+	}
+	
+	private static void testenDaoMitFrist(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			List<long[]> spielerDaten
+	) throws Exception {
+		vorbereitenWuerfeln(server, sitzung, spielerDaten);
+		long[] aktiver = getAktiverSpieler(sitzung, spielerDaten);
+		
+		try(RundenLaufMitHerausschlagenDaoMitServer dao = new RundenLaufMitHerausschlagenDaoMitServer(
+				new ServerVerbindung(server),
+				aktiver[1],
+				aktiver[2]
+		).setAntwortFristMillis(40)) {
+			dao.getEigenerSpielZustandSchluesselAsynchron().get(5, TimeUnit.SECONDS);
+			long versionVorher = getVersion(sitzung);
+			// die Sitzung hängt, bis die Antwort-Frist mehrmals abgelaufen ist
+			sitzung.ausfuehren(() -> {
+				try {
+					Thread.sleep(200);
+				} catch(InterruptedException ausnahme) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			});
+			long start = System.nanoTime();
+			WuerfelErgebnis ergebnis = dao.wuerfelnAsynchron().get(5, TimeUnit.SECONDS);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			if(dao.getAnzahlWiederholungen() < 2) {
+				throw new AssertionError("der Dao muss nach der Frist wiederholen: " + dao.getAnzahlWiederholungen());
+			}
+			// die übrigen Wiederholungen abarbeiten lassen
+			sitzung.ausfuehren(() -> null).get(5, TimeUnit.SECONDS);
+			if(getVersion(sitzung) != versionVorher + 1) {
+				throw new AssertionError("der Dao hat nicht genau einmal gewürfelt: Version " + versionVorher + " -> " + getVersion(sitzung));
+			}
+			System.out.println(
+					"Dao mit Antwort-Frist 40 ms: " + ergebnis + " nach " + millis + " ms, "
+					+ dao.getAnzahlWiederholungen() + " Wiederholungen, einmal gewürfelt"
+			);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Spielt ohne Idempotenz-Schlüssel weiter, bis der aktive Spieler würfeln muss.
+	 * 
+	 * </pre>
+	 */
+	private static void vorbereitenWuerfeln(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			List<long[]> spielerDaten
+	) throws Exception {
+		for(int i = 0; i < 100; i++) {
+			AktiverSpielerTodoAktion todo = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpielerTodoAktion()).get(5, TimeUnit.SECONDS);
+			if(todo == AktiverSpielerTodoAktion.MUSS_WUERFELN) {
+				return;
+			}
+			long[] aktiver = getAktiverSpieler(sitzung, spielerDaten);
+			ClientRequest anfrage = todo == AktiverSpielerTodoAktion.MUSS_ZIEHEN
+					? ClientRequest.erstellenStapelClientRequest(aktiver[0], aktiver[1], aktiver[2], List.of(
+							StapelSchritt.erstellenZiehenSchritt(Bedingung.IMMER, null)
+					))
+					: ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER);
+			server.verarbeiteClientRequest(anfrage).get(5, TimeUnit.SECONDS);
+		}
+		throw new AssertionError("der aktive Spieler muss nie würfeln");
+	}
+	
+	private static long getVersion(ServerSpielSitzung sitzung) throws Exception {
+		return sitzung.ausfuehren(() -> sitzung.getSpiel().getZustandsVersion()).get(5, TimeUnit.SECONDS);
+	}
+	
+	private static long[] getAktiverSpieler(ServerSpielSitzung sitzung, List<long[]> spielerDaten) throws Exception {
+		long schluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).get(5, TimeUnit.SECONDS);
+		return spielerDaten.stream().filter(spieler -> spieler[1] == schluessel).findFirst().orElseThrow();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je registriertem Spieler der Schlüssel des SpielZustands, der Schlüssel des Spielers und sein Geheimnis
+	 * 
+	 * </pre>
+	 */
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
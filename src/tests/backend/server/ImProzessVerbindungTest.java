@@ -0,0 +1,322 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ZuschauerRegistrierung;
+
+/**
+ * <pre>
+ * 
+ * Testet die ServerVerbindung im Prozess, ohne Socket und ohne Kodierung:
+ * 
+ * - der Dao mit Server liest und spielt über die Verbindung im Prozess
+ * - ein Zuschauer bekommt die Push-Nachrichten direkt, ohne Kopie
+ * - close() bricht die ausstehenden Antworten ab
+ * - Durchsatz mit vielen gleichzeitigen Requests im Prozess und über TCP,
+ *   HERZSCHLAG ohne Sitzung und AENDERUNGEN_INFO über den Thread der Sitzung,
+ *   dazu die Lese-Zugriffe des Daos aus seiner gemerkten Kopie
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ImProzessVerbindungTest {
+	private static final int ANZAHL_AUFWAERMEN = 50_000;
+	
+	private static final int ANZAHL_REQUESTS = 1_000_000;
+	
+	private static final int ANZAHL_TCP_REQUESTS = 100_000;
+	
+	/**
+	 * deutlich unter der Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit haben darf
+	 */
+	private static final int MAX_GLEICHZEITIG = 64;
+	
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 20_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: ServerVerbindung im Prozess");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(TransportArt.NIO),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		long[] spieler = spielerDaten.get(0);
+		
+		testenDao(server, spieler);
+		testenZuschauer(server, spieler);
+		testenSchliessen(server, spielerDaten);
+		
+		try(
+				ServerVerbindung imProzess = new ServerVerbindung(server);
+				ServerVerbindung tcp = new ServerVerbindung("localhost", server.getLokalerPort(), NachrichtenFormat.BINAER, 0)
+		) {
+			ClientRequest herzschlag = ClientRequest.erstellenHerzschlagClientRequest();
+			ClientRequest aenderungen = ClientRequest.erstellenAenderungenClientRequest(spieler[0], spieler[1], spieler[2], Long.MAX_VALUE);
+			messenDurchsatz(imProzess, herzschlag, ANZAHL_AUFWAERMEN);
+			messenDurchsatz(imProzess, aenderungen, ANZAHL_AUFWAERMEN);
+			messenDurchsatz(tcp, herzschlag, ANZAHL_AUFWAERMEN);
+			messenDurchsatz(tcp, aenderungen, ANZAHL_AUFWAERMEN);
+			
+			ausgebenDurchsatz(
+					"HERZSCHLAG",
+					messenDurchsatz(imProzess, herzschlag, ANZAHL_REQUESTS),
+					messenDurchsatz(tcp, herzschlag, ANZAHL_TCP_REQUESTS)
+			);
+			ausgebenDurchsatz(
+					"AENDERUNGEN_INFO",
+					messenDurchsatz(imProzess, aenderungen, ANZAHL_REQUESTS),
+					messenDurchsatz(tcp, aenderungen, ANZAHL_TCP_REQUESTS)
+			);
+		}
+		messenDaoLesen(server, spieler);
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: ServerVerbindung im Prozess");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenDao(RundenLaufMitHerausschlagenServer server, long[] spieler) throws Exception {
+		try(RundenLaufMitHerausschlagenDaoMitServer dao = new RundenLaufMitHerausschlagenDaoMitServer(
+				new ServerVerbindung(server),
+				spieler[1],
+				spieler[2]
+		)) {
+			if(dao.getEigenerSpielZustandSchluesselAsynchron().get(5, TimeUnit.SECONDS) != SPIEL_ZUSTAND_SCHLUESSEL) {
+				throw new AssertionError("der Dao findet seine Sitzung im Prozess nicht");
+			}
+			if(dao.getFigurenMenge().size() != server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL).getSpiel().getSpielZustand().getFigurenMenge().size()) {
+				throw new AssertionError("der Dao liest im Prozess die falschen Figuren");
+			}
+			if(dao.getMoeglicheSpielZuegeAsynchron().get(5, TimeUnit.SECONDS) == null) {
+				throw new AssertionError("der Dao bekommt im Prozess keine möglichen Züge");
+			}
+		}
+		System.out.println("Dao mit Server im Prozess: Sitzung, Figuren und mögliche Züge gelesen");
+	}
+	
+	private static void testenZuschauer(RundenLaufMitHerausschlagenServer server, long[] spieler) throws Exception {
+		server.hinzufuegenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, ZuschauerRegistrierung.erstellenZuschauerRegistrierung(1, 4711));
+		AtomicLong version = new AtomicLong(-1);
+		try(ServerVerbindung verbindung = new ServerVerbindung(server)) {
+			verbindung.setPushEmpfaenger(push -> version.accumulateAndGet(((SpielZustandDelta)push.getInhalt()).getVersion(), Math::max));
+			ServerAntwort angemeldet = verbindung.senden(
+					ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 1, 4711)
+			).get(5, TimeUnit.SECONDS);
+			if(angemeldet.getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("der Zuschauer kann sich im Prozess nicht anmelden: " + angemeldet);
+			}
+			long angemeldeteVersion = ((SpielZustandDelta)angemeldet.getInhalt()).getVersion();
+			
+			ServerAntwort gewuerfelt = verbindung.senden(ClientRequest.erstellenClientRequest(
+					spieler[0], spieler[1], spieler[2], ClientRequest.ClientRequestInfo.WUERFELN
+			)).get(5, TimeUnit.SECONDS);
+			if(gewuerfelt.getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("WUERFELN ist im Prozess fehlgeschlagen: " + gewuerfelt);
+			}
+			long ende = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while(version.get() <= angemeldeteVersion && System.nanoTime() < ende) {
+				Thread.sleep(10);
+			}
+			if(version.get() <= angemeldeteVersion) {
+				throw new AssertionError("der Zuschauer hat im Prozess keine neue Version bekommen");
+			}
+			System.out.println("Zuschauer im Prozess: Version " + angemeldeteVersion + " -> " + version.get());
+		} finally {
+			server.entfernenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, 1);
+		}
+	}
+	
+	private static void testenSchliessen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten) throws Exception {
+		ServerVerbindung verbindung = new ServerVerbindung(server);
+		List<CompletableFuture<ServerAntwort>> wartende = new ArrayList<>();
+		for(long[] spieler : spielerDaten) {
+			wartende.add(verbindung.senden(
+					ClientRequest.erstellenWarteAufZugClientRequest(spieler[0], spieler[1], spieler[2], 20_000)
+			));
+		}
+		Thread.sleep(100);
+		wartende.removeIf(CompletableFuture::isDone);
+		if(wartende.isEmpty() || verbindung.getAnzahlAusstehenderAntworten() != wartende.size()) {
+			throw new AssertionError(
+					"es müssen Spieler auf ihren Zug warten: " + wartende.size() + " / " + verbindung.getAnzahlAusstehenderAntworten()
+			);
+		}
+		verbindung.close();
+		for(CompletableFuture<ServerAntwort> antwort : wartende) {
+			try {
+				antwort.join();
+				throw new AssertionError("close() hat eine ausstehende Antwort nicht abgebrochen");
+			} catch(CompletionException ausnahme) {
+				if(!(ausnahme.getCause() instanceof UncheckedIOException)) {
+					throw new AssertionError("falsche Ausnahme", ausnahme);
+				}
+			}
+		}
+		try {
+			verbindung.senden(ClientRequest.erstellenHerzschlagClientRequest()).join();
+			throw new AssertionError("eine geschlossene Verbindung darf nichts mehr schicken");
+		} catch(CompletionException ausnahme) {
+			// erwartet
+		}
+		System.out.println("close() im Prozess: " + wartende.size() + " wartende Antworten abgebrochen");
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die beantworteten Requests je Sekunde
+	 * 
+	 * </pre>
+	 */
+	private static double messenDurchsatz(ServerVerbindung verbindung, ClientRequest anfrage, int anzahl) throws Exception {
+		ArrayDeque<CompletableFuture<ServerAntwort>> unterwegs = new ArrayDeque<>();
+		long start = System.nanoTime();
+		for(int i = 0; i < anzahl; i++) {
+			if(unterwegs.size() >= MAX_GLEICHZEITIG) {
+				pruefen(unterwegs.poll().get(5, TimeUnit.SECONDS));
+			}
+			unterwegs.add(verbindung.senden(anfrage));
+		}
+		while(!unterwegs.isEmpty()) {
+			pruefen(unterwegs.poll().get(5, TimeUnit.SECONDS));
+		}
+		return anzahl * 1e9 / (System.nanoTime() - start);
+	}
+	
+	private static void ausgebenDurchsatz(String art, double imProzess, double tcp) {
+		System.out.println(
+				art + " (" + MAX_GLEICHZEITIG + " Requests gleichzeitig): im Prozess " + (long)imProzess
+				+ " Requests/s, TCP " + (long)tcp + " Requests/s (" + String.format("%.1f", imProzess / tcp) + "x)"
+		);
+	}
+	
+	private static void messenDaoLesen(RundenLaufMitHerausschlagenServer server, long[] spieler) throws Exception {
+		try(RundenLaufMitHerausschlagenDaoMitServer dao = new RundenLaufMitHerausschlagenDaoMitServer(
+				new ServerVerbindung(server),
+				spieler[1],
+				spieler[2]
+		)) {
+			for(int i = 0; i < ANZAHL_AUFWAERMEN; i++) {
+				dao.getFigurenMenge();
+			}
+			long start = System.nanoTime();
+			for(int i = 0; i < ANZAHL_REQUESTS; i++) {
+				dao.getFigurenMenge();
+			}
+			double jeSekunde = ANZAHL_REQUESTS * 1e9 / (System.nanoTime() - start);
+			System.out.println(
+					"Dao Lese-Zugriffe im Prozess: " + (long)jeSekunde + " je Sekunde, "
+					+ dao.getAnzahlAktualisierungen() + " AENDERUNGEN_INFO Requests"
+			);
+		}
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je registriertem Spieler der Schlüssel des SpielZustands, der Schlüssel des Spielers und sein Geheimnis
+	 * 
+	 * </pre>
+	 */
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
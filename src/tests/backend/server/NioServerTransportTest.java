@@ -0,0 +1,220 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Testet den NIO Transport des Servers:
+ * 
+ * - 8000 Clients bleiben verbunden, ohne etwas zu senden
+ * - währenddessen schicken weitere Clients je drei Requests hintereinander über eine Verbindung
+ *   und bekommen über die Anfrage-Id die passenden Antworten
+ * - ein Client mit einem ungültigen Rahmen wird getrennt
+ * - alles läuft auf zwei Event-Loop Threads, ohne Thread je Verbindung
+ * 
+ * (Mehr als 8000 hängende Clients lässt das Datei-Deskriptor Limit der Test-Umgebung nicht zu,
+ * Client und Server brauchen je einen Deskriptor pro Verbindung.)
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class NioServerTransportTest {
+	private static final int ANZAHL_HAENGENDE_CLIENTS = 8_000;
+	
+	private static final int ANZAHL_AKTIVE_CLIENTS = 200;
+	
+	private static final int ANZAHL_EVENT_LOOPS = 2;
+	
+	public static void main(String[] argv) throws IOException, InterruptedException {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: NIO Transport mit " + ANZAHL_HAENGENDE_CLIENTS + " hängenden Clients");
+		System.out.println("*".repeat(60) + "\n");
+		
+		int threadsVorher = Thread.activeCount();
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(TransportArt.NIO)
+						.setAnzahlEventLoops(ANZAHL_EVENT_LOOPS),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		long[] spielerDaten = hinzufuegenSpielSitzung(server);
+		server.starten();
+		int port = server.getLokalerPort();
+		
+		List<SocketChannel> haengendeClients = new ArrayList<>();
+		try {
+			for(int i = 0; i < ANZAHL_HAENGENDE_CLIENTS; i++) {
+				haengendeClients.add(SocketChannel.open(new InetSocketAddress("localhost", port)));
+			}
+			warteAuf(server::getAnzahlOffenerVerbindungen, ANZAHL_HAENGENDE_CLIENTS);
+			System.out.println("Offene Verbindungen: " + server.getAnzahlOffenerVerbindungen());
+			
+			long start = System.nanoTime();
+			for(int i = 0; i < ANZAHL_AKTIVE_CLIENTS; i++) {
+				try(ServerVerbindung verbindung = new ServerVerbindung("localhost", port)) {
+					ClientRequestInfo[] anfragen = {
+							ClientRequestInfo.SPIEL_INFO,
+							ClientRequestInfo.MOEGLICHE_ZUEGE_INFO,
+							ClientRequestInfo.SPIEL_INFO
+					};
+					List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+					for(ClientRequestInfo info : anfragen) {
+						antworten.add(verbindung.senden(ClientRequest.erstellenClientRequest(
+								spielerDaten[0], spielerDaten[1], spielerDaten[2], info
+						)));
+					}
+					
+					for(int j = 0; j < anfragen.length; j++) {
+						ServerAntwort antwort = antworten.get(j).join();
+						if(antwort.getStatus() != ServerAntwortStatus.OK) {
+							throw new AssertionError("der Request " + anfragen[j] + " ist fehlgeschlagen: " + antwort);
+						}
+						boolean passend = switch(anfragen[j]) {
+						case SPIEL_INFO -> antwort.getInhalt() instanceof SpielZustand;
+						case MOEGLICHE_ZUEGE_INFO -> antwort.getInhalt() instanceof List;
+						default -> false;
+						};
+						if(!passend) {
+							throw new AssertionError("die Antwort gehört nicht zum Request: " + anfragen[j] + " -> " + antwort);
+						}
+					}
+				}
+			}
+			long dauerMikros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+			System.out.println(
+					ANZAHL_AKTIVE_CLIENTS + " Clients mit je 3 Requests in " + dauerMikros / 1_000 + " ms, "
+					+ dauerMikros / ANZAHL_AKTIVE_CLIENTS + " µs je Client"
+			);
+			
+			try(Socket client = new Socket("localhost", port)) {
+				DataOutputStream ausgabe = new DataOutputStream(client.getOutputStream());
+				ausgabe.writeInt(-1);
+				ausgabe.writeLong(1);
+				ausgabe.flush();
+				client.setSoTimeout(5_000);
+				if(client.getInputStream().read() != -1) {
+					throw new AssertionError("ein ungültiger Rahmen wurde nicht abgelehnt");
+				}
+			} catch(EOFException ausnahme) {
+				// erwartet
+			}
+			System.out.println("Ein ungültiger Rahmen trennt die Verbindung.");
+			
+			long eventLoopThreads = Thread.getAllStackTraces().keySet().stream()
+					.filter(thread -> thread.getName().startsWith("nio-event-loop-"))
+					.count();
+			if(eventLoopThreads != ANZAHL_EVENT_LOOPS) {
+				throw new AssertionError("es laufen " + eventLoopThreads + " Event-Loop Threads");
+			}
+			System.out.println(
+					"Threads: " + eventLoopThreads + " Event-Loops, insgesamt "
+					+ (Thread.activeCount() - threadsVorher) + " neue Threads für "
+					+ server.getAnzahlOffenerVerbindungen() + " offene Verbindungen"
+			);
+		} finally {
+			for(SocketChannel client : haengendeClients) {
+				client.close();
+			}
+		}
+		warteAuf(server::getAnzahlOffenerVerbindungen, 0);
+		server.beenden();
+		System.out.println("Alle Verbindungen wurden geschlossen.");
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: NIO Transport mit " + ANZAHL_HAENGENDE_CLIENTS + " hängenden Clients");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void warteAuf(LongSupplier wert, long erwartet) throws InterruptedException {
+		long ende = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while(wert.getAsLong() != erwartet) {
+			if(System.nanoTime() > ende) {
+				throw new AssertionError("erwartet: " + erwartet + ", tatsächlich: " + wert.getAsLong());
+			}
+			Thread.sleep(10);
+		}
+	}
+	
+	private static long[] hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				2,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(1_000L);
+		
+		long schluessel = 1_001;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		long[] spielerDaten = null;
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(geheimnis, konkreterSpieler, "localhost", 20_001));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten = new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis};
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,224 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Testet dauerhafte Verbindungen mit Anfrage-Ids auf beiden Transporten:
+ * 
+ * - der aktive Spieler schickt SPIEL_INFO, MOEGLICHE_ZUEGE_INFO und WUERFELN hintereinander ab,
+ *   ohne auf eine Antwort zu warten, und bekommt jede Antwort zu ihrem Request
+ * - Requests an verschiedene Sitzungen über eine Verbindung werden unabhängig voneinander beantwortet
+ * - gemessen wird die Zeit je Request mit einer neuen Verbindung je Request,
+ *   mit einer dauerhaften Verbindung und mit Pipelining über eine dauerhafte Verbindung
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class PersistenteVerbindungTest {
+	private static final int ANZAHL_REQUESTS = 2_000;
+	
+	private static final int ANZAHL_SITZUNGEN = 8;
+	
+	public static void main(String[] argv) throws IOException {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: dauerhafte Verbindungen mit Anfrage-Ids");
+		System.out.println("*".repeat(60) + "\n");
+		
+		for(TransportArt transportArt : TransportArt.values()) {
+			testen(transportArt);
+		}
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: dauerhafte Verbindungen mit Anfrage-Ids");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testen(TransportArt transportArt) throws IOException {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(transportArt),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		List<List<long[]>> sitzungsSpieler = new ArrayList<>();
+		for(int i = 0; i < ANZAHL_SITZUNGEN; i++) {
+			sitzungsSpieler.add(hinzufuegenSpielSitzung(server, 1_000L * (i + 1)));
+		}
+		server.starten();
+		int port = server.getLokalerPort();
+		System.out.println("Transport: " + transportArt);
+		
+		try(ServerVerbindung verbindung = new ServerVerbindung("localhost", port)) {
+			long[] aktiverSpieler = bestimmeAktivenSpieler(verbindung, sitzungsSpieler.get(0));
+			CompletableFuture<ServerAntwort> spielInfo = verbindung.senden(anfrage(aktiverSpieler, ClientRequestInfo.SPIEL_INFO));
+			CompletableFuture<ServerAntwort> zuege = verbindung.senden(anfrage(aktiverSpieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO));
+			CompletableFuture<ServerAntwort> wuerfeln = verbindung.senden(anfrage(aktiverSpieler, ClientRequestInfo.WUERFELN));
+			
+			if(!(pruefen(spielInfo.join()).getInhalt() instanceof SpielZustand)) {
+				throw new AssertionError("SPIEL_INFO hat keinen SpielZustand geliefert");
+			}
+			if(!(pruefen(zuege.join()).getInhalt() instanceof List<?> liste) || !liste.isEmpty()) {
+				throw new AssertionError("vor dem Würfeln darf es keine möglichen Züge geben");
+			}
+			if(!(pruefen(wuerfeln.join()).getInhalt() instanceof WuerfelErgebnis)) {
+				throw new AssertionError("WUERFELN hat kein WuerfelErgebnis geliefert");
+			}
+			System.out.println("  SPIEL_INFO, MOEGLICHE_ZUEGE_INFO und WUERFELN ohne Warten abgeschickt und beantwortet.");
+			
+			List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+			List<Long> sitzungen = new ArrayList<>();
+			for(int i = 0; i < 100; i++) {
+				long[] spieler = sitzungsSpieler.get(i % ANZAHL_SITZUNGEN).get(0);
+				antworten.add(verbindung.senden(anfrage(spieler, ClientRequestInfo.SPIEL_INFO)));
+				sitzungen.add(spieler[0]);
+			}
+			for(int i = 0; i < antworten.size(); i++) {
+				SpielZustand spielZustand = (SpielZustand)pruefen(antworten.get(i).join()).getInhalt();
+				if(!sitzungen.get(i).equals(spielZustand.getSchluessel())) {
+					throw new AssertionError("die Antwort gehört zu einer anderen Sitzung: " + spielZustand.getSchluessel());
+				}
+			}
+			System.out.println("  Requests an " + ANZAHL_SITZUNGEN + " Sitzungen über eine Verbindung richtig zugeordnet.");
+		}
+		
+		long[] spieler = sitzungsSpieler.get(1).get(0);
+		
+		long start = System.nanoTime();
+		for(int i = 0; i < ANZAHL_REQUESTS / 10; i++) {
+			try(ServerVerbindung verbindung = new ServerVerbindung("localhost", port)) {
+				pruefen(verbindung.senden(anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)).join());
+			}
+		}
+		long neueVerbindungNanos = (System.nanoTime() - start) / (ANZAHL_REQUESTS / 10);
+		
+		long dauerhaftNanos;
+		long pipelineNanos;
+		try(ServerVerbindung verbindung = new ServerVerbindung("localhost", port)) {
+			start = System.nanoTime();
+			for(int i = 0; i < ANZAHL_REQUESTS; i++) {
+				pruefen(verbindung.senden(anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)).join());
+			}
+			dauerhaftNanos = (System.nanoTime() - start) / ANZAHL_REQUESTS;
+			
+			start = System.nanoTime();
+			List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+			for(int i = 0; i < ANZAHL_REQUESTS; i++) {
+				antworten.add(verbindung.senden(anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)));
+			}
+			for(CompletableFuture<ServerAntwort> antwort : antworten) {
+				pruefen(antwort.join());
+			}
+			pipelineNanos = (System.nanoTime() - start) / ANZAHL_REQUESTS;
+			
+			if(verbindung.getAnzahlAusstehenderAntworten() != 0) {
+				throw new AssertionError("es stehen noch Antworten aus");
+			}
+		}
+		
+		System.out.println(String.format("  %-30s %8d µs", "neue Verbindung je Request:", TimeUnit.NANOSECONDS.toMicros(neueVerbindungNanos)));
+		System.out.println(String.format("  %-30s %8d µs", "dauerhafte Verbindung:", TimeUnit.NANOSECONDS.toMicros(dauerhaftNanos)));
+		System.out.println(String.format("  %-30s %8d µs", "dauerhaft mit Pipelining:", TimeUnit.NANOSECONDS.toMicros(pipelineNanos)));
+		if(dauerhaftNanos > neueVerbindungNanos) {
+			throw new AssertionError("die dauerhafte Verbindung ist langsamer als eine neue Verbindung je Request");
+		}
+		
+		server.beenden();
+	}
+	
+	private static long[] bestimmeAktivenSpieler(ServerVerbindung verbindung, List<long[]> spielerDaten) {
+		SpielZustand spielZustand = (SpielZustand)pruefen(
+				verbindung.senden(anfrage(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).join()
+		).getInhalt();
+		long aktiverSpielerSchluessel = spielZustand.getAktiverSpieler().getDerSpieler().getSchluessel();
+		return spielerDaten.stream().filter(s -> s[1] == aktiverSpielerSchluessel).findFirst().get();
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, long spielZustandSchluessel) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				2,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(spielZustandSchluessel);
+		
+		long schluessel = spielZustandSchluessel + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(geheimnis, konkreterSpieler, "localhost", 20_001));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RegistrierungsIndex;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+
+/**
+ * <pre>
+ * 
+ * Testet den RegistrierungsIndex:
+ * 
+ * - alle Registrierungen werden über Spieler-Schlüssel und Geheimnis gefunden
+ * - ein falsches Geheimnis oder ein unbekannter Schlüssel wird abgewiesen
+ * - nach dem Entfernen jeder zweiten Registrierung werden die übrigen weiter gefunden
+ * - Leser finden die festen Registrierungen immer, während ein anderer Thread
+ *   ständig Registrierungen hinzufügt und entfernt
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class RegistrierungsIndexTest {
+	private static final int ANZAHL_REGISTRIERUNGEN = 20_000;
+	
+	private static final int ANZAHL_LESER = 3;
+	
+	private static final long TEST_DAUER_MILLIS = 1_000;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Index der Client-Registrierungen");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RegistrierungsIndex index = new RegistrierungsIndex();
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		for(int i = 0; i < ANZAHL_REGISTRIERUNGEN; i++) {
+			// die Schlüssel einer Datenbank liegen dicht beieinander
+			ClientRegistrierung registrierung = erstellenRegistrierung(1_000L + i);
+			registrierungen.add(registrierung);
+			if(index.hinzufuegen(registrierung) != null) {
+				throw new AssertionError("der Schlüssel war noch nicht im Index: " + (1_000L + i));
+			}
+		}
+		pruefenAlle(index, registrierungen);
+		
+		long start = System.nanoTime();
+		for(int runde = 0; runde < 10; runde++) {
+			for(ClientRegistrierung registrierung : registrierungen) {
+				index.authentifizieren(registrierung.getSpieler().getSchluessel(), registrierung.getGeheimnis());
+			}
+		}
+		long nanosJeSuche = (System.nanoTime() - start) / (10L * ANZAHL_REGISTRIERUNGEN);
+		System.out.println(ANZAHL_REGISTRIERUNGEN + " Registrierungen, " + nanosJeSuche + " ns je Authentifizierung");
+		
+		ClientRegistrierung erste = registrierungen.get(0);
+		if(index.authentifizieren(erste.getSpieler().getSchluessel(), erste.getGeheimnis() + 1) != null) {
+			throw new AssertionError("ein falsches Geheimnis wurde angenommen");
+		}
+		if(index.authentifizieren(1_000L + ANZAHL_REGISTRIERUNGEN, geheimnis(1_000L + ANZAHL_REGISTRIERUNGEN)) != null) {
+			throw new AssertionError("ein unbekannter Schlüssel wurde angenommen");
+		}
+		
+		// entfernt wird nur genau die registrierte Registrierung
+		ClientRegistrierung fremde = erstellenRegistrierung(erste.getSpieler().getSchluessel());
+		if(index.entfernen(fremde)) {
+			throw new AssertionError("eine nicht registrierte Registrierung wurde entfernt");
+		}
+		
+		List<ClientRegistrierung> uebrige = new ArrayList<>();
+		for(int i = 0; i < registrierungen.size(); i++) {
+			if(i % 2 == 0) {
+				if(!index.entfernen(registrierungen.get(i))) {
+					throw new AssertionError("die Registrierung war nicht im Index: " + i);
+				}
+			} else {
+				uebrige.add(registrierungen.get(i));
+			}
+		}
+		pruefenAlle(index, uebrige);
+		for(int i = 0; i < registrierungen.size(); i += 2) {
+			ClientRegistrierung entfernt = registrierungen.get(i);
+			if(index.authentifizieren(entfernt.getSpieler().getSchluessel(), entfernt.getGeheimnis()) != null) {
+				throw new AssertionError("eine entfernte Registrierung wurde gefunden: " + i);
+			}
+		}
+		System.out.println("nach dem Entfernen jeder zweiten Registrierung: " + index.getAnzahl() + " werden weiter gefunden");
+		
+		testenGleichzeitig(index, uebrige);
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Index der Client-Registrierungen");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenGleichzeitig(RegistrierungsIndex index, List<ClientRegistrierung> feste) throws Exception {
+		AtomicBoolean laeuft = new AtomicBoolean(true);
+		AtomicReference<String> fehler = new AtomicReference<>();
+		AtomicLong anzahlSuchen = new AtomicLong();
+		
+		List<Thread> threads = new ArrayList<>();
+		for(int t = 0; t < ANZAHL_LESER; t++) {
+			int versatz = t;
+			threads.add(new Thread(() -> {
+				int i = versatz;
+				while(laeuft.get()) {
+					ClientRegistrierung registrierung = feste.get(i % feste.size());
+					if(index.authentifizieren(registrierung.getSpieler().getSchluessel(), registrierung.getGeheimnis()) != registrierung) {
+						fehler.compareAndSet(null, "eine feste Registrierung wurde nicht gefunden: " + registrierung.getSpieler().getSchluessel());
+					}
+					anzahlSuchen.incrementAndGet();
+					i += 7;
+				}
+			}));
+		}
+		long anzahlAenderungen = 0;
+		threads.forEach(Thread::start);
+		long ende = System.currentTimeMillis() + TEST_DAUER_MILLIS;
+		long schluessel = 1_000_000L;
+		List<ClientRegistrierung> wechselnde = new ArrayList<>();
+		while(System.currentTimeMillis() < ende) {
+			// der Index wächst und schrumpft ständig, auch über die Vergrößerungen hinweg
+			for(int i = 0; i < 1_000; i++) {
+				ClientRegistrierung registrierung = erstellenRegistrierung(schluessel++);
+				index.hinzufuegen(registrierung);
+				wechselnde.add(registrierung);
+			}
+			for(ClientRegistrierung registrierung : wechselnde) {
+				index.entfernen(registrierung);
+			}
+			anzahlAenderungen += 2L * wechselnde.size();
+			wechselnde.clear();
+		}
+		laeuft.set(false);
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		if(fehler.get() != null) {
+			throw new AssertionError(fehler.get());
+		}
+		if(index.getAnzahl() != feste.size()) {
+			throw new AssertionError("im Index sind " + index.getAnzahl() + " statt " + feste.size() + " Registrierungen");
+		}
+		System.out.println(ANZAHL_LESER + " Leser: " + anzahlSuchen.get() + " Suchen während " + anzahlAenderungen + " Änderungen, alle richtig");
+	}
+	
+	private static void pruefenAlle(RegistrierungsIndex index, List<ClientRegistrierung> registrierungen) {
+		for(ClientRegistrierung registrierung : registrierungen) {
+			if(index.authentifizieren(registrierung.getSpieler().getSchluessel(), registrierung.getGeheimnis()) != registrierung) {
+				throw new AssertionError("die Registrierung wurde nicht gefunden: " + registrierung.getSpieler().getSchluessel());
+			}
+		}
+		if(index.getAnzahl() != registrierungen.size()) {
+			throw new AssertionError("im Index sind " + index.getAnzahl() + " statt " + registrierungen.size() + " Registrierungen");
+		}
+	}
+	
+	private static ClientRegistrierung erstellenRegistrierung(long spielerSchluessel) {
+		KonkreterSpieler spieler = new KonkreterSpieler(null, null, null, "Spieler " + spielerSchluessel, new HashSet<>(), null);
+		ClientRegistrierung registrierung = ClientRegistrierung.erstellenClientRegistierung(
+				geheimnis(spielerSchluessel),
+				spieler,
+				"localhost",
+				20_001
+		);
+		spieler.setSchluessel(spielerSchluessel);
+		return registrierung;
+	}
+	
+	private static long geheimnis(long spielerSchluessel) {
+		return spielerSchluessel * 0x5DEECE66DL + 11;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+
+/**
+ * <pre>
+ * 
+ * Testet, dass der Server je Version des SpielZustands nur einmal kopiert und kodiert:
+ * 
+ * - zwei SPIEL_INFO Requests derselben Version bekommen dieselbe geteilte Antwort
+ *   und dieselben kodierten Bytes
+ * - viele Verbindungen in beiden Formaten fragen denselben Stand ab,
+ *   die Sitzung erstellt dafür genau einen Schnappschuss
+ * - nach einer Änderung gibt es eine neue Antwort mit dem neuen Stand
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SchnappschussCacheTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 10_000L;
+	
+	private static final int ANZAHL_VERBINDUNGEN = 8;
+	
+	private static final int ANZAHL_REQUESTS_JE_VERBINDUNG = 25;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: geteilte Schnappschüsse je Version");
+		System.out.println("*".repeat(60) + "\n");
+		
+		for(TransportArt transportArt : TransportArt.values()) {
+			testen(transportArt);
+		}
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: geteilte Schnappschüsse je Version");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testen(TransportArt transportArt) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(transportArt),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		// dieselbe Version: dieselbe Antwort und dieselben Bytes
+		ServerAntwort erste = server.verarbeiteClientRequest(anfrage(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).join();
+		ServerAntwort zweite = server.verarbeiteClientRequest(anfrage(spielerDaten.get(1), ClientRequestInfo.SPIEL_INFO)).join();
+		if(erste != zweite || !erste.isGeteilt()) {
+			throw new AssertionError("zwei Requests derselben Version hätten dieselbe geteilte Antwort bekommen müssen");
+		}
+		for(NachrichtenFormat format : NachrichtenFormat.values()) {
+			if(NachrichtenRahmen.kodieren(erste, format) != NachrichtenRahmen.kodieren(zweite, format)) {
+				throw new AssertionError(format + ": die geteilte Antwort wurde zweimal kodiert");
+			}
+		}
+		
+		List<ServerVerbindung> verbindungen = new ArrayList<>();
+		try {
+			for(int i = 0; i < ANZAHL_VERBINDUNGEN; i++) {
+				NachrichtenFormat format = NachrichtenFormat.values()[i % NachrichtenFormat.values().length];
+				verbindungen.add(new ServerVerbindung("localhost", server.getLokalerPort(), format));
+			}
+			long start = System.nanoTime();
+			List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+			for(int i = 0; i < ANZAHL_REQUESTS_JE_VERBINDUNG; i++) {
+				for(int v = 0; v < verbindungen.size(); v++) {
+					antworten.add(verbindungen.get(v).senden(anfrage(spielerDaten.get(v % spielerDaten.size()), ClientRequestInfo.SPIEL_INFO)));
+				}
+			}
+			for(CompletableFuture<ServerAntwort> antwort : antworten) {
+				SpielZustand spielZustand = (SpielZustand)pruefen(antwort.get(10, TimeUnit.SECONDS)).getInhalt();
+				if(spielZustand.getSchluessel() != SPIEL_ZUSTAND_SCHLUESSEL || spielZustand.getFigurenMenge().size() != 12) {
+					throw new AssertionError("die Antwort hat den falschen SpielZustand: " + spielZustand.getSchluessel());
+				}
+			}
+			long mikros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / antworten.size();
+			long anzahlSchnappschuesse = sitzung.ausfuehren(() -> sitzung.getSchnappschussCache().getAnzahlSchnappschuesse()).join();
+			if(anzahlSchnappschuesse != 1) {
+				throw new AssertionError("für eine Version hätte es genau einen Schnappschuss geben müssen: " + anzahlSchnappschuesse);
+			}
+			System.out.println(transportArt + ": " + antworten.size() + " SPIEL_INFO über " + ANZAHL_VERBINDUNGEN
+					+ " Verbindungen, " + anzahlSchnappschuesse + " Schnappschuss, " + mikros + " µs je Antwort");
+			
+			// nach einer Änderung gibt es einen neuen Stand
+			SpielZustand vorher = (SpielZustand)erste.getInhalt();
+			long aktiverSchluessel = vorher.getAktiverSpieler().getDerSpieler().getSchluessel();
+			long[] aktiverSpieler = spielerDaten.stream().filter(s -> s[1] == aktiverSchluessel).findFirst().get();
+			pruefen(verbindungen.get(0).senden(anfrage(aktiverSpieler, ClientRequestInfo.WUERFELN)).get(10, TimeUnit.SECONDS));
+			ServerAntwort nachher = server.verarbeiteClientRequest(anfrage(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).join();
+			if(nachher == erste || ((SpielZustand)nachher.getInhalt()).getAktiverSpieler().getWuerfelErgebnis() == null) {
+				throw new AssertionError("nach dem Würfeln hätte es einen neuen Schnappschuss geben müssen");
+			}
+			anzahlSchnappschuesse = sitzung.ausfuehren(() -> sitzung.getSchnappschussCache().getAnzahlSchnappschuesse()).join();
+			if(anzahlSchnappschuesse != 2) {
+				throw new AssertionError("nach einer Änderung hätte es genau zwei Schnappschüsse geben müssen: " + anzahlSchnappschuesse);
+			}
+			System.out.println(transportArt + ": nach dem Würfeln ein neuer Schnappschuss");
+		} finally {
+			for(ServerVerbindung verbindung : verbindungen) {
+				verbindung.close();
+			}
+			server.beenden();
+			server.getBenachrichtigungsVerteiler().beenden();
+		}
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Testet, ob ein Server viele Spiel-Sitzungen gleichzeitig bedienen kann
+ * und jeden ClientRequest an die richtige Sitzung weiterleitet.
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ServerSpielSitzungenTest {
+	private static final int ANZAHL_SITZUNGEN = 200;
+	
+	private static final int MAX_AKTIONEN_JE_SITZUNG = 50;
+	
+	public static void main(String[] argv) throws InterruptedException {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: " + ANZAHL_SITZUNGEN + " Spiel-Sitzungen auf einem Server");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				4666,
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		
+		List<List<long[]>> sitzungsSpieler = new ArrayList<>();
+		long naechsterSchluessel = 1_000;
+		for(int i = 0; i < ANZAHL_SITZUNGEN; i++) {
+			SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+					false,
+					InitialeFigurPlatzierung.START_FELDER,
+					2,
+					4,
+					10
+			).getSpielZustaendeMenge().stream().findFirst().get();
+			spielZustand.setSchluessel(naechsterSchluessel++);
+			
+			List<ClientRegistrierung> registrierungen = new ArrayList<>();
+			List<long[]> spielerDaten = new ArrayList<>();
+			for(Spieler spieler : spielZustand.getSpielerMenge()) {
+				if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+					long geheimnis = naechsterSchluessel * 31;
+					registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(geheimnis, konkreterSpieler, "localhost", 20_001));
+					spieler.setSchluessel(naechsterSchluessel++);
+					spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+				}
+			}
+			for(Figur figur : spielZustand.getFigurenMenge()) {
+				figur.setSchluessel(naechsterSchluessel++);
+			}
+			
+			server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+			sitzungsSpieler.add(spielerDaten);
+		}
+		
+		if(server.getAnzahlSpielSitzungen() != ANZAHL_SITZUNGEN + 1) {
+			throw new AssertionError("die Anzahl der Sitzungen ist falsch: " + server.getAnzahlSpielSitzungen());
+		}
+		System.out.println("Alle Sitzungen wurden angelegt: " + server.getAnzahlSpielSitzungen());
+		
+		long[] ersterSpieler = sitzungsSpieler.get(0).get(0);
+		ServerAntwort falschesGeheimnis = server.verarbeiteClientRequest(ClientRequest.erstellenClientRequest(
+				ersterSpieler[0], ersterSpieler[1], ersterSpieler[2] + 1, ClientRequestInfo.SPIEL_INFO
+		)).join();
+		if(falschesGeheimnis.getStatus() != ServerAntwortStatus.NICHT_AUTORISIERT) {
+			throw new AssertionError("ein falsches Geheimnis wurde akzeptiert");
+		}
+		long[] andererSpieler = sitzungsSpieler.get(1).get(0);
+		ServerAntwort falscheSitzung = server.verarbeiteClientRequest(ClientRequest.erstellenClientRequest(
+				ersterSpieler[0], andererSpieler[1], andererSpieler[2], ClientRequestInfo.SPIEL_INFO
+		)).join();
+		if(falscheSitzung.getStatus() != ServerAntwortStatus.NICHT_AUTORISIERT) {
+			throw new AssertionError("ein Spieler einer anderen Sitzung wurde akzeptiert");
+		}
+		ServerAntwort unbekannteSitzung = server.verarbeiteClientRequest(ClientRequest.erstellenClientRequest(
+				-1, ersterSpieler[1], ersterSpieler[2], ClientRequestInfo.SPIEL_INFO
+		)).join();
+		if(unbekannteSitzung.getStatus() != ServerAntwortStatus.UNBEKANNTE_SITZUNG) {
+			throw new AssertionError("eine unbekannte Sitzung wurde nicht erkannt");
+		}
+		System.out.println("Nicht autorisierte Requests und unbekannte Sitzungen werden abgelehnt.");
+		
+		AtomicInteger anzahlRequests = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(64);
+		List<CompletableFuture<Void>> spiele = new ArrayList<>();
+		long start = System.nanoTime();
+		for(List<long[]> spielerDaten : sitzungsSpieler) {
+			spiele.add(CompletableFuture.runAsync(() -> spielen(server, spielerDaten, anzahlRequests), clients));
+		}
+		CompletableFuture.allOf(spiele.toArray(CompletableFuture[]::new)).join();
+		long dauerMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		clients.shutdown();
+		
+		System.out.println(
+				anzahlRequests.get() + " Requests in " + dauerMillis + " ms auf "
+				+ Runtime.getRuntime().availableProcessors() + " Kernen bearbeitet."
+		);
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: " + ANZAHL_SITZUNGEN + " Spiel-Sitzungen auf einem Server");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Spielt ein Spiel über ClientRequests, bis es fertig ist oder die maximale Anzahl Aktionen erreicht ist.
+	 * 
+	 * </pre>
+	 */
+	private static void spielen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten, AtomicInteger anzahlRequests) {
+		for(int aktion = 0; aktion < MAX_AKTIONEN_JE_SITZUNG; aktion++) {
+			long[] beliebigerSpieler = spielerDaten.get(aktion % spielerDaten.size());
+			SpielZustand spielZustand = (SpielZustand)anfragen(server, beliebigerSpieler, ClientRequestInfo.SPIEL_INFO, anzahlRequests).getInhalt();
+			
+			long aktiverSpielerSchluessel = spielZustand.getAktiverSpieler().getDerSpieler().getSchluessel();
+			long[] aktiverSpieler = spielerDaten.stream().filter(s -> s[1] == aktiverSpielerSchluessel).findFirst().get();
+			
+			switch(spielZustand.getAktiverSpieler().getAktuelleTodoAktion()) {
+			case MUSS_WUERFELN -> anfragen(server, aktiverSpieler, ClientRequestInfo.WUERFELN, anzahlRequests);
+			case MUSS_ZIEHEN -> {
+				@SuppressWarnings("unchecked")
+				List<SpielZug> moeglicheZuege = (List<SpielZug>)anfragen(server, aktiverSpieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO, anzahlRequests).getInhalt();
+				ServerAntwort antwort = server.verarbeiteClientRequest(ClientRequest.erstellenZiehenClientRequest(
+						aktiverSpieler[0], aktiverSpieler[1], aktiverSpieler[2], moeglicheZuege.get(0).getZugFigur().getSchluessel()
+				)).join();
+				anzahlRequests.incrementAndGet();
+				if(antwort.getStatus() != ServerAntwortStatus.OK) {
+					throw new AssertionError("ziehen ist fehlgeschlagen: " + antwort);
+				}
+			}
+			case FERTIG -> {
+				ServerAntwort antwort = server.verarbeiteClientRequest(ClientRequest.erstellenClientRequest(
+						aktiverSpieler[0], aktiverSpieler[1], aktiverSpieler[2], ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER
+				)).join();
+				anzahlRequests.incrementAndGet();
+				if(antwort.getStatus() != ServerAntwortStatus.OK) {
+					return;
+				}
+			}
+			}
+		}
+	}
+	
+	private static ServerAntwort anfragen(RundenLaufMitHerausschlagenServer server, long[] spieler, ClientRequestInfo info, AtomicInteger anzahlRequests) {
+		ServerAntwort antwort = server.verarbeiteClientRequest(ClientRequest.erstellenClientRequest(
+				spieler[0], spieler[1], spieler[2], info
+		)).join();
+		anzahlRequests.incrementAndGet();
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request " + info + " ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+}
@@ -0,0 +1,301 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.VerbindungsAusfuehrung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+
+/**
+ * <pre>
+ * 
+ * Last-Test für den VerbindungsLauscher des Servers:
+ * 
+ * Es werden schrittweise bis zu 5000 Clients verbunden, die nichts senden.
+ * Nach jedem Schritt wird gemessen, wie lange ein weiterer Client
+ * für den Verbindungsaufbau und für einen SPIEL_INFO Request braucht.
+ * Beide Zeiten dürfen mit der Anzahl hängender Clients nicht wachsen.
+ * 
+ * Der Server läuft mit den Standard-Einstellungen. Ohne virtuelle Threads (Java 17)
+ * bedient er höchstens {@link VerbindungsAusfuehrung#STANDARD_MAX_PLATTFORM_THREADS} Verbindungen,
+ * jeder Client darüber muss sofort mit UEBERLASTET abgewiesen werden, statt unbedient zu warten.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ServerVerbindungsLastTest {
+	private static final int ANZAHL_HAENGENDE_CLIENTS = 5_000;
+	
+	private static final int SCHRITT = 500;
+	
+	private static final int ANZAHL_MESSUNGEN = 20;
+	
+	/**
+	 * die erlaubte Latenz eines Requests, auch bei 5000 hängenden Clients
+	 */
+	private static final long MAX_REQUEST_LATENZ_MILLIS = 500;
+	
+	public static void main(String[] argv) throws IOException, InterruptedException {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: " + ANZAHL_HAENGENDE_CLIENTS + " gleichzeitige Client-Verbindungen");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		long[] spielerDaten = hinzufuegenSpielSitzung(server);
+		server.starten();
+		int port = server.getLokalerPort();
+		System.out.println("Verbindungs-Modus: " + server.getVerbindungsModus() + ", Port: " + port + "\n");
+		// ohne virtuelle Threads belegt jeder bediente Client einen der Plattform-Threads
+		int maxBedient = VerbindungsAusfuehrung.isVirtuelleThreadsVerfuegbar()
+				? Integer.MAX_VALUE
+				: VerbindungsAusfuehrung.STANDARD_MAX_PLATTFORM_THREADS;
+		
+		List<Socket> haengendeClients = new ArrayList<>();
+		List<long[]> messungen = new ArrayList<>();
+		int anzahlProbeVerbindungen = 0;
+		try {
+			while(true) {
+				if(haengendeClients.size() < maxBedient) {
+					long[] messung = messen(port, spielerDaten);
+					messungen.add(new long[] {haengendeClients.size(), messung[0], messung[1]});
+					anzahlProbeVerbindungen += ANZAHL_MESSUNGEN;
+				} else {
+					pruefenAbgewiesen(new Socket("localhost", port));
+					anzahlProbeVerbindungen++;
+				}
+				
+				if(haengendeClients.size() >= ANZAHL_HAENGENDE_CLIENTS) {
+					break;
+				}
+				// die Threads der Mess-Verbindungen müssen wieder frei sein, sonst wird ein hängender Client zu früh abgewiesen
+				warteAufOffeneVerbindungen(server, Math.min(haengendeClients.size(), maxBedient));
+				for(int i = 0; i < SCHRITT; i++) {
+					Socket client = new Socket();
+					client.connect(new InetSocketAddress("localhost", port));
+					haengendeClients.add(client);
+				}
+				warteAufAngenommeneVerbindungen(server, haengendeClients.size() + anzahlProbeVerbindungen);
+			}
+			
+			// jeder hängende Client wird bedient oder abgewiesen, keiner wartet unbemerkt
+			int anzahlAbgewiesen = 0;
+			for(int i = 0; i < haengendeClients.size(); i++) {
+				if(i < maxBedient) {
+					pruefenBedient(haengendeClients.get(i));
+				} else {
+					pruefenAbgewiesen(haengendeClients.get(i));
+					anzahlAbgewiesen++;
+				}
+			}
+			warteAufOffeneVerbindungen(server, Math.min(haengendeClients.size(), maxBedient));
+			System.out.println("abgewiesene Clients: " + anzahlAbgewiesen + "\n");
+		} finally {
+			for(Socket client : haengendeClients) {
+				client.close();
+			}
+			server.beenden();
+		}
+		
+		System.out.println(String.format("%10s %20s %20s", "haengend", "Verbindung [us]", "Request [us]"));
+		for(long[] messung : messungen) {
+			System.out.println(String.format("%10d %20d %20d", messung[0], messung[1] / 1_000, messung[2] / 1_000));
+		}
+		
+		long[] letzteMessung = messungen.get(messungen.size() - 1);
+		if(letzteMessung[2] > TimeUnit.MILLISECONDS.toNanos(MAX_REQUEST_LATENZ_MILLIS)) {
+			throw new AssertionError(
+					"der Request bei " + letzteMessung[0] + " hängenden Clients hat "
+					+ TimeUnit.NANOSECONDS.toMillis(letzteMessung[2]) + " ms gedauert"
+			);
+		}
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: " + ANZAHL_HAENGENDE_CLIENTS + " gleichzeitige Client-Verbindungen");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Misst den Median des Verbindungsaufbaus und eines SPIEL_INFO Requests.
+	 * 
+	 * @return {Verbindungsaufbau in ns, Request in ns}
+	 * 
+	 * </pre>
+	 */
+	private static long[] messen(int port, long[] spielerDaten) throws IOException {
+		long[] verbindungsZeiten = new long[ANZAHL_MESSUNGEN];
+		long[] requestZeiten = new long[ANZAHL_MESSUNGEN];
+		for(int i = 0; i < ANZAHL_MESSUNGEN; i++) {
+			long start = System.nanoTime();
+			try(ServerVerbindung verbindung = new ServerVerbindung("localhost", port)) {
+				verbindungsZeiten[i] = System.nanoTime() - start;
+				
+				ServerAntwort antwort = verbindung.senden(ClientRequest.erstellenClientRequest(
+						spielerDaten[0], spielerDaten[1], spielerDaten[2], ClientRequestInfo.SPIEL_INFO
+				)).join();
+				requestZeiten[i] = System.nanoTime() - start;
+				
+				if(antwort.getStatus() != ServerAntwortStatus.OK) {
+					throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+				}
+			}
+		}
+		return new long[] {median(verbindungsZeiten), median(requestZeiten)};
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein bedienter Client bekommt nichts, solange er nichts sendet, und die Verbindung bleibt offen.
+	 * 
+	 * </pre>
+	 */
+	private static void pruefenBedient(Socket client) throws IOException {
+		client.setSoTimeout(1);
+		try {
+			int gelesen = client.getInputStream().read();
+			throw new AssertionError("ein bedienter Client hat " + (gelesen < 0 ? "das Ende der Verbindung" : "Daten") + " bekommen");
+		} catch(SocketTimeoutException ausnahme) {
+			// erwartet
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein abgewiesener Client bekommt eine Push-Nachricht mit dem Status UEBERLASTET,
+	 * danach schließt der Server die Verbindung.
+	 * 
+	 * </pre>
+	 */
+	private static void pruefenAbgewiesen(Socket client) throws IOException {
+		try(client) {
+			client.setSoTimeout(5_000);
+			DataInputStream eingabe = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+			NachrichtenRahmen rahmen = NachrichtenRahmen.lesen(eingabe);
+			ServerAntwort antwort = (ServerAntwort)NachrichtenRahmen.dekodieren(rahmen.getNutzdaten());
+			if(rahmen.getAnfrageId() != NachrichtenRahmen.BENACHRICHTIGUNGS_ID || antwort.getStatus() != ServerAntwortStatus.UEBERLASTET) {
+				throw new AssertionError("ein Client über der Obergrenze wurde nicht abgewiesen: " + antwort);
+			}
+			if(eingabe.read() >= 0) {
+				throw new AssertionError("der Server hat die abgewiesene Verbindung nicht geschlossen");
+			}
+		} catch(ClassNotFoundException ausnahme) {
+			throw new AssertionError(ausnahme);
+		}
+	}
+	
+	private static long median(long[] werte) {
+		long[] sortiert = werte.clone();
+		Arrays.sort(sortiert);
+		return sortiert[sortiert.length / 2];
+	}
+	
+	private static void warteAufAngenommeneVerbindungen(RundenLaufMitHerausschlagenServer server, long anzahl) throws InterruptedException {
+		long ende = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while(server.getAnzahlAngenommenerVerbindungen() < anzahl) {
+			if(System.nanoTime() > ende) {
+				throw new AssertionError(
+						"der Server hat nur " + server.getAnzahlAngenommenerVerbindungen()
+						+ " von " + anzahl + " Verbindungen angenommen"
+				);
+			}
+			Thread.sleep(10);
+		}
+	}
+	
+	private static void warteAufOffeneVerbindungen(RundenLaufMitHerausschlagenServer server, int anzahl) throws InterruptedException {
+		long ende = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while(server.getAnzahlOffenerVerbindungen() != anzahl) {
+			if(System.nanoTime() > ende) {
+				throw new AssertionError(
+						"der Server bedient " + server.getAnzahlOffenerVerbindungen()
+						+ " statt " + anzahl + " Verbindungen"
+				);
+			}
+			Thread.sleep(10);
+		}
+	}
+	
+	private static long[] hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				2,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(1_000L);
+		
+		long schluessel = 1_001;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		long[] spielerDaten = null;
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(geheimnis, konkreterSpieler, "localhost", 20_001));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten = new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis};
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
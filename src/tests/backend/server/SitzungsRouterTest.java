@@ -0,0 +1,432 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.SitzungsRing;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.SitzungsRouter;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.VerwaltungsAuftrag.VerwaltungsArt;
+
+/**
+ * <pre>
+ * 
+ * Testet die Verteilung der Sitzungen auf mehrere Spiel-Server:
+ * 
+ * - der SitzungsRing verschiebt beim Dazukommen und Gehen eines Servers nur die Sitzungen dieses Servers
+ * - ein VerwaltungsAuftrag mit falschem Geheimnis wird abgewiesen
+ * - drei Spiel-Server in eigenen JVMs: die Sitzungen liegen erst alle auf dem ersten,
+ *   dann kommen zwei Server dazu und der erste geht. Die Spieler spielen dabei ohne Pause
+ *   über den Router weiter und sehen keinen Fehler, am Ende liegt jede Sitzung auf dem Server aus dem Ring.
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SitzungsRouterTest {
+	private static final long VERWALTUNGS_GEHEIMNIS = 0x5EC2E7L;
+	
+	private static final int ANZAHL_SITZUNGEN = 30;
+	
+	private static final long ERSTER_SPIEL_ZUSTAND_SCHLUESSEL = 10_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Sitzungs-Router");
+		System.out.println("*".repeat(60) + "\n");
+		
+		testenRing();
+		testenVerwaltungsGeheimnis();
+		testenMehrereProzesse();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Sitzungs-Router");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenRing() {
+		int anzahlSchluessel = 100_000;
+		SitzungsRing drei = SitzungsRing.erstellenSitzungsRing(List.of("a:1", "b:2", "c:3"));
+		SitzungsRing vier = drei.mitKnoten("d:4");
+		SitzungsRing ohneB = vier.ohneKnoten("b:2");
+		Map<String, Integer> anzahlJeKnoten = new HashMap<>();
+		int zuD = 0;
+		int vonB = 0;
+		for(long schluessel = 0; schluessel < anzahlSchluessel; schluessel++) {
+			String vorher = drei.bestimmeKnoten(schluessel);
+			String nachher = vier.bestimmeKnoten(schluessel);
+			if(!vorher.equals(nachher)) {
+				if(!nachher.equals("d:4")) {
+					throw new AssertionError("der Schlüssel " + schluessel + " ist von " + vorher + " zu " + nachher + " gewechselt");
+				}
+				zuD++;
+			}
+			String ohne = ohneB.bestimmeKnoten(schluessel);
+			if(!ohne.equals(nachher)) {
+				if(!nachher.equals("b:2")) {
+					throw new AssertionError("der Schlüssel " + schluessel + " ist ohne b:2 von " + nachher + " zu " + ohne + " gewechselt");
+				}
+				vonB++;
+			}
+			anzahlJeKnoten.merge(nachher, 1, Integer::sum);
+		}
+		for(Map.Entry<String, Integer> eintrag : anzahlJeKnoten.entrySet()) {
+			if(eintrag.getValue() < anzahlSchluessel / 4 * 0.8 || eintrag.getValue() > anzahlSchluessel / 4 * 1.2) {
+				throw new AssertionError("ungleich verteilt: " + anzahlJeKnoten);
+			}
+		}
+		if(!SitzungsRing.erstellenSitzungsRing(List.of("c:3", "a:1", "b:2")).bestimmeKnoten(4711).equals(drei.bestimmeKnoten(4711))) {
+			throw new AssertionError("die Reihenfolge der Server darf den Ring nicht ändern");
+		}
+		System.out.println("Ring mit 4 Servern: " + anzahlJeKnoten + ", " + zuD + " Schlüssel zum neuen Server, "
+				+ vonB + " vom gehenden Server, alle anderen bleiben");
+	}
+	
+	private static void testenVerwaltungsGeheimnis() throws Exception {
+		RundenLaufMitHerausschlagenServer ohneGeheimnis = erstellenServer(null);
+		RundenLaufMitHerausschlagenServer mitGeheimnis = erstellenServer(VERWALTUNGS_GEHEIMNIS);
+		try(
+				ServerVerbindung ohne = new ServerVerbindung("localhost", ohneGeheimnis.getLokalerPort());
+				ServerVerbindung mit = new ServerVerbindung("localhost", mitGeheimnis.getLokalerPort())
+		) {
+			erwarten(ServerAntwortStatus.NICHT_AUTORISIERT, ohne.senden(
+					VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.SITZUNGEN, VERWALTUNGS_GEHEIMNIS, 0)
+			).get(10, TimeUnit.SECONDS));
+			erwarten(ServerAntwortStatus.NICHT_AUTORISIERT, mit.senden(
+					VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.SITZUNGEN, VERWALTUNGS_GEHEIMNIS + 1, 0)
+			).get(10, TimeUnit.SECONDS));
+			erwarten(ServerAntwortStatus.FEHLER, mit.senden(
+					VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.EXPORTIEREN, VERWALTUNGS_GEHEIMNIS, 4711)
+			).get(10, TimeUnit.SECONDS));
+			erwarten(ServerAntwortStatus.OK, mit.senden(
+					VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.SITZUNGEN, VERWALTUNGS_GEHEIMNIS, 0)
+			).get(10, TimeUnit.SECONDS));
+			System.out.println("VerwaltungsAufträge ohne das richtige Geheimnis werden abgewiesen");
+		} finally {
+			for(RundenLaufMitHerausschlagenServer server : List.of(ohneGeheimnis, mitGeheimnis)) {
+				server.beenden();
+				server.getBenachrichtigungsVerteiler().beenden();
+				server.getZuschauerVerteiler().beenden();
+			}
+		}
+	}
+	
+	private static void testenMehrereProzesse() throws Exception {
+		List<Process> prozesse = new ArrayList<>();
+		SitzungsRouter router = null;
+		try {
+			String erster = starten(prozesse, ANZAHL_SITZUNGEN);
+			String zweiter = starten(prozesse, 0);
+			String dritter = starten(prozesse, 0);
+			router = new SitzungsRouter(0, List.of(erster), VERWALTUNGS_GEHEIMNIS);
+			router.starten();
+			
+			List<long[]> spielerDaten = new ArrayList<>();
+			for(int i = 0; i < ANZAHL_SITZUNGEN; i++) {
+				spielerDaten.addAll(bestimmeSpielerDaten(ERSTER_SPIEL_ZUSTAND_SCHLUESSEL + i * 100L));
+			}
+			
+			try(ServerVerbindung verbindung = new ServerVerbindung("localhost", router.getLokalerPort())) {
+				AtomicBoolean weiter = new AtomicBoolean(true);
+				AtomicInteger runden = new AtomicInteger();
+				CompletableFuture<Void> spiel = CompletableFuture.runAsync(() -> {
+					while(weiter.get()) {
+						spielen(verbindung, spielerDaten);
+						runden.incrementAndGet();
+					}
+				});
+				warten(spiel, runden, 2);
+				// nur die ersten Requests einer Sitzung kommen beim Router an, danach kennt die Verbindung den Server
+				long anzahlUmgeleitet = router.getAnzahlUmgeleitet();
+				if(anzahlUmgeleitet < ANZAHL_SITZUNGEN || anzahlUmgeleitet > spielerDaten.size()) {
+					throw new AssertionError("je Sitzung hätte der Router höchstens jeden Spieler einmal umleiten sollen: " + anzahlUmgeleitet);
+				}
+				// ein HERZSCHLAG gehört zu keiner Sitzung: der Router beantwortet ihn selbst und zählt ihn nicht
+				ServerAntwort herzschlag = verbindung.senden(ClientRequest.erstellenHerzschlagClientRequest()).join();
+				if(herzschlag.getStatus() != ServerAntwortStatus.OK || router.getAnzahlUmgeleitet() != anzahlUmgeleitet) {
+					throw new AssertionError("der Router hat einen HERZSCHLAG umgeleitet: " + herzschlag + ", " + router.getAnzahlUmgeleitet());
+				}
+				
+				long start = System.nanoTime();
+				int zumZweiten = router.hinzufuegenKnoten(zweiter);
+				long zweiterDazu = System.nanoTime();
+				warten(spiel, runden, runden.get() + 2);
+				int zumDritten = router.hinzufuegenKnoten(dritter);
+				warten(spiel, runden, runden.get() + 2);
+				long ohneErstenStart = System.nanoTime();
+				int vomErsten = router.entfernenKnoten(erster);
+				long ohneErsten = System.nanoTime();
+				warten(spiel, runden, runden.get() + 2);
+				weiter.set(false);
+				spiel.get(30, TimeUnit.SECONDS);
+				
+				if(zumZweiten == 0 || zumZweiten == ANZAHL_SITZUNGEN || zumDritten == 0) {
+					throw new AssertionError("ein neuer Server hätte einen Teil der Sitzungen bekommen sollen: " + zumZweiten + ", " + zumDritten);
+				}
+				System.out.println("zweiter Server: " + zumZweiten + " Sitzungen in " + TimeUnit.NANOSECONDS.toMillis(zweiterDazu - start)
+						+ " ms umgezogen, dritter Server: " + zumDritten + ", erster Server geht: " + vomErsten + " Sitzungen in "
+						+ TimeUnit.NANOSECONDS.toMillis(ohneErsten - ohneErstenStart) + " ms");
+				System.out.println(runden.get() + " Runden über alle " + ANZAHL_SITZUNGEN + " Sitzungen ohne Fehler gespielt");
+				if(router.getAnzahlUmgeleitet() != anzahlUmgeleitet) {
+					throw new AssertionError("nach einem Umzug leitet der alte Server um, nicht der Router: " + router.getAnzahlUmgeleitet());
+				}
+			}
+			
+			// jede Sitzung liegt jetzt auf dem Server, den der Ring nennt
+			Map<String, List<Long>> sitzungenJeKnoten = new HashMap<>();
+			for(String knoten : List.of(erster, zweiter, dritter)) {
+				sitzungenJeKnoten.put(knoten, abfragenSitzungen(knoten));
+			}
+			if(!sitzungenJeKnoten.get(erster).isEmpty()) {
+				throw new AssertionError("der erste Server hätte keine Sitzung mehr haben dürfen: " + sitzungenJeKnoten.get(erster));
+			}
+			int anzahl = 0;
+			for(Map.Entry<String, List<Long>> eintrag : sitzungenJeKnoten.entrySet()) {
+				for(long schluessel : eintrag.getValue()) {
+					if(!router.getRing().bestimmeKnoten(schluessel).equals(eintrag.getKey())) {
+						throw new AssertionError("die Sitzung " + schluessel + " liegt auf dem falschen Server " + eintrag.getKey());
+					}
+					anzahl++;
+				}
+			}
+			if(anzahl != ANZAHL_SITZUNGEN) {
+				throw new AssertionError(ANZAHL_SITZUNGEN + " Sitzungen erwartet, gefunden: " + sitzungenJeKnoten);
+			}
+			System.out.println("jede Sitzung liegt auf dem Server aus dem Ring: " + router.getRing().getKnoten());
+			
+			// ein neuer Client kommt über den Router direkt zum richtigen Server
+			try(ServerVerbindung neu = new ServerVerbindung("localhost", router.getLokalerPort())) {
+				spielen(neu, spielerDaten);
+			}
+			System.out.println("ein neuer Client spielt über den Router weiter");
+		} finally {
+			if(router != null) {
+				router.beenden();
+			}
+			for(Process prozess : prozesse) {
+				prozess.destroy();
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Startet einen Spiel-Server in einer eigenen JVM.
+	 * 
+	 * @return die Adresse des Servers
+	 * 
+	 * </pre>
+	 */
+	private static String starten(List<Process> prozesse, int anzahlSitzungen) throws IOException {
+		Process prozess = new ProcessBuilder(
+				Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp",
+				System.getProperty("java.class.path"),
+				Knoten.class.getName(),
+				String.valueOf(anzahlSitzungen)
+		).redirectErrorStream(true).start();
+		prozesse.add(prozess);
+		BufferedReader ausgabe = new BufferedReader(new InputStreamReader(prozess.getInputStream(), StandardCharsets.UTF_8));
+		String zeile;
+		while((zeile = ausgabe.readLine()) != null) {
+			if(zeile.startsWith(Knoten.PORT_ZEILE)) {
+				Thread leser = new Thread(() -> ausgabe.lines().forEach(rest -> {}), "knoten-ausgabe");
+				leser.setDaemon(true);
+				leser.start();
+				return "localhost:" + zeile.substring(Knoten.PORT_ZEILE.length());
+			}
+		}
+		throw new IOException("der Spiel-Server hat keinen Port genannt");
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static List<Long> abfragenSitzungen(String knoten) throws Exception {
+		try(ServerVerbindung verbindung = new ServerVerbindung(SitzungsRing.getHost(knoten), SitzungsRing.getPort(knoten))) {
+			ServerAntwort antwort = verbindung.senden(
+					VerwaltungsAuftrag.erstellenVerwaltungsAuftrag(VerwaltungsArt.SITZUNGEN, VERWALTUNGS_GEHEIMNIS, 0)
+			).get(10, TimeUnit.SECONDS);
+			erwarten(ServerAntwortStatus.OK, antwort);
+			return (List<Long>)antwort.getInhalt();
+		}
+	}
+	
+	private static void warten(CompletableFuture<Void> spiel, AtomicInteger runden, int anzahlRunden) throws Exception {
+		long ende = System.currentTimeMillis() + 30_000;
+		while(runden.get() < anzahlRunden) {
+			if(spiel.isDone()) {
+				spiel.get();
+			}
+			if(System.currentTimeMillis() > ende) {
+				throw new AssertionError("nicht erreicht: " + anzahlRunden + " Runden");
+			}
+			Thread.sleep(1);
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Jeder Spieler schickt einen ganzen Zug, wer nicht dran ist, überspringt alle Schritte.
+	 * Die Züge aller Sitzungen laufen gleichzeitig.
+	 * 
+	 * </pre>
+	 */
+	private static void spielen(ServerVerbindung verbindung, List<long[]> spielerDaten) {
+		List<StapelSchritt> zug = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			zug.add(StapelSchritt.erstellenWuerfelnSchritt(Bedingung.WENN_MUSS_WUERFELN));
+			zug.add(StapelSchritt.erstellenZiehenSchritt(Bedingung.WENN_MUSS_ZIEHEN, null));
+		}
+		zug.add(StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.WENN_FERTIG));
+		
+		List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+		for(long[] spieler : spielerDaten) {
+			antworten.add(verbindung.senden(ClientRequest.erstellenStapelClientRequest(spieler[0], spieler[1], spieler[2], zug)));
+		}
+		for(CompletableFuture<ServerAntwort> antwort : antworten) {
+			erwarten(ServerAntwortStatus.OK, antwort.join());
+		}
+	}
+	
+	private static void erwarten(ServerAntwortStatus status, ServerAntwort antwort) {
+		if(antwort.getStatus() != status) {
+			throw new AssertionError("erwartet war " + status + ": " + antwort);
+		}
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(Long verwaltungsGeheimnis) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(TransportArt.NIO)
+						.setVerwaltungsGeheimnis(verwaltungsGeheimnis)
+						.setMitBeispielSitzung(false),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		return server;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je Spieler der Sitzung: Schlüssel des SpielZustands, Schlüssel und Geheimnis des Spielers
+	 * 
+	 * </pre>
+	 */
+	private static List<long[]> bestimmeSpielerDaten(long spielZustandSchluessel) {
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(long schluessel = spielZustandSchluessel + 1; schluessel <= spielZustandSchluessel + 3; schluessel++) {
+			spielerDaten.add(new long[] {spielZustandSchluessel, schluessel, schluessel * 31});
+		}
+		return spielerDaten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein Spiel-Server in einer eigenen JVM. Das Argument ist die Anzahl der Sitzungen, mit denen er startet.
+	 * Er nennt seinen Port in einer Zeile auf der Ausgabe und läuft, bis seine Eingabe geschlossen wird.
+	 * 
+	 * </pre>
+	 */
+	public static class Knoten {
+		private static final String PORT_ZEILE = "PORT ";
+		
+		public static void main(String[] argv) throws Exception {
+			RundenLaufMitHerausschlagenServer server = erstellenServer(VERWALTUNGS_GEHEIMNIS);
+			for(int i = 0; i < Integer.parseInt(argv[0]); i++) {
+				hinzufuegenSpielSitzung(server, ERSTER_SPIEL_ZUSTAND_SCHLUESSEL + i * 100L);
+			}
+			System.out.println(PORT_ZEILE + server.getLokalerPort());
+			System.out.flush();
+			while(System.in.read() >= 0) {
+				// läuft, bis der Test den Prozess beendet
+			}
+			System.exit(0);
+		}
+		
+		private static void hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, long spielZustandSchluessel) {
+			SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+					false,
+					InitialeFigurPlatzierung.START_FELDER,
+					3,
+					4,
+					10
+			).getSpielZustaendeMenge().stream().findFirst().get();
+			spielZustand.setSchluessel(spielZustandSchluessel);
+			
+			long schluessel = spielZustandSchluessel + 1;
+			List<ClientRegistrierung> registrierungen = new ArrayList<>();
+			for(Spieler spieler : spielZustand.getSpielerMenge()) {
+				if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+					registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+							schluessel * 31,
+							konkreterSpieler,
+							"localhost",
+							20_001
+					));
+					spieler.setSchluessel(schluessel++);
+				}
+			}
+			for(Figur figur : spielZustand.getFigurenMenge()) {
+				figur.setSchluessel(schluessel++);
+			}
+			server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		}
+	}
+}
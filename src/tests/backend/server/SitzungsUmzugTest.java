@@ -0,0 +1,333 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ZuschauerRegistrierung;
+
+/**
+ * <pre>
+ * 
+ * Testet den Umzug einer laufenden Sitzung auf einen anderen Server:
+ * 
+ * - der Wuerfel setzt nach einem Checkpoint dieselbe Folge fort
+ * - eine eingefrorene Sitzung antwortet mit UEBERLASTET und lässt sich nur eingefroren exportieren
+ * - auf dem Ziel-Server haben SpielZustand, Zug des aktiven Spielers, Version und Würfel denselben Stand
+ * - die Spieler spielen während des Umzugs über ihre ServerVerbindung weiter, ohne einen Fehler zu sehen
+ * - der alte Server antwortet danach mit UMGELEITET, ein Zuschauer folgt der Sitzung
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SitzungsUmzugTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 10_000L;
+	
+	private static final int ANZAHL_RUNDEN = 40;
+	
+	private static final int UMZUG_NACH_RUNDEN = 15;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Sitzungs-Umzug");
+		System.out.println("*".repeat(60) + "\n");
+		
+		testenWuerfel();
+		testenUmzug(TransportArt.NIO, TransportArt.BLOCKIEREND);
+		testenUmzug(TransportArt.BLOCKIEREND, TransportArt.NIO);
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Sitzungs-Umzug");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenWuerfel() {
+		Wuerfel wuerfel = Wuerfel.erstellenZufaelligenWuerfel();
+		for(int i = 0; i < 17; i++) {
+			wuerfel.wuerfeln();
+		}
+		Wuerfel kopie = Wuerfel.erstellenWuerfel(wuerfel.getZustand());
+		int[] anzahlJeAugen = new int[7];
+		for(int i = 0; i < 60_000; i++) {
+			int augen = wuerfel.wuerfeln().getValue();
+			if(kopie.wuerfeln().getValue() != augen) {
+				throw new AssertionError("der Wuerfel aus dem Zustand würfelt nach " + i + " Würfen anders");
+			}
+			anzahlJeAugen[augen]++;
+		}
+		for(int augen = 1; augen <= 6; augen++) {
+			if(anzahlJeAugen[augen] < 9_000 || anzahlJeAugen[augen] > 11_000) {
+				throw new AssertionError("die Augenzahl " + augen + " kam " + anzahlJeAugen[augen] + " mal in 60.000 Würfen");
+			}
+		}
+		System.out.println("der Wuerfel setzt nach seinem Zustand dieselbe Folge fort");
+	}
+	
+	private static void testenUmzug(TransportArt quellTransport, TransportArt zielTransport) throws Exception {
+		RundenLaufMitHerausschlagenServer quelle = erstellenServer(quellTransport);
+		RundenLaufMitHerausschlagenServer ziel = erstellenServer(zielTransport);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(quelle);
+		ServerSpielSitzung alteSitzung = quelle.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		quelle.hinzufuegenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, ZuschauerRegistrierung.erstellenZuschauerRegistrierung(7, 4711));
+		
+		try(
+				ServerVerbindung spielerVerbindung = new ServerVerbindung("localhost", quelle.getLokalerPort());
+				ServerVerbindung zuschauerVerbindung = new ServerVerbindung("localhost", quelle.getLokalerPort())
+		) {
+			AtomicLong zuschauerVersion = new AtomicLong(SpielZustandDelta.KEINE_VERSION);
+			zuschauerVerbindung.setPushEmpfaenger(push -> zuschauerVersion.accumulateAndGet(((SpielZustandDelta)push.getInhalt()).getVersion(), Math::max));
+			ServerAntwort zuschauen = pruefen(zuschauerVerbindung.senden(
+					ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 7, 4711)
+			).get(10, TimeUnit.SECONDS));
+			zuschauerVersion.accumulateAndGet(((SpielZustandDelta)zuschauen.getInhalt()).getVersion(), Math::max);
+			
+			// die Spieler spielen ohne Pause, der Umzug passiert mittendrin
+			AtomicInteger runden = new AtomicInteger();
+			CompletableFuture<Void> spiel = CompletableFuture.runAsync(() -> spielen(spielerVerbindung, spielerDaten, runden));
+			while(runden.get() < UMZUG_NACH_RUNDEN && !spiel.isDone()) {
+				Thread.sleep(1);
+			}
+			
+			long start = System.nanoTime();
+			quelle.einfrierenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL).join();
+			long eingefroren = System.nanoTime();
+			
+			erwarten(ServerAntwortStatus.UEBERLASTET, quelle.verarbeiteClientRequest(erstellenRequest(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).join());
+			Object[] quellStand = alteSitzung.ausfuehren(() -> erfassenStand(alteSitzung)).join();
+			
+			byte[] checkpoint = quelle.exportierenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL).join();
+			long exportiert = System.nanoTime();
+			ServerSpielSitzung neueSitzung = ziel.importierenSpielSitzung(checkpoint);
+			Object[] zielStand = neueSitzung.ausfuehren(() -> erfassenStand(neueSitzung)).join();
+			for(int i = 0; i < quellStand.length; i++) {
+				if(!quellStand[i].equals(zielStand[i])) {
+					throw new AssertionError("Teil " + i + " des Stands nach dem Import ist anders: " + quellStand[i] + " statt " + zielStand[i]);
+				}
+			}
+			ziel.fortsetzenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL).join();
+			quelle.weiterleitenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL, "localhost", ziel.getLokalerPort()).join();
+			long ende = System.nanoTime();
+			
+			System.out.println(quellTransport + " -> " + zielTransport + ": Umzug nach " + runden.get() + " Runden in "
+					+ TimeUnit.NANOSECONDS.toMicros(ende - start) + " µs (einfrieren " + TimeUnit.NANOSECONDS.toMicros(eingefroren - start)
+					+ " µs, Checkpoint " + checkpoint.length + " Bytes in " + TimeUnit.NANOSECONDS.toMicros(exportiert - eingefroren)
+					+ " µs), Version " + quellStand[0] + ", Würfel-Zustand " + Long.toHexString((Long)quellStand[1]));
+			
+			ServerAntwort umleitung = quelle.verarbeiteClientRequest(erstellenRequest(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).join();
+			erwarten(ServerAntwortStatus.UMGELEITET, umleitung);
+			if(umleitung.getZielPort() != ziel.getLokalerPort() || quelle.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL) != null) {
+				throw new AssertionError("die Sitzung hätte auf Port " + ziel.getLokalerPort() + " umgeleitet sein müssen: " + umleitung);
+			}
+			try {
+				quelle.exportierenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+				throw new AssertionError("eine umgezogene Sitzung kann nicht noch einmal exportiert werden");
+			} catch(IllegalStateException erwartet) {
+			}
+			
+			spiel.get(30, TimeUnit.SECONDS);
+			long letzteVersion = neueSitzung.ausfuehren(() -> neueSitzung.getSpiel().getZustandsVersion()).join();
+			if(letzteVersion <= (Long)quellStand[0]) {
+				throw new AssertionError("auf dem Ziel-Server hätte weiter gespielt werden müssen: Version " + letzteVersion);
+			}
+			System.out.println("alle " + ANZAHL_RUNDEN + " Runden ohne Fehler gespielt, auf dem Ziel-Server bis Version " + letzteVersion);
+			warten(() -> zuschauerVersion.get() == letzteVersion, "der Zuschauer ist der Sitzung gefolgt und hat die letzte Version " + letzteVersion);
+			
+			// endet die Sitzung auf dem Ziel-Server, vergisst die Verbindung ihn und fragt wieder den ursprünglichen Server
+			if(spielerVerbindung.getAnzahlUmgezogenerSitzungen() != 1) {
+				throw new AssertionError("die Verbindung hätte sich den Ziel-Server gemerkt haben müssen");
+			}
+			ziel.entfernenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+			erwarten(
+					ServerAntwortStatus.UNBEKANNTE_SITZUNG,
+					spielerVerbindung.senden(erstellenRequest(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)).get(10, TimeUnit.SECONDS)
+			);
+			if(spielerVerbindung.getAnzahlUmgezogenerSitzungen() != 0) {
+				throw new AssertionError("die Verbindung merkt sich noch den Ziel-Server einer beendeten Sitzung");
+			}
+		} finally {
+			for(RundenLaufMitHerausschlagenServer server : List.of(quelle, ziel)) {
+				server.beenden();
+				server.getBenachrichtigungsVerteiler().beenden();
+				server.getZuschauerVerteiler().beenden();
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Wird auf dem Thread der Sitzung aufgerufen.
+	 * 
+	 * @return Version, Würfel-Zustand, Zug des aktiven Spielers und die Felder aller Figuren
+	 * 
+	 * </pre>
+	 */
+	private static Object[] erfassenStand(ServerSpielSitzung sitzung) {
+		SpielZustand spielZustand = sitzung.getSpiel().getSpielZustand();
+		AktiverSpielerDekorator aktiverSpieler = spielZustand.getAktiverSpieler();
+		List<String> figuren = new ArrayList<>();
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figuren.add(figur.getSchluessel() + "@" + figur.getSpielFeld());
+		}
+		figuren.sort(null);
+		return new Object[] {
+				sitzung.getSpiel().getZustandsVersion(),
+				sitzung.getSpiel().getWuerfel().getZustand(),
+				aktiverSpieler.getDerSpieler().getSchluessel(),
+				String.valueOf(aktiverSpieler.getAktuelleTodoAktion()),
+				String.valueOf(aktiverSpieler.getWuerfelErgebnis()),
+				aktiverSpieler.getWuerfelVersuchsAnzahl(),
+				figuren,
+				sitzung.getRegistrierungen().size(),
+				sitzung.getAnzahlZuschauer()
+		};
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Jeder Spieler schickt in jeder Runde einen ganzen Zug, wer nicht dran ist, überspringt alle Schritte.
+	 * 
+	 * </pre>
+	 */
+	private static void spielen(ServerVerbindung verbindung, List<long[]> spielerDaten, AtomicInteger runden) {
+		List<StapelSchritt> zug = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			zug.add(StapelSchritt.erstellenWuerfelnSchritt(Bedingung.WENN_MUSS_WUERFELN));
+			zug.add(StapelSchritt.erstellenZiehenSchritt(Bedingung.WENN_MUSS_ZIEHEN, null));
+		}
+		zug.add(StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.WENN_FERTIG));
+		
+		for(int runde = 0; runde < ANZAHL_RUNDEN; runde++) {
+			for(long[] spieler : spielerDaten) {
+				pruefen(verbindung.senden(
+						ClientRequest.erstellenStapelClientRequest(spieler[0], spieler[1], spieler[2], zug)
+				).join());
+			}
+			runden.incrementAndGet();
+		}
+	}
+	
+	private static ClientRequest erstellenRequest(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static void warten(java.util.function.BooleanSupplier bedingung, String beschreibung) throws InterruptedException {
+		long ende = System.currentTimeMillis() + 10_000;
+		while(!bedingung.getAsBoolean()) {
+			if(System.currentTimeMillis() > ende) {
+				throw new AssertionError("nicht erreicht: " + beschreibung);
+			}
+			Thread.sleep(10);
+		}
+		System.out.println(beschreibung);
+	}
+	
+	private static void erwarten(ServerAntwortStatus status, ServerAntwort antwort) {
+		if(antwort.getStatus() != status) {
+			throw new AssertionError("erwartet war " + status + ": " + antwort);
+		}
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(TransportArt transportArt) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(transportArt),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		return server;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
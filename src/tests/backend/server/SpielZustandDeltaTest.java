@@ -0,0 +1,283 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta.FigurPosition;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server.RundenLaufMitHerausschlagenServerService;
+
+/**
+ * <pre>
+ * 
+ * Testet die AENDERUNGEN_INFO Requests:
+ * 
+ * - ein Client ohne Version bekommt den vollständigen SpielZustand
+ * - ein Client, der nach jeder Aktion nur die Änderungen abholt und auf seine Kopie anwendet,
+ *   hat danach dieselben Figuren-Felder und denselben aktiven Spieler wie der Server
+ * - ein Delta ist in beiden Formaten viel kleiner als der vollständige SpielZustand
+ * - eine zu alte oder unbekannte Version bekommt wieder den vollständigen SpielZustand
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class SpielZustandDeltaTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 8_000L;
+	
+	private static final int ANZAHL_AKTIONEN = 500;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Änderungen des SpielZustands als Delta");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		long[] beobachter = spielerDaten.get(0);
+		
+		SpielZustandDelta erstesDelta = aenderungen(server, beobachter, SpielZustandDelta.KEINE_VERSION);
+		if(!erstesDelta.isVollstaendig() || erstesDelta.getVersion() != 0) {
+			throw new AssertionError("ohne Version muss der vollständige SpielZustand kommen: " + erstesDelta);
+		}
+		SpielZustand kopie = erstesDelta.getSpielZustand();
+		long bekannteVersion = erstesDelta.getVersion();
+		
+		long bytesDelta = 0;
+		long bytesVollstaendig = 0;
+		for(int i = 0; i < ANZAHL_AKTIONEN; i++) {
+			spielen(server, spielerDaten);
+			
+			SpielZustandDelta delta = aenderungen(server, beobachter, bekannteVersion);
+			if(delta.isVollstaendig() || delta.getVersion() != bekannteVersion + 1) {
+				throw new AssertionError("nach einer Aktion muss ein Delta für die nächste Version kommen: " + delta);
+			}
+			anwenden(kopie, delta);
+			bekannteVersion = delta.getVersion();
+			
+			SpielZustand original = (SpielZustand)pruefen(server.verarbeiteClientRequest(
+					anfrage(beobachter, ClientRequestInfo.SPIEL_INFO)
+			).join()).getInhalt();
+			vergleichen(original, kopie, i);
+			
+			bytesDelta += NachrichtenRahmen.kodieren(ServerAntwort.erstellenServerAntwort(delta), NachrichtenFormat.BINAER).length;
+			bytesVollstaendig += NachrichtenRahmen.kodieren(ServerAntwort.erstellenServerAntwort(original), NachrichtenFormat.BINAER).length;
+		}
+		System.out.println(ANZAHL_AKTIONEN + " Deltas angewendet, die Kopie stimmt mit dem Server überein.");
+		System.out.println("  Binär: " + bytesDelta / ANZAHL_AKTIONEN + " Bytes je Delta, "
+				+ bytesVollstaendig / ANZAHL_AKTIONEN + " Bytes je vollständigem SpielZustand");
+		if(bytesDelta * 5 > bytesVollstaendig) {
+			throw new AssertionError("die Deltas sind nicht viel kleiner als der SpielZustand");
+		}
+		
+		// beide Formate übertragen ein Delta
+		for(NachrichtenFormat format : NachrichtenFormat.values()) {
+			SpielZustandDelta delta = aenderungen(server, beobachter, bekannteVersion - 3);
+			ServerAntwort gelesen = (ServerAntwort)NachrichtenRahmen.dekodieren(
+					NachrichtenRahmen.kodieren(ServerAntwort.erstellenServerAntwort(delta), format)
+			);
+			SpielZustandDelta gelesenesDelta = (SpielZustandDelta)gelesen.getInhalt();
+			if(
+					gelesenesDelta.getVersion() != delta.getVersion()
+					|| gelesenesDelta.getGeaenderteFiguren().size() != delta.getGeaenderteFiguren().size()
+					|| !Objects.equals(gelesenesDelta.getAktiverSpielerSchluessel(), delta.getAktiverSpielerSchluessel())
+					|| gelesenesDelta.getTodoAktion() != delta.getTodoAktion()
+					|| gelesenesDelta.getWuerfelErgebnis() != delta.getWuerfelErgebnis()
+			) {
+				throw new AssertionError(format + " hat das Delta verändert: " + delta + " -> " + gelesenesDelta);
+			}
+			System.out.println("  " + format + ": Delta über 3 Versionen übertragen");
+		}
+		
+		// zu alte und unbekannte Versionen
+		long zuAlt = bekannteVersion - RundenLaufMitHerausschlagenServerService.MAX_DELTA_VERSIONEN - 1;
+		for(long version : new long[] {zuAlt, bekannteVersion + 1, SpielZustandDelta.KEINE_VERSION}) {
+			SpielZustandDelta delta = aenderungen(server, beobachter, version);
+			if(!delta.isVollstaendig() || delta.getVersion() != bekannteVersion) {
+				throw new AssertionError("für die Version " + version + " muss der vollständige SpielZustand kommen: " + delta);
+			}
+		}
+		SpielZustandDelta leer = aenderungen(server, beobachter, bekannteVersion);
+		if(leer.isVollstaendig() || !leer.getGeaenderteFiguren().isEmpty()) {
+			throw new AssertionError("ohne Änderungen muss ein leeres Delta kommen: " + leer);
+		}
+		System.out.println("  zu alte und unbekannte Versionen bekommen den vollständigen SpielZustand");
+		
+		server.getBenachrichtigungsVerteiler().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Änderungen des SpielZustands als Delta");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static SpielZustandDelta aenderungen(RundenLaufMitHerausschlagenServer server, long[] spieler, long bekannteVersion) {
+		return (SpielZustandDelta)pruefen(server.verarbeiteClientRequest(
+				ClientRequest.erstellenAenderungenClientRequest(spieler[0], spieler[1], spieler[2], bekannteVersion)
+		).join()).getInhalt();
+	}
+	
+	private static void anwenden(SpielZustand kopie, SpielZustandDelta delta) {
+		for(FigurPosition position : delta.getGeaenderteFiguren()) {
+			Figur figur = kopie.getFigurenMenge()
+					.stream()
+					.filter(f -> f.getSchluessel() == position.getFigurSchluessel())
+					.findFirst()
+					.orElseThrow(() -> new AssertionError("unbekannte Figur: " + position));
+			figur.setSpielFeld(position.getSpielFeld());
+		}
+		AktiverSpielerDekorator aktiverSpieler = kopie.getAktiverSpieler();
+		if(!Objects.equals(aktiverSpieler.getDerSpieler().getSchluessel(), delta.getAktiverSpielerSchluessel())) {
+			Spieler naechster = kopie.getSpielerMenge()
+					.stream()
+					.filter(s -> Objects.equals(s.getSchluessel(), delta.getAktiverSpielerSchluessel()))
+					.findFirst()
+					.get();
+			aktiverSpieler.naechsterAktiverSpieler(naechster);
+		}
+		aktiverSpieler.setTodoAktion(delta.getTodoAktion());
+		aktiverSpieler.setWuerfelErgebnis(delta.getWuerfelErgebnis());
+	}
+	
+	private static void vergleichen(SpielZustand original, SpielZustand kopie, int aktion) {
+		for(Figur figur : original.getFigurenMenge()) {
+			Figur kopierteFigur = kopie.getFigurenMenge()
+					.stream()
+					.filter(f -> Objects.equals(f.getSchluessel(), figur.getSchluessel()))
+					.findFirst()
+					.get();
+			if(!figur.getSpielFeld().equals(kopierteFigur.getSpielFeld())) {
+				throw new AssertionError("Aktion " + aktion + ": die Figur " + figur.getSchluessel() + " steht in der Kopie auf "
+						+ kopierteFigur.getSpielFeld() + " statt auf " + figur.getSpielFeld());
+			}
+		}
+		AktiverSpielerDekorator aktiv = original.getAktiverSpieler();
+		AktiverSpielerDekorator kopierterAktiv = kopie.getAktiverSpieler();
+		if(
+				!Objects.equals(aktiv.getDerSpieler().getSchluessel(), kopierterAktiv.getDerSpieler().getSchluessel())
+				|| aktiv.getAktuelleTodoAktion() != kopierterAktiv.getAktuelleTodoAktion()
+				|| aktiv.getWuerfelErgebnis() != kopierterAktiv.getWuerfelErgebnis()
+		) {
+			throw new AssertionError("Aktion " + aktion + ": der aktive Spieler der Kopie weicht ab");
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Führt die nächste Aktion des aktiven Spielers aus.
+	 * 
+	 * </pre>
+	 */
+	private static void spielen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten) {
+		SpielZustand spielZustand = (SpielZustand)pruefen(server.verarbeiteClientRequest(
+				anfrage(spielerDaten.get(0), ClientRequestInfo.SPIEL_INFO)
+		).join()).getInhalt();
+		AktiverSpielerDekorator aktiverSpieler = spielZustand.getAktiverSpieler();
+		long aktiverSchluessel = aktiverSpieler.getDerSpieler().getSchluessel();
+		long[] spieler = spielerDaten.stream().filter(s -> s[1] == aktiverSchluessel).findFirst().get();
+		
+		ClientRequest aktion = switch(aktiverSpieler.getAktuelleTodoAktion()) {
+		case MUSS_WUERFELN -> anfrage(spieler, ClientRequestInfo.WUERFELN);
+		case MUSS_ZIEHEN -> {
+			@SuppressWarnings("unchecked")
+			List<SpielZug> zuege = (List<SpielZug>)pruefen(server.verarbeiteClientRequest(
+					anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)
+			).join()).getInhalt();
+			yield ClientRequest.erstellenZiehenClientRequest(spieler[0], spieler[1], spieler[2], zuege.get(0).getZugFigur().getSchluessel());
+		}
+		case FERTIG -> anfrage(spieler, ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER);
+		};
+		pruefen(server.verarbeiteClientRequest(aktion).join());
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
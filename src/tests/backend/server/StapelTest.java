@@ -0,0 +1,228 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis.SchrittStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+
+/**
+ * <pre>
+ * 
+ * Testet die STAPEL Requests:
+ * 
+ * - drei Bots spielen über eine Verbindung je Zug einen Stapel
+ *   "würfeln, wenn möglich ziehen, ..., wenn fertig abgeben": fast jeder Zug braucht nur einen Request
+ * - ein fehlgeschlagener Schritt beendet den Stapel, die Schritte danach werden nicht ausgeführt
+ * - ist der Spieler nicht dran, werden die bedingten Schritte übersprungen
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class StapelTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 10_000L;
+	
+	private static final int ANZAHL_ZUEGE = 100;
+	
+	/**
+	 * ein ganzer Zug: wer eine Sechs würfelt, würfelt nach dem Ziehen noch einmal
+	 */
+	private static final List<StapelSchritt> ZUG = erstellenZug();
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: mehrere Aktionen in einem Request");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		
+		try(ServerVerbindung verbindung = new ServerVerbindung("localhost", server.getLokalerPort())) {
+			int anzahlRequests = 0;
+			int anzahlZuege = 0;
+			int anzahlSchritte = 0;
+			long[] spieler = aktiverSpieler(verbindung, spielerDaten);
+			while(anzahlZuege < ANZAHL_ZUEGE) {
+				StapelErgebnis ergebnis = stapel(verbindung, spieler, ZUG);
+				anzahlRequests++;
+				if(!ergebnis.isErfolgreich()) {
+					throw new AssertionError("ein Schritt des Zugs ist fehlgeschlagen: " + ergebnis);
+				}
+				anzahlSchritte += ergebnis.getSchrittErgebnisse().stream().filter(s -> s.getStatus() == SchrittStatus.AUSGEFUEHRT).count();
+				SchrittStatus abgeben = ergebnis.getSchrittErgebnisse().get(ZUG.size() - 1).getStatus();
+				if(abgeben == SchrittStatus.AUSGEFUEHRT) {
+					anzahlZuege++;
+					spieler = aktiverSpieler(verbindung, spielerDaten);
+				}
+			}
+			System.out.println(anzahlZuege + " Züge mit " + anzahlSchritte + " Aktionen in " + anzahlRequests + " Requests gespielt.");
+			if(anzahlRequests > anzahlZuege * 11 / 10) {
+				throw new AssertionError("zu viele Requests je Zug: " + anzahlRequests);
+			}
+			if(anzahlSchritte < anzahlZuege * 2) {
+				throw new AssertionError("ein Zug hat mindestens zwei Aktionen, es waren aber nur " + anzahlSchritte);
+			}
+			
+			// ein fehlgeschlagener Schritt beendet den Stapel
+			StapelErgebnis fehlgeschlagen = stapel(verbindung, spieler, List.of(
+					StapelSchritt.erstellenWuerfelnSchritt(Bedingung.IMMER),
+					StapelSchritt.erstellenWuerfelnSchritt(Bedingung.IMMER),
+					StapelSchritt.erstellenWuerfelnSchritt(Bedingung.IMMER),
+					StapelSchritt.erstellenWuerfelnSchritt(Bedingung.IMMER),
+					StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.IMMER)
+			));
+			List<StapelErgebnis.SchrittErgebnis> schritte = fehlgeschlagen.getSchrittErgebnisse();
+			if(
+					fehlgeschlagen.isErfolgreich()
+					|| schritte.size() >= 5
+					|| schritte.get(schritte.size() - 1).getFehler() == null
+			) {
+				throw new AssertionError("der Stapel hätte beim ersten unerlaubten Würfeln aufhören müssen: " + fehlgeschlagen);
+			}
+			System.out.println("  fehlgeschlagen nach " + schritte.size() + " Schritten: " + schritte.get(schritte.size() - 1).getFehler());
+			
+			// wer nicht dran ist, überspringt die bedingten Schritte
+			long[] wartender = spieler;
+			long[] andererSpieler = spielerDaten.stream().filter(s -> s != wartender).findFirst().get();
+			if(aktiverSpieler(verbindung, spielerDaten) == andererSpieler) {
+				andererSpieler = spielerDaten.stream().filter(s -> s != wartender && s != aktiverSpieler(verbindung, spielerDaten)).findFirst().get();
+			}
+			StapelErgebnis uebersprungen = stapel(verbindung, andererSpieler, ZUG);
+			if(!uebersprungen.getSchrittErgebnisse().stream().allMatch(s -> s.getStatus() == SchrittStatus.UEBERSPRUNGEN)) {
+				throw new AssertionError("der Spieler ist nicht dran, alle Schritte hätten übersprungen werden müssen: " + uebersprungen);
+			}
+			System.out.println("  wer nicht dran ist, überspringt alle bedingten Schritte");
+		}
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: mehrere Aktionen in einem Request");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static List<StapelSchritt> erstellenZug() {
+		List<StapelSchritt> zug = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			zug.add(StapelSchritt.erstellenWuerfelnSchritt(Bedingung.WENN_MUSS_WUERFELN));
+			zug.add(StapelSchritt.erstellenZiehenSchritt(Bedingung.WENN_MUSS_ZIEHEN, null));
+		}
+		zug.add(StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.WENN_FERTIG));
+		return zug;
+	}
+	
+	private static StapelErgebnis stapel(ServerVerbindung verbindung, long[] spieler, List<StapelSchritt> schritte) throws Exception {
+		return (StapelErgebnis)pruefen(verbindung.senden(
+				ClientRequest.erstellenStapelClientRequest(spieler[0], spieler[1], spieler[2], schritte)
+		).get(10, TimeUnit.SECONDS)).getInhalt();
+	}
+	
+	private static long[] aktiverSpieler(ServerVerbindung verbindung, List<long[]> spielerDaten) {
+		SpielZustand spielZustand;
+		try {
+			spielZustand = (SpielZustand)pruefen(verbindung.senden(ClientRequest.erstellenClientRequest(
+					spielerDaten.get(0)[0],
+					spielerDaten.get(0)[1],
+					spielerDaten.get(0)[2],
+					ClientRequestInfo.SPIEL_INFO
+			)).get(10, TimeUnit.SECONDS)).getInhalt();
+		} catch(Exception ausnahme) {
+			throw new AssertionError(ausnahme);
+		}
+		if(spielZustand.getAktiverSpieler().getAktuelleTodoAktion() == null) {
+			throw new AssertionError("der aktive Spieler hat keine Todo-Aktion");
+		}
+		long schluessel = spielZustand.getAktiverSpieler().getDerSpieler().getSchluessel();
+		return spielerDaten.stream().filter(s -> s[1] == schluessel).findFirst().get();
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,335 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.LastBegrenzer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.LastBegrenzer.Grenze;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Testet das Verhalten des Servers unter Überlast, mit beiden Transporten:
+ * 
+ * - die Sitzung A wird angehalten und mit Requests geflutet: nur so viele Requests,
+ *   wie in ihre Warteschlange passen, werden angenommen, der Rest bekommt sofort UEBERLASTET
+ * - die Sitzung B wird währenddessen ganz normal bedient
+ * - eine Verbindung mit zu vielen wartenden WARTE_AUF_ZUG Requests bekommt UEBERLASTET
+ * - ist die Obergrenze des ganzen Servers erreicht, bekommen alle Sitzungen UEBERLASTET
+ * - die Zähler des LastBegrenzers stimmen mit den Antworten überein
+ * - ServerVerbindung.senden() wiederholt abgewiesene Requests, bis sie angenommen werden
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class UeberlastTest {
+	private static final long SITZUNG_A = 10_000L;
+	
+	private static final long SITZUNG_B = 20_000L;
+	
+	private static final int MAX_WARTENDE_AUFTRAEGE = 32;
+	
+	private static final int MAX_AUSSTEHENDE_ANTWORTEN = 16;
+	
+	private static final long WIEDERHOLEN_NACH_MILLIS = 50;
+	
+	/**
+	 * so viele Verbindungen fluten die Sitzung A, jede bleibt unter ihrer eigenen Obergrenze
+	 */
+	private static final int ANZAHL_FLUT_VERBINDUNGEN = 3;
+	
+	private static final int ANZAHL_FLUT_REQUESTS_JE_VERBINDUNG = 12;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Requests unter Überlast");
+		System.out.println("*".repeat(60) + "\n");
+		
+		for(TransportArt transportArt : TransportArt.values()) {
+			testenSitzungUndVerbindung(transportArt);
+		}
+		testenServer();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Requests unter Überlast");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenSitzungUndVerbindung(TransportArt transportArt) throws Exception {
+		RundenLaufMitHerausschlagenServer server = erstellenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setTransportArt(transportArt)
+						.setMaxWartendeAuftraegeJeSitzung(MAX_WARTENDE_AUFTRAEGE)
+						.setMaxAusstehendeAntwortenJeVerbindung(MAX_AUSSTEHENDE_ANTWORTEN)
+		);
+		List<long[]> spielerA = hinzufuegenSpielSitzung(server, SITZUNG_A);
+		List<long[]> spielerB = hinzufuegenSpielSitzung(server, SITZUNG_B);
+		LastBegrenzer lastBegrenzer = server.getLastBegrenzer();
+		
+		List<ServerVerbindung> fluten = new ArrayList<>();
+		try(ServerVerbindung andere = new ServerVerbindung("localhost", server.getLokalerPort())) {
+			for(int i = 0; i < ANZAHL_FLUT_VERBINDUNGEN; i++) {
+				fluten.add(new ServerVerbindung("localhost", server.getLokalerPort()));
+			}
+			
+			// die Sitzung A flutet ihre eigene Warteschlange, die Sitzung B läuft weiter
+			CountDownLatch freigabe = anhalten(server.getSpielSitzung(SITZUNG_A));
+			List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+			for(ServerVerbindung flut : fluten) {
+				for(int i = 0; i < ANZAHL_FLUT_REQUESTS_JE_VERBINDUNG; i++) {
+					antworten.add(flut.sendenOhneWiederholen(spielInfo(spielerA.get(0))));
+				}
+			}
+			int anzahlUeberlastet = antworten.size() - MAX_WARTENDE_AUFTRAEGE;
+			long ende = System.currentTimeMillis() + 10_000;
+			while(
+					lastBegrenzer.getAnzahlAbgewiesen(Grenze.SITZUNG) + server.getWarteschlangenTiefen().getOrDefault(SITZUNG_A, 0) < antworten.size()
+					&& System.currentTimeMillis() < ende
+			) {
+				Thread.sleep(10);
+			}
+			int tiefe = server.getWarteschlangenTiefen().getOrDefault(SITZUNG_A, 0);
+			if(tiefe != MAX_WARTENDE_AUFTRAEGE || lastBegrenzer.getAnzahlAbgewiesen(Grenze.SITZUNG) != anzahlUeberlastet) {
+				throw new AssertionError("in der Sitzung A sollten " + MAX_WARTENDE_AUFTRAEGE + " Aufträge warten, es sind " + tiefe + ": " + lastBegrenzer);
+			}
+			
+			long start = System.nanoTime();
+			ServerAntwort antwortB = andere.senden(spielInfo(spielerB.get(0))).get(10, TimeUnit.SECONDS);
+			long millisB = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			if(antwortB.getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("die Sitzung B hätte normal antworten müssen: " + antwortB);
+			}
+			
+			freigabe.countDown();
+			int anzahlOk = 0;
+			for(CompletableFuture<ServerAntwort> antwort : antworten) {
+				ServerAntwort fertig = antwort.get(10, TimeUnit.SECONDS);
+				if(fertig.getStatus() == ServerAntwortStatus.OK) {
+					anzahlOk++;
+				} else {
+					pruefenUeberlastet(fertig);
+				}
+			}
+			if(anzahlOk != MAX_WARTENDE_AUFTRAEGE) {
+				throw new AssertionError("alle angenommenen Requests hätten ausgeführt werden müssen: " + anzahlOk);
+			}
+			System.out.println(transportArt + ": " + anzahlOk + " angenommen, " + anzahlUeberlastet
+					+ " abgewiesen, die Sitzung B hat währenddessen nach " + millisB + " ms geantwortet");
+			
+			// eine Verbindung mit zu vielen wartenden Requests wird abgewiesen, auch wenn die Sitzung Platz hätte
+			long[] wartender = nichtAktiverSpieler(andere, spielerB);
+			List<CompletableFuture<ServerAntwort>> warten = new ArrayList<>();
+			for(int i = 0; i < MAX_AUSSTEHENDE_ANTWORTEN + 4; i++) {
+				warten.add(fluten.get(0).sendenOhneWiederholen(ClientRequest.erstellenWarteAufZugClientRequest(wartender[0], wartender[1], wartender[2], 1_000)));
+			}
+			for(int i = MAX_AUSSTEHENDE_ANTWORTEN; i < warten.size(); i++) {
+				pruefenUeberlastet(warten.get(i).get(10, TimeUnit.SECONDS));
+			}
+			for(int i = 0; i < MAX_AUSSTEHENDE_ANTWORTEN; i++) {
+				ServerAntwort antwort = warten.get(i).get(10, TimeUnit.SECONDS);
+				if(antwort.getStatus() != ServerAntwortStatus.OK || antwort.getInhalt() != WarteErgebnis.ZEIT_ABGELAUFEN) {
+					throw new AssertionError("ein wartender Request hätte nach seiner Wartezeit antworten müssen: " + antwort);
+				}
+			}
+			if(lastBegrenzer.getAnzahlAbgewiesen(Grenze.VERBINDUNG) != 4) {
+				throw new AssertionError("falsche Anzahl abgewiesener Requests: " + lastBegrenzer);
+			}
+			if(lastBegrenzer.getAnzahlInArbeit() != 0) {
+				throw new AssertionError("nach dem Test sollte nichts mehr in Arbeit sein: " + lastBegrenzer);
+			}
+			System.out.println(transportArt + ": " + lastBegrenzer);
+		} finally {
+			for(ServerVerbindung flut : fluten) {
+				flut.close();
+			}
+			server.beenden();
+			server.getBenachrichtigungsVerteiler().beenden();
+		}
+	}
+	
+	private static void testenServer() throws Exception {
+		int maxGleichzeitigeRequests = 4;
+		RundenLaufMitHerausschlagenServer server = erstellenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setMaxGleichzeitigeRequests(maxGleichzeitigeRequests)
+		);
+		List<long[]> spielerA = hinzufuegenSpielSitzung(server, SITZUNG_A);
+		List<long[]> spielerB = hinzufuegenSpielSitzung(server, SITZUNG_B);
+		LastBegrenzer lastBegrenzer = server.getLastBegrenzer();
+		
+		try(ServerVerbindung verbindung = new ServerVerbindung("localhost", server.getLokalerPort())) {
+			CountDownLatch freigabe = anhalten(server.getSpielSitzung(SITZUNG_A));
+			List<CompletableFuture<ServerAntwort>> antworten = new ArrayList<>();
+			for(int i = 0; i < maxGleichzeitigeRequests; i++) {
+				antworten.add(verbindung.sendenOhneWiederholen(spielInfo(spielerA.get(0))));
+			}
+			// der Server ist voll: auch die Sitzung B wird abgewiesen
+			pruefenUeberlastet(verbindung.sendenOhneWiederholen(spielInfo(spielerB.get(0))).get(10, TimeUnit.SECONDS));
+			if(lastBegrenzer.getAnzahlInArbeit() != maxGleichzeitigeRequests) {
+				throw new AssertionError("der Server sollte voll sein: " + lastBegrenzer);
+			}
+			// senden() versucht es weiter, bis der Server wieder Platz hat
+			CompletableFuture<ServerAntwort> wiederholt = verbindung.senden(spielInfo(spielerB.get(0)));
+			Thread.sleep(3 * WIEDERHOLEN_NACH_MILLIS);
+			if(wiederholt.isDone()) {
+				throw new AssertionError("der wiederholte Request hätte noch nicht beantwortet sein dürfen: " + wiederholt.join());
+			}
+			
+			freigabe.countDown();
+			if(wiederholt.get(10, TimeUnit.SECONDS).getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("der wiederholte Request hätte angenommen werden müssen: " + wiederholt.join());
+			}
+			for(CompletableFuture<ServerAntwort> antwort : antworten) {
+				if(antwort.get(10, TimeUnit.SECONDS).getStatus() != ServerAntwortStatus.OK) {
+					throw new AssertionError("ein angenommener Request hätte ausgeführt werden müssen: " + antwort.join());
+				}
+			}
+			ServerAntwort antwortB = verbindung.sendenOhneWiederholen(spielInfo(spielerB.get(0))).get(10, TimeUnit.SECONDS);
+			if(antwortB.getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("nach der Überlast hätte die Sitzung B normal antworten müssen: " + antwortB);
+			}
+			if(lastBegrenzer.getAnzahlAbgewiesen(Grenze.SERVER) < 3 || lastBegrenzer.getAnzahlInArbeit() != 0) {
+				throw new AssertionError("falsche Anzahl abgewiesener Requests: " + lastBegrenzer);
+			}
+			System.out.println("Server: " + lastBegrenzer);
+		} finally {
+			server.beenden();
+			server.getBenachrichtigungsVerteiler().beenden();
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Hält die Sitzung an, bis der zurückgegebene Latch freigegeben wird.
+	 * Kehrt erst zurück, wenn der Auftrag läuft und die Warteschlange der Sitzung wieder leer ist.
+	 * 
+	 * </pre>
+	 */
+	private static CountDownLatch anhalten(ServerSpielSitzung sitzung) throws InterruptedException {
+		CountDownLatch gestartet = new CountDownLatch(1);
+		CountDownLatch freigabe = new CountDownLatch(1);
+		sitzung.ausfuehren(() -> {
+			gestartet.countDown();
+			try {
+				freigabe.await();
+			} catch(InterruptedException ausnahme) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		if(!gestartet.await(10, TimeUnit.SECONDS)) {
+			throw new AssertionError("die Sitzung hat nicht angehalten");
+		}
+		return freigabe;
+	}
+	
+	private static void pruefenUeberlastet(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.UEBERLASTET || antwort.getWiederholenNachMillis() != WIEDERHOLEN_NACH_MILLIS) {
+			throw new AssertionError("der Request hätte abgewiesen werden müssen: " + antwort);
+		}
+	}
+	
+	private static long[] nichtAktiverSpieler(ServerVerbindung verbindung, List<long[]> spielerDaten) throws Exception {
+		ServerAntwort antwort = verbindung.sendenOhneWiederholen(spielInfo(spielerDaten.get(0))).get(10, TimeUnit.SECONDS);
+		long aktiv = ((SpielZustand)antwort.getInhalt()).getAktiverSpieler().getDerSpieler().getSchluessel();
+		return spielerDaten.stream().filter(s -> s[1] != aktiv).findFirst().get();
+	}
+	
+	private static ClientRequest spielInfo(long[] spieler) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], ClientRequestInfo.SPIEL_INFO);
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(ServerEinstellungen einstellungen) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				einstellungen
+						.setServerPort(0)
+						// die angehaltene Sitzung A belegt einen Thread, die Sitzung B braucht einen zweiten
+						.setAnzahlSitzungsThreads(2)
+						.setWiederholenNachMillis(WIEDERHOLEN_NACH_MILLIS),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		return server;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server, long spielZustandSchluessel) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(spielZustandSchluessel);
+		
+		long schluessel = spielZustandSchluessel + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,268 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.RundenLaufMitHerausschlagenDaoMitServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+
+/**
+ * <pre>
+ * 
+ * Testet den Unix Domain Socket des NIO Transports und vergleicht ihn mit TCP über localhost:
+ * 
+ * - Requests und der Dao mit Server funktionieren über "unix:" und den Pfad
+ * - Latenz: nacheinander geschickte Requests, je Request der Median der Antwortzeit
+ * - Durchsatz: viele Requests gleichzeitig auf einer Verbindung
+ * - ohne NIO wird ein Unix Domain Socket abgelehnt, nach dem Beenden ist die Datei gelöscht
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class UnixSocketTransportTest {
+	private static final int ANZAHL_AUFWAERMEN = 2_000;
+	
+	private static final int ANZAHL_LATENZ_REQUESTS = 10_000;
+	
+	private static final int ANZAHL_DURCHSATZ_REQUESTS = 100_000;
+	
+	/**
+	 * deutlich unter der Obergrenze der Requests, die eine Verbindung gleichzeitig in Arbeit haben darf
+	 */
+	private static final int MAX_GLEICHZEITIG = 64;
+	
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 19_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Unix Domain Socket Transport");
+		System.out.println("*".repeat(60) + "\n");
+		
+		Path verzeichnis = Files.createTempDirectory("runden-lauf");
+		Path pfad = verzeichnis.resolve("spiel-server.sock");
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(TransportArt.NIO)
+						.setUnixSocketPfad(pfad),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		long[] spieler = hinzufuegenSpielSitzung(server);
+		String unixHost = ServerVerbindung.UNIX_SOCKET_PRAEFIX + pfad;
+		
+		testenFunktion(unixHost, spieler);
+		try(
+				ServerVerbindung tcp = new ServerVerbindung("localhost", server.getLokalerPort(), NachrichtenFormat.BINAER, 0);
+				ServerVerbindung unix = new ServerVerbindung(unixHost, 0, NachrichtenFormat.BINAER, 0)
+		) {
+			ClientRequest anfrage = ClientRequest.erstellenAenderungenClientRequest(spieler[0], spieler[1], spieler[2], Long.MAX_VALUE);
+			messenLatenz(tcp, anfrage, ANZAHL_AUFWAERMEN);
+			messenLatenz(unix, anfrage, ANZAHL_AUFWAERMEN);
+			messenDurchsatz(tcp, anfrage, ANZAHL_AUFWAERMEN);
+			messenDurchsatz(unix, anfrage, ANZAHL_AUFWAERMEN);
+			
+			long tcpMedian = messenLatenz(tcp, anfrage, ANZAHL_LATENZ_REQUESTS);
+			long unixMedian = messenLatenz(unix, anfrage, ANZAHL_LATENZ_REQUESTS);
+			System.out.println(
+					"Latenz (Median je Request): TCP " + tcpMedian / 1_000 + " µs, Unix Domain Socket " + unixMedian / 1_000
+					+ " µs (" + String.format("%.2f", (double)tcpMedian / unixMedian) + "x)"
+			);
+			
+			double tcpDurchsatz = messenDurchsatz(tcp, anfrage, ANZAHL_DURCHSATZ_REQUESTS);
+			double unixDurchsatz = messenDurchsatz(unix, anfrage, ANZAHL_DURCHSATZ_REQUESTS);
+			System.out.println(
+					"Durchsatz (" + MAX_GLEICHZEITIG + " Requests gleichzeitig): TCP " + (long)tcpDurchsatz
+					+ " Requests/s, Unix Domain Socket " + (long)unixDurchsatz + " Requests/s ("
+					+ String.format("%.2f", unixDurchsatz / tcpDurchsatz) + "x)"
+			);
+		}
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+		if(Files.exists(pfad)) {
+			throw new AssertionError("nach dem Beenden muss die Datei des Unix Domain Sockets gelöscht sein");
+		}
+		testenOhneNio(pfad);
+		Files.deleteIfExists(verzeichnis);
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Unix Domain Socket Transport");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenFunktion(String unixHost, long[] spieler) throws Exception {
+		try(ServerVerbindung unix = new ServerVerbindung(unixHost, 0)) {
+			ServerAntwort antwort = unix.senden(
+					ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], ClientRequestInfo.SPIEL_INFO)
+			).get(5, TimeUnit.SECONDS);
+			if(antwort.getStatus() != ServerAntwortStatus.OK || !(antwort.getInhalt() instanceof SpielZustand)) {
+				throw new AssertionError("SPIEL_INFO über den Unix Domain Socket ist fehlgeschlagen: " + antwort);
+			}
+		}
+		try(RundenLaufMitHerausschlagenDaoMitServer dao = new RundenLaufMitHerausschlagenDaoMitServer(unixHost, 0, spieler[1], spieler[2])) {
+			if(dao.getEigenerSpielZustandSchluesselAsynchron().get(5, TimeUnit.SECONDS) != SPIEL_ZUSTAND_SCHLUESSEL
+					|| dao.getFigurenMenge().isEmpty()) {
+				throw new AssertionError("der Dao mit Server liest über den Unix Domain Socket falsch");
+			}
+		}
+		System.out.println("SPIEL_INFO und Dao mit Server über " + unixHost);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return der Median der Antwortzeit in Nanosekunden
+	 * 
+	 * </pre>
+	 */
+	private static long messenLatenz(ServerVerbindung verbindung, ClientRequest anfrage, int anzahl) throws Exception {
+		long[] nanos = new long[anzahl];
+		for(int i = 0; i < anzahl; i++) {
+			long start = System.nanoTime();
+			pruefen(verbindung.senden(anfrage).get(5, TimeUnit.SECONDS));
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos[anzahl / 2];
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return die beantworteten Requests je Sekunde
+	 * 
+	 * </pre>
+	 */
+	private static double messenDurchsatz(ServerVerbindung verbindung, ClientRequest anfrage, int anzahl) throws Exception {
+		ArrayDeque<CompletableFuture<ServerAntwort>> unterwegs = new ArrayDeque<>();
+		long start = System.nanoTime();
+		for(int i = 0; i < anzahl; i++) {
+			if(unterwegs.size() >= MAX_GLEICHZEITIG) {
+				pruefen(unterwegs.poll().get(5, TimeUnit.SECONDS));
+			}
+			unterwegs.add(verbindung.senden(anfrage));
+		}
+		while(!unterwegs.isEmpty()) {
+			pruefen(unterwegs.poll().get(5, TimeUnit.SECONDS));
+		}
+		return anzahl * 1e9 / (System.nanoTime() - start);
+	}
+	
+	private static void testenOhneNio(Path pfad) {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(TransportArt.BLOCKIEREND)
+						.setUnixSocketPfad(pfad),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		try {
+			server.starten();
+			throw new AssertionError("der blockierende Transport darf keinen Unix Domain Socket annehmen");
+		} catch(IllegalStateException ausnahme) {
+			System.out.println("ohne NIO abgelehnt: " + ausnahme.getMessage());
+		} catch(Exception ausnahme) {
+			throw new AssertionError("falsche Ausnahme", ausnahme);
+		} finally {
+			server.getBenachrichtigungsVerteiler().beenden();
+			server.getZuschauerVerteiler().beenden();
+			server.getZeitRad().beenden();
+		}
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK || !(antwort.getInhalt() instanceof SpielZustandDelta)) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static long[] hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		long[] ersterSpieler = null;
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				if(ersterSpieler == null) {
+					ersterSpieler = new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis};
+				}
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return ersterSpieler;
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.SerielleAusfuehrung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+
+/**
+ * <pre>
+ * 
+ * Testet den Vorrang des Spielers, der gerade dran ist:
+ * 
+ * - die SerielleAusfuehrung führt Aufträge mit Vorrang vor allen wartenden Aufträgen ohne Vorrang aus,
+ *   innerhalb jeder Warteschlange in Eingangsreihenfolge, und begrenzt jede Warteschlange für sich
+ * - das WUERFELN des aktiven Spielers überholt viele wartende SPIEL_INFO Requests der anderen Spieler
+ * - die Requests eines Spielers, der nicht dran ist, bekommen keinen Vorrang
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class VorrangTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 22_000L;
+	
+	private static final int ANZAHL_LESENDE_REQUESTS = 200;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Vorrang des aktiven Spielers");
+		System.out.println("*".repeat(60) + "\n");
+		
+		testenSerielleAusfuehrung();
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long[] aktiver = getAktiverSpieler(sitzung, spielerDaten);
+		long[] wartender = spielerDaten.stream().filter(spieler -> spieler != aktiver).findFirst().orElseThrow();
+		testenAktiverSpielerUeberholt(server, sitzung, aktiver, wartender);
+		testenWartenderSpielerOhneVorrang(server, sitzung, wartender);
+		
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Vorrang des aktiven Spielers");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenSerielleAusfuehrung() {
+		// der Pool führt erst aus, wenn der Test es will
+		List<Runnable> pool = new ArrayList<>();
+		SerielleAusfuehrung ausfuehrung = new SerielleAusfuehrung(pool::add, 2);
+		List<String> reihenfolge = new ArrayList<>();
+		
+		ausfuehrung.execute(() -> reihenfolge.add("normal 1"));
+		ausfuehrung.execute(() -> reihenfolge.add("normal 2"));
+		try {
+			ausfuehrung.execute(() -> reihenfolge.add("normal 3"));
+			throw new AssertionError("die normale Warteschlange muss voll sein");
+		} catch(RejectedExecutionException ausnahme) {
+			// erwartet
+		}
+		// die volle normale Warteschlange lehnt keinen Auftrag mit Vorrang ab
+		ausfuehrung.executeMitVorrang(() -> reihenfolge.add("vorrang 1"));
+		ausfuehrung.getVorrangAusfuehrer().execute(() -> reihenfolge.add("vorrang 2"));
+		try {
+			ausfuehrung.executeMitVorrang(() -> reihenfolge.add("vorrang 3"));
+			throw new AssertionError("die Vorrang-Warteschlange muss voll sein");
+		} catch(RejectedExecutionException ausnahme) {
+			// erwartet
+		}
+		if(ausfuehrung.getAnzahlWartenderAuftraege() != 4 || ausfuehrung.getAnzahlWartenderVorrangAuftraege() != 2) {
+			throw new AssertionError(
+					"falsche Anzahl wartender Aufträge: " + ausfuehrung.getAnzahlWartenderAuftraege()
+					+ ", davon mit Vorrang " + ausfuehrung.getAnzahlWartenderVorrangAuftraege()
+			);
+		}
+		
+		while(!pool.isEmpty()) {
+			pool.remove(0).run();
+		}
+		if(!reihenfolge.equals(List.of("vorrang 1", "vorrang 2", "normal 1", "normal 2"))) {
+			throw new AssertionError("falsche Reihenfolge: " + reihenfolge);
+		}
+		if(ausfuehrung.getAnzahlWartenderAuftraege() != 0 || ausfuehrung.getAnzahlAbgelehnterAuftraege() != 2) {
+			throw new AssertionError("nach dem Ausführen darf nichts mehr warten und 2 Aufträge müssen abgelehnt sein");
+		}
+		System.out.println("SerielleAusfuehrung: " + reihenfolge + ", je Warteschlange 2 Aufträge");
+		
+		// ein Pool, der ablehnt, darf die Ausführung nicht für immer als eingeplant zurücklassen
+		List<Runnable> wiederGeoeffnet = new ArrayList<>();
+		AtomicInteger ablehnen = new AtomicInteger(1);
+		SerielleAusfuehrung nachAblehnung = new SerielleAusfuehrung(befehl -> {
+			if(ablehnen.getAndDecrement() > 0) {
+				throw new RejectedExecutionException("der Pool ist beendet");
+			}
+			wiederGeoeffnet.add(befehl);
+		}, 2);
+		List<String> nachAblehnungAusgefuehrt = new ArrayList<>();
+		try {
+			nachAblehnung.execute(() -> nachAblehnungAusgefuehrt.add("abgelehnt"));
+			throw new AssertionError("die Ablehnung des Pools muss beim Aufrufer ankommen");
+		} catch(RejectedExecutionException ausnahme) {
+			// erwartet
+		}
+		if(nachAblehnung.getAnzahlWartenderAuftraege() != 0) {
+			throw new AssertionError("ein abgelehnter Auftrag darf nicht warten");
+		}
+		nachAblehnung.execute(() -> nachAblehnungAusgefuehrt.add("danach"));
+		while(!wiederGeoeffnet.isEmpty()) {
+			wiederGeoeffnet.remove(0).run();
+		}
+		if(!nachAblehnungAusgefuehrt.equals(List.of("danach"))) {
+			throw new AssertionError("nach einer Ablehnung des Pools muss wieder eingeplant werden: " + nachAblehnungAusgefuehrt);
+		}
+		System.out.println("SerielleAusfuehrung: nach einer Ablehnung des Pools wird wieder eingeplant");
+	}
+	
+	private static void testenAktiverSpielerUeberholt(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			long[] aktiver,
+			long[] wartender
+	) throws Exception {
+		if(!sitzung.isAktiverSpieler(getSpieler(sitzung, aktiver)) || sitzung.isAktiverSpieler(getSpieler(sitzung, wartender))) {
+			throw new AssertionError("die Sitzung kennt den aktiven Spieler nicht");
+		}
+		
+		// die Sitzung hängt, bis alle Requests eingereiht sind
+		CountDownLatch freigabe = new CountDownLatch(1);
+		sitzung.ausfuehren(() -> {
+			try {
+				freigabe.await(5, TimeUnit.SECONDS);
+			} catch(InterruptedException ausnahme) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		
+		// die Antworten werden auf dem Thread der Sitzung fertig, in der Reihenfolge der Ausführung
+		AtomicInteger beantworteteLesende = new AtomicInteger();
+		List<CompletableFuture<ServerAntwort>> lesende = new ArrayList<>();
+		for(int i = 0; i < ANZAHL_LESENDE_REQUESTS; i++) {
+			CompletableFuture<ServerAntwort> antwort = server.verarbeiteClientRequest(
+					ClientRequest.erstellenClientRequest(wartender[0], wartender[1], wartender[2], ClientRequestInfo.SPIEL_INFO)
+			);
+			antwort.thenRun(beantworteteLesende::incrementAndGet);
+			lesende.add(antwort);
+		}
+		long start = System.nanoTime();
+		CompletableFuture<Integer> lesendeVorWuerfeln = server.verarbeiteClientRequest(
+				ClientRequest.erstellenClientRequest(aktiver[0], aktiver[1], aktiver[2], ClientRequestInfo.WUERFELN)
+		).thenApply(antwort -> {
+			if(antwort.getStatus() != ServerAntwortStatus.OK || !(antwort.getInhalt() instanceof WuerfelErgebnis)) {
+				throw new AssertionError("das Würfeln ist fehlgeschlagen: " + antwort);
+			}
+			return beantworteteLesende.get();
+		});
+		freigabe.countDown();
+		
+		int vorher = lesendeVorWuerfeln.get(5, TimeUnit.SECONDS);
+		long wuerfelnMikros = (System.nanoTime() - start) / 1_000;
+		CompletableFuture.allOf(lesende.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		long alleMikros = (System.nanoTime() - start) / 1_000;
+		if(vorher != 0) {
+			throw new AssertionError("das Würfeln muss vor den wartenden SPIEL_INFO Requests laufen, vorher beantwortet: " + vorher);
+		}
+		for(CompletableFuture<ServerAntwort> antwort : lesende) {
+			if(antwort.join().getStatus() != ServerAntwortStatus.OK) {
+				throw new AssertionError("ein SPIEL_INFO Request ist fehlgeschlagen: " + antwort.join());
+			}
+		}
+		System.out.println(
+				"WUERFELN hinter " + ANZAHL_LESENDE_REQUESTS + " wartenden SPIEL_INFO: beantwortet nach "
+				+ wuerfelnMikros + " µs, alle SPIEL_INFO nach " + alleMikros + " µs"
+		);
+	}
+	
+	private static void testenWartenderSpielerOhneVorrang(
+			RundenLaufMitHerausschlagenServer server,
+			ServerSpielSitzung sitzung,
+			long[] wartender
+	) throws Exception {
+		CountDownLatch freigabe = new CountDownLatch(1);
+		sitzung.ausfuehren(() -> {
+			try {
+				freigabe.await(5, TimeUnit.SECONDS);
+			} catch(InterruptedException ausnahme) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		AtomicInteger reihenfolge = new AtomicInteger();
+		CompletableFuture<Integer> normal = sitzung.ausfuehren(reihenfolge::incrementAndGet);
+		CompletableFuture<Integer> wartenderSpieler = server.verarbeiteClientRequest(
+				ClientRequest.erstellenClientRequest(wartender[0], wartender[1], wartender[2], ClientRequestInfo.SPIEL_INFO)
+		).thenApply(antwort -> reihenfolge.incrementAndGet());
+		freigabe.countDown();
+		
+		if(normal.get(5, TimeUnit.SECONDS) != 1 || wartenderSpieler.get(5, TimeUnit.SECONDS) != 2) {
+			throw new AssertionError("ein Spieler, der nicht dran ist, darf keinen Vorrang haben");
+		}
+		System.out.println("SPIEL_INFO eines Spielers, der nicht dran ist: in Eingangsreihenfolge");
+	}
+	
+	private static Spieler getSpieler(ServerSpielSitzung sitzung, long[] spielerDaten) throws Exception {
+		return sitzung.ausfuehren(() -> sitzung.getSpiel().getSpielZustand().getSpielerMenge()
+				.stream()
+				.filter(spieler -> Long.valueOf(spielerDaten[1]).equals(spieler.getSchluessel()))
+				.findFirst()
+				.orElseThrow()
+		).get(5, TimeUnit.SECONDS);
+	}
+	
+	private static long[] getAktiverSpieler(ServerSpielSitzung sitzung, List<long[]> spielerDaten) throws Exception {
+		long schluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).get(5, TimeUnit.SECONDS);
+		return spielerDaten.stream().filter(spieler -> spieler[1] == schluessel).findFirst().orElseThrow();
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je registriertem Spieler der Schlüssel des SpielZustands, der Schlüssel des Spielers und sein Geheimnis
+	 * 
+	 * </pre>
+	 */
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,270 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Testet die WARTE_AUF_ZUG Requests:
+ * 
+ * - drei Clients spielen über eigene Verbindungen, jeder wartet auf dem Server auf seinen Zug
+ *   statt den SpielZustand abzufragen: jeder Zug braucht genau einen WARTE_AUF_ZUG Request
+ * - ohne Änderung antwortet der Server nach der Wartezeit mit ZEIT_ABGELAUFEN
+ *   und vergisst den wartenden Client
+ * - in einem fertigen Spiel antwortet der Server sofort mit SPIEL_FERTIG
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class WarteAufZugTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 9_000L;
+	
+	private static final long FERTIGES_SPIEL_SCHLUESSEL = 9_500L;
+	
+	private static final int ANZAHL_ZUEGE = 150;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: auf den eigenen Zug warten");
+		System.out.println("*".repeat(60) + "\n");
+		
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen().setServerPort(0),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server, SPIEL_ZUSTAND_SCHLUESSEL, InitialeFigurPlatzierung.START_FELDER);
+		
+		// jeder Client spielt auf seinem eigenen Thread und wartet zwischen seinen Zügen auf dem Server
+		AtomicInteger anzahlZuege = new AtomicInteger();
+		AtomicInteger anzahlWarteRequests = new AtomicInteger();
+		AtomicInteger anzahlAbgelaufen = new AtomicInteger();
+		AtomicBoolean fertig = new AtomicBoolean();
+		List<Throwable> fehler = new ArrayList<>();
+		List<Thread> clients = new ArrayList<>();
+		long start = System.nanoTime();
+		for(long[] spieler : spielerDaten) {
+			Thread client = new Thread(() -> {
+				try(ServerVerbindung verbindung = new ServerVerbindung("localhost", server.getLokalerPort())) {
+					while(!fertig.get()) {
+						anzahlWarteRequests.incrementAndGet();
+						WarteErgebnis ergebnis = (WarteErgebnis)pruefen(verbindung.senden(
+								ClientRequest.erstellenWarteAufZugClientRequest(spieler[0], spieler[1], spieler[2], 2_000)
+						).get(10, TimeUnit.SECONDS)).getInhalt();
+						if(ergebnis == WarteErgebnis.ZEIT_ABGELAUFEN) {
+							if(!fertig.get()) {
+								anzahlAbgelaufen.incrementAndGet();
+							}
+							continue;
+						}
+						if(ergebnis == WarteErgebnis.SPIEL_FERTIG) {
+							// mit Glück beim Würfeln ist das Spiel vor ANZAHL_ZUEGE Zügen zu Ende
+							fertig.set(true);
+							break;
+						}
+						if(ergebnis != WarteErgebnis.DRAN) {
+							throw new AssertionError("unerwartetes Warte-Ergebnis: " + ergebnis);
+						}
+						spielenZug(verbindung, spieler);
+						if(anzahlZuege.incrementAndGet() >= ANZAHL_ZUEGE) {
+							fertig.set(true);
+						}
+					}
+				} catch(Throwable ausnahme) {
+					synchronized(fehler) {
+						fehler.add(ausnahme);
+					}
+					fertig.set(true);
+				}
+			});
+			clients.add(client);
+			client.start();
+		}
+		for(Thread client : clients) {
+			client.join();
+		}
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		if(!fehler.isEmpty()) {
+			throw new AssertionError("ein Client ist fehlgeschlagen", fehler.get(0));
+		}
+		System.out.println(anzahlZuege.get() + " Züge mit " + anzahlWarteRequests.get() + " WARTE_AUF_ZUG Requests in " + millis + " ms gespielt.");
+		if(anzahlAbgelaufen.get() != 0) {
+			throw new AssertionError(anzahlAbgelaufen.get() + " Clients wurden nicht geweckt, als sie dran waren");
+		}
+		// je Zug ein Request, dazu je Client der letzte, der nach dem Ende nicht mehr geweckt wird
+		if(anzahlWarteRequests.get() > anzahlZuege.get() + spielerDaten.size()) {
+			throw new AssertionError("die Clients haben öfter gewartet als gezogen");
+		}
+		
+		// ohne Änderung läuft die Wartezeit ab
+		long[] wartender = spielerDaten.stream()
+				.filter(spieler -> spieler[1] != aktiverSpielerSchluessel(server, spielerDaten.get(0)))
+				.findFirst()
+				.get();
+		long warteStart = System.nanoTime();
+		ServerAntwort abgelaufen = server.verarbeiteClientRequest(
+				ClientRequest.erstellenWarteAufZugClientRequest(wartender[0], wartender[1], wartender[2], 200)
+		).get(5, TimeUnit.SECONDS);
+		long warteMillis = (System.nanoTime() - warteStart) / 1_000_000;
+		if(pruefen(abgelaufen).getInhalt() != WarteErgebnis.ZEIT_ABGELAUFEN || warteMillis < 190) {
+			throw new AssertionError("die Wartezeit ist nicht abgelaufen: " + abgelaufen + " nach " + warteMillis + " ms");
+		}
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		int anzahlWartende = sitzung.ausfuehren(sitzung::getAnzahlWartende).join();
+		if(anzahlWartende != 0) {
+			throw new AssertionError("die Sitzung hat noch " + anzahlWartende + " wartende Clients");
+		}
+		System.out.println("  ohne Änderung: ZEIT_ABGELAUFEN nach " + warteMillis + " ms");
+		
+		// in einem fertigen Spiel kommt niemand mehr dran
+		long[] fertigerSpieler = hinzufuegenSpielSitzung(server, FERTIGES_SPIEL_SCHLUESSEL, InitialeFigurPlatzierung.ZIEL_FELDER).get(0);
+		ServerAntwort spielFertig = server.verarbeiteClientRequest(
+				ClientRequest.erstellenWarteAufZugClientRequest(fertigerSpieler[0], fertigerSpieler[1], fertigerSpieler[2], 5_000)
+		).get(1, TimeUnit.SECONDS);
+		if(pruefen(spielFertig).getInhalt() != WarteErgebnis.SPIEL_FERTIG) {
+			throw new AssertionError("im fertigen Spiel muss sofort SPIEL_FERTIG kommen: " + spielFertig);
+		}
+		System.out.println("  fertiges Spiel: sofort SPIEL_FERTIG");
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: auf den eigenen Zug warten");
+		System.out.println("*".repeat(60));
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Spielt den Zug des Spielers, bis er fertig ist, und gibt an den nächsten Spieler ab.
+	 * 
+	 * </pre>
+	 */
+	private static void spielenZug(ServerVerbindung verbindung, long[] spieler) throws Exception {
+		while(true) {
+			SpielZustand spielZustand = (SpielZustand)pruefen(verbindung.senden(
+					anfrage(spieler, ClientRequestInfo.SPIEL_INFO)
+			).get(10, TimeUnit.SECONDS)).getInhalt();
+			ClientRequest aktion = switch(spielZustand.getAktiverSpieler().getAktuelleTodoAktion()) {
+			case MUSS_WUERFELN -> anfrage(spieler, ClientRequestInfo.WUERFELN);
+			case MUSS_ZIEHEN -> {
+				@SuppressWarnings("unchecked")
+				List<SpielZug> zuege = (List<SpielZug>)pruefen(verbindung.senden(
+						anfrage(spieler, ClientRequestInfo.MOEGLICHE_ZUEGE_INFO)
+				).get(10, TimeUnit.SECONDS)).getInhalt();
+				yield ClientRequest.erstellenZiehenClientRequest(spieler[0], spieler[1], spieler[2], zuege.get(0).getZugFigur().getSchluessel());
+			}
+			case FERTIG -> anfrage(spieler, ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER);
+			};
+			pruefen(verbindung.senden(aktion).get(10, TimeUnit.SECONDS));
+			if(aktion.getInfo() == ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER) {
+				return;
+			}
+		}
+	}
+	
+	private static long aktiverSpielerSchluessel(RundenLaufMitHerausschlagenServer server, long[] spieler) {
+		SpielZustand spielZustand = (SpielZustand)pruefen(server.verarbeiteClientRequest(
+				anfrage(spieler, ClientRequestInfo.SPIEL_INFO)
+		).join()).getInhalt();
+		return spielZustand.getAktiverSpieler().getDerSpieler().getSchluessel();
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(
+			RundenLaufMitHerausschlagenServer server,
+			long spielZustandSchluessel,
+			InitialeFigurPlatzierung platzierung
+	) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				platzierung,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(spielZustandSchluessel);
+		
+		long schluessel = spielZustandSchluessel + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
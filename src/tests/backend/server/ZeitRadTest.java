@@ -0,0 +1,314 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ZeitRad;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Testet das ZeitRad und die Fristen des Servers:
+ * 
+ * - eine Million Fristen werden geplant, die Hälfte abgebrochen: genau die anderen laufen ab, keine zu früh
+ * - der NIO Transport schließt eine Verbindung, die zu lange nichts schickt,
+ *   eine Verbindung mit Herzschlag und eine mit einem wartenden Request bleiben offen
+ * - mit einer Zug-Frist ist nach ihrem Ablauf der nächste Spieler dran, ein wartender Client wird geweckt
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ZeitRadTest {
+	private static final int ANZAHL_FRISTEN = 1_000_000;
+	
+	private static final long LEERLAUF_MILLIS = 300;
+	
+	private static final long ZUG_FRIST_MILLIS = 200;
+	
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 16_000L;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: ZeitRad und Fristen");
+		System.out.println("*".repeat(60) + "\n");
+		
+		testenZeitRad();
+		testenLeerlauf();
+		testenZugFrist();
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: ZeitRad und Fristen");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenZeitRad() throws Exception {
+		ZeitRad zeitRad = new ZeitRad("test-zeit-rad");
+		AtomicLong anzahlGelaufen = new AtomicLong();
+		AtomicLong anzahlZuFrueh = new AtomicLong();
+		List<ZeitRad.Frist> fristen = new ArrayList<>(ANZAHL_FRISTEN);
+		
+		long start = System.nanoTime();
+		for(int i = 0; i < ANZAHL_FRISTEN; i++) {
+			// über mehr als eine Umdrehung des Rads verteilt
+			long verzoegerungMillis = 3_000 + i % 5_000;
+			long fruehestens = System.nanoTime() + verzoegerungMillis * 1_000_000;
+			fristen.add(zeitRad.planen(verzoegerungMillis, () -> {
+				if(System.nanoTime() < fruehestens) {
+					anzahlZuFrueh.incrementAndGet();
+				}
+				anzahlGelaufen.incrementAndGet();
+			}));
+		}
+		long planenNanos = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		for(int i = 0; i < ANZAHL_FRISTEN; i += 2) {
+			if(!fristen.get(i).abbrechen()) {
+				throw new AssertionError("die Frist " + i + " konnte nicht abgebrochen werden");
+			}
+		}
+		long abbrechenNanos = System.nanoTime() - start;
+		if(fristen.get(0).abbrechen()) {
+			throw new AssertionError("eine Frist darf nur einmal abgebrochen werden");
+		}
+		System.out.println(
+				ANZAHL_FRISTEN + " Fristen in " + planenNanos / 1_000_000 + " ms geplant ("
+				+ planenNanos / ANZAHL_FRISTEN + " ns je Frist), die Hälfte in " + abbrechenNanos / 1_000_000 + " ms abgebrochen"
+		);
+		
+		long ende = System.currentTimeMillis() + 30_000;
+		while(zeitRad.getAnzahlWartend() > 0 && System.currentTimeMillis() < ende) {
+			Thread.sleep(100);
+		}
+		if(zeitRad.getAnzahlWartend() != 0) {
+			throw new AssertionError("es warten noch " + zeitRad.getAnzahlWartend() + " Fristen");
+		}
+		if(anzahlGelaufen.get() != ANZAHL_FRISTEN / 2 || zeitRad.getAnzahlAbgelaufen() != ANZAHL_FRISTEN / 2) {
+			throw new AssertionError(anzahlGelaufen.get() + " statt " + ANZAHL_FRISTEN / 2 + " Aufgaben sind gelaufen");
+		}
+		if(anzahlZuFrueh.get() != 0) {
+			throw new AssertionError(anzahlZuFrueh.get() + " Aufgaben sind zu früh gelaufen");
+		}
+		if(!fristen.get(1).isAbgelaufen() || !fristen.get(0).isAbgebrochen() || fristen.get(1).abbrechen()) {
+			throw new AssertionError("falscher Zustand der Fristen");
+		}
+		System.out.println("  " + anzahlGelaufen.get() + " Aufgaben gelaufen, keine zu früh, keine abgebrochene");
+		zeitRad.beenden();
+	}
+	
+	private static void testenLeerlauf() throws Exception {
+		RundenLaufMitHerausschlagenServer server = erstellenServer(ServerEinstellungen.erstellenStandardEinstellungen()
+				.setLeerlaufMillis(LEERLAUF_MILLIS));
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		int port = server.getLokalerPort();
+		
+		ServerVerbindung stumm = new ServerVerbindung("localhost", port, NachrichtenFormat.BINAER, 0);
+		ServerVerbindung mitHerzschlag = new ServerVerbindung("localhost", port, NachrichtenFormat.BINAER, LEERLAUF_MILLIS / 3);
+		ServerVerbindung wartend = new ServerVerbindung("localhost", port, NachrichtenFormat.BINAER, 0);
+		pruefen(stumm.senden(ClientRequest.erstellenHerzschlagClientRequest()).get(5, TimeUnit.SECONDS));
+		
+		// ein Spieler, der nicht dran ist, wartet länger als die Leerlauf-Zeit
+		long[] nichtDran = spielerDaten.get(1);
+		long warteMillis = LEERLAUF_MILLIS * 3;
+		long start = System.nanoTime();
+		ServerAntwort warteAntwort = wartend.senden(
+				ClientRequest.erstellenWarteAufZugClientRequest(nichtDran[0], nichtDran[1], nichtDran[2], warteMillis)
+		).get(5, TimeUnit.SECONDS);
+		long gewartet = (System.nanoTime() - start) / 1_000_000;
+		if(pruefen(warteAntwort).getInhalt() != WarteErgebnis.ZEIT_ABGELAUFEN || gewartet < warteMillis - 10) {
+			throw new AssertionError("die Wartezeit ist nicht abgelaufen: " + warteAntwort + " nach " + gewartet + " ms");
+		}
+		
+		long ende = System.currentTimeMillis() + 5_000;
+		while(!stumm.isGeschlossen() && System.currentTimeMillis() < ende) {
+			Thread.sleep(20);
+		}
+		if(!stumm.isGeschlossen()) {
+			throw new AssertionError("die stumme Verbindung wurde nicht geschlossen");
+		}
+		if(mitHerzschlag.isGeschlossen() || wartend.isGeschlossen()) {
+			throw new AssertionError("eine Verbindung mit Herzschlag oder wartendem Request wurde geschlossen");
+		}
+		pruefen(mitHerzschlag.senden(anfrage(nichtDran, ClientRequestInfo.SPIEL_INFO)).get(5, TimeUnit.SECONDS));
+		System.out.println(
+				"stumme Verbindung nach " + LEERLAUF_MILLIS + " ms Leerlauf geschlossen, "
+				+ "mit Herzschlag und " + gewartet + " ms WARTE_AUF_ZUG offen geblieben"
+		);
+		
+		mitHerzschlag.close();
+		wartend.close();
+		beenden(server);
+	}
+	
+	private static void testenZugFrist() throws Exception {
+		RundenLaufMitHerausschlagenServer server = erstellenServer(ServerEinstellungen.erstellenStandardEinstellungen()
+				.setZugFristMillis(ZUG_FRIST_MILLIS));
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		try(ServerVerbindung verbindung = new ServerVerbindung("localhost", server.getLokalerPort())) {
+			long[] ersterSpieler = aktiverSpieler(sitzung, spielerDaten);
+			// der erste Spieler würfelt, zieht aber nicht
+			pruefen(verbindung.senden(anfrage(ersterSpieler, ClientRequestInfo.WUERFELN)).get(5, TimeUnit.SECONDS));
+			long[] zweiterSpieler = spielerDaten.get((spielerDaten.indexOf(ersterSpieler) + 1) % spielerDaten.size());
+			
+			long start = System.nanoTime();
+			ServerAntwort dran = verbindung.senden(
+					ClientRequest.erstellenWarteAufZugClientRequest(zweiterSpieler[0], zweiterSpieler[1], zweiterSpieler[2], 5_000)
+			).get(10, TimeUnit.SECONDS);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			if(pruefen(dran).getInhalt() != WarteErgebnis.DRAN) {
+				throw new AssertionError("nach der Zug-Frist muss der nächste Spieler dran sein: " + dran);
+			}
+			if(aktiverSpieler(sitzung, spielerDaten) != zweiterSpieler || sitzung.ausfuehren(() -> sitzung.getSpiel().getZugNummer()).join() != 1) {
+				throw new AssertionError("der Zug des ersten Spielers wurde nicht beendet");
+			}
+			AktiverSpielerTodoAktion todoAktion = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpielerTodoAktion()).join();
+			if(todoAktion != AktiverSpielerTodoAktion.MUSS_WUERFELN) {
+				throw new AssertionError("der nächste Spieler muss würfeln: " + todoAktion);
+			}
+			
+			// der erste Spieler kann danach nicht mehr ziehen
+			ServerAntwort zuSpaet = verbindung.senden(ClientRequest.erstellenClientRequest(
+					ersterSpieler[0], ersterSpieler[1], ersterSpieler[2], ClientRequestInfo.GEHE_ZUM_NAECHSTER_SPIELER
+			)).get(5, TimeUnit.SECONDS);
+			if(zuSpaet.getStatus() != ServerAntwortStatus.FEHLER) {
+				throw new AssertionError("nach der Zug-Frist darf der erste Spieler nichts mehr tun: " + zuSpaet);
+			}
+			
+			// die nächste Frist läuft auch ab, wenn niemand wartet
+			long fristEnde = System.currentTimeMillis() + 5_000;
+			while(sitzung.ausfuehren(() -> sitzung.getSpiel().getZugNummer()).join() < 3 && System.currentTimeMillis() < fristEnde) {
+				Thread.sleep(20);
+			}
+			if(sitzung.ausfuehren(() -> sitzung.getSpiel().getZugNummer()).join() < 3) {
+				throw new AssertionError("die Zug-Fristen der nächsten Züge sind nicht abgelaufen");
+			}
+			System.out.println("nach " + millis + " ms Zug-Frist (" + ZUG_FRIST_MILLIS + " ms) war der nächste Spieler dran");
+		}
+		
+		// ohne Sitzung und ohne Verbindung wartet keine Frist mehr, der Server schließt die Verbindung nach ihrem Ende
+		server.entfernenSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		long ende = System.currentTimeMillis() + 5_000;
+		while(server.getZeitRad().getAnzahlWartend() != 0 && System.currentTimeMillis() < ende) {
+			Thread.sleep(20);
+		}
+		if(server.getZeitRad().getAnzahlWartend() != 0) {
+			throw new AssertionError("nach dem Entfernen der Sitzung wartet noch eine Frist");
+		}
+		beenden(server);
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(ServerEinstellungen einstellungen) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				einstellungen.setServerPort(0).setTransportArt(TransportArt.NIO),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		return server;
+	}
+	
+	private static void beenden(RundenLaufMitHerausschlagenServer server) {
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		server.getZuschauerVerteiler().beenden();
+		server.getZeitRad().beenden();
+	}
+	
+	private static long[] aktiverSpieler(ServerSpielSitzung sitzung, List<long[]> spielerDaten) {
+		long schluessel = sitzung.ausfuehren(() -> sitzung.getSpiel().getAktiverSpieler().getSchluessel()).join();
+		return spielerDaten.stream().filter(spieler -> spieler[1] == schluessel).findFirst().get();
+	}
+	
+	private static ClientRequest anfrage(long[] spieler, ClientRequestInfo info) {
+		return ClientRequest.erstellenClientRequest(spieler[0], spieler[1], spieler[2], info);
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+}
@@ -0,0 +1,365 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.backend.server;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.PushKanal;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.RundenLaufMitHerausschlagenServer;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerEinstellungen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ServerTransport.TransportArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.server.ZuschauerVerteiler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.server.ServerVerbindung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRegistrierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerSpielSitzung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.SpielZustandDelta;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ZuschauerRegistrierung;
+
+/**
+ * <pre>
+ * 
+ * Testet die Zuschauer einer Sitzung:
+ * 
+ * - ein Zuschauer mit falschem Geheimnis wird abgewiesen, ein Zuschauer kann nichts im Spiel tun
+ * - 10.000 Zuschauer einer Sitzung bekommen nach dem Spiel alle die letzte Version,
+ *   die Sitzung kopiert dafür höchstens einmal je Version
+ * - ein Zuschauer, der nichts abnimmt, behält nur die neueste Version
+ * - Zuschauer mit geschlossener Verbindung werden vergessen
+ * - über beide Transporte kommen die Versionen als Push-Nachrichten an,
+ *   auch wenn ein anderer Zuschauer nie liest
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class ZuschauerTest {
+	private static final long SPIEL_ZUSTAND_SCHLUESSEL = 10_000L;
+	
+	private static final int ANZAHL_ZUSCHAUER = 10_000;
+	
+	private static final int ANZAHL_VERBUNDENE_ZUSCHAUER = 20;
+	
+	private static final int ANZAHL_RUNDEN = 40;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Zuschauer");
+		System.out.println("*".repeat(60) + "\n");
+		
+		testenVieleZuschauer();
+		for(TransportArt transportArt : TransportArt.values()) {
+			testenVerbundeneZuschauer(transportArt);
+		}
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Zuschauer");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static void testenVieleZuschauer() throws Exception {
+		RundenLaufMitHerausschlagenServer server = erstellenServer(TransportArt.NIO);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		ZuschauerVerteiler verteiler = server.getZuschauerVerteiler();
+		
+		// Ausweis und Rechte
+		server.hinzufuegenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, ZuschauerRegistrierung.erstellenZuschauerRegistrierung(1, 4711));
+		erwarten(ServerAntwortStatus.NICHT_AUTORISIERT, server.verarbeiteClientRequest(
+				ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 1, 4712), new TestKanal()
+		).join());
+		erwarten(ServerAntwortStatus.FEHLER, server.verarbeiteClientRequest(
+				ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 1, 4711)
+		).join());
+		erwarten(ServerAntwortStatus.NICHT_AUTORISIERT, server.verarbeiteClientRequest(
+				ClientRequest.erstellenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 1, 4711, ClientRequestInfo.WUERFELN)
+		).join());
+		server.entfernenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, 1);
+		System.out.println("falsches Geheimnis und Aktionen eines Zuschauers werden abgewiesen");
+		
+		// 10.000 Zuschauer
+		TestKanal[] kanaele = new TestKanal[ANZAHL_ZUSCHAUER];
+		for(int i = 0; i < ANZAHL_ZUSCHAUER; i++) {
+			long zuschauerSchluessel = 100_000 + i;
+			server.hinzufuegenZuschauer(
+					SPIEL_ZUSTAND_SCHLUESSEL,
+					ZuschauerRegistrierung.erstellenZuschauerRegistrierung(zuschauerSchluessel, zuschauerSchluessel * 17)
+			);
+			kanaele[i] = new TestKanal();
+			ServerAntwort antwort = pruefen(server.verarbeiteClientRequest(
+					ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, zuschauerSchluessel, zuschauerSchluessel * 17),
+					kanaele[i]
+			).join());
+			kanaele[i].merken(antwort);
+		}
+		// ein Zuschauer, dessen Verbindung nichts abnimmt
+		kanaele[0].haengt = true;
+		if(verteiler.getAnzahlZuschauer(SPIEL_ZUSTAND_SCHLUESSEL) != ANZAHL_ZUSCHAUER) {
+			throw new AssertionError("es hätten " + ANZAHL_ZUSCHAUER + " Zuschauer angemeldet sein müssen: "
+					+ verteiler.getAnzahlZuschauer(SPIEL_ZUSTAND_SCHLUESSEL));
+		}
+		
+		long[] dauern = spielen(server, spielerDaten);
+		long letzteVersion = sitzung.ausfuehren(() -> sitzung.getSpiel().getZustandsVersion()).join();
+		long anzahlSchnappschuesse = sitzung.ausfuehren(() -> sitzung.getSchnappschussCache().getAnzahlSchnappschuesse()).join();
+		warten(() -> Arrays.stream(kanaele).allMatch(kanal -> kanal.version.get() == letzteVersion), "alle Zuschauer haben die letzte Version " + letzteVersion);
+		
+		if(anzahlSchnappschuesse > letzteVersion + 1) {
+			throw new AssertionError("höchstens ein Schnappschuss je Version erwartet: " + anzahlSchnappschuesse + " für " + letzteVersion + " Versionen");
+		}
+		if(kanaele[0].anzahlErhalten.get() > 1 || verteiler.getAnzahlVerworfen() == 0) {
+			throw new AssertionError("der hängende Zuschauer hätte nur die neueste Version behalten dürfen");
+		}
+		System.out.println(ANZAHL_ZUSCHAUER + " Zuschauer haben die letzte Version " + letzteVersion + ": "
+				+ verteiler.getAnzahlAuslieferungen() + " Auslieferungen, " + anzahlSchnappschuesse + " Schnappschüsse, "
+				+ verteiler.getAnzahlVerworfen() + " verworfene Zwischenstände");
+		System.out.println("Dauer eines Zugs der Spieler: Median " + dauern[dauern.length / 2] + " µs, Maximum " + dauern[dauern.length - 1] + " µs");
+		
+		// geschlossene Verbindungen
+		for(int i = 0; i < 100; i++) {
+			kanaele[i].offen = false;
+		}
+		spielen(server, spielerDaten, 1);
+		warten(() -> verteiler.getAnzahlZuschauer(SPIEL_ZUSTAND_SCHLUESSEL) == ANZAHL_ZUSCHAUER - 100, "Zuschauer mit geschlossener Verbindung sind vergessen");
+		
+		server.beenden();
+		server.getBenachrichtigungsVerteiler().beenden();
+		verteiler.beenden();
+	}
+	
+	private static void testenVerbundeneZuschauer(TransportArt transportArt) throws Exception {
+		RundenLaufMitHerausschlagenServer server = erstellenServer(transportArt);
+		List<long[]> spielerDaten = hinzufuegenSpielSitzung(server);
+		ServerSpielSitzung sitzung = server.getSpielSitzung(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		List<ServerVerbindung> verbindungen = new ArrayList<>();
+		List<AtomicLong> versionen = new ArrayList<>();
+		try(Socket haengender = new Socket("localhost", server.getLokalerPort())) {
+			for(int i = 0; i < ANZAHL_VERBUNDENE_ZUSCHAUER; i++) {
+				server.hinzufuegenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, ZuschauerRegistrierung.erstellenZuschauerRegistrierung(i, i * 17L));
+				NachrichtenFormat format = NachrichtenFormat.values()[i % NachrichtenFormat.values().length];
+				ServerVerbindung verbindung = new ServerVerbindung("localhost", server.getLokalerPort(), format);
+				AtomicLong version = new AtomicLong(SpielZustandDelta.KEINE_VERSION);
+				verbindung.setPushEmpfaenger(push -> version.accumulateAndGet(((SpielZustandDelta)push.getInhalt()).getVersion(), Math::max));
+				ServerAntwort antwort = pruefen(verbindung.senden(
+						ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, i, i * 17L)
+				).get(10, TimeUnit.SECONDS));
+				version.accumulateAndGet(((SpielZustandDelta)antwort.getInhalt()).getVersion(), Math::max);
+				verbindungen.add(verbindung);
+				versionen.add(version);
+			}
+			erwarten(ServerAntwortStatus.NICHT_AUTORISIERT, verbindungen.get(0).senden(
+					ClientRequest.erstellenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, 0, 0, ClientRequestInfo.WUERFELN)
+			).get(10, TimeUnit.SECONDS));
+			
+			// ein Zuschauer, der sich anmeldet und danach nie mehr liest
+			server.hinzufuegenZuschauer(SPIEL_ZUSTAND_SCHLUESSEL, ZuschauerRegistrierung.erstellenZuschauerRegistrierung(-1, 99));
+			DataOutputStream ausgabe = new DataOutputStream(haengender.getOutputStream());
+			NachrichtenRahmen.schreiben(ausgabe, 1, NachrichtenRahmen.kodieren(
+					ClientRequest.erstellenZuschauenClientRequest(SPIEL_ZUSTAND_SCHLUESSEL, -1, 99),
+					NachrichtenFormat.BINAER
+			));
+			ausgabe.flush();
+			
+			spielen(server, spielerDaten);
+			long letzteVersion = sitzung.ausfuehren(() -> sitzung.getSpiel().getZustandsVersion()).join();
+			warten(() -> versionen.stream().allMatch(version -> version.get() == letzteVersion), transportArt + ": alle verbundenen Zuschauer haben die letzte Version " + letzteVersion);
+		} finally {
+			for(ServerVerbindung verbindung : verbindungen) {
+				verbindung.close();
+			}
+			server.beenden();
+			server.getBenachrichtigungsVerteiler().beenden();
+			server.getZuschauerVerteiler().beenden();
+		}
+	}
+	
+	private static long[] spielen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten) {
+		return spielen(server, spielerDaten, ANZAHL_RUNDEN);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Jeder Spieler schickt in jeder Runde einen ganzen Zug, wer nicht dran ist, überspringt alle Schritte.
+	 * 
+	 * @return die sortierten Dauern der Züge in µs
+	 * 
+	 * </pre>
+	 */
+	private static long[] spielen(RundenLaufMitHerausschlagenServer server, List<long[]> spielerDaten, int anzahlRunden) {
+		List<StapelSchritt> zug = new ArrayList<>();
+		for(int i = 0; i < 6; i++) {
+			zug.add(StapelSchritt.erstellenWuerfelnSchritt(Bedingung.WENN_MUSS_WUERFELN));
+			zug.add(StapelSchritt.erstellenZiehenSchritt(Bedingung.WENN_MUSS_ZIEHEN, null));
+		}
+		zug.add(StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.WENN_FERTIG));
+		
+		long[] dauern = new long[anzahlRunden * spielerDaten.size()];
+		int anzahl = 0;
+		for(int runde = 0; runde < anzahlRunden; runde++) {
+			for(long[] spieler : spielerDaten) {
+				long start = System.nanoTime();
+				pruefen(server.verarbeiteClientRequest(
+						ClientRequest.erstellenStapelClientRequest(spieler[0], spieler[1], spieler[2], zug)
+				).join());
+				dauern[anzahl++] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+			}
+		}
+		Arrays.sort(dauern);
+		return dauern;
+	}
+	
+	private static void warten(java.util.function.BooleanSupplier bedingung, String beschreibung) throws InterruptedException {
+		long ende = System.currentTimeMillis() + 10_000;
+		while(!bedingung.getAsBoolean()) {
+			if(System.currentTimeMillis() > ende) {
+				throw new AssertionError("nicht erreicht: " + beschreibung);
+			}
+			Thread.sleep(10);
+		}
+		System.out.println(beschreibung);
+	}
+	
+	private static void erwarten(ServerAntwortStatus status, ServerAntwort antwort) {
+		if(antwort.getStatus() != status) {
+			throw new AssertionError("erwartet war " + status + ": " + antwort);
+		}
+	}
+	
+	private static ServerAntwort pruefen(ServerAntwort antwort) {
+		if(antwort.getStatus() != ServerAntwortStatus.OK) {
+			throw new AssertionError("der Request ist fehlgeschlagen: " + antwort);
+		}
+		return antwort;
+	}
+	
+	private static RundenLaufMitHerausschlagenServer erstellenServer(TransportArt transportArt) throws Exception {
+		RundenLaufMitHerausschlagenServer server = new RundenLaufMitHerausschlagenServer(
+				ServerEinstellungen.erstellenStandardEinstellungen()
+						.setServerPort(0)
+						.setTransportArt(transportArt),
+				new RundenLaufMitHerausSchlagenDaoMitMaker(
+						new RundenLaufMitHerausSchlagenMaker(true, InitialeFigurPlatzierung.START_FELDER, 2, 4, 10)
+				)
+		);
+		server.starten();
+		return server;
+	}
+	
+	private static List<long[]> hinzufuegenSpielSitzung(RundenLaufMitHerausschlagenServer server) {
+		SpielZustand spielZustand = new RundenLaufMitHerausSchlagenMaker(
+				false,
+				InitialeFigurPlatzierung.START_FELDER,
+				3,
+				4,
+				10
+		).getSpielZustaendeMenge().stream().findFirst().get();
+		spielZustand.setSchluessel(SPIEL_ZUSTAND_SCHLUESSEL);
+		
+		long schluessel = SPIEL_ZUSTAND_SCHLUESSEL + 1;
+		List<ClientRegistrierung> registrierungen = new ArrayList<>();
+		List<long[]> spielerDaten = new ArrayList<>();
+		for(Spieler spieler : spielZustand.getSpielerMenge()) {
+			if(spieler instanceof KonkreterSpieler konkreterSpieler) {
+				long geheimnis = schluessel * 31;
+				registrierungen.add(ClientRegistrierung.erstellenClientRegistierung(
+						geheimnis,
+						konkreterSpieler,
+						"localhost",
+						20_001
+				));
+				spieler.setSchluessel(schluessel++);
+				spielerDaten.add(new long[] {spielZustand.getSchluessel(), spieler.getSchluessel(), geheimnis});
+			}
+		}
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			figur.setSchluessel(schluessel++);
+		}
+		server.hinzufuegenSpielSitzung(spielZustand, registrierungen);
+		return spielerDaten;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein PushKanal ohne Netzwerk. Ein hängender Kanal schreibt nie,
+	 * er behält wie ein voller Socket nur die neueste Nachricht.
+	 * 
+	 * </pre>
+	 */
+	private static class TestKanal implements PushKanal {
+		private final AtomicLong version = new AtomicLong(SpielZustandDelta.KEINE_VERSION);
+		
+		private final AtomicLong anzahlErhalten = new AtomicLong();
+		
+		private final AtomicReference<ServerAntwort> ausstehend = new AtomicReference<>();
+		
+		private volatile boolean haengt;
+		
+		private volatile boolean offen = true;
+		
+		@Override
+		public boolean pushen(ServerAntwort nachricht) {
+			if(haengt) {
+				boolean ersetzt = ausstehend.getAndSet(nachricht) != null;
+				version.set(((SpielZustandDelta)nachricht.getInhalt()).getVersion());
+				return ersetzt;
+			}
+			merken(nachricht);
+			return false;
+		}
+		
+		@Override
+		public boolean isOffen() {
+			return offen;
+		}
+		
+		private void merken(ServerAntwort nachricht) {
+			anzahlErhalten.incrementAndGet();
+			version.accumulateAndGet(((SpielZustandDelta)nachricht.getInhalt()).getVersion(), Math::max);
+		}
+	}
+}
@@ -0,0 +1,535 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.dto;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backendzugriff.RundenLaufMitHerausSchlagenDaoMitMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Farbe;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KompakterSpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.KonkreterSpieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.ZugTabelle;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielFeld.FeldArt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.middletier.server.RundenLaufMitHerausschlagenServerService;
+
+/**
+ * <pre>
+ * 
+ * Testet den KompakterSpielZustand:
+ * 
+ * - Laden und Zurückschreiben ist verlustfrei
+ * - jede ZugTabelle hat für jedes Feld und jede Zahl das Ziel-Feld, das eine Figur Schritt für Schritt erreicht,
+ *   für die Bretter mit 40 und 48 Feldern und einen eigenen Abstand der Spieler, und wird nur einmal berechnet
+ * - in zufälligen Spielen bestimmen er und RundenLaufMitHerausschlagenServerService#bestimmeMoeglicheSpielZuege
+ *   dieselben Züge mit denselben geschlagenen Figuren wie eine Referenz, die jedes Ziel-Feld ausrechnet
+ *   und in den SpielFeld-Objekten nach Figuren sucht, und nach jedem Zug ist sein Stand derselbe
+ *   wie nach einem neuen Laden des zurückgeschriebenen SpielZustands
+ * - Züge bestimmen, Züge ausführen und das Spiel-Ende prüfen legen nichts auf dem Heap an
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class KompakterSpielZustandTest {
+	private static final int ANZAHL_SPIELE = 40;
+	
+	private static final int ANZAHL_ZUEGE_OHNE_ALLOKATION = 1_000_000;
+	
+	public static void main(String[] argv) {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: KompakterSpielZustand");
+		System.out.println("*".repeat(60) + "\n");
+		
+		// ZUFAELLIG setzt Figuren auch hinter das Ende der Strecke, die Spiele im Gleichschritt decken die Stände mitten im Spiel ab
+		for(InitialeFigurPlatzierung platzierung : List.of(
+				InitialeFigurPlatzierung.START_FELDER,
+				InitialeFigurPlatzierung.ZIEL_FELDER,
+				InitialeFigurPlatzierung.START_STRECKENFELD_START_FELDER
+		)) {
+			testenLadenUndZurueckschreiben(erstellenSpielZustand(platzierung, 3, 4, 10));
+			testenLadenUndZurueckschreiben(erstellenSpielZustand(platzierung, 6, 6, 8));
+		}
+		System.out.println("Laden und Zurückschreiben verlustfrei");
+		
+		testenZugTabellen(4, 10);
+		testenZugTabellen(6, 8);
+		testenZugTabellen(5, 9);
+		
+		Random zufall = new Random(24);
+		int anzahlZuege = 0;
+		for(int spiel = 0; spiel < ANZAHL_SPIELE; spiel++) {
+			SpielZustand spielZustand = spiel % 2 == 0
+					? erstellenSpielZustand(InitialeFigurPlatzierung.START_FELDER, 2 + spiel % 3, 4, 10)
+					: erstellenSpielZustand(InitialeFigurPlatzierung.START_FELDER, 3 + spiel % 4, 6, 8);
+			anzahlZuege += testenGleicheZuege(spielZustand, zufall);
+		}
+		System.out.println(ANZAHL_SPIELE + " Spiele mit " + anzahlZuege + " Zug-Bestimmungen gleich wie die Referenz");
+		
+		testenOhneAllokation(erstellenSpielZustand(InitialeFigurPlatzierung.START_FELDER, 4, 6, 8));
+		
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: KompakterSpielZustand");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static SpielZustand erstellenSpielZustand(
+			InitialeFigurPlatzierung platzierung,
+			int anzahlKonkreterSpieler,
+			int anzahlSpielerPositionen,
+			int streckenOffset
+	) {
+		return new RundenLaufMitHerausSchlagenMaker(
+				false, platzierung, anzahlKonkreterSpieler, anzahlSpielerPositionen, streckenOffset
+		).getSpielZustaendeMenge().iterator().next();
+	}
+	
+	private static void testenZugTabellen(int anzahlSpielerPositionen, int streckenOffset) {
+		int anzahlStreckenFelder = anzahlSpielerPositionen * streckenOffset;
+		for(int position = 0; position < anzahlSpielerPositionen; position++) {
+			int startStreckenFeld = position * streckenOffset;
+			int endStreckenFeld = (startStreckenFeld + anzahlStreckenFelder - 1) % anzahlStreckenFelder;
+			ZugTabelle zugTabelle = ZugTabelle.getZugTabelle(anzahlStreckenFelder, startStreckenFeld, endStreckenFeld);
+			if(ZugTabelle.getZugTabelle(anzahlStreckenFelder, startStreckenFeld, endStreckenFeld) != zugTabelle) {
+				throw new AssertionError("die ZugTabelle muss für dieselbe Strecke dieselbe sein");
+			}
+			
+			for(WuerfelErgebnis wuerfelErgebnis : WuerfelErgebnis.values()) {
+				int augen = wuerfelErgebnis.getValue();
+				int erwartetVomStart = wuerfelErgebnis == WuerfelErgebnis.SECHS ? startStreckenFeld : KompakterSpielZustand.KEIN_FELD;
+				for(int index = 0; index < Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; index++) {
+					pruefenZiel(zugTabelle, KompakterSpielZustand.START_FELD | index, augen, erwartetVomStart);
+					pruefenZiel(
+							zugTabelle,
+							KompakterSpielZustand.ZIEL_FELD | index,
+							augen,
+							gehen(KompakterSpielZustand.ZIEL_FELD | index, augen, anzahlStreckenFelder, endStreckenFeld)
+					);
+				}
+				for(int feld = 0; feld < anzahlStreckenFelder; feld++) {
+					pruefenZiel(zugTabelle, feld, augen, gehen(feld, augen, anzahlStreckenFelder, endStreckenFeld));
+				}
+			}
+		}
+		
+		// weitere Spiele auf demselben Brett berechnen keine neuen Tabellen
+		int anzahlZugTabellen = ZugTabelle.getAnzahlZugTabellen();
+		KompakterSpielZustand kompakt = new KompakterSpielZustand();
+		for(int spiel = 0; spiel < 3; spiel++) {
+			kompakt.laden(erstellenSpielZustand(InitialeFigurPlatzierung.START_FELDER, 2, anzahlSpielerPositionen, streckenOffset));
+		}
+		if(ZugTabelle.getAnzahlZugTabellen() != anzahlZugTabellen) {
+			throw new AssertionError("ein Spiel auf einem bekannten Brett hat neue ZugTabellen berechnet");
+		}
+		System.out.println(
+				"ZugTabellen für " + anzahlStreckenFelder + " Strecken-Felder und " + anzahlSpielerPositionen
+				+ " Spieler-Positionen wie Schritt für Schritt gegangen"
+		);
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Geht die Figur Feld für Feld: nach dem End-Strecken-Feld auf die Ziel-Felder, hinter dem letzten Ziel-Feld ist kein Feld.
+	 * 
+	 * </pre>
+	 */
+	private static int gehen(int feld, int augen, int anzahlStreckenFelder, int endStreckenFeld) {
+		for(int schritt = 0; schritt < augen; schritt++) {
+			if((feld & KompakterSpielZustand.ZIEL_FELD) != 0) {
+				int index = feld & ~KompakterSpielZustand.ZIEL_FELD;
+				if(index + 1 == Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
+					return KompakterSpielZustand.KEIN_FELD;
+				}
+				feld = KompakterSpielZustand.ZIEL_FELD | (index + 1);
+			} else if(feld == endStreckenFeld) {
+				feld = KompakterSpielZustand.ZIEL_FELD;
+			} else {
+				feld = (feld + 1) % anzahlStreckenFelder;
+			}
+		}
+		return feld;
+	}
+	
+	private static void pruefenZiel(ZugTabelle zugTabelle, int feld, int augen, int erwartet) {
+		if(zugTabelle.getZiel(feld, augen) != erwartet) {
+			throw new AssertionError(
+					"falsches Ziel von " + feld + " mit " + augen + " bei Start " + zugTabelle.getStartStreckenFeld()
+					+ ": erwartet " + erwartet + ", Tabelle " + zugTabelle.getZiel(feld, augen)
+			);
+		}
+	}
+	
+	private static void testenLadenUndZurueckschreiben(SpielZustand spielZustand) {
+		KompakterSpielZustand kompakt = new KompakterSpielZustand();
+		kompakt.laden(spielZustand);
+		for(Figur figur : spielZustand.getFigurenMenge()) {
+			int feld = kompakt.getFeld(kompakt.getFigurIndex(figur));
+			if(feld != KompakterSpielZustand.kodieren(figur.getSpielFeld())) {
+				throw new AssertionError("falsches Feld " + feld + " für " + figur);
+			}
+		}
+		if(kompakt.zurueckschreiben() != 0) {
+			throw new AssertionError("ohne Zug darf sich keine Figur ändern");
+		}
+		
+		KompakterSpielZustand kopie = new KompakterSpielZustand();
+		kompakt.kopierenIn(kopie);
+		pruefenGleich(kompakt, kopie, "Kopie");
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Spielt ein zufälliges Spiel mit beiden Darstellungen im Gleichschritt.
+	 * 
+	 * @return die Anzahl der verglichenen Zug-Bestimmungen
+	 * 
+	 * </pre>
+	 */
+	private static int testenGleicheZuege(SpielZustand spielZustand, Random zufall) {
+		RundenLaufMitHerausschlagenServerService service = new RundenLaufMitHerausschlagenServerService(
+				new RundenLaufMitHerausSchlagenDaoMitMaker(), spielZustand
+		);
+		List<Spieler> spielerListe = new ArrayList<>(
+				spielZustand.getSpielerMenge().stream().filter(s -> s instanceof KonkreterSpieler).toList()
+		);
+		KompakterSpielZustand kompakt = new KompakterSpielZustand();
+		KompakterSpielZustand neuGeladen = new KompakterSpielZustand();
+		kompakt.laden(spielZustand);
+		int[] zuege = new int[Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER];
+		
+		int anzahl = 0;
+		for(int runde = 0; !kompakt.isSpielFertig(); runde++) {
+			if(runde > 100_000) {
+				throw new AssertionError("das Spiel endet nicht");
+			}
+			Spieler spieler = spielerListe.get(runde % spielerListe.size());
+			int spielerIndex = kompakt.getSpielerIndex(spieler);
+			WuerfelErgebnis wuerfelErgebnis = WuerfelErgebnis.values()[zufall.nextInt(WuerfelErgebnis.values().length)];
+			
+			List<SpielZug> erwartet = bestimmenReferenzZuege(spielZustand, spieler, wuerfelErgebnis);
+			List<SpielZug> vomService = service.bestimmeMoeglicheSpielZuege(spieler, wuerfelErgebnis);
+			int anzahlZuege = kompakt.bestimmenZuege(spielerIndex, wuerfelErgebnis.getValue(), zuege);
+			anzahl++;
+			
+			List<String> erwarteteZuege = beschreiben(kompakt, erwartet);
+			List<String> serviceZuege = beschreiben(kompakt, vomService);
+			List<String> kompakteZuege = new ArrayList<>();
+			for(int i = 0; i < anzahlZuege; i++) {
+				SpielZug spielZug = kompakt.erstellenSpielZug(zuege[i], wuerfelErgebnis);
+				kompakteZuege.add(
+						KompakterSpielZustand.getZugFigur(zuege[i])
+						+ ">" + KompakterSpielZustand.getZugZiel(zuege[i])
+						+ "x" + (spielZug.getSchlagFigur() != null ? kompakt.getFigurIndex(spielZug.getSchlagFigur()) : -1)
+				);
+			}
+			if(!erwarteteZuege.equals(kompakteZuege) || !erwarteteZuege.equals(serviceZuege)) {
+				throw new AssertionError(
+						"verschiedene Züge mit " + wuerfelErgebnis + " für " + spieler.getName()
+						+ ": Referenz " + erwarteteZuege + ", kompakt " + kompakteZuege + ", Service " + serviceZuege
+				);
+			}
+			if(kompakt.hatZug(spielerIndex, wuerfelErgebnis.getValue()) != !erwartet.isEmpty()) {
+				throw new AssertionError("hatZug passt nicht zu den Zügen " + erwarteteZuege);
+			}
+			if(anzahlZuege == 0) {
+				continue;
+			}
+			
+			kompakt.ausfuehrenZug(zuege[zufall.nextInt(anzahlZuege)]);
+			kompakt.zurueckschreiben();
+			neuGeladen.laden(spielZustand);
+			pruefenGleich(kompakt, neuGeladen, "nach Zug " + anzahl);
+		}
+		if(service.isSpielFertig() != kompakt.isSpielFertig()) {
+			throw new AssertionError("der Service sieht das Spiel-Ende anders");
+		}
+		return anzahl;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * @return je SpielZug der Index der Figur, das Ziel-Feld und der Index der geschlagenen Figur oder -1
+	 * 
+	 * </pre>
+	 */
+	private static List<String> beschreiben(KompakterSpielZustand kompakt, List<SpielZug> spielZuege) {
+		List<String> beschreibungen = new ArrayList<>();
+		for(SpielZug spielZug : spielZuege) {
+			beschreibungen.add(
+					kompakt.getFigurIndex(spielZug.getZugFigur())
+					+ ">" + KompakterSpielZustand.kodieren(spielZug.getZielFeld())
+					+ "x" + (spielZug.getSchlagFigur() != null ? kompakt.getFigurIndex(spielZug.getSchlagFigur()) : -1)
+			);
+		}
+		return beschreibungen;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Die Zug-Bestimmung des Server-Services vor dem kompakten SpielZustand, als unabhängige Referenz:
+	 * rechnet jedes Ziel-Feld aus und sucht Figuren darauf in den SpielFeld-Objekten.
+	 * 
+	 * </pre>
+	 */
+	private static List<SpielZug> bestimmenReferenzZuege(SpielZustand spielZustand, Spieler spieler, WuerfelErgebnis wuerfelErgebnis) {
+		// Ermittle alle möglichen Züge
+		List<SpielZug> moeglicheZuege = spieler.getFigurenMenge().stream().map(zugFigur -> {
+			if(!spieler.getFarbe().equals(zugFigur.getFarbe())) {
+				return null;
+			}
+			
+			SpielFeld zielFeld = null;
+			Figur schlagFigur = null;
+			Farbe spielerFarbe = spieler.getFarbe();
+			SpielFeld zugFigurFeld = zugFigur.getSpielFeld();
+			FeldArt zugFigurFeldArt= zugFigurFeld.getFeldArt();
+
+			switch(zugFigurFeldArt) {
+			case START_FELD -> {
+				if(wuerfelErgebnis == WuerfelErgebnis.SECHS) {
+					zielFeld = spieler.getStartStreckenFeld();
+				}
+			}
+			case STRECKEN_FELD -> {
+				final int anzahlStreckenFelder = spielZustand.getAnzahlStreckenFelder();
+				final SpielFeld startStreckenFeld = spieler.getStartStreckenFeld();
+				final SpielFeld endStreckenFeld = spieler.getEndStreckenFeld();
+
+				final int startStreckenFeldPosition = startStreckenFeld.getFeldPosition();
+				final int endStreckenFeldPosition = endStreckenFeld.getFeldPosition();
+				final int figurStartPosition = zugFigurFeld.getFeldPosition();
+				final int figurZielPosition = figurStartPosition + wuerfelErgebnis.getValue();
+				
+				int vergleichFigurZielPosition = figurZielPosition;
+				int vergleichEndStreckenFeldPosition = endStreckenFeldPosition;
+				if(startStreckenFeldPosition != 0) {
+					vergleichEndStreckenFeldPosition += anzahlStreckenFelder;
+					if(figurStartPosition < startStreckenFeldPosition) {
+						vergleichFigurZielPosition += anzahlStreckenFelder;
+					}
+				}
+
+				if(vergleichFigurZielPosition == vergleichEndStreckenFeldPosition) {
+					zielFeld = endStreckenFeld;
+				} else if(vergleichFigurZielPosition < vergleichEndStreckenFeldPosition) {
+					zielFeld = SpielFeld.erstelleFarblosesStreckenFeld(
+							figurZielPosition % anzahlStreckenFelder
+					);
+				} else if(vergleichFigurZielPosition < (vergleichEndStreckenFeldPosition + 1) + Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
+					zielFeld = SpielFeld.erstelleZielFeld(
+							spielerFarbe,
+							vergleichFigurZielPosition - (vergleichEndStreckenFeldPosition + 1)
+					);
+				}
+			}
+			case ZIEL_FELD -> {
+				int figurStartPosition = zugFigurFeld.getFeldPosition();
+				int figurZielPosition = figurStartPosition + wuerfelErgebnis.getValue();
+				
+				if(figurZielPosition < Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER) {
+					zielFeld = SpielFeld.erstelleZielFeld(spielerFarbe, figurZielPosition);
+				}
+			}
+			}
+
+			if(zielFeld == null) {
+				return null;
+			}
+				
+			SpielFeld vergleichZielFeld = zielFeld;
+			Figur andereFigur = spielZustand.getFigurenMenge()
+					.stream()
+					.filter(f -> !zugFigur.equals(f) && isGleicherOrt(vergleichZielFeld, f.getSpielFeld()))
+					.findFirst()
+					.orElse(null);
+			if(andereFigur != null) {
+				if(spielerFarbe.equals(andereFigur.getFarbe())) {
+					zielFeld = null;
+				} else {
+					schlagFigur = andereFigur;
+				}
+			}
+
+			if(zielFeld == null) {
+				return null;
+			}
+
+			return new SpielZug(
+					zugFigur,
+					wuerfelErgebnis,
+					zielFeld,
+					schlagFigur
+			);
+		}).filter(s -> s != null).collect(Collectors.toList());
+
+		if(moeglicheZuege.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		// Wenn der Spieler wartende Figuren auf seinen Startfeldern hat,
+		// dann muss das Start-Streckenfeld freigemacht werden, wenn möglich.
+		if(!spieler.getStartFeldFigurenMenge().isEmpty()) {
+			List<SpielZug> moeglicheZuegeStartStreckenFeld = moeglicheZuege.stream().filter(zug ->
+				zug.getZugFeld().getFeldArt() == FeldArt.STRECKEN_FELD
+				&& zug.getZugFeld().getFeldPosition() == spieler.getStartStreckenFeld().getFeldPosition()
+			).collect(Collectors.toList());
+			if(!moeglicheZuegeStartStreckenFeld.isEmpty()) {
+				return moeglicheZuegeStartStreckenFeld;
+			}
+		}
+		
+		if(wuerfelErgebnis != WuerfelErgebnis.SECHS) {
+			return moeglicheZuege;
+		}
+
+		// Wenn der Spieler wartende Figuren auf seinen Startfeldern hat,
+		// müssen sie zuerst auf das Start-Streckenfeld gespielt werden.
+		List<SpielZug> moeglicheZuegeStartFelder = moeglicheZuege.stream().filter(zug ->
+			zug.getZugFeld().getFeldArt() == FeldArt.START_FELD
+		).collect(Collectors.toList());
+		if(!moeglicheZuegeStartFelder.isEmpty()) {
+			return moeglicheZuegeStartFelder;
+		}
+		
+		return moeglicheZuege;
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Ein Strecken-Feld ist derselbe Ort wie jedes Strecken-Feld mit derselben Position, egal ob farbig oder farblos.
+	 * Start- und Ziel-Felder sind nur mit derselben Farbe derselbe Ort.
+	 * 
+	 * </pre>
+	 */
+	private static boolean isGleicherOrt(SpielFeld feld, SpielFeld anderesFeld) {
+		if(feld.getFeldArt() != anderesFeld.getFeldArt() || feld.getFeldPosition() != anderesFeld.getFeldPosition()) {
+			return false;
+		}
+		return feld.getFeldArt() == FeldArt.STRECKEN_FELD || Objects.equals(feld.getFeldFarbe(), anderesFeld.getFeldFarbe());
+	}
+	
+	private static void testenOhneAllokation(SpielZustand spielZustand) {
+		KompakterSpielZustand anfang = new KompakterSpielZustand();
+		anfang.laden(spielZustand);
+		KompakterSpielZustand kompakt = new KompakterSpielZustand();
+		int[] spielerIndizes = spielZustand.getSpielerMenge().stream()
+				.filter(s -> s instanceof KonkreterSpieler)
+				.mapToInt(anfang::getSpielerIndex)
+				.toArray();
+		int[] zuege = new int[Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER];
+		Random zufall = new Random(25);
+		
+		// Aufwärmen, damit der JIT die Schleife übersetzt hat
+		spielen(anfang, kompakt, spielerIndizes, zuege, zufall, ANZAHL_ZUEGE_OHNE_ALLOKATION);
+		
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long vorher = threadBean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		int anzahlSpiele = spielen(anfang, kompakt, spielerIndizes, zuege, zufall, ANZAHL_ZUEGE_OHNE_ALLOKATION);
+		long nanos = System.nanoTime() - start;
+		long allokiert = threadBean.getThreadAllocatedBytes(threadId) - vorher;
+		
+		// die Messung selbst darf ein paar Bytes kosten, ein Objekt je Zug wären Megabytes
+		if(allokiert > 1_024) {
+			throw new AssertionError(allokiert + " Bytes für " + ANZAHL_ZUEGE_OHNE_ALLOKATION + " Züge allokiert");
+		}
+		System.out.println(
+				ANZAHL_ZUEGE_OHNE_ALLOKATION + " Würfe in " + anzahlSpiele + " Spielen: " + allokiert + " Bytes allokiert, "
+				+ nanos / ANZAHL_ZUEGE_OHNE_ALLOKATION + " ns je Wurf mit Zug und Prüfung des Spiel-Endes"
+		);
+		if(Arrays.stream(spielerIndizes).anyMatch(s -> s < 0)) {
+			throw new AssertionError("ein Spieler fehlt im kompakten SpielZustand");
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * 
+	 * Würfelt und zieht zufällig, ein fertiges Spiel beginnt von vorne.
+	 * 
+	 * @return die Anzahl der fertigen Spiele
+	 * 
+	 * </pre>
+	 */
+	private static int spielen(
+			KompakterSpielZustand anfang,
+			KompakterSpielZustand kompakt,
+			int[] spielerIndizes,
+			int[] zuege,
+			Random zufall,
+			int anzahlWuerfe
+	) {
+		anfang.kopierenIn(kompakt);
+		int anzahlSpiele = 0;
+		for(int wurf = 0; wurf < anzahlWuerfe; wurf++) {
+			int spielerIndex = spielerIndizes[wurf % spielerIndizes.length];
+			int anzahlZuege = kompakt.bestimmenZuege(spielerIndex, zufall.nextInt(1, 7), zuege);
+			if(anzahlZuege > 0) {
+				kompakt.ausfuehrenZug(zuege[zufall.nextInt(anzahlZuege)]);
+			}
+			if(kompakt.isSpielFertig()) {
+				anfang.kopierenIn(kompakt);
+				anzahlSpiele++;
+			}
+		}
+		return anzahlSpiele;
+	}
+	
+	private static void pruefenGleich(KompakterSpielZustand erwartet, KompakterSpielZustand tatsaechlich, String wann) {
+		for(int figur = 0; figur < KompakterSpielZustand.MAX_SPIELER * Spieler.MAX_FIGUREN_ANZAHL_JE_SPIELER; figur++) {
+			if(erwartet.getFeld(figur) != tatsaechlich.getFeld(figur)) {
+				throw new AssertionError(wann + ": verschiedenes Feld der Figur " + figur);
+			}
+		}
+		for(int spieler = 0; spieler < KompakterSpielZustand.MAX_SPIELER; spieler++) {
+			if(
+					erwartet.getStreckenMaske(spieler) != tatsaechlich.getStreckenMaske(spieler)
+					|| erwartet.getStartMaske(spieler) != tatsaechlich.getStartMaske(spieler)
+					|| erwartet.getZielMaske(spieler) != tatsaechlich.getZielMaske(spieler)
+			) {
+				throw new AssertionError(wann + ": verschiedene Masken des Spielers " + spieler);
+			}
+		}
+	}
+}
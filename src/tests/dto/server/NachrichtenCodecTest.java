@@ -0,0 +1,348 @@
+/**
+ * Client/Server board game implementation, where 4/6 Players
+ * move each 4 figures from start to finish positions.
+ * 
+ * Copyright (C) 2024 Christian Alexander Wiesenäcker (Hessen, Germany) All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package tests.dto.server;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.InitialeFigurPlatzierung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.backend.RundenLaufMitHerausSchlagenMaker.SpielParameter;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.AktiverSpielerDekorator.AktiverSpielerTodoAktion;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Figur;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZug;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.SpielZustand;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Spieler;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.Wuerfel.WuerfelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.BinaerCodec;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ClientRequest.ClientRequestInfo;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenCodec;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenFormat;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.NachrichtenRahmen;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.ServerAntwort.ServerAntwortStatus;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelErgebnis.SchrittErgebnis;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.StapelSchritt.Bedingung;
+import de.wiesenaecker.runden_lauf_mit_herausschlagen.dto.server.WarteErgebnis;
+
+/**
+ * <pre>
+ * 
+ * Testet die beiden Nachrichten-Formate:
+ * 
+ * - jede Nachricht kommt in beiden Formaten unverändert wieder heraus,
+ *   auch die gemeinsam genutzten Objekte (Figuren, aktiver Spieler) und die Reihenfolge der Spieler
+ * - das Format wird am ersten Byte der Nutzdaten erkannt
+ * - beschädigte Nutzdaten und eine fremde Schema-Version werden abgelehnt
+ * - gemessen werden die Bytes je SpielZustand und die Zeit zum Kodieren und Dekodieren
+ * 
+ * @author Christian Alexander Wiesenäcker
+ * 
+ * </pre>
+ */
+public class NachrichtenCodecTest {
+	private static final int ANZAHL_WIEDERHOLUNGEN = 10_000;
+	
+	private static final int ANZAHL_RUNDEN = 6;
+	
+	public static void main(String[] argv) throws Exception {
+		System.out.println("*".repeat(60));
+		System.out.println("***** Test Anfang: Nachrichten-Formate");
+		System.out.println("*".repeat(60) + "\n");
+		
+		// mit Schlüsseln aus der Datenbank und ohne Schlüssel, mit zufällig gesetzten Figuren
+		List<SpielZustand> spielZustaende = new ArrayList<>();
+		for(InitialeFigurPlatzierung platzierung : Arrays.asList(InitialeFigurPlatzierung.START_FELDER, InitialeFigurPlatzierung.ZIEL_FELDER)) {
+			spielZustaende.addAll(new RundenLaufMitHerausSchlagenMaker(
+					true,
+					new SpielParameter(platzierung, 2, 4, 10),
+					new SpielParameter(platzierung, 6, 6, 8)
+			).getSpielZustaendeMenge());
+		}
+		spielZustaende.addAll(new RundenLaufMitHerausSchlagenMaker(
+				false,
+				new SpielParameter(InitialeFigurPlatzierung.ZUFAELLIG, 3, 6, 8)
+		).getSpielZustaendeMenge());
+		spielZustaende.get(0).setSpielStart(LocalDateTime.of(2024, 5, 17, 20, 15, 3, 123_456_789));
+		spielZustaende.get(0).setSpielEnde(LocalDateTime.of(2024, 5, 17, 21, 0));
+		
+		for(NachrichtenFormat format : NachrichtenFormat.values()) {
+			for(SpielZustand spielZustand : spielZustaende) {
+				pruefenSpielZustand(format, spielZustand);
+			}
+			pruefenWeitereNachrichten(format, spielZustaende.get(0));
+			System.out.println(format + ": " + spielZustaende.size() + " SpielZustände und alle Nachrichten-Arten unverändert übertragen.");
+		}
+		
+		pruefenBeschaedigteNutzdaten(spielZustaende.get(0));
+		
+		messen(spielZustaende.get(0));
+
+		System.out.println("\n" + "*".repeat(60));
+		System.out.println("***** Test Ende: Nachrichten-Formate");
+		System.out.println("*".repeat(60));
+	}
+	
+	private static Object uebertragen(NachrichtenFormat format, Object nachricht) throws IOException, ClassNotFoundException {
+		byte[] nutzdaten = NachrichtenRahmen.kodieren(nachricht, format);
+		if(NachrichtenFormat.erkennen(nutzdaten) != format) {
+			throw new AssertionError("das Format " + format + " wurde nicht erkannt");
+		}
+		return NachrichtenRahmen.dekodieren(nutzdaten);
+	}
+	
+	private static void pruefenSpielZustand(NachrichtenFormat format, SpielZustand original) throws Exception {
+		ServerAntwort antwort = (ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(original));
+		SpielZustand kopie = (SpielZustand)antwort.getInhalt();
+		
+		if(!original.equalsDaten(kopie) || !Objects.equals(original.getSchluessel(), kopie.getSchluessel())) {
+			throw new AssertionError(format + ": der SpielZustand hat sich verändert");
+		}
+		if(!original.toDisplayString().equals(kopie.toDisplayString())) {
+			throw new AssertionError(format + ": die Darstellung des SpielZustands hat sich verändert");
+		}
+		if(!spielerReihenfolge(original).equals(spielerReihenfolge(kopie))) {
+			throw new AssertionError(format + ": die Reihenfolge der Spieler hat sich verändert");
+		}
+		
+		// die Figuren der Spieler müssen dieselben Objekte sein wie in der Figuren-Menge
+		Set<Figur> alleFiguren = Collections.newSetFromMap(new IdentityHashMap<>());
+		alleFiguren.addAll(kopie.getFigurenMenge());
+		for(Spieler spieler : kopie.getSpielerMenge()) {
+			for(Figur figur : spieler.getFigurenMenge()) {
+				if(!alleFiguren.contains(figur)) {
+					throw new AssertionError(format + ": eine Figur des Spielers " + spieler.getName() + " ist eine Kopie");
+				}
+			}
+		}
+		if(istUnterSpielern(original) != istUnterSpielern(kopie)) {
+			throw new AssertionError(format + ": der aktive Spieler ist nicht mehr derselbe wie in der Spieler-Menge");
+		}
+	}
+	
+	private static List<String> spielerReihenfolge(SpielZustand spielZustand) {
+		List<String> reihenfolge = new ArrayList<>();
+		spielZustand.getSpielerMenge().forEach(spieler -> reihenfolge.add(spieler.toPrettyString()));
+		return reihenfolge;
+	}
+	
+	private static boolean istUnterSpielern(SpielZustand spielZustand) {
+		Spieler derSpieler = spielZustand.getAktiverSpieler().getDerSpieler();
+		return spielZustand.getSpielerMenge().stream().anyMatch(spieler -> spieler == derSpieler);
+	}
+	
+	private static void pruefenWeitereNachrichten(NachrichtenFormat format, SpielZustand spielZustand) throws Exception {
+		ClientRequest anfrage = ClientRequest.erstellenClientRequest(-7L, 123_456_789_012L, Long.MIN_VALUE, ClientRequestInfo.WUERFELN);
+		ClientRequest anfrageKopie = (ClientRequest)uebertragen(format, anfrage);
+		if(anfrageKopie.getSpielZustandSchluessel() != -7L
+				|| anfrageKopie.getSpielerSchluessel() != 123_456_789_012L
+				|| anfrageKopie.getGeheimnis() != Long.MIN_VALUE
+				|| anfrageKopie.getInfo() != ClientRequestInfo.WUERFELN
+				|| anfrageKopie.getFigurSchluessel() != null) {
+			throw new AssertionError(format + ": der ClientRequest hat sich verändert");
+		}
+		
+		ClientRequest ziehen = ClientRequest.erstellenZiehenClientRequest(1L, 2L, 3L, 42L);
+		ClientRequest ziehenKopie = (ClientRequest)uebertragen(format, ziehen);
+		if(ziehenKopie.getInfo() != ClientRequestInfo.ZIEHEN || !Long.valueOf(42L).equals(ziehenKopie.getFigurSchluessel())) {
+			throw new AssertionError(format + ": der ZIEHEN-Request hat sich verändert");
+		}
+		ClientRequest wiederholbar = (ClientRequest)uebertragen(format, ziehen.mitIdempotenzSchluessel(Long.MIN_VALUE + 5));
+		if(!Long.valueOf(Long.MIN_VALUE + 5).equals(wiederholbar.getIdempotenzSchluessel())
+				|| !Long.valueOf(42L).equals(wiederholbar.getFigurSchluessel())
+				|| ziehenKopie.getIdempotenzSchluessel() != null) {
+			throw new AssertionError(format + ": der Idempotenz-Schlüssel hat sich verändert");
+		}
+
+		ClientRequest warten = ClientRequest.erstellenWarteAufZugClientRequest(1L, 2L, 3L, 25_000L);
+		ClientRequest wartenKopie = (ClientRequest)uebertragen(format, warten);
+		if(wartenKopie.getInfo() != ClientRequestInfo.WARTE_AUF_ZUG || !Long.valueOf(25_000L).equals(wartenKopie.getWartezeitMillis())) {
+			throw new AssertionError(format + ": der WARTE_AUF_ZUG-Request hat sich verändert");
+		}
+		if(((ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(WarteErgebnis.DRAN))).getInhalt() != WarteErgebnis.DRAN) {
+			throw new AssertionError(format + ": das WarteErgebnis hat sich verändert");
+		}
+		
+		ClientRequest stapel = ClientRequest.erstellenStapelClientRequest(1L, 2L, 3L, List.of(
+				StapelSchritt.erstellenWuerfelnSchritt(Bedingung.WENN_MUSS_WUERFELN),
+				StapelSchritt.erstellenZiehenSchritt(Bedingung.WENN_MUSS_ZIEHEN, 42L),
+				StapelSchritt.erstellenZiehenSchritt(Bedingung.IMMER, null),
+				StapelSchritt.erstellenNaechsterSpielerSchritt(Bedingung.WENN_FERTIG)
+		));
+		ClientRequest stapelKopie = (ClientRequest)uebertragen(format, stapel);
+		if(!String.valueOf(stapel.getSchritte()).equals(String.valueOf(stapelKopie.getSchritte()))) {
+			throw new AssertionError(format + ": der STAPEL-Request hat sich verändert: " + stapelKopie.getSchritte());
+		}
+		StapelErgebnis stapelErgebnis = new StapelErgebnis(List.of(
+				SchrittErgebnis.erstellenAusgefuehrt(WuerfelErgebnis.VIER, null),
+				SchrittErgebnis.erstellenAusgefuehrt(null, 42L),
+				SchrittErgebnis.erstellenUebersprungen(),
+				SchrittErgebnis.erstellenFehlgeschlagen("nicht dran: äöü")
+		), AktiverSpielerTodoAktion.FERTIG);
+		Object stapelErgebnisKopie = ((ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(stapelErgebnis))).getInhalt();
+		if(!stapelErgebnis.toString().equals(String.valueOf(stapelErgebnisKopie))) {
+			throw new AssertionError(format + ": das StapelErgebnis hat sich verändert: " + stapelErgebnisKopie);
+		}
+		
+		// nach mehreren Sechsen hat der aktive Spieler mehr als 3 Würfel-Versuche
+		AktiverSpielerDekorator aktiverSpieler = spielZustand.getAktiverSpieler();
+		while(aktiverSpieler.getWuerfelVersuchsAnzahl() < 5) {
+			aktiverSpieler.setWuerfelErgebnis(WuerfelErgebnis.SECHS);
+		}
+		SpielZustand vieleVersuche = (SpielZustand)((ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(spielZustand))).getInhalt();
+		if(vieleVersuche.getAktiverSpieler().getWuerfelVersuchsAnzahl() != aktiverSpieler.getWuerfelVersuchsAnzahl()) {
+			throw new AssertionError(format + ": die Anzahl der Würfel-Versuche hat sich verändert");
+		}
+		
+		ServerAntwort fehler = (ServerAntwort)uebertragen(format,
+				ServerAntwort.erstellenFehlerServerAntwort(ServerAntwortStatus.NICHT_AUTORISIERT, "falsches Geheimnis: äöü"));
+		if(fehler.getStatus() != ServerAntwortStatus.NICHT_AUTORISIERT || !"falsches Geheimnis: äöü".equals(fehler.getNachricht())) {
+			throw new AssertionError(format + ": die Fehler-Antwort hat sich verändert");
+		}
+		
+		ServerAntwort ueberlastet = (ServerAntwort)uebertragen(format,
+				ServerAntwort.erstellenUeberlastetServerAntwort("die Sitzung ist ausgelastet", 250));
+		if(
+				ueberlastet.getStatus() != ServerAntwortStatus.UEBERLASTET
+				|| ueberlastet.getWiederholenNachMillis() != 250
+				|| !"die Sitzung ist ausgelastet".equals(ueberlastet.getNachricht())
+		) {
+			throw new AssertionError(format + ": die Überlast-Antwort hat sich verändert");
+		}
+
+		ServerAntwort umgeleitet = (ServerAntwort)uebertragen(format,
+				ServerAntwort.erstellenUmgeleitetServerAntwort("die Sitzung ist umgezogen", "knoten-2.example", 4711));
+		if(
+				umgeleitet.getStatus() != ServerAntwortStatus.UMGELEITET
+				|| !"knoten-2.example".equals(umgeleitet.getZielHost())
+				|| umgeleitet.getZielPort() != 4711
+				|| !"die Sitzung ist umgezogen".equals(umgeleitet.getNachricht())
+		) {
+			throw new AssertionError(format + ": die Umleitungs-Antwort hat sich verändert");
+		}
+
+		ServerAntwort wuerfel = (ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(WuerfelErgebnis.SECHS));
+		if(wuerfel.getInhalt() != WuerfelErgebnis.SECHS) {
+			throw new AssertionError(format + ": das WuerfelErgebnis hat sich verändert");
+		}
+		
+		List<Figur> figuren = new ArrayList<>(spielZustand.getFigurenMenge());
+		ArrayList<SpielZug> zuege = new ArrayList<>();
+		zuege.add(new SpielZug(figuren.get(0), WuerfelErgebnis.DREI, figuren.get(1).getSpielFeld(), figuren.get(1)));
+		zuege.add(new SpielZug(figuren.get(0), WuerfelErgebnis.SECHS, figuren.get(0).getSpielFeld(), null));
+		List<?> zuegeKopie = (List<?>)((ServerAntwort)uebertragen(format, ServerAntwort.erstellenServerAntwort(zuege))).getInhalt();
+		for(int i = 0; i < zuege.size(); i++) {
+			if(!zuege.get(i).equalsDaten((SpielZug)zuegeKopie.get(i))) {
+				throw new AssertionError(format + ": der SpielZug " + i + " hat sich verändert");
+			}
+		}
+		if(((SpielZug)zuegeKopie.get(0)).getZugFigur() != ((SpielZug)zuegeKopie.get(1)).getZugFigur()) {
+			throw new AssertionError(format + ": die gemeinsame Figur der Züge wurde kopiert");
+		}
+	}
+	
+	private static void pruefenBeschaedigteNutzdaten(SpielZustand spielZustand) throws Exception {
+		byte[] nutzdaten = NachrichtenRahmen.kodieren(ServerAntwort.erstellenServerAntwort(spielZustand), NachrichtenFormat.BINAER);
+		
+		for(int laenge : new int[] {0, 1, 2, nutzdaten.length / 2, nutzdaten.length - 1}) {
+			erwartenIOException("gekürzt auf " + laenge + " Bytes", Arrays.copyOf(nutzdaten, laenge));
+		}
+		
+		byte[] andereVersion = nutzdaten.clone();
+		andereVersion[1] = BinaerCodec.SCHEMA_VERSION + 1;
+		erwartenIOException("fremde Schema-Version", andereVersion);
+		
+		byte[] angehaengt = Arrays.copyOf(nutzdaten, nutzdaten.length + 1);
+		erwartenIOException("überzähliges Byte", angehaengt);
+		
+		System.out.println("Beschädigte Nutzdaten und fremde Schema-Versionen werden abgelehnt.");
+	}
+	
+	private static void erwartenIOException(String fall, byte[] nutzdaten) throws ClassNotFoundException {
+		try {
+			NachrichtenRahmen.dekodieren(nutzdaten);
+		} catch(IOException erwartet) {
+			return;
+		}
+		throw new AssertionError("Nutzdaten " + fall + " wurden nicht abgelehnt");
+	}
+	
+	private static void messen(SpielZustand spielZustand) throws Exception {
+		ServerAntwort antwort = ServerAntwort.erstellenServerAntwort(spielZustand);
+		System.out.println("\nMessung mit einem SpielZustand (" + spielZustand.getSpielerMenge().size() + " Spieler, "
+				+ spielZustand.getFigurenMenge().size() + " Figuren), beste von " + ANZAHL_RUNDEN + " Runden mit je " + ANZAHL_WIEDERHOLUNGEN + " Wiederholungen:");
+		
+		long[] bytes = new long[NachrichtenFormat.values().length];
+		double[] mikrosekunden = new double[NachrichtenFormat.values().length];
+		for(NachrichtenFormat format : NachrichtenFormat.values()) {
+			NachrichtenCodec codec = format.getCodec();
+			byte[] nutzdaten = codec.kodieren(antwort);
+			
+			// mehrere Runden, die erste wärmt den JIT-Compiler auf, gezählt wird die schnellste
+			double kodieren = Double.MAX_VALUE;
+			double dekodieren = Double.MAX_VALUE;
+			for(int runde = 0; runde < ANZAHL_RUNDEN; runde++) {
+				long start = System.nanoTime();
+				for(int i = 0; i < ANZAHL_WIEDERHOLUNGEN; i++) {
+					codec.kodieren(antwort);
+				}
+				kodieren = Math.min(kodieren, (System.nanoTime() - start) / 1_000.0 / ANZAHL_WIEDERHOLUNGEN);
+				
+				start = System.nanoTime();
+				for(int i = 0; i < ANZAHL_WIEDERHOLUNGEN; i++) {
+					codec.dekodieren(nutzdaten);
+				}
+				dekodieren = Math.min(dekodieren, (System.nanoTime() - start) / 1_000.0 / ANZAHL_WIEDERHOLUNGEN);
+			}
+			
+			bytes[format.ordinal()] = nutzdaten.length;
+			mikrosekunden[format.ordinal()] = kodieren + dekodieren;
+			System.out.printf("  %-20s %6d Bytes, kodieren %8.2f µs, dekodieren %8.2f µs%n", format, nutzdaten.length, kodieren, dekodieren);
+		}
+		
+		int java = NachrichtenFormat.JAVA_SERIALISIERUNG.ordinal();
+		int binaer = NachrichtenFormat.BINAER.ordinal();
+		double faktorBytes = (double)bytes[java] / bytes[binaer];
+		double faktorZeit = mikrosekunden[java] / mikrosekunden[binaer];
+		System.out.printf("  Binär-Format: %.1f-mal weniger Bytes, %.1f-mal weniger Zeit%n", faktorBytes, faktorZeit);
+		
+		if(faktorBytes < 10) {
+			throw new AssertionError("das Binär-Format sollte mindestens 10-mal kleiner sein");
+		}
+		if(faktorZeit < 1) {
+			throw new AssertionError("das Binär-Format sollte schneller sein");
+		}
+	}
+}